@@ -6,6 +6,42 @@ package com.alerts;
 public abstract class AlertFactory {
     public abstract Alert createAlert(String patientId, String condition, long timestamp);
 
+    /**
+     * Returns the factory for an alert category as used in rule definitions:
+     * {@code bloodPressure}, {@code bloodOxygen}, {@code hypotensiveHypoxemia}, {@code ecg},
+     * {@code manual} or {@code general}.
+     *
+     * @param category the category name
+     * @return the factory for that category
+     * @throws IllegalArgumentException if the category is unknown
+     */
+    public static AlertFactory forCategory(String category) {
+        switch (category) {
+            case "bloodPressure":
+                return new BloodPressureAlertFactory();
+            case "bloodOxygen":
+                return new BloodOxygenAlertFactory();
+            case "hypotensiveHypoxemia":
+                return new HypotensiveHypoxemiaAlertFactory();
+            case "ecg":
+                return new ECGAlertFactory();
+            case "manual":
+                return new ManualAlertFactory();
+            case "general":
+                return new GeneralAlertFactory();
+            default:
+                throw new IllegalArgumentException("Unknown alert category: " + category);
+        }
+    }
+
+    // Factory for alerts without a specific category; the condition is used as-is
+    public static class GeneralAlertFactory extends AlertFactory {
+        @Override
+        public Alert createAlert(String patientId, String condition, long timestamp) {
+            return new Alert(patientId, condition, timestamp);
+        }
+    }
+
     // Factory for blood pressure alerts
     public static class BloodPressureAlertFactory extends AlertFactory {
         @Override
@@ -1,12 +1,17 @@
 package com.alerts;
 
+import com.alerts.rules.RuleEngine;
 import com.data_management.DataStorage;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
+import com.metrics.PipelineLatency;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -18,18 +23,56 @@ import java.util.stream.Collectors;
 
 public class AlertGenerator {
     private DataStorage dataStorage;
+    private final RuleEngine ruleEngine;
+    private Consumer<Alert> alertHandler = AlertGenerator::logAlert;
+
+    private final AlertFactory bloodPressureAlerts = new AlertFactory.BloodPressureAlertFactory();
+    private final AlertFactory bloodOxygenAlerts = new AlertFactory.BloodOxygenAlertFactory();
+    private final AlertFactory hypotensiveHypoxemiaAlerts = new AlertFactory.HypotensiveHypoxemiaAlertFactory();
+    private final AlertFactory ecgAlerts = new AlertFactory.ECGAlertFactory();
+    private final AlertFactory manualAlerts = new AlertFactory.ManualAlertFactory();
 
     public AlertGenerator(DataStorage dataStorage) {
+        this(dataStorage, null);
+    }
+
+    /**
+     * Creates an alert generator that evaluates the rules of the given {@link RuleEngine}
+     * instead of the built-in hard-coded checks.
+     *
+     * @param dataStorage the storage holding patient data
+     * @param ruleEngine  the rule engine to evaluate, or {@code null} for the built-in checks
+     */
+    public AlertGenerator(DataStorage dataStorage, RuleEngine ruleEngine) {
         this.dataStorage = dataStorage;
+        this.ruleEngine = ruleEngine;
     }
 
     /**
      * Evaluates the given patient's medical data and checks for all defined alert conditions,
      * including blood pressure, oxygen saturation, hypotensive hypoxemia, ECG anomalies, and manual alerts.
+     * When a {@link RuleEngine} is configured, its currently loaded rules are evaluated instead,
+     * incrementally: only the records added since the patient's previous evaluation are
+     * scored, so periodic rounds cost the same however long the history grows.
      *
      * @param patient the patient whose data will be evaluated for possible alert conditions
      */
     public void evaluateData(Patient patient) {
+        if (ruleEngine != null) {
+            evaluateData(patient, Collections.emptySet());
+            return;
+        }
+        long start = System.nanoTime();
+        long previous = PipelineLatency.evaluating(patient.getPatientId(), start);
+        try {
+            runBuiltInChecks(patient);
+        } finally {
+            PipelineLatency.handling(previous);
+        }
+        PipelineLatency.record(PipelineLatency.Stage.EVALUATION, (System.nanoTime() - start) / 1000);
+    }
+
+    private void runBuiltInChecks(Patient patient) {
         checkBloodPressureAlerts(patient);
         checkBloodSaturationAlerts(patient);
         checkHypotensiveHypoxemia(patient);
@@ -37,14 +80,55 @@ public class AlertGenerator {
         checkManualAlerts(patient);
     }
 
+    /**
+     * Evaluates only the alert conditions that depend on the given record types, typically the
+     * types that just received new data. Without a {@link RuleEngine} all built-in checks run.
+     *
+     * @param patient     the patient whose data will be evaluated
+     * @param recordTypes the record types that changed
+     */
+    public void evaluateData(Patient patient, Set<String> recordTypes) {
+        if (ruleEngine == null) {
+            evaluateData(patient);
+            return;
+        }
+        long start = System.nanoTime();
+        long previous = PipelineLatency.evaluating(patient.getPatientId(), start);
+        try {
+            ruleEngine.evaluate(patient, recordTypes, this::triggerAlert);
+        } finally {
+            PipelineLatency.handling(previous);
+        }
+        PipelineLatency.record(PipelineLatency.Stage.EVALUATION, (System.nanoTime() - start) / 1000);
+    }
+
 
     /**
-     * Triggers an alert by logging its details to the console. This method can be extended
-     * in future to notify medical staff, store alerts persistently, or integrate with alert systems.
+     * Sets where triggered alerts go, e.g. an {@link AlertManager} that deduplicates them
+     * before output. By default alerts are logged to the console.
+     *
+     * @param alertHandler receives every alert raised during evaluation
+     */
+    public void setAlertHandler(Consumer<Alert> alertHandler) {
+        this.alertHandler = alertHandler;
+    }
+
+    /**
+     * Triggers an alert by passing it to the configured alert handler, which logs its
+     * details to the console unless replaced via {@link #setAlertHandler(Consumer)}.
      *
      * @param alert the alert object containing patient ID, condition, and timestamp
      */
     public void triggerAlert(Alert alert) {
+        alertHandler.accept(alert);
+    }
+
+    /**
+     * Logs an alert's details to the console.
+     *
+     * @param alert the alert to log
+     */
+    public static void logAlert(Alert alert) {
         System.out.println("ALERT: Patient " + alert.getPatientId()
                 + " - Condition: " + alert.getCondition()
                 + " @ " + alert.getTimestamp());
@@ -67,12 +151,12 @@ public class AlertGenerator {
             if ("Systolic".equalsIgnoreCase(r.getRecordType())) {
                 systolic.add(r);
                 if (r.getMeasurementValue() > 180 || r.getMeasurementValue() < 90) {
-                    triggerAlert(new Alert(String.valueOf(r.getPatientId()), "Critical Systolic: " + r.getMeasurementValue(), r.getTimestamp()));
+                    triggerAlert(bloodPressureAlerts.createAlert(String.valueOf(r.getPatientId()), "Critical Systolic: " + r.getMeasurementValue(), r.getTimestamp()));
                 }
             } else if ("Diastolic".equalsIgnoreCase(r.getRecordType())) {
                 diastolic.add(r);
                 if (r.getMeasurementValue() > 120 || r.getMeasurementValue() < 60) {
-                    triggerAlert(new Alert(String.valueOf(r.getPatientId()), "Critical Diastolic: " + r.getMeasurementValue(), r.getTimestamp()));
+                    triggerAlert(bloodPressureAlerts.createAlert(String.valueOf(r.getPatientId()), "Critical Diastolic: " + r.getMeasurementValue(), r.getTimestamp()));
                 }
             }
         }
@@ -99,9 +183,9 @@ public class AlertGenerator {
             long ts = readings.get(i + 2).getTimestamp();
 
             if ((v2 - v1 > 10) && (v3 - v2 > 10)) {
-                triggerAlert(new Alert(String.valueOf(patient.getPatientId()), type + " Increasing Trend", ts));
+                triggerAlert(bloodPressureAlerts.createAlert(String.valueOf(patient.getPatientId()), type + " Increasing Trend", ts));
             } else if ((v1 - v2 > 10) && (v2 - v3 > 10)) {
-                triggerAlert(new Alert(String.valueOf(patient.getPatientId()), type + " Decreasing Trend", ts));
+                triggerAlert(bloodPressureAlerts.createAlert(String.valueOf(patient.getPatientId()), type + " Decreasing Trend", ts));
             }
         }
     }
@@ -123,7 +207,7 @@ public class AlertGenerator {
         for (int i = 0; i < saturation.size(); i++) {
             PatientRecord r = saturation.get(i);
             if (r.getMeasurementValue() < 92) {
-                triggerAlert(new Alert(String.valueOf(r.getPatientId()), "Low Oxygen Saturation", r.getTimestamp()));
+                triggerAlert(bloodOxygenAlerts.createAlert(String.valueOf(r.getPatientId()), "Low Oxygen Saturation", r.getTimestamp()));
             }
 
             // Check for 5% drop in the last 10 minutes (600_000 ms)
@@ -133,7 +217,7 @@ public class AlertGenerator {
 
                 double drop = r.getMeasurementValue() - next.getMeasurementValue();
                 if (drop >= 5) {
-                    triggerAlert(new Alert(String.valueOf(r.getPatientId()), "Rapid O2 Saturation Drop", next.getTimestamp()));
+                    triggerAlert(bloodOxygenAlerts.createAlert(String.valueOf(r.getPatientId()), "Rapid O2 Saturation Drop", next.getTimestamp()));
                     break;
                 }
             }
@@ -168,7 +252,7 @@ public class AlertGenerator {
                 for (PatientRecord o2 : saturation) {
                     if (Math.abs(s.getTimestamp() - o2.getTimestamp()) < 5 * 60 * 1000 // 5 minutes
                             && o2.getMeasurementValue() < 92) {
-                        triggerAlert(new Alert(String.valueOf(s.getPatientId()), "Hypotensive Hypoxemia Alert", s.getTimestamp()));
+                        triggerAlert(hypotensiveHypoxemiaAlerts.createAlert(String.valueOf(s.getPatientId()), "Low Systolic with Low Saturation", s.getTimestamp()));
                         break;
                     }
                 }
@@ -196,7 +280,7 @@ public class AlertGenerator {
 
             for (PatientRecord r : window) {
                 if (r.getMeasurementValue() > avg * 1.5) {
-                    triggerAlert(new Alert(String.valueOf(r.getPatientId()), "Abnormal ECG Peak", r.getTimestamp()));
+                    triggerAlert(ecgAlerts.createAlert(String.valueOf(r.getPatientId()), "Abnormal Peak", r.getTimestamp()));
                 }
             }
         }
@@ -211,7 +295,7 @@ public class AlertGenerator {
         List<PatientRecord> records = patient.getRecords(0, Long.MAX_VALUE);
         for (PatientRecord r : records) {
             if ("ManualAlert".equalsIgnoreCase(r.getRecordType())) {
-                triggerAlert(new Alert(String.valueOf(r.getPatientId()), "Manual Alert Triggered", r.getTimestamp()));
+                triggerAlert(manualAlerts.createAlert(String.valueOf(r.getPatientId()), "Triggered", r.getTimestamp()));
             }
         }
     }
@@ -0,0 +1,318 @@
+package com.alerts;
+
+import com.metrics.PipelineLatency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sits between alert rules and alert output and turns raw rule firings into clinical events.
+ * <p>
+ * Rules re-evaluate a patient's whole history on every cycle, so the same reading fires the
+ * same alert again and again. The manager groups firings into <em>episodes</em> keyed by
+ * (patient, condition) and forwards only what a clinician needs to see:
+ * </p>
+ * <ul>
+ *   <li>a firing whose reading is not newer than the episode's latest reading is a duplicate;</li>
+ *   <li>an episode resolves when no new firing arrives for {@code resolveAfterMillis};</li>
+ *   <li>a new episode starting within {@code holdOffMillis} of the last notification is tracked
+ *       but not re-announced (flapping suppression);</li>
+ *   <li>an episode that stays open is re-announced every {@code escalationIntervalMillis};</li>
+ *   <li>each patient gets at most {@code maxAlertsPerWindow} notifications per {@code rateWindowMillis};
+ *       an episode whose onset was rate limited is announced on its next firing the limit allows.</li>
+ * </ul>
+ * All intervals are measured in data time (alert timestamps), so replaying history gives the
+ * same result as live evaluation. Conditions are compared up to the first {@code ':'}, so
+ * "Critical Systolic: 185.0" and "Critical Systolic: 186.0" belong to the same episode.
+ */
+public class AlertManager implements Consumer<Alert> {
+
+    private final Consumer<Alert> downstream;
+    private final long resolveAfterMillis;
+    private final long holdOffMillis;
+    private final long escalationIntervalMillis;
+    private final int maxAlertsPerWindow;
+    private final long rateWindowMillis;
+
+    private final Map<String, PatientAlerts> patients = new ConcurrentHashMap<>();
+
+    private final AtomicLong notified = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong heldOff = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong escalations = new AtomicLong();
+
+    /**
+     * Creates a manager with ward defaults: resolve after 5 minutes without a firing, 2 minutes
+     * hold-off, escalation every 15 minutes and at most 10 notifications per patient per minute.
+     *
+     * @param downstream receives the alerts that should be announced
+     */
+    public AlertManager(Consumer<Alert> downstream) {
+        this(downstream, 5 * 60_000L, 2 * 60_000L, 15 * 60_000L, 10, 60_000L);
+    }
+
+    /**
+     * Creates a manager with explicit intervals.
+     *
+     * @param downstream               receives the alerts that should be announced
+     * @param resolveAfterMillis       quiet time after which an open episode is considered resolved
+     * @param holdOffMillis            minimum time between the announcements of two episodes of the same condition
+     * @param escalationIntervalMillis how often an ongoing episode is re-announced; {@code 0} disables escalation
+     * @param maxAlertsPerWindow       maximum announcements per patient per rate window
+     * @param rateWindowMillis         length of the per-patient rate window
+     */
+    public AlertManager(Consumer<Alert> downstream, long resolveAfterMillis, long holdOffMillis,
+                        long escalationIntervalMillis, int maxAlertsPerWindow, long rateWindowMillis) {
+        if (maxAlertsPerWindow <= 0) {
+            throw new IllegalArgumentException("maxAlertsPerWindow must be positive");
+        }
+        this.downstream = downstream;
+        this.resolveAfterMillis = resolveAfterMillis;
+        this.holdOffMillis = holdOffMillis;
+        this.escalationIntervalMillis = escalationIntervalMillis;
+        this.maxAlertsPerWindow = maxAlertsPerWindow;
+        this.rateWindowMillis = rateWindowMillis;
+    }
+
+    /**
+     * Submits a rule firing. The alert is forwarded downstream only if it starts a new episode
+     * or escalates an ongoing one, and the patient's rate limit allows it.
+     *
+     * @param alert the alert raised by a rule
+     */
+    @Override
+    public void accept(Alert alert) {
+        Alert toSend;
+        PatientAlerts state = patients.computeIfAbsent(alert.getPatientId(), id -> new PatientAlerts(maxAlertsPerWindow));
+        synchronized (state) {
+            toSend = decide(state, alert);
+        }
+        if (toSend != null) {
+            notified.incrementAndGet();
+            PipelineLatency.announced();
+            downstream.accept(toSend);
+        }
+    }
+
+    private Alert decide(PatientAlerts state, Alert alert) {
+        long ts = alert.getTimestamp();
+        String key = conditionKey(alert.getCondition());
+        Episode episode = state.episodes.get(key);
+
+        if (episode != null && ts <= episode.lastTimestamp) {
+            duplicates.incrementAndGet();
+            return null;
+        }
+        if (episode != null && episode.open && ts - episode.lastTimestamp <= resolveAfterMillis) {
+            episode.lastTimestamp = ts;
+            episode.occurrences++;
+            if (episode.unannounced) {
+                // The onset was rate limited; retry it with this firing
+                return announce(state, episode, alert, false);
+            }
+            if (escalationIntervalMillis > 0 && ts - episode.lastNotified >= escalationIntervalMillis) {
+                return announce(state, episode, new Alert(alert.getPatientId(),
+                        alert.getCondition() + " (ongoing, escalation " + (episode.escalations + 1) + ")", ts), true);
+            }
+            duplicates.incrementAndGet();
+            return null;
+        }
+
+        // New episode: either the first one, or the previous one has gone quiet long enough to resolve
+        long lastNotified = episode != null ? episode.lastNotified : Long.MIN_VALUE;
+        Episode next = new Episode(alert.getPatientId(), key, ts);
+        next.lastNotified = lastNotified;
+        state.episodes.put(key, next);
+        if (lastNotified != Long.MIN_VALUE && ts - lastNotified < holdOffMillis) {
+            heldOff.incrementAndGet();
+            return null;
+        }
+        return announce(state, next, alert, false);
+    }
+
+    // Takes a notification from the patient's rate limit and only then records the episode as
+    // announced; a rate-limited onset is retried on the episode's next firing
+    private Alert announce(PatientAlerts state, Episode episode, Alert alert, boolean escalation) {
+        if (!state.tryAcquire(alert.getTimestamp(), rateWindowMillis)) {
+            rateLimited.incrementAndGet();
+            if (!escalation) {
+                episode.unannounced = true;
+            }
+            return null;
+        }
+        episode.lastNotified = alert.getTimestamp();
+        episode.unannounced = false;
+        if (escalation) {
+            episode.escalations++;
+            escalations.incrementAndGet();
+        }
+        return alert;
+    }
+
+    /**
+     * Marks every open episode whose latest firing is older than {@code resolveAfterMillis}
+     * relative to {@code now} as resolved.
+     *
+     * @param now the current time, in the same time base as alert timestamps
+     * @return the episodes resolved by this call
+     */
+    public List<Episode> resolveStale(long now) {
+        List<Episode> resolved = new ArrayList<>();
+        for (PatientAlerts state : patients.values()) {
+            synchronized (state) {
+                for (Episode e : state.episodes.values()) {
+                    if (e.open && now - e.lastTimestamp > resolveAfterMillis) {
+                        e.open = false;
+                        resolved.add(e.copy());
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns a snapshot of the patient's episodes, open and resolved.
+     *
+     * @param patientId the patient ID as used in {@link Alert#getPatientId()}
+     * @return copies of the patient's episodes
+     */
+    public List<Episode> getEpisodes(String patientId) {
+        List<Episode> result = new ArrayList<>();
+        PatientAlerts state = patients.get(patientId);
+        if (state != null) {
+            synchronized (state) {
+                for (Episode e : state.episodes.values()) {
+                    result.add(e.copy());
+                }
+            }
+        }
+        return result;
+    }
+
+    public long getNotifiedCount() {
+        return notified.get();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getHeldOffCount() {
+        return heldOff.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    public long getEscalationCount() {
+        return escalations.get();
+    }
+
+    /**
+     * Returns the part of a condition that identifies an episode: the text before the first
+     * {@code ':'}, which drops measured values such as "Critical Systolic: 185.0".
+     *
+     * @param condition the alert condition
+     * @return the condition key
+     */
+    public static String conditionKey(String condition) {
+        int colon = condition.indexOf(':');
+        return colon >= 0 ? condition.substring(0, colon).trim() : condition;
+    }
+
+    /**
+     * A run of firings of one condition for one patient.
+     */
+    public static class Episode {
+        private final String patientId;
+        private final String condition;
+        private final long startTimestamp;
+        private long lastTimestamp;
+        private long lastNotified;
+        private int occurrences = 1;
+        private int escalations;
+        private boolean open = true;
+        private boolean unannounced; // the onset was rate limited and is still owed
+
+        Episode(String patientId, String condition, long startTimestamp) {
+            this.patientId = patientId;
+            this.condition = condition;
+            this.startTimestamp = startTimestamp;
+            this.lastTimestamp = startTimestamp;
+            this.lastNotified = startTimestamp;
+        }
+
+        private Episode copy() {
+            Episode e = new Episode(patientId, condition, startTimestamp);
+            e.lastTimestamp = lastTimestamp;
+            e.lastNotified = lastNotified;
+            e.occurrences = occurrences;
+            e.escalations = escalations;
+            e.open = open;
+            e.unannounced = unannounced;
+            return e;
+        }
+
+        public String getPatientId() {
+            return patientId;
+        }
+
+        public String getCondition() {
+            return condition;
+        }
+
+        public long getStartTimestamp() {
+            return startTimestamp;
+        }
+
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        public int getEscalations() {
+            return escalations;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+    }
+
+    /**
+     * Episodes and rate-limit state of one patient; guarded by its own monitor.
+     */
+    private static class PatientAlerts {
+        final Map<String, Episode> episodes = new HashMap<>();
+        // Timestamps of the most recent notifications, used as a sliding-window rate limiter
+        final long[] recent;
+        int next;
+
+        PatientAlerts(int maxAlertsPerWindow) {
+            recent = new long[maxAlertsPerWindow];
+            Arrays.fill(recent, Long.MIN_VALUE);
+        }
+
+        boolean tryAcquire(long timestamp, long windowMillis) {
+            // recent[next] is the oldest of the last N notifications
+            if (recent[next] != Long.MIN_VALUE && timestamp - recent[next] < windowMillis) {
+                return false;
+            }
+            recent[next] = timestamp;
+            next = (next + 1) % recent.length;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.alerts;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientDataListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates a patient's alert rules as soon as new data for that patient is stored.
+ * <p>
+ * Registered as a {@link PatientDataListener} on a {@link DataStorage}, it records which
+ * record types changed for each patient and schedules one evaluation per patient. Data that
+ * arrives while an evaluation is pending or running is coalesced into the next evaluation,
+ * so a burst of readings costs one or two evaluations instead of one per reading, and a
+ * patient is never evaluated concurrently with itself. Each task evaluates once; a patient
+ * with more data is queued again, so patients streaming continuously take turns on the
+ * evaluation threads with everyone else. Only the rules that read the changed
+ * record types are run.
+ * </p>
+ */
+public class ReactiveAlertEvaluator implements PatientDataListener {
+
+    private final AlertGenerator alertGenerator;
+    private final DataStorage dataStorage;
+    private final ScheduledExecutorService executor;
+    private final long coalesceMillis;
+    private final Map<Integer, PendingPatient> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong notifications = new AtomicLong();
+    private final AtomicLong evaluations = new AtomicLong();
+
+    /**
+     * Creates a reactive evaluator and registers it with the storage.
+     *
+     * @param alertGenerator the generator used to evaluate patients
+     * @param dataStorage    the storage to listen to
+     * @param threads        the number of evaluation threads
+     * @param coalesceMillis how long to wait after the first new reading before evaluating,
+     *                       to gather a burst into one evaluation; {@code 0} evaluates immediately
+     */
+    public ReactiveAlertEvaluator(AlertGenerator alertGenerator, DataStorage dataStorage, int threads, long coalesceMillis) {
+        this.alertGenerator = alertGenerator;
+        this.dataStorage = dataStorage;
+        this.coalesceMillis = coalesceMillis;
+        this.executor = Executors.newScheduledThreadPool(threads, r -> {
+            Thread t = new Thread(r, "reactive-alert-evaluator");
+            t.setDaemon(true);
+            return t;
+        });
+        dataStorage.addDataListener(this);
+    }
+
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        notifications.incrementAndGet();
+        PendingPatient state = pending.computeIfAbsent(patientId, PendingPatient::new);
+        boolean schedule;
+        synchronized (state) {
+            state.changedTypes.add(recordType);
+            schedule = !state.scheduled;
+            state.scheduled = true;
+        }
+        if (schedule) {
+            submit(state);
+        }
+    }
+
+    private void submit(PendingPatient state) {
+        try {
+            if (coalesceMillis > 0) {
+                executor.schedule(() -> drain(state), coalesceMillis, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(() -> drain(state));
+            }
+        } catch (RejectedExecutionException e) {
+            synchronized (state) {
+                state.scheduled = false; // shut down
+            }
+        }
+    }
+
+    // Evaluates once, then hands the thread back: a patient whose data kept arriving meanwhile
+    // is submitted again behind the other patients' drains, so a continuously streaming patient
+    // cannot hold a pool thread forever. Only one drain per patient is pending or running.
+    private void drain(PendingPatient state) {
+        Set<String> changed;
+        synchronized (state) {
+            changed = state.changedTypes;
+            state.changedTypes = new HashSet<>();
+        }
+        Patient patient = dataStorage.getPatient(state.patientId);
+        if (patient != null && !changed.isEmpty()) {
+            try {
+                alertGenerator.evaluateData(patient, changed);
+                evaluations.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("Reactive evaluation failed for patient " + state.patientId + ": " + e.getMessage());
+            }
+        }
+        boolean again;
+        synchronized (state) {
+            again = !state.changedTypes.isEmpty();
+            state.scheduled = again;
+        }
+        if (again) {
+            submit(state);
+        }
+    }
+
+    /**
+     * Unregisters from the storage and stops the evaluation threads.
+     */
+    public void shutdown() {
+        dataStorage.removeDataListener(this);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the number of data notifications received.
+     *
+     * @return the notification count
+     */
+    public long getNotificationCount() {
+        return notifications.get();
+    }
+
+    /**
+     * Returns the number of evaluations run; lower than the notification count when bursts were coalesced.
+     *
+     * @return the evaluation count
+     */
+    public long getEvaluationCount() {
+        return evaluations.get();
+    }
+
+    private static class PendingPatient {
+        final int patientId;
+        Set<String> changedTypes = new HashSet<>();
+        boolean scheduled;
+
+        PendingPatient(int patientId) {
+            this.patientId = patientId;
+        }
+    }
+}
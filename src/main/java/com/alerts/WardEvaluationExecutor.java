@@ -0,0 +1,192 @@
+package com.alerts;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically evaluates every patient in a {@link DataStorage} in parallel.
+ * <p>
+ * Each evaluation round splits the ward's patient list recursively across a work-stealing
+ * {@link ForkJoinPool}, so idle workers take over patients from busy ones and throughput
+ * grows with the number of cores. Rounds are started at a fixed period and do not wait for
+ * each other; a patient whose previous evaluation is still running is skipped for that round,
+ * which guarantees that a patient is never evaluated concurrently with itself.
+ * </p>
+ */
+public class WardEvaluationExecutor {
+
+    /**
+     * Number of patients below which a round's sub-range is evaluated directly instead of split further.
+     */
+    private static final int SPLIT_THRESHOLD = 8;
+
+    private final AlertGenerator alertGenerator;
+    private final DataStorage dataStorage;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile Runnable roundListener;
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Creates an executor with one worker per available core.
+     *
+     * @param alertGenerator the generator used to evaluate each patient
+     * @param dataStorage    the storage providing the ward's patients
+     */
+    public WardEvaluationExecutor(AlertGenerator alertGenerator, DataStorage dataStorage) {
+        this(alertGenerator, dataStorage, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an executor with a fixed number of workers.
+     *
+     * @param alertGenerator the generator used to evaluate each patient
+     * @param dataStorage    the storage providing the ward's patients
+     * @param parallelism    the number of worker threads
+     */
+    public WardEvaluationExecutor(AlertGenerator alertGenerator, DataStorage dataStorage, int parallelism) {
+        this.alertGenerator = alertGenerator;
+        this.dataStorage = dataStorage;
+        this.pool = new ForkJoinPool(parallelism);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "ward-evaluation-scheduler"));
+    }
+
+    /**
+     * Sets a callback that runs after each completed evaluation round, e.g. to resolve stale alert episodes.
+     *
+     * @param roundListener the callback, or {@code null} for none
+     */
+    public void setRoundListener(Runnable roundListener) {
+        this.roundListener = roundListener;
+    }
+
+    /**
+     * Starts evaluating the whole ward at a fixed period.
+     *
+     * @param period   the time between the starts of two rounds
+     * @param timeUnit the unit of {@code period}
+     */
+    public void start(long period, TimeUnit timeUnit) {
+        scheduler.scheduleAtFixedRate(() -> pool.execute(this::runRound), period, period, timeUnit);
+    }
+
+    /**
+     * Evaluates every patient once and waits for the round to finish.
+     */
+    public void evaluateWard() {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                runRound();
+            }
+        });
+    }
+
+    private void runRound() {
+        try {
+            List<Patient> patients = dataStorage.getAllPatients();
+            new EvaluateRange(patients, 0, patients.size()).invoke();
+            Runnable listener = roundListener;
+            if (listener != null) {
+                listener.run();
+            }
+        } catch (Exception e) {
+            System.err.println("Ward evaluation round failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Evaluates a single patient unless an evaluation of the same patient is already running.
+     *
+     * @param patient the patient to evaluate
+     * @return {@code true} if the patient was evaluated, {@code false} if it was skipped
+     */
+    public boolean evaluatePatient(Patient patient) {
+        if (patient == null) {
+            return false;
+        }
+        Integer id = patient.getPatientId();
+        if (!inFlight.add(id)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        try {
+            alertGenerator.evaluateData(patient);
+            evaluations.incrementAndGet();
+        } catch (Exception e) {
+            System.err.println("Evaluation failed for patient " + id + ": " + e.getMessage());
+        } finally {
+            inFlight.remove(id);
+        }
+        return true;
+    }
+
+    /**
+     * Stops scheduling rounds and waits for running evaluations to finish.
+     *
+     * @param timeout  the maximum time to wait
+     * @param timeUnit the unit of {@code timeout}
+     */
+    public void shutdown(long timeout, TimeUnit timeUnit) {
+        scheduler.shutdownNow();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(timeout, timeUnit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getEvaluationCount() {
+        return evaluations.get();
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Splits a patient range in halves until it is small enough to evaluate directly
+    private class EvaluateRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Patient> patients;
+        private final int from;
+        private final int to;
+
+        EvaluateRange(List<Patient> patients, int from, int to) {
+            this.patients = patients;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    evaluatePatient(patients.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EvaluateRange(patients, from, mid), new EvaluateRange(patients, mid, to));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.alerts.baseline;
+
+import com.data_management.PatientDataListener;
+import com.data_management.RecordTypes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks an exponentially weighted baseline (mean and variance) of every signal of every patient.
+ * <p>
+ * Registered as a {@link PatientDataListener} on a {@link com.data_management.DataStorage}, it
+ * folds each reading into its patient's baseline as the reading is stored. A baseline is four
+ * numbers, so memory is constant per patient and signal regardless of how much history the
+ * patient has, and each update is constant time. Readings older than the newest one already
+ * folded in are ignored so that replayed or duplicated data does not skew the baseline.
+ * </p>
+ * <p>
+ * Because the tracker sees a reading before any rule does, {@link #get} already includes the
+ * reading being scored, which pulls the mean towards it and damps its own z-score.
+ * {@link #getBefore} therefore also keeps the baseline as it was before each of the last
+ * {@value #HISTORY} readings, so a reading can be scored against the baseline it arrived to.
+ * </p>
+ * <p>
+ * The smoothing factor {@code alpha} sets how quickly the baseline follows the patient: each
+ * reading moves the mean by {@code alpha} of its distance, so the baseline effectively covers
+ * the last {@code 1 / alpha} readings. Once a baseline is established, readings further than
+ * three standard deviations from it are clipped before being folded in, so a single artefact
+ * cannot inflate the variance and hide the anomalies that follow; a sustained shift is still
+ * learned, only more slowly.
+ * </p>
+ */
+public class BaselineTracker implements PatientDataListener {
+
+    /**
+     * Default smoothing factor, roughly the last 50 readings.
+     */
+    public static final double DEFAULT_ALPHA = 0.02;
+
+    // Outliers are clipped to this many standard deviations once the baseline has this many readings
+    private static final double CLIP = 3;
+    private static final long WARM_UP = 10;
+
+    /**
+     * How many of the most recent readings per patient and signal {@link #getBefore} can look up.
+     */
+    public static final int HISTORY = 16;
+
+    private final double alpha;
+    private final Map<Integer, Map<String, Stats>> patients = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a tracker with the {@link #DEFAULT_ALPHA default} smoothing factor.
+     */
+    public BaselineTracker() {
+        this(DEFAULT_ALPHA);
+    }
+
+    /**
+     * Creates a tracker.
+     *
+     * @param alpha the smoothing factor, in {@code (0, 1]}
+     * @throws IllegalArgumentException if {@code alpha} is out of range
+     */
+    public BaselineTracker(double alpha) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        update(patientId, recordType, measurementValue, timestamp);
+    }
+
+    /**
+     * Folds a reading into the patient's baseline for the signal.
+     *
+     * @param patientId  the patient
+     * @param recordType the signal (matched case-insensitively)
+     * @param value      the measured value
+     * @param timestamp  the reading's timestamp
+     */
+    public void update(int patientId, String recordType, double value, long timestamp) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        Map<String, Stats> signals = patients.computeIfAbsent(patientId, id -> new HashMap<>());
+        synchronized (signals) {
+            Stats stats = signals.computeIfAbsent(key(recordType), k -> new Stats());
+            if (stats.count > 0 && timestamp < stats.lastTimestamp) {
+                return;
+            }
+            stats.remember(timestamp);
+            if (stats.count == 0) {
+                stats.mean = value;
+                stats.variance = 0;
+            } else {
+                // Incremental exponentially weighted mean and variance (West, 1979)
+                double diff = value - stats.mean;
+                if (stats.count >= WARM_UP && stats.variance > 0) {
+                    double limit = CLIP * Math.sqrt(stats.variance);
+                    diff = Math.max(-limit, Math.min(limit, diff));
+                }
+                double increment = alpha * diff;
+                stats.mean += increment;
+                stats.variance = (1 - alpha) * (stats.variance + diff * increment);
+            }
+            stats.count++;
+            stats.lastTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the patient's baseline for a signal.
+     *
+     * @param patientId  the patient
+     * @param recordType the signal (matched case-insensitively)
+     * @return the baseline, or {@code null} if no reading of the signal was seen for the patient
+     */
+    public Baseline get(int patientId, String recordType) {
+        Map<String, Stats> signals = patients.get(patientId);
+        if (signals == null) {
+            return null;
+        }
+        synchronized (signals) {
+            Stats stats = signals.get(key(recordType));
+            return stats == null ? null : new Baseline(stats.mean, Math.sqrt(stats.variance), stats.count);
+        }
+    }
+
+    /**
+     * Returns the patient's baseline for a signal as it was just before the reading with the given
+     * timestamp was folded in, i.e. a baseline that does not yet include that reading.
+     *
+     * @param patientId  the patient
+     * @param recordType the signal (matched case-insensitively)
+     * @param timestamp  the reading's timestamp
+     * @return the earlier baseline (with a count of {@code 0} for the signal's first reading), or
+     * {@code null} if the reading is not among the last {@value #HISTORY} folded in
+     */
+    public Baseline getBefore(int patientId, String recordType, long timestamp) {
+        Map<String, Stats> signals = patients.get(patientId);
+        if (signals == null) {
+            return null;
+        }
+        synchronized (signals) {
+            Stats stats = signals.get(key(recordType));
+            return stats == null ? null : stats.before(timestamp);
+        }
+    }
+
+    /**
+     * Forgets all baselines of a patient, e.g. after discharge.
+     *
+     * @param patientId the patient
+     */
+    public void reset(int patientId) {
+        patients.remove(patientId);
+    }
+
+    private static String key(String recordType) {
+        return RecordTypes.key(recordType);
+    }
+
+    private static final class Stats {
+        double mean;
+        double variance;
+        long count;
+        long lastTimestamp;
+
+        // Ring of the state before each of the last HISTORY readings, oldest overwritten first
+        final long[] timestamps = new long[HISTORY];
+        final double[] means = new double[HISTORY];
+        final double[] variances = new double[HISTORY];
+        final long[] counts = new long[HISTORY];
+        int next;
+
+        void remember(long timestamp) {
+            timestamps[next] = timestamp;
+            means[next] = mean;
+            variances[next] = variance;
+            counts[next] = count;
+            next = (next + 1) % HISTORY;
+        }
+
+        Baseline before(long timestamp) {
+            long remembered = Math.min(count, HISTORY);
+            for (int n = 1; n <= remembered; n++) {
+                int i = (next - n + HISTORY) % HISTORY;
+                if (timestamps[i] == timestamp) {
+                    return new Baseline(means[i], Math.sqrt(variances[i]), counts[i]);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An immutable snapshot of one patient's baseline for one signal.
+     */
+    public static final class Baseline {
+        private final double mean;
+        private final double standardDeviation;
+        private final long count;
+
+        Baseline(double mean, double standardDeviation, long count) {
+            this.mean = mean;
+            this.standardDeviation = standardDeviation;
+            this.count = count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getStandardDeviation() {
+            return standardDeviation;
+        }
+
+        /**
+         * Returns the number of readings folded into the baseline.
+         *
+         * @return the reading count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns how many standard deviations a value lies from the baseline mean. The floor
+         * keeps a signal that has been almost flat from turning every small change into a
+         * large score.
+         *
+         * @param value                the value to score
+         * @param minStandardDeviation the smallest standard deviation to divide by
+         * @return the z-score, or {@code 0} while the baseline has no spread and no floor is given
+         */
+        public double zScore(double value, double minStandardDeviation) {
+            double sd = Math.max(standardDeviation, minStandardDeviation);
+            return sd > 0 ? (value - mean) / sd : 0;
+        }
+    }
+}
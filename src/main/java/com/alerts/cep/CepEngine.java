@@ -0,0 +1,194 @@
+package com.alerts.cep;
+
+import com.alerts.Alert;
+import com.data_management.PatientDataListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Complex-event-processing engine that matches {@link CepPattern}s against streaming patient
+ * readings.
+ * <p>
+ * Registered as a {@link PatientDataListener} on a {@link com.data_management.DataStorage},
+ * it appends each reading to the patient's window for that signal and evaluates only the
+ * patterns that the signal can complete. Each patient keeps one window per signal, sized to
+ * the longest pattern window over that signal and shared by every pattern that reads it, and
+ * signals no pattern reads are not kept at all. The cost of a reading therefore depends on
+ * the patterns over its own signal, and memory on the number of signals, not on the total
+ * number of patterns.
+ * </p>
+ * <p>
+ * Readings are assumed to arrive in time order per patient and signal; a reading older than
+ * the newest one in its window is counted and ignored.
+ * </p>
+ */
+public class CepEngine implements PatientDataListener {
+
+    private final List<CepPattern> patterns;
+    private final Map<String, List<CepPattern>> patternsByType = new HashMap<>();
+    private final List<CepPattern> absencePatterns = new ArrayList<>();
+    private final Map<String, Long> retentionByType = new HashMap<>();
+    private final Map<Integer, PatientState> patients = new ConcurrentHashMap<>();
+    private final Consumer<Alert> alerts;
+
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong outOfOrder = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+
+    /**
+     * Creates an engine for a fixed set of patterns.
+     *
+     * @param patterns the patterns to match
+     * @param alerts   receives an alert for every match
+     */
+    public CepEngine(List<CepPattern> patterns, Consumer<Alert> alerts) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+        this.alerts = alerts;
+        for (CepPattern pattern : this.patterns) {
+            for (SignalCondition c : pattern.getConditions()) {
+                retentionByType.merge(c.key(), pattern.getWindowMillis(), Math::max);
+            }
+            if (pattern instanceof CepPattern.Absence) {
+                absencePatterns.add(pattern);
+            }
+            for (String type : pattern.triggerTypes()) {
+                patternsByType.computeIfAbsent(type, t -> new ArrayList<>()).add(pattern);
+            }
+        }
+    }
+
+    /**
+     * Returns the patterns matched by this engine.
+     *
+     * @return the patterns
+     */
+    public List<CepPattern> getPatterns() {
+        return patterns;
+    }
+
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        process(patientId, recordType, measurementValue, timestamp);
+    }
+
+    /**
+     * Appends a reading to the patient's windows and evaluates the patterns it can complete.
+     *
+     * @param patientId  the patient the reading belongs to
+     * @param recordType the record type of the reading
+     * @param value      the measured value
+     * @param timestamp  the reading's timestamp in milliseconds
+     */
+    public void process(int patientId, String recordType, double value, long timestamp) {
+        readings.incrementAndGet();
+        String type = SignalCondition.key(recordType);
+        Long retention = retentionByType.get(type);
+        List<CepPattern> candidates = patternsByType.get(type);
+        if (retention == null && absencePatterns.isEmpty()) {
+            return;
+        }
+        PatientState state = patients.computeIfAbsent(patientId, id -> new PatientState());
+        List<Alert> raised = new ArrayList<>(0);
+        synchronized (state) {
+            if (retention != null && !state.windowFor(type, retention).add(timestamp, value)) {
+                outOfOrder.incrementAndGet();
+                return;
+            }
+            if (candidates != null) {
+                for (CepPattern pattern : candidates) {
+                    pattern.evaluate(state, type, timestamp, t -> raised.add(createAlert(pattern, patientId, t)));
+                }
+            }
+            for (CepPattern pattern : absencePatterns) {
+                pattern.evaluate(state, type, timestamp, t -> raised.add(createAlert(pattern, patientId, t)));
+            }
+        }
+        emit(raised);
+    }
+
+    /**
+     * Closes the windows of absence patterns that ended before {@code now} for all patients,
+     * for use when no further readings arrive to advance a patient's clock. Patterns are timed
+     * by reading timestamps, so {@code now} must be in data time too, e.g. the newest stored
+     * timestamp, not the wall clock.
+     *
+     * @param now the current data time in milliseconds
+     */
+    public void advanceTo(long now) {
+        List<Alert> raised = new ArrayList<>(0);
+        for (Map.Entry<Integer, PatientState> entry : patients.entrySet()) {
+            int patientId = entry.getKey();
+            PatientState state = entry.getValue();
+            synchronized (state) {
+                for (CepPattern pattern : absencePatterns) {
+                    ArrayDeque<Long> open = state.openTriggers(pattern);
+                    ((CepPattern.Absence) pattern).expire(open, now, t -> raised.add(createAlert(pattern, patientId, t)));
+                }
+            }
+        }
+        emit(raised);
+    }
+
+    private Alert createAlert(CepPattern pattern, int patientId, long timestamp) {
+        return pattern.getFactory().createAlert(String.valueOf(patientId), pattern.getCondition(), timestamp);
+    }
+
+    // Alerts are handed on outside the patient lock so a slow consumer does not block other readings
+    private void emit(List<Alert> raised) {
+        for (Alert alert : raised) {
+            matches.incrementAndGet();
+            alerts.accept(alert);
+        }
+    }
+
+    /**
+     * Returns the number of readings received.
+     *
+     * @return the reading count
+     */
+    public long getReadingCount() {
+        return readings.get();
+    }
+
+    /**
+     * Returns the number of readings ignored because they were older than their window.
+     *
+     * @return the out-of-order count
+     */
+    public long getOutOfOrderCount() {
+        return outOfOrder.get();
+    }
+
+    /**
+     * Returns the number of pattern matches reported.
+     *
+     * @return the match count
+     */
+    public long getMatchCount() {
+        return matches.get();
+    }
+
+    /**
+     * Returns the number of signal windows held for a patient.
+     *
+     * @param patientId the patient
+     * @return the number of windows, {@code 0} if the patient is unknown
+     */
+    public int getWindowCount(int patientId) {
+        PatientState state = patients.get(patientId);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.windowCount();
+        }
+    }
+}
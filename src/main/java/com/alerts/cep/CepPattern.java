@@ -0,0 +1,231 @@
+package com.alerts.cep;
+
+import com.alerts.AlertFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * A multi-signal pattern over a time window, evaluated incrementally by the {@link CepEngine}
+ * as each reading arrives.
+ * <p>
+ * Patterns hold no per-patient data themselves; they read the patient's shared
+ * {@link SignalWindow}s, so adding a pattern over signals that are already windowed costs no
+ * extra memory. A pattern only fires on the reading that completes it, which keeps a single
+ * match from being reported again for every later reading in the window. Readings that keep
+ * re-completing a pattern do fire again; the {@link com.alerts.AlertManager} folds those
+ * into one episode.
+ * </p>
+ */
+public abstract class CepPattern {
+
+    private final String condition;
+    private final AlertFactory factory;
+    private final long windowMillis;
+
+    protected CepPattern(String condition, AlertFactory factory, long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Pattern '" + condition + "' has a negative window");
+        }
+        this.condition = condition;
+        this.factory = factory;
+        this.windowMillis = windowMillis;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public AlertFactory getFactory() {
+        return factory;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Returns the signal conditions this pattern reads.
+     *
+     * @return the pattern's conditions
+     */
+    public abstract List<SignalCondition> getConditions();
+
+    /**
+     * Returns the lowercase record types whose readings can complete this pattern.
+     *
+     * @return the trigger record types
+     */
+    abstract Set<String> triggerTypes();
+
+    /**
+     * Evaluates the pattern after a reading of {@code type} at {@code timestamp} was appended
+     * to the patient's windows.
+     *
+     * @param state     the patient's windows and pattern state
+     * @param type      the lowercase record type of the new reading
+     * @param timestamp the timestamp of the new reading
+     * @param matches   receives the timestamp of every match
+     */
+    abstract void evaluate(PatientState state, String type, long timestamp, LongConsumer matches);
+
+    static boolean newestMatches(PatientState state, SignalCondition condition) {
+        SignalWindow window = state.window(condition.key());
+        return window != null && window.size() > 0 && condition.matches(window, window.size() - 1);
+    }
+
+    /**
+     * Steps that must occur in order within the window, e.g. "heart rate above 100, then
+     * systolic falling by 10, then lactate rising". Fires when the last step occurs and every
+     * earlier step is found, in order, no earlier than the window before it.
+     */
+    public static class Sequence extends CepPattern {
+        private final List<SignalCondition> steps;
+
+        public Sequence(String condition, AlertFactory factory, long windowMillis, List<SignalCondition> steps) {
+            super(condition, factory, windowMillis);
+            if (steps.isEmpty()) {
+                throw new IllegalArgumentException("Sequence '" + condition + "' has no steps");
+            }
+            this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        }
+
+        @Override
+        public List<SignalCondition> getConditions() {
+            return steps;
+        }
+
+        @Override
+        Set<String> triggerTypes() {
+            return Collections.singleton(steps.get(steps.size() - 1).key());
+        }
+
+        @Override
+        void evaluate(PatientState state, String type, long timestamp, LongConsumer matches) {
+            SignalCondition last = steps.get(steps.size() - 1);
+            if (!last.key().equals(type) || !newestMatches(state, last)) {
+                return;
+            }
+            long from = timestamp - getWindowMillis();
+            long before = timestamp;
+            // Latest earlier occurrence of each step, walking backwards, leaves the most room for the steps before it
+            for (int i = steps.size() - 2; i >= 0; i--) {
+                SignalCondition step = steps.get(i);
+                SignalWindow window = state.window(step.key());
+                int index = window == null ? -1 : window.findLatest(step, from, before);
+                if (index < 0) {
+                    return;
+                }
+                before = window.timestamp(index);
+            }
+            matches.accept(timestamp);
+        }
+    }
+
+    /**
+     * Conditions that must all hold at some point within the window, in any order, e.g.
+     * "systolic below 90 and saturation below 92 within 5 minutes".
+     */
+    public static class Conjunction extends CepPattern {
+        private final List<SignalCondition> conditions;
+        private final Set<String> types = new LinkedHashSet<>();
+
+        public Conjunction(String condition, AlertFactory factory, long windowMillis, List<SignalCondition> conditions) {
+            super(condition, factory, windowMillis);
+            if (conditions.isEmpty()) {
+                throw new IllegalArgumentException("Conjunction '" + condition + "' has no conditions");
+            }
+            this.conditions = Collections.unmodifiableList(new ArrayList<>(conditions));
+            for (SignalCondition c : conditions) {
+                types.add(c.key());
+            }
+        }
+
+        @Override
+        public List<SignalCondition> getConditions() {
+            return conditions;
+        }
+
+        @Override
+        Set<String> triggerTypes() {
+            return types;
+        }
+
+        @Override
+        void evaluate(PatientState state, String type, long timestamp, LongConsumer matches) {
+            boolean completes = false;
+            for (SignalCondition c : conditions) {
+                if (c.key().equals(type) && newestMatches(state, c)) {
+                    completes = true;
+                    break;
+                }
+            }
+            if (!completes) {
+                return;
+            }
+            long from = timestamp - getWindowMillis();
+            for (SignalCondition c : conditions) {
+                SignalWindow window = state.window(c.key());
+                if (window == null || window.findLatest(c, from, timestamp + 1) < 0) {
+                    return;
+                }
+            }
+            matches.accept(timestamp);
+        }
+    }
+
+    /**
+     * A trigger that is not followed by an expected reading within the window, e.g. "saturation
+     * below 88 and no recovery above 92 within 2 minutes". Fires at the end of the window, as
+     * soon as a later reading for the patient shows that the window has passed (or when the
+     * engine is advanced with {@link CepEngine#advanceTo(long)}).
+     */
+    public static class Absence extends CepPattern {
+        private final SignalCondition trigger;
+        private final SignalCondition expected;
+
+        public Absence(String condition, AlertFactory factory, long windowMillis, SignalCondition trigger, SignalCondition expected) {
+            super(condition, factory, windowMillis);
+            this.trigger = trigger;
+            this.expected = expected;
+        }
+
+        @Override
+        public List<SignalCondition> getConditions() {
+            List<SignalCondition> list = new ArrayList<>(2);
+            list.add(trigger);
+            list.add(expected);
+            return Collections.unmodifiableList(list);
+        }
+
+        @Override
+        Set<String> triggerTypes() {
+            // Any reading advances the patient's clock and can close an open window
+            return Collections.emptySet();
+        }
+
+        @Override
+        void evaluate(PatientState state, String type, long timestamp, LongConsumer matches) {
+            ArrayDeque<Long> open = state.openTriggers(this);
+            expire(open, timestamp, matches);
+            if (type.equals(expected.key()) && newestMatches(state, expected)) {
+                open.clear();
+            }
+            // One open window at a time: later triggers inside it are covered by the first
+            if (open.isEmpty() && type.equals(trigger.key()) && newestMatches(state, trigger)) {
+                open.addLast(timestamp);
+            }
+        }
+
+        void expire(ArrayDeque<Long> open, long now, LongConsumer matches) {
+            while (!open.isEmpty() && open.peekFirst() + getWindowMillis() < now) {
+                matches.accept(open.pollFirst() + getWindowMillis());
+            }
+        }
+    }
+}
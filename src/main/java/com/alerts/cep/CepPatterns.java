@@ -0,0 +1,46 @@
+package com.alerts.cep;
+
+import com.alerts.AlertFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Default multi-signal ward patterns.
+ */
+public final class CepPatterns {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private CepPatterns() {
+    }
+
+    /**
+     * Returns the default patterns over the signals the simulator emits: hypotensive
+     * hypoxemia (the legacy check, as a conjunction), tachycardia followed by falling systolic
+     * pressure and then falling saturation, and low saturation without recovery. The heart
+     * rate is the series derived from the ECG ({@code --derive-heart-rate}).
+     *
+     * @return a new list of the default patterns
+     */
+    public static List<CepPattern> defaults() {
+        List<CepPattern> patterns = new ArrayList<>();
+        patterns.add(new CepPattern.Conjunction("Low Systolic with Low Saturation",
+                AlertFactory.forCategory("hypotensiveHypoxemia"), 5 * MINUTE,
+                Arrays.asList(
+                        SignalCondition.below("SystolicPressure", 90),
+                        SignalCondition.below("Saturation", 92))));
+        patterns.add(new CepPattern.Sequence("Tachycardia with Falling Systolic and Falling Saturation",
+                AlertFactory.forCategory("general"), 30 * MINUTE,
+                Arrays.asList(
+                        SignalCondition.above("HeartRate", 100),
+                        SignalCondition.fallingBy("SystolicPressure", 10),
+                        SignalCondition.fallingBy("Saturation", 3))));
+        patterns.add(new CepPattern.Absence("Low Saturation Without Recovery",
+                AlertFactory.forCategory("bloodOxygen"), 2 * MINUTE,
+                SignalCondition.below("Saturation", 88),
+                new SignalCondition("Saturation", (v, prev) -> v >= 92)));
+        return patterns;
+    }
+}
@@ -0,0 +1,32 @@
+package com.alerts.cep;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Per-patient state of the {@link CepEngine}: one shared window per signal plus the open
+ * triggers of absence patterns. Guarded by the engine's lock on this object.
+ */
+final class PatientState {
+
+    private final Map<String, SignalWindow> windows = new HashMap<>();
+    private final Map<CepPattern, ArrayDeque<Long>> openTriggers = new IdentityHashMap<>();
+
+    SignalWindow window(String type) {
+        return windows.get(type);
+    }
+
+    SignalWindow windowFor(String type, long retentionMillis) {
+        return windows.computeIfAbsent(type, t -> new SignalWindow(retentionMillis));
+    }
+
+    ArrayDeque<Long> openTriggers(CepPattern pattern) {
+        return openTriggers.computeIfAbsent(pattern, p -> new ArrayDeque<>());
+    }
+
+    int windowCount() {
+        return windows.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.alerts.cep;
+
+import com.data_management.RecordTypes;
+
+/**
+ * A condition on a single reading of one signal, used as a building block of {@link CepPattern}s.
+ * <p>
+ * The condition sees the reading's value and the previous value of the same signal (or
+ * {@code NaN} if there is none), so it can express both levels ("heart rate above 100")
+ * and changes ("systolic falling by 10 or more").
+ * </p>
+ */
+public class SignalCondition {
+
+    /**
+     * Tests a reading against the previous reading of the same signal.
+     */
+    @FunctionalInterface
+    public interface ValueTest {
+        boolean test(double value, double previousValue);
+    }
+
+    private final String recordType;
+    private final String key;
+    private final ValueTest test;
+
+    /**
+     * Creates a condition on the given record type.
+     *
+     * @param recordType the record type the condition applies to (matched case-insensitively,
+     *                   with the aliases of {@link RecordTypes})
+     * @param test       the test applied to each reading
+     */
+    public SignalCondition(String recordType, ValueTest test) {
+        this.recordType = recordType;
+        this.key = key(recordType);
+        this.test = test;
+    }
+
+    public static SignalCondition above(String recordType, double threshold) {
+        return new SignalCondition(recordType, (v, prev) -> v > threshold);
+    }
+
+    public static SignalCondition below(String recordType, double threshold) {
+        return new SignalCondition(recordType, (v, prev) -> v < threshold);
+    }
+
+    public static SignalCondition risingBy(String recordType, double delta) {
+        return new SignalCondition(recordType, (v, prev) -> !Double.isNaN(prev) && v - prev >= delta);
+    }
+
+    public static SignalCondition fallingBy(String recordType, double delta) {
+        return new SignalCondition(recordType, (v, prev) -> !Double.isNaN(prev) && prev - v >= delta);
+    }
+
+    public static SignalCondition any(String recordType) {
+        return new SignalCondition(recordType, (v, prev) -> true);
+    }
+
+    public String getRecordType() {
+        return recordType;
+    }
+
+    String key() {
+        return key;
+    }
+
+    boolean matches(SignalWindow window, int index) {
+        return test.test(window.value(index), index > 0 ? window.value(index - 1) : Double.NaN);
+    }
+
+    static String key(String recordType) {
+        return RecordTypes.key(recordType);
+    }
+}
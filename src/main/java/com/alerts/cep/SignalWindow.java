@@ -0,0 +1,92 @@
+package com.alerts.cep;
+
+/**
+ * A time-bounded ring buffer of one signal's readings for one patient.
+ * <p>
+ * One window exists per (patient, signal), shared by every pattern that reads the signal; its
+ * retention is the longest window of those patterns, so memory grows with the number of
+ * signals and their time spans, not with the number of patterns.
+ * </p>
+ */
+final class SignalWindow {
+
+    private final long retentionMillis;
+    private long[] timestamps = new long[16];
+    private double[] values = new double[16];
+    private int head;
+    private int size;
+
+    SignalWindow(long retentionMillis) {
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Appends a reading and evicts readings that fell out of the retention period. Readings
+     * older than the newest one are ignored, since patterns assume per-signal time order.
+     *
+     * @return {@code true} if the reading was added
+     */
+    boolean add(long timestamp, double value) {
+        if (size > 0 && timestamp < timestamp(size - 1)) {
+            return false;
+        }
+        // Keep one reading older than the retention period so change conditions still see a previous value
+        while (size > 1 && timestamp - timestamp(1) > retentionMillis) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+        if (size == timestamps.length) {
+            grow();
+        }
+        int slot = (head + size) % timestamps.length;
+        timestamps[slot] = timestamp;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length;
+        long[] t = new long[capacity * 2];
+        double[] v = new double[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            t[i] = timestamps[(head + i) % capacity];
+            v[i] = values[(head + i) % capacity];
+        }
+        timestamps = t;
+        values = v;
+        head = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Timestamp of the i-th reading, oldest first. */
+    long timestamp(int i) {
+        return timestamps[(head + i) % timestamps.length];
+    }
+
+    /** Value of the i-th reading, oldest first. */
+    double value(int i) {
+        return values[(head + i) % values.length];
+    }
+
+    /**
+     * Finds the newest reading in {@code [from, before)} that satisfies the condition.
+     *
+     * @return the index of the reading, or {@code -1} if there is none
+     */
+    int findLatest(SignalCondition condition, long from, long before) {
+        for (int i = size - 1; i >= 0; i--) {
+            long ts = timestamp(i);
+            if (ts < from) {
+                return -1;
+            }
+            if (ts < before && condition.matches(this, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,195 @@
+package com.alerts.dispatch;
+
+import com.alerts.Alert;
+import com.util.BoundedLockFreeQueue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Decouples alert detection from alert delivery.
+ * <p>
+ * Evaluation threads call {@link #accept(Alert)}, which only places the alert on one bounded
+ * lock-free queue per configured {@link AlertSink} and returns. Every sink has its own
+ * dispatcher thread that drains its queue in batches, so a slow or blocked sink delays its
+ * own delivery but neither detection nor the other sinks. If a sink's queue is full the
+ * alert is dropped for that sink and counted rather than blocking the evaluation thread.
+ * </p>
+ */
+public class AlertDispatcher implements Consumer<Alert> {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long INTERRUPT_JOIN_MILLIS = 1000;
+
+    private final List<SinkDrain> drains = new ArrayList<>();
+    private final int batchSize;
+    private volatile boolean running = true;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates and starts a dispatcher.
+     *
+     * @param sinks     the sinks every alert is delivered to
+     * @param capacity  the maximum number of alerts waiting for dispatch, per sink
+     * @param batchSize the maximum number of alerts handed to a sink at once
+     */
+    public AlertDispatcher(List<AlertSink> sinks, int capacity, int batchSize) {
+        this.batchSize = batchSize;
+        for (AlertSink sink : sinks) {
+            SinkDrain drain = new SinkDrain(drains.size(), sink, capacity);
+            drains.add(drain);
+            drain.thread.start();
+        }
+    }
+
+    /**
+     * Creates and starts a dispatcher with room for 8192 queued alerts per sink and batches of
+     * up to 256.
+     *
+     * @param sinks the sinks every alert is delivered to
+     */
+    public AlertDispatcher(List<AlertSink> sinks) {
+        this(sinks, 8192, 256);
+    }
+
+    /**
+     * Enqueues an alert for delivery to every sink without blocking.
+     *
+     * @param alert the alert to deliver
+     */
+    @Override
+    public void accept(Alert alert) {
+        for (SinkDrain drain : drains) {
+            if (!running || !drain.queue.offer(alert)) {
+                long count = dropped.incrementAndGet();
+                if (count == 1 || count % 1000 == 0) {
+                    System.err.println("Alert queue full, dropped " + count + " alert(s) so far");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting alerts, delivers everything still queued and closes the sinks. A sink
+     * whose thread is still busy after the timeout is interrupted; it is only closed once its
+     * thread has ended, and left open otherwise.
+     *
+     * @param timeoutMillis how long to wait for the queues to drain
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (SinkDrain drain : drains) {
+            try {
+                drain.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+                if (drain.thread.isAlive()) {
+                    drain.thread.interrupt();
+                    drain.thread.join(INTERRUPT_JOIN_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (drain.thread.isAlive()) {
+                System.err.println("Alert sink " + drain.sink.getClass().getSimpleName()
+                        + " is still busy; leaving it open");
+                continue;
+            }
+            try {
+                drain.sink.close();
+            } catch (IOException e) {
+                System.err.println("Error closing alert sink: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of alerts successfully written to every sink, i.e. the count of the
+     * sink that is furthest behind.
+     *
+     * @return the dispatched alert count
+     */
+    public long getDispatchedCount() {
+        long min = Long.MAX_VALUE;
+        for (SinkDrain drain : drains) {
+            min = Math.min(min, drain.delivered.get());
+        }
+        return drains.isEmpty() ? 0 : min;
+    }
+
+    /**
+     * Returns the number of alerts lost because a sink's write threw; an alert that failed
+     * for two sinks counts twice. Failed alerts are not counted as dispatched.
+     *
+     * @return the failed alert count
+     */
+    public long getFailedCount() {
+        long total = 0;
+        for (SinkDrain drain : drains) {
+            total += drain.failed.get();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of alerts dropped because a sink's queue was full; an alert dropped
+     * for two sinks counts twice.
+     *
+     * @return the dropped alert count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the length of the longest sink queue.
+     *
+     * @return the approximate number of alerts waiting
+     */
+    public int getQueuedCount() {
+        int max = 0;
+        for (SinkDrain drain : drains) {
+            max = Math.max(max, drain.queue.size());
+        }
+        return max;
+    }
+
+    // The queue and thread of one sink
+    private final class SinkDrain {
+        final AlertSink sink;
+        final BoundedLockFreeQueue<Alert> queue;
+        final Thread thread;
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+
+        SinkDrain(int index, AlertSink sink, int capacity) {
+            this.sink = sink;
+            this.queue = new BoundedLockFreeQueue<>(capacity);
+            this.thread = new Thread(this::run, "alert-dispatcher-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            List<Alert> batch = new ArrayList<>(batchSize);
+            while ((running || !queue.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+                if (queue.drainTo(batch, batchSize) == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                try {
+                    sink.write(batch);
+                    delivered.addAndGet(batch.size());
+                } catch (Exception e) {
+                    failed.addAndGet(batch.size());
+                    System.err.println("Alert sink " + sink.getClass().getSimpleName() + " failed: " + e.getMessage());
+                }
+                batch.clear();
+            }
+        }
+    }
+}
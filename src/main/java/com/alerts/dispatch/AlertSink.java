@@ -0,0 +1,32 @@
+package com.alerts.dispatch;
+
+import com.alerts.Alert;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination for dispatched alerts, such as the console, a journal file or connected clients.
+ * <p>
+ * Each sink is only ever called from its own {@link AlertDispatcher} thread, one batch at a
+ * time, so implementations do not need to be thread-safe.
+ * </p>
+ */
+public interface AlertSink {
+
+    /**
+     * Delivers a batch of alerts, in the order they were raised.
+     *
+     * @param alerts the alerts to deliver; the list is reused after the call returns
+     * @throws IOException if the alerts could not be delivered
+     */
+    void write(List<Alert> alerts) throws IOException;
+
+    /**
+     * Releases any resources held by the sink.
+     *
+     * @throws IOException if closing fails
+     */
+    default void close() throws IOException {
+    }
+}
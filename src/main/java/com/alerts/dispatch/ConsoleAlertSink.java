@@ -0,0 +1,27 @@
+package com.alerts.dispatch;
+
+import com.alerts.Alert;
+
+import java.util.List;
+
+/**
+ * Prints alerts to standard output in the same format as {@link com.alerts.AlertGenerator#logAlert(Alert)},
+ * building each batch into a single string so {@code System.out} is locked once per batch.
+ */
+public class ConsoleAlertSink implements AlertSink {
+
+    private final StringBuilder buffer = new StringBuilder(1024);
+
+    @Override
+    public void write(List<Alert> alerts) {
+        buffer.setLength(0);
+        for (Alert alert : alerts) {
+            buffer.append("ALERT: Patient ").append(alert.getPatientId())
+                    .append(" - Condition: ").append(alert.getCondition())
+                    .append(" @ ").append(alert.getTimestamp())
+                    .append(System.lineSeparator());
+        }
+        System.out.print(buffer);
+        System.out.flush();
+    }
+}
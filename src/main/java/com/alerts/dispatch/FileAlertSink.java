@@ -0,0 +1,55 @@
+package com.alerts.dispatch;
+
+import com.alerts.Alert;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends alerts to a text journal, one CSV line per alert:
+ * {@code patientId,timestamp,condition}.
+ * <p>
+ * The file is kept open for the lifetime of the sink and flushed once per batch.
+ * </p>
+ */
+public class FileAlertSink implements AlertSink {
+
+    private final BufferedWriter writer;
+
+    /**
+     * Opens (or creates) the journal file for appending.
+     *
+     * @param file the journal file
+     * @throws IOException if the file or its directory cannot be created
+     */
+    public FileAlertSink(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(List<Alert> alerts) throws IOException {
+        for (Alert alert : alerts) {
+            writer.write(alert.getPatientId());
+            writer.write(',');
+            writer.write(Long.toString(alert.getTimestamp()));
+            writer.write(',');
+            writer.write(alert.getCondition().replace('\n', ' '));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,91 @@
+package com.alerts.dispatch;
+
+import com.alerts.Alert;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Pushes alerts to every connected WebSocket client.
+ * <p>
+ * Each batch is sent as one JSON array of {@code {patientId, condition, timestamp}} objects,
+ * encoded once and broadcast to all clients.
+ * </p>
+ */
+public class WebSocketAlertSink implements AlertSink {
+
+    private final WebSocketServer server;
+
+    /**
+     * Starts a WebSocket server for alert subscribers on the given port.
+     *
+     * @param port the port to listen on
+     */
+    public WebSocketAlertSink(int port) {
+        server = new AlertWebSocketServer(new InetSocketAddress(port));
+        server.start();
+        System.out.println("Alert WebSocket server created on port: " + port);
+    }
+
+    @Override
+    public void write(List<Alert> alerts) {
+        if (server.getConnections().isEmpty()) {
+            return;
+        }
+        JsonArray array = new JsonArray();
+        for (Alert alert : alerts) {
+            JsonObject json = new JsonObject();
+            json.addProperty("patientId", alert.getPatientId());
+            json.addProperty("condition", alert.getCondition());
+            json.addProperty("timestamp", alert.getTimestamp());
+            array.add(json);
+        }
+        server.broadcast(array.toString());
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class AlertWebSocketServer extends WebSocketServer {
+
+        AlertWebSocketServer(InetSocketAddress address) {
+            super(address);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            System.out.println("New alert subscriber: " + conn.getRemoteSocketAddress());
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            System.out.println("Alert subscriber disconnected: " + conn.getRemoteSocketAddress());
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            // Subscribers only receive alerts
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            ex.printStackTrace();
+        }
+
+        @Override
+        public void onStart() {
+            System.out.println("Alert WebSocket server started successfully");
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.alerts.journal;
+
+import com.alerts.Alert;
+import com.alerts.AlertManager;
+import com.alerts.dispatch.AlertSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persists every alert to an append-only journal and answers history queries from memory indexes.
+ * <p>
+ * Alerts are written to one segment file per UTC day ({@code alerts-YYYY-MM-DD.journal}) as
+ * length-prefixed binary records: timestamp, patient ID and condition. Alongside the files the
+ * journal keeps, per patient and per condition key (see {@link AlertManager#conditionKey(String)}),
+ * timestamp-sorted arrays of record locations. A query picks the smaller matching index, narrows
+ * it by binary search on the time range and reads only the matching records through
+ * memory-mapped segments. The indexes are rebuilt by scanning the segments when a journal
+ * directory is reopened; a record torn by a crash ends the scan of its segment and is cut off
+ * before anything is appended to that segment again.
+ * </p>
+ * <p>
+ * A batch is encoded into one buffer and written with as few writes as the buffer allows,
+ * then forced to disk once. Only the segment currently appended to is kept open; when alerts
+ * move on to another day its channel is forced and closed.
+ * </p>
+ * <p>
+ * The journal is an {@link AlertSink}, so it can be attached to an
+ * {@link com.alerts.dispatch.AlertDispatcher}; queries may run concurrently with appends.
+ * </p>
+ */
+public class AlertJournal implements AlertSink {
+
+    private static final String PREFIX = "alerts-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Segments by day; segment ids index into segmentPaths
+    private final TreeMap<LocalDate, Integer> segmentsByDay = new TreeMap<>();
+    private final List<Path> segmentPaths = new ArrayList<>();
+    private long[] segmentSizes = new long[16];
+    private final Map<Integer, MappedByteBuffer> mappings = new HashMap<>();
+
+    // The segment being appended to, -1 if none is open
+    private int writerSegment = -1;
+    private FileChannel writer;
+
+    private final Map<String, Postings> byPatient = new HashMap<>();
+    private final Map<String, Postings> byCondition = new HashMap<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+    // Index entries of the records in writeBuffer, added once the buffer is written
+    private final List<Alert> buffered = new ArrayList<>();
+    private long bufferedOffset;
+    private long recordCount;
+
+    /**
+     * Opens a journal directory, creating it if needed, and indexes the existing segments.
+     *
+     * @param directory the journal directory
+     * @throws IOException if the directory or a segment cannot be read
+     */
+    public AlertJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path p : stream) {
+                existing.add(p);
+            }
+        }
+        Collections.sort(existing);
+        for (Path p : existing) {
+            String name = p.getFileName().toString();
+            LocalDate day = LocalDate.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            int segment = addSegment(day, p);
+            indexSegment(segment);
+        }
+    }
+
+    /**
+     * Appends a batch of alerts and indexes them.
+     *
+     * @param alerts the alerts to persist
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void write(List<Alert> alerts) throws IOException {
+        lock.writeLock().lock();
+        try {
+            try {
+                for (Alert alert : alerts) {
+                    append(alert);
+                }
+                flush();
+                if (writer != null) {
+                    writer.force(false);
+                }
+            } catch (IOException e) {
+                // The segment may hold part of the batch; reopening it finds its real size
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                    writer = null;
+                    writerSegment = -1;
+                }
+                throw e;
+            } finally {
+                writeBuffer.clear();
+                buffered.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Encodes an alert into the write buffer, switching segments and flushing as needed
+    private void append(Alert alert) throws IOException {
+        LocalDate day = Instant.ofEpochMilli(alert.getTimestamp()).atZone(ZoneOffset.UTC).toLocalDate();
+        Integer segment = segmentsByDay.get(day);
+        if (segment == null) {
+            segment = addSegment(day, directory.resolve(PREFIX + day + SUFFIX));
+        }
+        if (segment != writerSegment) {
+            openWriter(segment);
+        }
+
+        byte[] patient = alert.getPatientId().getBytes(StandardCharsets.UTF_8);
+        byte[] condition = alert.getCondition().getBytes(StandardCharsets.UTF_8);
+        int length = 8 + 2 + patient.length + 2 + condition.length;
+        if (patient.length > 0xFFFF || condition.length > 0xFFFF || length + 4 > writeBuffer.capacity()) {
+            throw new IOException("Alert too large for journal: " + alert.getCondition());
+        }
+        if (length + 4 > writeBuffer.remaining()) {
+            flush();
+        }
+        writeBuffer.putInt(length)
+                .putLong(alert.getTimestamp())
+                .putShort((short) patient.length).put(patient)
+                .putShort((short) condition.length).put(condition);
+        buffered.add(alert);
+    }
+
+    // Forces and closes the open segment, then opens the given one for appending
+    private void openWriter(int segment) throws IOException {
+        flush();
+        if (writer != null) {
+            FileChannel previous = writer;
+            writer = null;
+            writerSegment = -1;
+            try {
+                previous.force(false);
+            } finally {
+                previous.close();
+            }
+        }
+        writer = FileChannel.open(segmentPaths.get(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // A crash or failed write can leave a torn record after the last intact one. Appending
+        // behind it would hide the new records from the scan after the next restart, so cut
+        // the segment back to its intact length first.
+        long intact = segmentSizes[segment];
+        if (writer.size() > intact) {
+            synchronized (mappings) {
+                mappings.remove(segment); // maps the torn tail
+            }
+            writer.truncate(intact);
+        }
+        writer.position(intact);
+        writerSegment = segment;
+        bufferedOffset = intact;
+    }
+
+    // Writes the buffered records to the open segment and indexes them
+    private void flush() throws IOException {
+        if (buffered.isEmpty()) {
+            return;
+        }
+        writeBuffer.flip();
+        int written = writeBuffer.limit();
+        while (writeBuffer.hasRemaining()) {
+            writer.write(writeBuffer);
+        }
+        int pos = 0;
+        for (Alert alert : buffered) {
+            index(writerSegment, bufferedOffset + pos, alert.getTimestamp(), alert.getPatientId(), alert.getCondition());
+            pos += 4 + writeBuffer.getInt(pos);
+        }
+        bufferedOffset += written;
+        segmentSizes[writerSegment] = bufferedOffset;
+        writeBuffer.clear();
+        buffered.clear();
+    }
+
+    private int addSegment(LocalDate day, Path path) throws IOException {
+        int id = segmentPaths.size();
+        segmentPaths.add(path);
+        segmentsByDay.put(day, id);
+        if (id == segmentSizes.length) {
+            segmentSizes = Arrays.copyOf(segmentSizes, id * 2);
+        }
+        segmentSizes[id] = Files.exists(path) ? Files.size(path) : 0;
+        return id;
+    }
+
+    private void indexSegment(int segment) throws IOException {
+        ByteBuffer buf = map(segment);
+        int pos = 0;
+        while (pos + 4 <= buf.limit()) {
+            int length = buf.getInt(pos);
+            if (length <= 0 || pos + 4 + length > buf.limit()) {
+                System.err.println("Truncated record in " + segmentPaths.get(segment) + " at offset " + pos
+                        + "; it is cut off before the next append");
+                break;
+            }
+            Alert alert = decode(buf, pos);
+            index(segment, pos, alert.getTimestamp(), alert.getPatientId(), alert.getCondition());
+            pos += 4 + length;
+        }
+        // Only the intact records count; openWriter truncates the torn tail
+        segmentSizes[segment] = pos;
+    }
+
+    private void index(int segment, long offset, long timestamp, String patientId, String condition) {
+        long location = ((long) segment << 40) | offset; // segments are far smaller than 2^40 bytes
+        byPatient.computeIfAbsent(patientId, k -> new Postings()).add(timestamp, location);
+        byCondition.computeIfAbsent(AlertManager.conditionKey(condition), k -> new Postings()).add(timestamp, location);
+        recordCount++;
+    }
+
+    /**
+     * Returns the journaled alerts matching all given criteria, ordered by timestamp.
+     *
+     * @param patientId    the patient ID, or {@code null} for all patients
+     * @param startTime    the start of the time range (inclusive), in milliseconds since the Unix epoch
+     * @param endTime      the end of the time range (inclusive), in milliseconds since the Unix epoch
+     * @param conditionKey the condition key as returned by {@link AlertManager#conditionKey(String)},
+     *                     or {@code null} for all conditions
+     * @return the matching alerts
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Alert> query(String patientId, long startTime, long endTime, String conditionKey) throws IOException {
+        lock.readLock().lock();
+        try {
+            Postings primary;
+            if (patientId != null && conditionKey != null) {
+                Postings p = byPatient.get(patientId);
+                Postings c = byCondition.get(conditionKey);
+                if (p == null || c == null) {
+                    return new ArrayList<>();
+                }
+                primary = p.size <= c.size ? p : c;
+            } else if (patientId != null) {
+                primary = byPatient.get(patientId);
+            } else if (conditionKey != null) {
+                primary = byCondition.get(conditionKey);
+            } else {
+                return scanAll(startTime, endTime);
+            }
+            List<Alert> result = new ArrayList<>();
+            if (primary == null) {
+                return result;
+            }
+            int currentSegment = -1;
+            ByteBuffer buf = null;
+            for (int i = primary.lowerBound(startTime); i < primary.size && primary.timestamps[i] <= endTime; i++) {
+                long location = primary.locations[i];
+                int segment = (int) (location >>> 40);
+                if (segment != currentSegment) {
+                    buf = map(segment);
+                    currentSegment = segment;
+                }
+                Alert alert = decode(buf, (int) (location & ((1L << 40) - 1)));
+                if ((patientId == null || patientId.equals(alert.getPatientId()))
+                        && (conditionKey == null || conditionKey.equals(AlertManager.conditionKey(alert.getCondition())))) {
+                    result.add(alert);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Without patient or condition, only the segments overlapping the range are read
+    private List<Alert> scanAll(long startTime, long endTime) throws IOException {
+        List<Alert> result = new ArrayList<>();
+        LocalDate from = Instant.ofEpochMilli(startTime).atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate to = Instant.ofEpochMilli(endTime).atZone(ZoneOffset.UTC).toLocalDate();
+        for (int segment : segmentsByDay.subMap(from, true, to, true).values()) {
+            ByteBuffer buf = map(segment);
+            int pos = 0;
+            while (pos + 4 <= buf.limit()) {
+                int length = buf.getInt(pos);
+                if (length <= 0 || pos + 4 + length > buf.limit()) {
+                    break;
+                }
+                Alert alert = decode(buf, pos);
+                if (alert.getTimestamp() >= startTime && alert.getTimestamp() <= endTime) {
+                    result.add(alert);
+                }
+                pos += 4 + length;
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        return result;
+    }
+
+    /**
+     * Returns the number of alerts in the journal.
+     *
+     * @return the record count
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Maps a segment read-only, remapping it when it has grown since the last mapping. A
+    // remap covers the whole segment again, but it only sets up the mapping; pages are read
+    // on access, so the cost is a system call and not a copy of the segment. The segment
+    // being appended to is remapped at most once per query after each written batch.
+    private ByteBuffer map(int segment) throws IOException {
+        synchronized (mappings) {
+            MappedByteBuffer mapping = mappings.get(segment);
+            Path path = segmentPaths.get(segment);
+            long size = segmentSizes[segment];
+            if (mapping == null || mapping.capacity() != size) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                mappings.put(segment, mapping);
+            }
+            return mapping.duplicate();
+        }
+    }
+
+    private static Alert decode(ByteBuffer buf, int pos) {
+        long timestamp = buf.getLong(pos + 4);
+        int patientLength = buf.getShort(pos + 12) & 0xFFFF;
+        String patientId = readString(buf, pos + 14, patientLength);
+        int conditionPos = pos + 14 + patientLength;
+        int conditionLength = buf.getShort(conditionPos) & 0xFFFF;
+        String condition = readString(buf, conditionPos + 2, conditionLength);
+        return new Alert(patientId, condition, timestamp);
+    }
+
+    private static String readString(ByteBuffer buf, int pos, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buf.duplicate();
+        slice.position(pos);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+                writerSegment = -1;
+            }
+            synchronized (mappings) {
+                mappings.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Timestamp-sorted record locations (segment id in the high bits, file offset in the low 40 bits).
+     */
+    private static class Postings {
+        long[] timestamps = new long[16];
+        long[] locations = new long[16];
+        int size;
+
+        void add(long timestamp, long location) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            // Alerts arrive almost in time order, so insertion from the end is usually O(1)
+            int i = size;
+            while (i > 0 && timestamps[i - 1] > timestamp) {
+                timestamps[i] = timestamps[i - 1];
+                locations[i] = locations[i - 1];
+                i--;
+            }
+            timestamps[i] = timestamp;
+            locations[i] = location;
+            size++;
+        }
+
+        int lowerBound(long timestamp) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timestamps[mid] < timestamp) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.alerts.rules;
+
+import com.data_management.PatientRecord;
+import com.data_management.RecordTypes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A per-evaluation snapshot of a patient's records, grouped by record type into
+ * primitive, timestamp-sorted arrays.
+ * <p>
+ * The snapshot is built once per patient evaluation so that every compiled rule
+ * can scan plain {@code long[]}/{@code double[]} arrays instead of re-filtering and
+ * re-sorting the full record list. Record types are matched case-insensitively,
+ * like the original checks in {@link com.alerts.AlertGenerator}, and with the simulator's
+ * labels as aliases ({@link RecordTypes}).
+ * </p>
+ * <p>
+ * {@link RuleEngine} also keeps one series per patient across evaluations: new records are
+ * appended as <em>new</em> readings, rules only raise alerts for new readings and use the
+ * older ones as context, and after the evaluation the series is trimmed to what the rules
+ * look back over. A snapshot built by the constructors treats every reading as new.
+ * </p>
+ */
+public class PatientSeries {
+
+    private final int patientId;
+    private final Map<String, Series> seriesByType = new HashMap<>();
+
+    /**
+     * Builds a snapshot from the given records.
+     *
+     * @param patientId the patient the records belong to
+     * @param records   the records to group; they do not need to be sorted
+     */
+    public PatientSeries(int patientId, List<PatientRecord> records) {
+        this(patientId, records, null);
+    }
+
+    /**
+     * Builds a snapshot containing only the given record types.
+     *
+     * @param patientId   the patient the records belong to
+     * @param records     the records to group; they do not need to be sorted
+     * @param recordTypes the lower-case record types to keep, or {@code null} to keep all
+     */
+    public PatientSeries(int patientId, List<PatientRecord> records, Set<String> recordTypes) {
+        this.patientId = patientId;
+        append(records, recordTypes);
+    }
+
+    /**
+     * Adds records as new readings.
+     *
+     * @param records     the records to add; they do not need to be sorted
+     * @param recordTypes the lower-case record types to keep, or {@code null} to keep all
+     * @return the lower-case types that received readings
+     */
+    Set<String> append(List<PatientRecord> records, Set<String> recordTypes) {
+        Set<String> appended = new HashSet<>();
+        for (PatientRecord r : records) {
+            String type = key(r.getRecordType());
+            if (recordTypes == null || recordTypes.contains(type)) {
+                seriesByType.computeIfAbsent(type, k -> new Series()).add(r.getTimestamp(), r.getMeasurementValue());
+                appended.add(type);
+            }
+        }
+        for (String type : appended) {
+            seriesByType.get(type).sortIfNeeded();
+        }
+        return appended;
+    }
+
+    /**
+     * Marks every reading as evaluated and drops the readings no rule needs any more.
+     *
+     * @param windows per lower-case record type, the {@code {milliseconds, readings}} the rules
+     *                reading it look back over; types not listed are dropped entirely
+     */
+    void retain(Map<String, long[]> windows) {
+        seriesByType.keySet().retainAll(windows.keySet());
+        for (Map.Entry<String, Series> e : seriesByType.entrySet()) {
+            long[] window = windows.get(e.getKey());
+            e.getValue().retain(window[0], (int) Math.min(Integer.MAX_VALUE, window[1]));
+        }
+    }
+
+    /**
+     * Returns the number of readings held, new and old.
+     *
+     * @return the reading count over all record types
+     */
+    int size() {
+        int size = 0;
+        for (Series s : seriesByType.values()) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Returns the series for the given record type, or an empty series if the patient
+     * has no records of that type.
+     *
+     * @param recordType the record type, matched case-insensitively
+     * @return the series for that type, never {@code null}
+     */
+    public Series get(String recordType) {
+        Series s = seriesByType.get(key(recordType));
+        return s != null ? s : Series.EMPTY;
+    }
+
+    static String key(String recordType) {
+        return RecordTypes.key(recordType);
+    }
+
+    /**
+     * Timestamp-sorted readings of a single record type.
+     */
+    public static final class Series {
+        static final Series EMPTY = new Series();
+
+        private long[] timestamps = new long[8];
+        private double[] values = new double[8];
+        private boolean[] fresh = new boolean[8];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                fresh = Arrays.copyOf(fresh, size * 2);
+            }
+            if (size > 0 && timestamp < timestamps[size - 1]) {
+                sorted = false;
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            fresh[size] = true;
+            size++;
+        }
+
+        // Keeps the readings within "millis" of the newest plus at least the last "readings", all marked evaluated
+        private void retain(long millis, int readings) {
+            int from = Math.max(0, size - readings);
+            if (size > 0) {
+                long oldest = timestamps[size - 1] - millis;
+                while (from > 0 && timestamps[from - 1] >= oldest) {
+                    from--;
+                }
+            }
+            int kept = size - from;
+            System.arraycopy(timestamps, from, timestamps, 0, kept);
+            System.arraycopy(values, from, values, 0, kept);
+            Arrays.fill(fresh, 0, size, false);
+            size = kept;
+        }
+
+        private void sortIfNeeded() {
+            if (sorted) {
+                return;
+            }
+            // Stable insertion sort: records arrive almost in order, so this is close to linear.
+            for (int i = 1; i < size; i++) {
+                long t = timestamps[i];
+                double v = values[i];
+                boolean f = fresh[i];
+                int j = i - 1;
+                while (j >= 0 && timestamps[j] > t) {
+                    timestamps[j + 1] = timestamps[j];
+                    values[j + 1] = values[j];
+                    fresh[j + 1] = fresh[j];
+                    j--;
+                }
+                timestamps[j + 1] = t;
+                values[j + 1] = v;
+                fresh[j + 1] = f;
+            }
+            sorted = true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long timestamp(int i) {
+            return timestamps[i];
+        }
+
+        public double value(int i) {
+            return values[i];
+        }
+
+        /**
+         * Returns whether a reading has not been evaluated before; rules only raise alerts
+         * for new readings.
+         *
+         * @param i the reading index
+         * @return whether the reading is new
+         */
+        public boolean isNew(int i) {
+            return fresh[i];
+        }
+    }
+}
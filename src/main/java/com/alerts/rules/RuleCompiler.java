@@ -0,0 +1,240 @@
+package com.alerts.rules;
+
+import com.alerts.AlertFactory;
+import com.alerts.baseline.BaselineTracker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a JSON rule definition into a {@link RuleSet}.
+ * <p>
+ * The file has a {@code rules} array with one object per rule and an optional
+ * {@code patients} object mapping a patient ID to a list of partial rule objects.
+ * A partial rule is merged over the default rule with the same {@code id} (or added
+ * if the id is new); {@code "enabled": false} removes the rule for that patient.
+ * </p>
+ *
+ * <p>Supported rule kinds and their fields:</p>
+ * <ul>
+ *   <li>{@code threshold}: {@code recordType}, {@code above} and/or {@code below}</li>
+ *   <li>{@code trend}: {@code recordType}, {@code readings}, {@code minChange}</li>
+ *   <li>{@code delta}: {@code recordType}, {@code windowMillis}, {@code amount},
+ *       {@code direction} ({@code drop} or {@code rise})</li>
+ *   <li>{@code join}: {@code left} and {@code right} signal conditions
+ *       ({@code recordType}, {@code above}/{@code below}) and {@code windowMillis}</li>
+ *   <li>{@code peak}: {@code recordType}, {@code windowSize}, {@code factor}</li>
+ *   <li>{@code presence}: {@code recordType}</li>
+ *   <li>{@code zscore}: {@code recordType}, {@code threshold} (in standard deviations of the
+ *       patient's own baseline), {@code direction} ({@code high}, {@code low} or {@code both}),
+ *       {@code lookbackMillis}, {@code minSamples}, {@code minDeviation}</li>
+ * </ul>
+ * Every rule also needs an {@code id}, a {@code kind} and a {@code condition} text, and may
+ * name a {@code category} ({@link AlertFactory#forCategory(String)}) that selects the factory
+ * used to build its alerts.
+ *
+ * <pre>
+ * { "rules": [ { "id": "spo2-low", "kind": "threshold", "recordType": "BloodSaturation",
+ *                "below": 92, "condition": "Low Oxygen Saturation" } ],
+ *   "patients": { "7": [ { "id": "spo2-low", "below": 88 } ] } }
+ * </pre>
+ */
+public class RuleCompiler {
+
+    private final BaselineTracker baselines;
+
+    /**
+     * Creates a compiler whose {@code zscore} rules read a new, empty baseline tracker.
+     */
+    public RuleCompiler() {
+        this(new BaselineTracker());
+    }
+
+    /**
+     * Creates a compiler whose {@code zscore} rules read the given baseline tracker.
+     *
+     * @param baselines the per-patient baselines, fed with the patients' readings
+     */
+    public RuleCompiler(BaselineTracker baselines) {
+        this.baselines = baselines;
+    }
+
+    /**
+     * Returns the baseline tracker read by compiled {@code zscore} rules.
+     *
+     * @return the baseline tracker
+     */
+    public BaselineTracker getBaselines() {
+        return baselines;
+    }
+
+    /**
+     * Parses and compiles a rule definition.
+     *
+     * @param reader the source of the JSON rule definition
+     * @return the compiled rule set
+     * @throws IllegalArgumentException if the definition is malformed or uses an unknown rule kind
+     */
+    public RuleSet compile(Reader reader) {
+        JsonObject root;
+        try {
+            root = JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid rule definition: " + e.getMessage(), e);
+        }
+        if (!root.has("rules")) {
+            throw new IllegalArgumentException("Invalid rule definition: missing 'rules' array");
+        }
+
+        Map<String, JsonObject> defaults = new LinkedHashMap<>();
+        for (JsonElement e : root.getAsJsonArray("rules")) {
+            JsonObject rule = e.getAsJsonObject();
+            defaults.put(requireString(rule, "id"), rule);
+        }
+        List<RuleEvaluator> defaultRules = compileAll(defaults);
+
+        Map<Integer, List<RuleEvaluator>> patientRules = new HashMap<>();
+        if (root.has("patients")) {
+            for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject("patients").entrySet()) {
+                int patientId;
+                try {
+                    patientId = Integer.parseInt(entry.getKey().trim());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Invalid patient ID in overrides: " + entry.getKey());
+                }
+                patientRules.put(patientId, compileAll(applyOverrides(defaults, entry.getValue().getAsJsonArray())));
+            }
+        }
+        return new RuleSet(defaultRules, patientRules, baselines);
+    }
+
+    private Map<String, JsonObject> applyOverrides(Map<String, JsonObject> defaults, JsonArray overrides) {
+        Map<String, JsonObject> merged = new LinkedHashMap<>(defaults);
+        for (JsonElement e : overrides) {
+            JsonObject override = e.getAsJsonObject();
+            String id = requireString(override, "id");
+            JsonObject base = merged.containsKey(id) ? merged.get(id).deepCopy() : new JsonObject();
+            for (Map.Entry<String, JsonElement> field : override.entrySet()) {
+                base.add(field.getKey(), field.getValue());
+            }
+            merged.put(id, base);
+        }
+        return merged;
+    }
+
+    private List<RuleEvaluator> compileAll(Map<String, JsonObject> definitions) {
+        List<RuleEvaluator> rules = new ArrayList<>();
+        for (JsonObject definition : definitions.values()) {
+            if (definition.has("enabled") && !definition.get("enabled").getAsBoolean()) {
+                continue;
+            }
+            rules.add(compileRule(definition));
+        }
+        return rules;
+    }
+
+    private RuleEvaluator compileRule(JsonObject r) {
+        String id = requireString(r, "id");
+        String kind = requireString(r, "kind");
+        String condition = requireString(r, "condition");
+        AlertFactory factory;
+        try {
+            factory = AlertFactory.forCategory(r.has("category") ? r.get("category").getAsString() : "general");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Rule " + id + ": " + e.getMessage(), e);
+        }
+        switch (kind) {
+            case "threshold":
+                if (!r.has("above") && !r.has("below")) {
+                    throw new IllegalArgumentException("Rule " + id + ": a threshold needs 'above' or 'below'");
+                }
+                return new Rules.Threshold(id, condition, factory, requireString(r, "recordType"),
+                        getDouble(r, "above", Double.POSITIVE_INFINITY),
+                        getDouble(r, "below", Double.NEGATIVE_INFINITY));
+            case "trend":
+                int readings = (int) getDouble(r, "readings", 3);
+                if (readings < 2) {
+                    throw new IllegalArgumentException("Rule " + id + ": a trend needs at least 2 readings");
+                }
+                return new Rules.Trend(id, condition, factory, requireString(r, "recordType"),
+                        readings, getDouble(r, "minChange", 10));
+            case "delta":
+                String direction = r.has("direction") ? r.get("direction").getAsString() : "drop";
+                if (!direction.equals("drop") && !direction.equals("rise")) {
+                    throw new IllegalArgumentException("Rule " + id + ": direction must be 'drop' or 'rise'");
+                }
+                return new Rules.WindowedDelta(id, condition, factory, requireString(r, "recordType"),
+                        (long) requireDouble(r, "windowMillis"), requireDouble(r, "amount"), direction.equals("drop"));
+            case "join":
+                return new Rules.CrossSignalJoin(id, condition, factory,
+                        signalCondition(id, r, "left"), signalCondition(id, r, "right"),
+                        (long) requireDouble(r, "windowMillis"));
+            case "peak":
+                int windowSize = (int) getDouble(r, "windowSize", 10);
+                if (windowSize < 1) {
+                    throw new IllegalArgumentException("Rule " + id + ": a peak window needs at least 1 reading");
+                }
+                return new Rules.Peak(id, condition, factory, requireString(r, "recordType"),
+                        windowSize, getDouble(r, "factor", 1.5));
+            case "presence":
+                return new Rules.Presence(id, condition, factory, requireString(r, "recordType"));
+            case "zscore":
+                return new Rules.ZScore(id, condition, factory, requireString(r, "recordType"), baselines,
+                        getDouble(r, "threshold", 3), zScoreDirection(id, r),
+                        (long) getDouble(r, "lookbackMillis", 60_000), (long) getDouble(r, "minSamples", 30),
+                        getDouble(r, "minDeviation", 0));
+            default:
+                throw new IllegalArgumentException("Rule " + id + ": unknown kind '" + kind + "'");
+        }
+    }
+
+    private static int zScoreDirection(String id, JsonObject rule) {
+        String direction = rule.has("direction") ? rule.get("direction").getAsString() : "both";
+        switch (direction) {
+            case "high":
+                return 1;
+            case "low":
+                return -1;
+            case "both":
+                return 0;
+            default:
+                throw new IllegalArgumentException("Rule " + id + ": direction must be 'high', 'low' or 'both'");
+        }
+    }
+
+    private Rules.SignalCondition signalCondition(String id, JsonObject rule, String side) {
+        if (!rule.has(side) || !rule.get(side).isJsonObject()) {
+            throw new IllegalArgumentException("Rule " + id + ": missing '" + side + "' condition");
+        }
+        JsonObject c = rule.getAsJsonObject(side);
+        return new Rules.SignalCondition(requireString(c, "recordType"),
+                getDouble(c, "above", Double.POSITIVE_INFINITY),
+                getDouble(c, "below", Double.NEGATIVE_INFINITY));
+    }
+
+    private static String requireString(JsonObject o, String field) {
+        if (!o.has(field) || o.get(field).isJsonNull()) {
+            throw new IllegalArgumentException("Rule field '" + field + "' is required: " + o);
+        }
+        return o.get(field).getAsString();
+    }
+
+    private static double requireDouble(JsonObject o, String field) {
+        if (!o.has(field)) {
+            throw new IllegalArgumentException("Rule field '" + field + "' is required: " + o);
+        }
+        return o.get(field).getAsDouble();
+    }
+
+    private static double getDouble(JsonObject o, String field, double defaultValue) {
+        return o.has(field) ? o.get(field).getAsDouble() : defaultValue;
+    }
+}
@@ -0,0 +1,280 @@
+package com.alerts.rules;
+
+import com.alerts.Alert;
+import com.alerts.baseline.BaselineTracker;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Loads alert rules from a definition file and evaluates patients against them.
+ * <p>
+ * The compiled {@link RuleSet} is held in an {@link AtomicReference}. A reload compiles
+ * the new file completely before swapping the reference, so evaluations running on other
+ * threads see either the old or the new rules, never a mix; if the new file is invalid
+ * the previous rules stay active.
+ * </p>
+ * <p>
+ * {@code zscore} rules compare readings with the per-patient baselines of the engine's
+ * {@link BaselineTracker}, which has to be registered as a listener on the storage the
+ * patients come from. The tracker is kept across reloads, so baselines are not relearned
+ * when the rules change.
+ * </p>
+ */
+public class RuleEngine {
+
+    /**
+     * Classpath location of the default rules: the original hard-coded blood pressure,
+     * saturation and manual checks, ECG rules on the heart rate and RR intervals derived from
+     * the ECG, and {@code zscore} rules against per-patient baselines.
+     */
+    public static final String DEFAULT_RULES_RESOURCE = "/alert-rules.json";
+
+    private final Path ruleFile;
+    private final BaselineTracker baselines;
+    private final RuleCompiler compiler;
+    private final AtomicReference<RuleSet> ruleSet = new AtomicReference<>();
+    private volatile long lastModified;
+    private ScheduledExecutorService watcher;
+    private final Map<Integer, PatientWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine backed by a rule file and compiles it immediately.
+     *
+     * @param ruleFile the JSON rule definition file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid rule definition
+     */
+    public RuleEngine(Path ruleFile) throws IOException {
+        this(ruleFile, new BaselineTracker());
+    }
+
+    /**
+     * Creates an engine backed by a rule file whose {@code zscore} rules read the given baselines.
+     *
+     * @param ruleFile  the JSON rule definition file
+     * @param baselines the per-patient baselines
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid rule definition
+     */
+    public RuleEngine(Path ruleFile, BaselineTracker baselines) throws IOException {
+        this.ruleFile = ruleFile;
+        this.baselines = baselines;
+        this.compiler = new RuleCompiler(baselines);
+        this.lastModified = Files.getLastModifiedTime(ruleFile).toMillis();
+        try (Reader reader = Files.newBufferedReader(ruleFile, StandardCharsets.UTF_8)) {
+            ruleSet.set(compiler.compile(reader));
+        }
+    }
+
+    /**
+     * Creates an engine with a fixed, already compiled rule set (no file, no reload) whose
+     * {@code zscore} rules read the baselines they were compiled against.
+     *
+     * @param rules the rules to evaluate
+     */
+    public RuleEngine(RuleSet rules) {
+        this.ruleFile = null;
+        this.baselines = rules.getBaselines();
+        this.compiler = new RuleCompiler(baselines);
+        this.ruleSet.set(rules);
+    }
+
+    /**
+     * Creates an engine using the default rules bundled on the classpath.
+     *
+     * @return an engine with the default ward rules
+     */
+    public static RuleEngine withDefaultRules() {
+        try (InputStream in = RuleEngine.class.getResourceAsStream(DEFAULT_RULES_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing default rules resource " + DEFAULT_RULES_RESOURCE);
+            }
+            return new RuleEngine(new RuleCompiler().compile(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read default rules", e);
+        }
+    }
+
+    /**
+     * Returns the per-patient baselines read by {@code zscore} rules.
+     *
+     * @return the baseline tracker
+     */
+    public BaselineTracker getBaselines() {
+        return baselines;
+    }
+
+    /**
+     * Returns the currently active rule set.
+     *
+     * @return the active rules
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet.get();
+    }
+
+    /**
+     * Evaluates all rules that apply to the patient against the patient's full history, for
+     * one-off checks. Every reading counts as new, so repeated calls raise the same alerts
+     * again and cost more as the history grows; periodic and reactive evaluation use
+     * {@link #evaluate(Patient, Set, Consumer)} instead.
+     *
+     * @param patient the patient to evaluate
+     * @param alerts  receives every alert raised
+     */
+    public void evaluate(Patient patient, Consumer<Alert> alerts) {
+        RuleSet rules = ruleSet.get(); // one snapshot per evaluation
+        PatientSeries series = new PatientSeries(patient.getPatientId(), patient.getRecords(0, Long.MAX_VALUE));
+        for (RuleEvaluator rule : rules.rulesFor(patient.getPatientId())) {
+            rule.evaluate(series, alerts);
+        }
+    }
+
+    /**
+     * Evaluates the records added since the patient's previous incremental evaluation, running
+     * only the rules that read the given record types or a type that received records.
+     * <p>
+     * The engine keeps a cursor into each patient's records and a series trimmed to what the
+     * rules look back over ({@link RuleEvaluator#getWindowMillis()},
+     * {@link RuleEvaluator#getWindowReadings()}), so the cost of an evaluation depends on the
+     * new records and the rule windows, not on the length of the history. Alerts are raised
+     * for the new readings only. Calls for the same patient must not run concurrently with
+     * each other, which {@link com.alerts.ReactiveAlertEvaluator} guarantees anyway.
+     * </p>
+     *
+     * @param patient     the patient to evaluate
+     * @param recordTypes the record types that changed (any case)
+     * @param alerts      receives every alert raised
+     */
+    public void evaluate(Patient patient, Set<String> recordTypes, Consumer<Alert> alerts) {
+        List<RuleEvaluator> rules = ruleSet.get().rulesFor(patient.getPatientId());
+        Map<String, long[]> lookback = new HashMap<>();
+        for (RuleEvaluator rule : rules) {
+            for (String type : rule.getRecordTypes()) {
+                long[] window = lookback.computeIfAbsent(type, k -> new long[2]);
+                window[0] = Math.max(window[0], rule.getWindowMillis());
+                window[1] = Math.max(window[1], rule.getWindowReadings());
+            }
+        }
+        PatientWindow window = windows.compute(patient.getPatientId(),
+                (id, w) -> w != null && w.patient == patient ? w : new PatientWindow(patient));
+        synchronized (window) {
+            List<PatientRecord> added = patient.getRecordsAddedSince(window.cursor);
+            window.cursor += added.size();
+            Set<String> changed = window.series.append(added, lookback.keySet());
+            for (String type : recordTypes) {
+                changed.add(PatientSeries.key(type));
+            }
+            for (RuleEvaluator rule : rules) {
+                if (!Collections.disjoint(rule.getRecordTypes(), changed)) {
+                    rule.evaluate(window.series, alerts);
+                }
+            }
+            window.series.retain(lookback);
+        }
+    }
+
+    /**
+     * Returns the number of readings kept for the patient's incremental evaluation.
+     *
+     * @param patientId the patient ID
+     * @return the retained reading count, {@code 0} if the patient was never evaluated incrementally
+     */
+    public int getRetainedReadings(int patientId) {
+        PatientWindow window = windows.get(patientId);
+        if (window == null) {
+            return 0;
+        }
+        synchronized (window) {
+            return window.series.size();
+        }
+    }
+
+    /**
+     * Re-reads and recompiles the rule file and atomically publishes the result.
+     * If the file cannot be read or compiled, the current rules remain active.
+     *
+     * @return {@code true} if new rules were published
+     */
+    public boolean reload() {
+        if (ruleFile == null) {
+            return false;
+        }
+        try (Reader reader = Files.newBufferedReader(ruleFile, StandardCharsets.UTF_8)) {
+            lastModified = Files.getLastModifiedTime(ruleFile).toMillis();
+            ruleSet.set(compiler.compile(reader));
+            System.out.println("Reloaded alert rules from " + ruleFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Keeping previous alert rules; reload of " + ruleFile + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Starts polling the rule file for modifications and reloads it when it changes.
+     *
+     * @param interval how often to check the file
+     * @param unit     the unit of {@code interval}
+     */
+    public synchronized void startWatching(long interval, TimeUnit unit) {
+        if (ruleFile == null || watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rule-file-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                if (Files.getLastModifiedTime(ruleFile).toMillis() != lastModified) {
+                    reload();
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot check rule file " + ruleFile + ": " + e.getMessage());
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Stops the file watcher, if running.
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    // How far into a patient's records incremental evaluation has got, and the readings it still needs
+    private static final class PatientWindow {
+        final Patient patient;
+        final PatientSeries series;
+        int cursor;
+
+        PatientWindow(Patient patient) {
+            this.patient = patient;
+            this.series = new PatientSeries(patient.getPatientId(), Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.alerts.rules;
+
+import com.alerts.Alert;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A compiled alert rule.
+ * <p>
+ * Evaluators are immutable and hold only their parameters, so a single instance can be
+ * shared by every evaluation thread and swapped out atomically on reload.
+ * </p>
+ */
+public interface RuleEvaluator {
+
+    /**
+     * Returns the rule id from the rule definition file.
+     *
+     * @return the rule id
+     */
+    String getId();
+
+    /**
+     * Returns the record types (lower-case) this rule reads.
+     *
+     * @return the record types the rule depends on
+     */
+    Set<String> getRecordTypes();
+
+    /**
+     * Returns how far before a reading, in milliseconds, the rule looks when evaluating it.
+     *
+     * @return the rule's time window, {@code 0} if it only reads the reading itself
+     */
+    default long getWindowMillis() {
+        return 0;
+    }
+
+    /**
+     * Returns how many readings of a record type, up to and including the one evaluated, the
+     * rule looks at.
+     *
+     * @return the rule's window in readings, {@code 1} if it only reads the reading itself
+     */
+    default int getWindowReadings() {
+        return 1;
+    }
+
+    /**
+     * Evaluates the rule against a patient's data and reports an alert for every new reading
+     * ({@link PatientSeries.Series#isNew(int)}) that meets its condition; older readings are
+     * only context.
+     *
+     * @param series the patient's data grouped by record type
+     * @param alerts receives each alert raised by this rule
+     */
+    void evaluate(PatientSeries series, Consumer<Alert> alerts);
+}
@@ -0,0 +1,85 @@
+package com.alerts.rules;
+
+import com.alerts.baseline.BaselineTracker;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compiled set of alert rules: the ward-wide defaults plus the
+ * complete effective rule list for every patient that has overrides.
+ * <p>
+ * A {@code RuleSet} is never modified after compilation; {@link RuleEngine} publishes a
+ * new instance on reload, so an evaluation that already holds a reference keeps seeing a
+ * consistent set of rules.
+ * </p>
+ * <p>
+ * A rule set remembers the {@link BaselineTracker} its {@code zscore} rules were compiled
+ * against, so an engine built from it feeds and exposes the same tracker.
+ * </p>
+ */
+public class RuleSet {
+
+    private final List<RuleEvaluator> defaultRules;
+    private final Map<Integer, List<RuleEvaluator>> patientRules;
+    private final BaselineTracker baselines;
+
+    RuleSet(List<RuleEvaluator> defaultRules, Map<Integer, List<RuleEvaluator>> patientRules, BaselineTracker baselines) {
+        this.defaultRules = Collections.unmodifiableList(defaultRules);
+        this.patientRules = Collections.unmodifiableMap(patientRules);
+        this.baselines = baselines;
+    }
+
+    /**
+     * Returns the rules that apply to the given patient.
+     *
+     * @param patientId the patient ID
+     * @return the patient's overridden rules if any, otherwise the default rules
+     */
+    public List<RuleEvaluator> rulesFor(int patientId) {
+        return patientRules.getOrDefault(patientId, defaultRules);
+    }
+
+    public List<RuleEvaluator> getDefaultRules() {
+        return defaultRules;
+    }
+
+    /**
+     * Returns whether any rule, default or patient override, reads the given record type, e.g.
+     * to find out whether a derived series has to be produced for the rules to see data.
+     *
+     * @param recordType the record type (any case)
+     * @return {@code true} if some rule reads it
+     */
+    public boolean reads(String recordType) {
+        String key = PatientSeries.key(recordType);
+        if (readsAny(defaultRules, key)) {
+            return true;
+        }
+        for (List<RuleEvaluator> rules : patientRules.values()) {
+            if (readsAny(rules, key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean readsAny(List<RuleEvaluator> rules, String key) {
+        for (RuleEvaluator rule : rules) {
+            if (rule.getRecordTypes().contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the baseline tracker the rules' {@code zscore} rules read.
+     *
+     * @return the baseline tracker
+     */
+    public BaselineTracker getBaselines() {
+        return baselines;
+    }
+}
@@ -0,0 +1,366 @@
+package com.alerts.rules;
+
+import com.alerts.Alert;
+import com.alerts.AlertFactory;
+import com.alerts.baseline.BaselineTracker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The built-in rule kinds that {@link RuleCompiler} compiles rule definitions into.
+ * <p>
+ * Every rule scans the timestamp-sorted primitive arrays of a {@link PatientSeries}
+ * in a single pass (or two, for joins), so evaluation cost is linear in the number of
+ * readings rather than quadratic as in the original hard-coded checks.
+ * </p>
+ */
+final class Rules {
+
+    private Rules() {
+    }
+
+    /**
+     * Common state shared by all rule kinds.
+     */
+    abstract static class BaseRule implements RuleEvaluator {
+        final String id;
+        final String condition;
+        private final AlertFactory factory;
+        private final Set<String> recordTypes;
+
+        BaseRule(String id, String condition, AlertFactory factory, String... recordTypes) {
+            this.id = id;
+            this.condition = condition;
+            this.factory = factory;
+            Set<String> types = new HashSet<>();
+            for (String type : recordTypes) {
+                types.add(PatientSeries.key(type));
+            }
+            this.recordTypes = Collections.unmodifiableSet(types);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public Set<String> getRecordTypes() {
+            return recordTypes;
+        }
+
+        void raise(Consumer<Alert> alerts, PatientSeries series, String condition, long timestamp) {
+            alerts.accept(factory.createAlert(String.valueOf(series.getPatientId()), condition, timestamp));
+        }
+    }
+
+    // Raises an alert for every reading above "above" or below "below"
+    static final class Threshold extends BaseRule {
+        private final String recordType;
+        private final double above;
+        private final double below;
+
+        Threshold(String id, String condition, AlertFactory factory, String recordType, double above, double below) {
+            super(id, condition, factory, recordType);
+            this.recordType = recordType;
+            this.above = above;
+            this.below = below;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series s = series.get(recordType);
+            for (int i = 0; i < s.size(); i++) {
+                double v = s.value(i);
+                if (s.isNew(i) && (v > above || v < below)) {
+                    raise(alerts, series, condition, s.timestamp(i));
+                }
+            }
+        }
+    }
+
+    // Raises an alert when "readings" consecutive values each change by more than "minChange" in the same direction
+    static final class Trend extends BaseRule {
+        private final String recordType;
+        private final int readings;
+        private final double minChange;
+
+        Trend(String id, String condition, AlertFactory factory, String recordType, int readings, double minChange) {
+            super(id, condition, factory, recordType);
+            this.recordType = recordType;
+            this.readings = readings;
+            this.minChange = minChange;
+        }
+
+        @Override
+        public int getWindowReadings() {
+            return readings;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series s = series.get(recordType);
+            int rising = 0;
+            int falling = 0;
+            for (int i = 1; i < s.size(); i++) {
+                double change = s.value(i) - s.value(i - 1);
+                rising = change > minChange ? rising + 1 : 0;
+                falling = -change > minChange ? falling + 1 : 0;
+                if (!s.isNew(i)) {
+                    continue;
+                }
+                if (rising >= readings - 1) {
+                    raise(alerts, series, condition + " Increasing Trend", s.timestamp(i));
+                } else if (falling >= readings - 1) {
+                    raise(alerts, series, condition + " Decreasing Trend", s.timestamp(i));
+                }
+            }
+        }
+    }
+
+    // Raises an alert when a value has dropped (or risen) by at least "amount" within "windowMillis"
+    static final class WindowedDelta extends BaseRule {
+        private final String recordType;
+        private final long windowMillis;
+        private final double amount;
+        private final boolean drop;
+
+        WindowedDelta(String id, String condition, AlertFactory factory, String recordType, long windowMillis, double amount, boolean drop) {
+            super(id, condition, factory, recordType);
+            this.recordType = recordType;
+            this.windowMillis = windowMillis;
+            this.amount = amount;
+            this.drop = drop;
+        }
+
+        @Override
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series s = series.get(recordType);
+            int n = s.size();
+            if (n < 2) {
+                return;
+            }
+            // Monotonic deque of indices holding the window maximum (for drops) or minimum (for rises)
+            int[] deque = new int[n];
+            int head = 0;
+            int tail = 0;
+            for (int j = 0; j < n; j++) {
+                long ts = s.timestamp(j);
+                while (head < tail && ts - s.timestamp(deque[head]) > windowMillis) {
+                    head++;
+                }
+                if (head < tail && s.isNew(j)) {
+                    double delta = drop ? s.value(deque[head]) - s.value(j) : s.value(j) - s.value(deque[head]);
+                    if (delta >= amount) {
+                        raise(alerts, series, condition, ts);
+                    }
+                }
+                double v = s.value(j);
+                while (head < tail && (drop ? s.value(deque[tail - 1]) <= v : s.value(deque[tail - 1]) >= v)) {
+                    tail--;
+                }
+                deque[tail++] = j;
+            }
+        }
+    }
+
+    /**
+     * A single-signal predicate used on each side of a {@link CrossSignalJoin}.
+     */
+    static final class SignalCondition {
+        final String recordType;
+        final double above;
+        final double below;
+
+        SignalCondition(String recordType, double above, double below) {
+            this.recordType = recordType;
+            this.above = above;
+            this.below = below;
+        }
+
+        boolean matches(double v) {
+            return v > above || v < below;
+        }
+    }
+
+    // Raises an alert for each "left" match that has a "right" match within "windowMillis" of it
+    static final class CrossSignalJoin extends BaseRule {
+        private final SignalCondition left;
+        private final SignalCondition right;
+        private final long windowMillis;
+
+        CrossSignalJoin(String id, String condition, AlertFactory factory, SignalCondition left, SignalCondition right, long windowMillis) {
+            super(id, condition, factory, left.recordType, right.recordType);
+            this.left = left;
+            this.right = right;
+            this.windowMillis = windowMillis;
+        }
+
+        @Override
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series l = series.get(left.recordType);
+            PatientSeries.Series r = series.get(right.recordType);
+            if (l.size() == 0 || r.size() == 0) {
+                return;
+            }
+            // Right-hand matches already evaluated, and new ones
+            long[] oldMatches = new long[r.size()];
+            long[] newMatches = new long[r.size()];
+            int oldCount = 0;
+            int newCount = 0;
+            for (int i = 0; i < r.size(); i++) {
+                if (right.matches(r.value(i))) {
+                    if (r.isNew(i)) {
+                        newMatches[newCount++] = r.timestamp(i);
+                    } else {
+                        oldMatches[oldCount++] = r.timestamp(i);
+                    }
+                }
+            }
+            if (oldCount + newCount == 0) {
+                return;
+            }
+            for (int i = 0; i < l.size(); i++) {
+                if (!left.matches(l.value(i))) {
+                    continue;
+                }
+                long ts = l.timestamp(i);
+                // An old left match already raised its alert if an old right match was near it
+                boolean nearOld = near(oldMatches, oldCount, ts);
+                if (l.isNew(i) ? nearOld || near(newMatches, newCount, ts) : !nearOld && near(newMatches, newCount, ts)) {
+                    raise(alerts, series, condition, ts);
+                }
+            }
+        }
+
+        private boolean near(long[] matches, int count, long ts) {
+            int pos = Arrays.binarySearch(matches, 0, count, ts);
+            return pos >= 0 || near(matches, count, -pos - 1, ts) || near(matches, count, -pos - 2, ts);
+        }
+
+        private boolean near(long[] matches, int count, int index, long ts) {
+            return index >= 0 && index < count && Math.abs(matches[index] - ts) < windowMillis;
+        }
+    }
+
+    // Raises an alert for readings that exceed "factor" times the mean of the trailing "windowSize" readings
+    static final class Peak extends BaseRule {
+        private final String recordType;
+        private final int windowSize;
+        private final double factor;
+
+        Peak(String id, String condition, AlertFactory factory, String recordType, int windowSize, double factor) {
+            super(id, condition, factory, recordType);
+            this.recordType = recordType;
+            this.windowSize = windowSize;
+            this.factor = factor;
+        }
+
+        @Override
+        public int getWindowReadings() {
+            return windowSize;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series s = series.get(recordType);
+            double sum = 0;
+            for (int i = 0; i < s.size(); i++) {
+                sum += s.value(i);
+                if (i >= windowSize) {
+                    sum -= s.value(i - windowSize);
+                }
+                if (i >= windowSize - 1 && s.isNew(i) && s.value(i) > factor * (sum / windowSize)) {
+                    raise(alerts, series, condition, s.timestamp(i));
+                }
+            }
+        }
+    }
+
+    // Raises an alert for every record of the given type, e.g. nurse-triggered manual alerts
+    static final class Presence extends BaseRule {
+        private final String recordType;
+
+        Presence(String id, String condition, AlertFactory factory, String recordType) {
+            super(id, condition, factory, recordType);
+            this.recordType = recordType;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series s = series.get(recordType);
+            for (int i = 0; i < s.size(); i++) {
+                if (s.isNew(i)) {
+                    raise(alerts, series, condition, s.timestamp(i));
+                }
+            }
+        }
+    }
+
+    // Raises an alert for recent readings that lie more than "threshold" standard deviations from the patient's own baseline
+    static final class ZScore extends BaseRule {
+        private final String recordType;
+        private final BaselineTracker baselines;
+        private final double threshold;
+        private final int direction; // -1 low only, 1 high only, 0 both
+        private final long lookbackMillis;
+        private final long minSamples;
+        private final double minDeviation;
+
+        ZScore(String id, String condition, AlertFactory factory, String recordType, BaselineTracker baselines,
+               double threshold, int direction, long lookbackMillis, long minSamples, double minDeviation) {
+            super(id, condition, factory, recordType);
+            this.recordType = recordType;
+            this.baselines = baselines;
+            this.threshold = threshold;
+            this.direction = direction;
+            this.lookbackMillis = lookbackMillis;
+            this.minSamples = minSamples;
+            this.minDeviation = minDeviation;
+        }
+
+        @Override
+        public void evaluate(PatientSeries series, Consumer<Alert> alerts) {
+            PatientSeries.Series s = series.get(recordType);
+            BaselineTracker.Baseline current = baselines.get(series.getPatientId(), recordType);
+            if (s.size() == 0 || current == null) {
+                return;
+            }
+            // Only new readings close to the newest are scored, each against the baseline from before it
+            // arrived; the tracker has already folded it in, and scoring against that would damp its z-score.
+            // A reading too far back for the tracker to remember falls back to the current baseline.
+            long from = s.timestamp(s.size() - 1) - lookbackMillis;
+            for (int i = s.size() - 1; i >= 0 && s.timestamp(i) >= from; i--) {
+                if (!s.isNew(i)) {
+                    continue;
+                }
+                BaselineTracker.Baseline baseline = baselines.getBefore(series.getPatientId(), recordType, s.timestamp(i));
+                if (baseline == null) {
+                    baseline = current;
+                }
+                if (baseline.getCount() < minSamples) {
+                    continue;
+                }
+                double z = baseline.zScore(s.value(i), minDeviation);
+                if ((direction >= 0 && z >= threshold) || (direction <= 0 && z <= -threshold)) {
+                    raise(alerts, series, String.format(Locale.ROOT, "%s: z=%.1f", condition, z), s.timestamp(i));
+                }
+            }
+        }
+    }
+}
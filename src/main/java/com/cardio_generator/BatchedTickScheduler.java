@@ -0,0 +1,324 @@
+package com.cardio_generator;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives data generation for a large, contiguous range of patients with a handful of
+ * periodic tasks instead of one scheduled task per patient and signal.
+ * <p>
+ * Time is divided into ticks. Every signal's period is split into {@code period / tick}
+ * slots and each patient is given a fixed slot per signal, derived from the run seed, so
+ * patients stay staggered across the period exactly like the random start delays of
+ * per-patient tasks did, and the load is spread evenly over the ticks. The patient range is
+ * partitioned into one contiguous block per worker thread; on each tick a worker walks the
+ * patients of its block that are due in the current slot, in a tight loop over a primitive
+ * array. The number of scheduled tasks is therefore the number of workers, independent of
+ * the patient count, and a patient is always generated by the same worker, so generators'
+ * per-patient state is never touched by two threads.
+ * </p>
+ * <p>
+ * Generators write into a per-worker {@link ReadingBatch} of primitive values, and the batch
+ * is handed to the output strategy in one {@link OutputStrategy#outputBatch} call at the end
+ * of the worker's tick.
+ * </p>
+ */
+public class BatchedTickScheduler {
+
+    private final int firstPatientId;
+    private final int patientCount;
+    private final int workers;
+    private final long tickMillis;
+    private final long seed;
+    private final List<Signal> signals = new ArrayList<>();
+    private final ReadingBatch[] batches;
+
+    private ScheduledExecutorService executor;
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong outputFailures = new AtomicLong();
+
+    /**
+     * Creates a scheduler for patients {@code firstPatientId} to {@code firstPatientId + patientCount - 1}.
+     *
+     * @param firstPatientId the first patient ID of the range
+     * @param patientCount   the number of patients
+     * @param workers        the number of worker threads (and patient partitions)
+     * @param tickMillis     the tick length in milliseconds
+     * @param seed           the seed that decides each patient's slot within every period
+     */
+    public BatchedTickScheduler(int firstPatientId, int patientCount, int workers, long tickMillis, long seed) {
+        if (patientCount <= 0 || workers <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Patient count, workers and tick length must be positive");
+        }
+        this.firstPatientId = firstPatientId;
+        this.patientCount = patientCount;
+        this.workers = Math.min(workers, patientCount);
+        this.tickMillis = tickMillis;
+        this.seed = seed;
+        this.batches = new ReadingBatch[this.workers];
+        for (int w = 0; w < this.workers; w++) {
+            batches[w] = new ReadingBatch();
+        }
+    }
+
+    /**
+     * Adds a signal generated for every patient once per period. The period is rounded to a
+     * whole number of ticks.
+     *
+     * @param generator the generator of the signal
+     * @param period    the generation period
+     * @param unit      the unit of {@code period}
+     */
+    public void addSignal(PatientDataGenerator generator, long period, TimeUnit unit) {
+        if (executor != null) {
+            throw new IllegalStateException("Signals must be added before the scheduler starts");
+        }
+        int slots = (int) Math.max(1, Math.round(unit.toMillis(period) / (double) tickMillis));
+        signals.add(new Signal(generator, slots, signals.size()));
+    }
+
+    /**
+     * Starts one periodic tick task per worker.
+     *
+     * @param outputStrategy where generated data is written; must be safe for concurrent use
+     */
+    public synchronized void start(OutputStrategy outputStrategy) {
+        if (executor != null) {
+            return;
+        }
+        // Non-daemon workers: a running simulation keeps the process alive until shutdown
+        executor = Executors.newScheduledThreadPool(workers, r -> new Thread(r, "tick-worker"));
+        long startNanos = System.nanoTime();
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            long[] nextTick = new long[1]; // only touched by this worker's task
+            executor.scheduleAtFixedRate(() -> {
+                // Catch up on ticks missed through a late wake-up so no slot is skipped
+                long currentTick = (System.nanoTime() - startNanos) / tickNanos;
+                if (currentTick > nextTick[0]) {
+                    overruns.incrementAndGet();
+                }
+                while (nextTick[0] <= currentTick) {
+                    runTick(worker, nextTick[0]++, outputStrategy);
+                    if (worker == 0) {
+                        ticks.incrementAndGet();
+                    }
+                }
+            }, 0, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Generates {@code durationMillis} of data in simulated time, as fast as the workers can,
+     * and returns when done.
+     * <p>
+     * Every signal's generator is switched to the virtual clock. The workers run the ticks in
+     * lockstep: once all of them have finished a tick, the clock is advanced by one tick
+     * length and the next tick starts, so each patient's signals keep their cadence in
+     * simulated time exactly as in a real-time run.
+     * </p>
+     *
+     * @param outputStrategy where generated data is written; must be safe for concurrent use
+     * @param clock          the clock to advance, starting at its current time
+     * @param durationMillis the simulated time span to generate
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void runSimulated(OutputStrategy outputStrategy, VirtualClock clock, long durationMillis)
+            throws InterruptedException {
+        if (executor != null) {
+            throw new IllegalStateException("The scheduler is already running in real time");
+        }
+        for (Signal signal : signals) {
+            signal.generator.setClock(clock);
+        }
+        long startMillis = clock.millis();
+        long tickCount = durationMillis / tickMillis;
+        Phaser phaser = new Phaser(workers) {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties) {
+                // Runs once per tick, on the last worker to finish it
+                ticks.incrementAndGet();
+                clock.set(startMillis + ticks.get() * tickMillis);
+                return false;
+            }
+        };
+        ticks.set(0);
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            threads[w] = new Thread(() -> {
+                long tick = 0;
+                try {
+                    for (; tick < tickCount; tick++) {
+                        runTick(worker, tick, outputStrategy);
+                        phaser.arriveAndAwaitAdvance();
+                    }
+                } finally {
+                    // A worker that dies mid-run must not leave the others waiting on it
+                    if (tick < tickCount) {
+                        phaser.arriveAndDeregister();
+                    }
+                }
+            }, "tick-worker-" + w);
+            threads[w].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Runs one tick for all partitions on the calling thread.
+     *
+     * @param tick           the tick number, counted from the start of the run
+     * @param outputStrategy where generated data is written
+     */
+    public void runTick(long tick, OutputStrategy outputStrategy) {
+        for (int w = 0; w < workers; w++) {
+            runTick(w, tick, outputStrategy);
+        }
+    }
+
+    /**
+     * Runs one tick for one partition on the calling thread. A partition must not be run by
+     * two threads at once.
+     *
+     * @param worker         the partition, below {@link #getWorkerCount()}
+     * @param tick           the tick number
+     * @param outputStrategy where generated data is written
+     */
+    void runTick(int worker, long tick, OutputStrategy outputStrategy) {
+        ReadingBatch batch = batches[worker];
+        for (Signal signal : signals) {
+            int[] due = signal.due(worker, (int) (tick % signal.slots));
+            for (int patientId : due) {
+                try {
+                    signal.generator.generate(patientId, batch);
+                } catch (RuntimeException e) {
+                    System.err.println("Generation failed for patient " + patientId + ": " + e.getMessage());
+                }
+            }
+            generated.addAndGet(due.length);
+        }
+        if (!batch.isEmpty()) {
+            try {
+                outputStrategy.outputBatch(batch);
+            } catch (RuntimeException e) {
+                // A failing output drops this tick's batch but must not kill the worker
+                outputFailures.incrementAndGet();
+                System.err.println("Output failed for " + batch.size() + " readings: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Stops the workers.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the number of worker partitions, which may be lower than requested for very
+     * small patient ranges.
+     *
+     * @return the worker count
+     */
+    public int getWorkerCount() {
+        return workers;
+    }
+
+    public long getTickCount() {
+        return ticks.get();
+    }
+
+    /**
+     * Returns the number of generator calls made.
+     *
+     * @return the generation count
+     */
+    public long getGeneratedCount() {
+        return generated.get();
+    }
+
+    /**
+     * Returns the number of batches dropped because the output strategy threw.
+     *
+     * @return the output failure count
+     */
+    public long getOutputFailureCount() {
+        return outputFailures.get();
+    }
+
+    /**
+     * Returns how often a worker woke up more than a tick late and had to catch up, i.e. the
+     * simulation falling behind its nominal rate.
+     *
+     * @return the overrun count
+     */
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    // Slot of a patient within a signal's period: a hash of (seed, signal, patient), so it
+    // does not depend on how patients are partitioned over workers
+    private int slotOf(int patientId, int signalIndex, int slots) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) signalIndex << 32) ^ patientId);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) Math.floorMod(z, (long) slots);
+    }
+
+    private final class Signal {
+        final PatientDataGenerator generator;
+        final int slots;
+        final int[][][] patientsBySlot; // [worker][slot] -> patient IDs, ascending
+
+        Signal(PatientDataGenerator generator, int slots, int index) {
+            this.generator = generator;
+            this.slots = slots;
+            this.patientsBySlot = new int[workers][][];
+            for (int w = 0; w < workers; w++) {
+                int from = firstPatientId + (int) ((long) patientCount * w / workers);
+                int to = firstPatientId + (int) ((long) patientCount * (w + 1) / workers);
+                int[] counts = new int[slots];
+                int[] assigned = new int[to - from];
+                for (int p = from; p < to; p++) {
+                    assigned[p - from] = slotOf(p, index, slots);
+                    counts[assigned[p - from]]++;
+                }
+                int[][] buckets = new int[slots][];
+                for (int s = 0; s < slots; s++) {
+                    buckets[s] = new int[counts[s]];
+                    counts[s] = 0;
+                }
+                for (int p = from; p < to; p++) {
+                    int s = assigned[p - from];
+                    buckets[s][counts[s]++] = p;
+                }
+                patientsBySlot[w] = buckets;
+            }
+        }
+
+        int[] due(int worker, int slot) {
+            return patientsBySlot[worker][slot];
+        }
+    }
+}
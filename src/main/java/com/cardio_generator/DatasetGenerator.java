@@ -0,0 +1,317 @@
+package com.cardio_generator;
+
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates a long synthetic history offline, in simulated time, straight into compressed
+ * files partitioned by day and patient.
+ * <p>
+ * Each patient's whole history is one task. Tasks are spread over a thread pool, and each
+ * thread has its own generators and {@link VirtualClock}, so threads never wait for one
+ * another. A task walks the patient's ticks on a one-patient {@link BatchedTickScheduler}.
+ * Slots are derived from the seed and patient ID alone, so the readings, timestamps and
+ * cadences match a live {@code --simulate --seed} run. Output goes to
+ * {@code <directory>/<yyyy-MM-dd>/patient-<id>.csv.gz}, one gzip file per patient per UTC
+ * day. Each line is {@code patientId,value,label,timestamp}, the format
+ * {@link com.data_management.FileDataReader} loads. Only one file per thread is open at a
+ * time, and files use fast compression through large buffers. Sampled signals (ECG) are
+ * written with four decimals.
+ * </p>
+ */
+public class DatasetGenerator {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long SAMPLE_SCALE = 10_000; // four decimals for sampled signals
+
+    private final Path directory;
+    private final int patientCount;
+    private final long tickMillis;
+    private final int ecgSampleRate;
+    private final long seed;
+
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    /**
+     * Creates a generator for patients 1 to {@code patientCount}.
+     *
+     * @param directory     the dataset root directory
+     * @param patientCount  the number of patients
+     * @param tickMillis    the tick length, as in the live simulation
+     * @param ecgSampleRate the ECG sample rate in Hz
+     * @param seed          the run seed
+     */
+    public DatasetGenerator(Path directory, int patientCount, long tickMillis, int ecgSampleRate, long seed) {
+        this.directory = directory;
+        this.patientCount = patientCount;
+        this.tickMillis = tickMillis;
+        this.ecgSampleRate = ecgSampleRate;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the dataset and blocks until all files are written.
+     *
+     * @param startMillis    the start of simulated time, in epoch milliseconds
+     * @param durationMillis the simulated time span
+     * @param threads        the number of generating threads
+     * @throws IOException          if a file cannot be written
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public void generate(long startMillis, long durationMillis, int threads) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "dataset-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> tasks = new ArrayList<>(patientCount);
+            for (int patientId = 1; patientId <= patientCount; patientId++) {
+                int id = patientId;
+                tasks.add(executor.submit(() -> {
+                    workers.get().generatePatient(id, startMillis, durationMillis);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Dataset generation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public long getFileCount() {
+        return files.get();
+    }
+
+    public long getRowCount() {
+        return rows.get();
+    }
+
+    /**
+     * Returns the number of bytes of text written, before compression.
+     *
+     * @return the uncompressed byte count
+     */
+    public long getByteCount() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the size of the written files.
+     *
+     * @return the compressed byte count
+     */
+    public long getCompressedByteCount() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Returns the file a patient's readings of a day are written to.
+     *
+     * @param directory the dataset root directory
+     * @param day       the UTC day
+     * @param patientId the patient
+     * @return the file path
+     */
+    public static Path fileFor(Path directory, LocalDate day, int patientId) {
+        return directory.resolve(day.toString()).resolve("patient-" + patientId + ".csv.gz");
+    }
+
+    // One per thread: generators, clock and the currently open file
+    private final class Worker implements OutputStrategy {
+        final VirtualClock clock = new VirtualClock(0);
+        final List<PatientDataGenerator> generators = new ArrayList<>();
+        final long[] periods;
+        Writer out;
+        Path file;
+        long fileRows;
+        long fileChars;
+        IOException failure; // generators swallow exceptions, so write errors are kept here
+        final StringBuilder line = new StringBuilder(64);
+
+        Worker() {
+            generators.add(new ECGWaveformGenerator(patientCount, ecgSampleRate, 1000, seed));
+            generators.add(new BloodSaturationDataGenerator(patientCount, seed));
+            generators.add(new BloodPressureDataGenerator(patientCount, seed));
+            generators.add(new BloodLevelsDataGenerator(patientCount, seed));
+            periods = new long[] {1000, 1000, 60_000, 120_000};
+            for (PatientDataGenerator generator : generators) {
+                generator.setClock(clock);
+            }
+        }
+
+        void generatePatient(int patientId, long startMillis, long durationMillis) throws IOException {
+            // Same signal order and periods as the live simulation, so slots match it
+            BatchedTickScheduler scheduler = new BatchedTickScheduler(patientId, 1, 1, tickMillis, seed);
+            for (int i = 0; i < generators.size(); i++) {
+                scheduler.addSignal(generators.get(i), periods[i], TimeUnit.MILLISECONDS);
+            }
+            long tickCount = durationMillis / tickMillis;
+            LocalDate day = null;
+            long dayEnd = Long.MIN_VALUE;
+            try {
+                for (long tick = 0; tick < tickCount; tick++) {
+                    long now = startMillis + tick * tickMillis;
+                    if (now >= dayEnd) {
+                        close();
+                        day = Instant.ofEpochMilli(now).atZone(ZoneOffset.UTC).toLocalDate();
+                        dayEnd = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                        open(fileFor(directory, day, patientId));
+                    }
+                    clock.set(now);
+                    scheduler.runTick(0, tick, this);
+                    if (failure != null) {
+                        throw failure;
+                    }
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private void open(Path path) throws IOException {
+            Files.createDirectories(path.getParent());
+            OutputStream stream = new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), BUFFER_SIZE);
+            file = path;
+            fileRows = 0;
+            fileChars = 0;
+        }
+
+        private void close() throws IOException {
+            if (out == null) {
+                return;
+            }
+            Writer closing = out;
+            out = null;
+            closing.close();
+            files.incrementAndGet();
+            rows.addAndGet(fileRows);
+            bytes.addAndGet(fileChars);
+            compressedBytes.addAndGet(Files.size(file));
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            // Percent signs (saturation) are dropped so every value column is numeric
+            String value = data.endsWith("%") ? data.substring(0, data.length() - 1) : data;
+            line.setLength(0);
+            line.append(patientId).append(',').append(value).append(',').append(label).append(',')
+                    .append(timestamp).append('\n');
+            write();
+        }
+
+        @Override
+        public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                                  double[] samples, int count) {
+            for (int i = 0; i < count; i++) {
+                line.setLength(0);
+                line.append(patientId).append(',');
+                appendFixed(line, samples[i]);
+                line.append(',').append(label).append(',')
+                        .append(firstTimestamp + (long) i * 1000 / sampleRate).append('\n');
+                write();
+            }
+        }
+
+        @Override
+        public void outputBatch(ReadingBatch batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                ReadingType type = batch.getType(i);
+                double value = batch.getValue(i);
+                line.setLength(0);
+                line.append(batch.getPatientId(i)).append(',');
+                if (type == ReadingType.ECG) {
+                    appendFixed(line, value);
+                } else if (type == ReadingType.SATURATION) {
+                    line.append((long) value);
+                } else {
+                    type.appendFormatted(line, value);
+                }
+                line.append(',').append(type.getLabel()).append(',').append(batch.getTimestamp(i)).append('\n');
+                write();
+            }
+        }
+
+        // Four decimals are far below the signal noise, and cheaper to format and better
+        // compressible than Double.toString
+        private void appendFixed(StringBuilder target, double value) {
+            long scaled = Math.round(value * SAMPLE_SCALE);
+            if (scaled < 0) {
+                target.append('-');
+                scaled = -scaled;
+            }
+            target.append(scaled / SAMPLE_SCALE).append('.');
+            long fraction = scaled % SAMPLE_SCALE;
+            for (long digit = SAMPLE_SCALE / 10; digit > 1 && fraction < digit; digit /= 10) {
+                target.append('0');
+            }
+            target.append(fraction);
+        }
+
+        private void write() {
+            if (failure != null) {
+                return;
+            }
+            try {
+                out.append(line);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            fileRows++;
+            fileChars += line.length();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d files, %d rows, %.1f MB (%.1f MB compressed)",
+                files.get(), rows.get(), bytes.get() / 1e6, compressedBytes.get() / 1e6);
+    }
+}
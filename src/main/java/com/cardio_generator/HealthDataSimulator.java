@@ -5,23 +5,41 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.alerts.AlertGenerator;
+import com.alerts.AlertManager;
+import com.alerts.ReactiveAlertEvaluator;
+import com.alerts.WardEvaluationExecutor;
+import com.alerts.cep.CepEngine;
+import com.alerts.cep.CepPatterns;
+import com.alerts.dispatch.AlertDispatcher;
+import com.alerts.dispatch.AlertSink;
+import com.alerts.dispatch.ConsoleAlertSink;
+import com.alerts.dispatch.FileAlertSink;
+import com.alerts.dispatch.WebSocketAlertSink;
+import com.alerts.journal.AlertJournal;
+import com.alerts.rules.RuleEngine;
+import com.alerts.rules.RuleSet;
 import com.cardio_generator.generators.BloodLevelsDataGenerator;
 import com.cardio_generator.generators.BloodPressureDataGenerator;
 import com.cardio_generator.generators.BloodSaturationDataGenerator;
-import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator;
 import com.cardio_generator.outputs.*;
 import com.data_management.DataReader;
 import com.data_management.DataStorage;
-import com.data_management.Patient;
+import com.data_management.HeartRateDeriver;
+import com.data_management.QrsDetector;
 import com.data_management.WebSocketDataReader;
+import com.metrics.MetricsServer;
+import com.metrics.PipelineLatency;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.Locale;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 
 /**
@@ -33,7 +51,7 @@ import java.util.ArrayList;
  *
  * <p>Usage:</p>
  * <pre>
- * java HealthDataSimulator --patient-count 100 --output websocket:8080
+ * java HealthDataSimulator --simulate --patient-count 100 --output websocket:8080
  * </pre>
  */
 public class HealthDataSimulator {
@@ -44,19 +62,186 @@ public class HealthDataSimulator {
     private static int patientCount = 50;
 
     /**
-     * The scheduled thread pool used to run generation tasks periodically.
+     * First and last patient ID this process generates; {@code 0} means the full range 1 to {@code patientCount}.
      */
-    private static ScheduledExecutorService scheduler;
+    private static int firstPatientId = 0;
+    private static int lastPatientId = 0;
 
     /**
-     * The output strategy for generated data. Default is console output.
+     * This process's shard index and the shard count, set by {@code --shard i/n}; {@code 0} shards means unsharded.
      */
-    private static OutputStrategy outputStrategy = new ConsoleOutputStrategy();
+    private static int shardIndex = 0;
+    private static int shardCount = 0;
 
     /**
-     * Random number generator for staggering task start times.
+     * Number of simulator processes to start and coordinate; {@code 0} runs in this process.
      */
-    private static final Random random = new Random();
+    private static int processes = 0;
+
+    /**
+     * Seconds between {@code STATS} lines in simulate mode; {@code 0} disables them.
+     */
+    private static long statsSeconds = 0;
+
+    /**
+     * Seconds between per-patient summary lines of console output; {@code 0} prints every reading.
+     */
+    private static long consoleSummarySeconds = 0;
+
+    /**
+     * Milliseconds between keyframes of WebSocket output's delta feed ({@code --keyframe-interval}).
+     */
+    private static long keyframeMillis = WebSocketOutputStrategy.DEFAULT_KEYFRAME_MILLIS;
+
+    /**
+     * Whether the alert evaluation reads the delta-encoded WebSocket feed instead of text
+     * ({@code --websocket-feed delta}).
+     */
+    private static boolean deltaFeed = false;
+
+    /**
+     * What TCP output does with a client that cannot keep up ({@code --slow-consumer}).
+     */
+    private static TcpOutputStrategy.SlowConsumerPolicy slowConsumerPolicy = TcpOutputStrategy.SlowConsumerPolicy.DROP_OLDEST;
+
+    /**
+     * The output strategy for generated data, set once the arguments are parsed. Default is
+     * console output.
+     */
+    private static OutputStrategy outputStrategy;
+
+    /**
+     * Alert rule engine, loaded from {@code --rules <file>} or the bundled defaults.
+     */
+    private static RuleEngine ruleEngine;
+
+    /**
+     * Destinations for alerts, in addition to the console ({@code --alert-log}, {@code --alert-journal},
+     * {@code --alert-websocket}).
+     */
+    private static final List<AlertSink> alertSinks = new ArrayList<>(Collections.singletonList(new ConsoleAlertSink()));
+
+    /**
+     * Delivers alerts to the sinks on its own thread so output never blocks evaluation.
+     */
+    private static AlertDispatcher alertDispatcher;
+
+    /**
+     * Deduplicates and rate-limits alerts before they are dispatched.
+     */
+    private static AlertManager alertManager;
+
+    /**
+     * Matches the multi-signal patterns with {@code --cep}, otherwise {@code null}.
+     */
+    private static CepEngine cepEngine;
+
+    /**
+     * Seconds between two alert evaluation rounds over the whole ward.
+     */
+    private static long evaluationPeriodSeconds = 10;
+
+    /**
+     * Number of worker threads used to evaluate patients in parallel.
+     */
+    private static int evaluationThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether alerts are evaluated as soon as data is stored instead of in periodic rounds.
+     */
+    private static boolean reactiveEvaluation = false;
+
+    /**
+     * In reactive mode, how long to gather a burst of readings for a patient before evaluating.
+     */
+    private static long coalesceMillis = 10;
+
+    /**
+     * Whether the multi-signal patterns of the CEP engine are matched on ingest.
+     */
+    private static boolean cepPatterns = false;
+
+    /**
+     * Whether heart rate and RR intervals are derived from the incoming ECG. They are also
+     * derived, without this flag, whenever the loaded rules read them.
+     */
+    private static boolean deriveHeartRate = false;
+
+    /**
+     * Sample rate of the ECG in Hz: generated in simulate mode, expected by the QRS detector otherwise.
+     */
+    private static int ecgSampleRate = 250;
+
+    /**
+     * Port of the HTTP metrics endpoint; {@code 0} disables it.
+     */
+    private static int metricsPort = 0;
+
+    /**
+     * Whether to generate patient data instead of receiving and evaluating it.
+     */
+    private static boolean simulate = false;
+
+    /**
+     * Length of one generation tick in milliseconds; each patient's signals are due in a fixed tick of their period.
+     */
+    private static long tickMillis = 100;
+
+    /**
+     * Run seed from which all generated values derive; the same seed reproduces the same data.
+     */
+    private static long seed = System.nanoTime();
+
+    /**
+     * Span of simulated time to generate as fast as possible, in milliseconds; {@code 0} generates in real time.
+     */
+    private static long simulatedMillis = 0;
+
+    /**
+     * Start of simulated time in epoch milliseconds.
+     */
+    private static long simulatedStartMillis = System.currentTimeMillis();
+
+    /**
+     * Directory to write an offline dataset to; {@code null} when not generating one.
+     */
+    private static Path datasetDirectory = null;
+
+    /**
+     * Size in MB at which file output rotates a label's file; {@code 0} disables size rotation.
+     */
+    private static long rotateMegabytes = FileOutputStrategy.DEFAULT_MAX_FILE_BYTES / (1024 * 1024);
+
+    /**
+     * Age in milliseconds at which file output rotates a label's file; {@code 0} disables time rotation.
+     */
+    private static long rotateMillis = 0;
+
+    /**
+     * Seconds to measure in benchmark mode; {@code 0} runs the normal simulation.
+     */
+    private static long benchmarkSeconds = 0;
+
+    /**
+     * Seconds of warm-up before a benchmark is measured.
+     */
+    private static long warmupSeconds = 5;
+
+    /**
+     * Event rate a benchmark holds; {@code 0} generates as fast as possible.
+     */
+    private static long targetRate = 0;
+
+    /**
+     * Approximate heap taken by one reading kept in a {@code DataStorage}: the record object
+     * and its list slot. Caps benchmarks into the storage output.
+     */
+    private static final long STORED_READING_BYTES = 64;
+
+    /**
+     * Seconds between two latency log lines; {@code 0} disables them.
+     */
+    private static long metricsLogSeconds = 0;
 
     /**
      * Entry point of the simulation. Parses arguments, initializes patients, and starts data generation tasks.
@@ -64,30 +249,149 @@ public class HealthDataSimulator {
      * @param args Command-line arguments for patient count and output type.
      * @throws IOException If directory or file creation fails.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        parseArguments(args);
+        resolvePatientRange();
+        if (processes > 0) {
+            coordinate(args);
+            return;
+        }
+        if (benchmarkSeconds > 0) {
+            runBenchmark();
+            return;
+        }
+        if (datasetDirectory != null) {
+            generateDataset();
+            return;
+        }
+        if (simulatedMillis > 0) {
+            generateSimulatedTime();
+            return;
+        }
+        if (simulate) {
+            CountingOutputStrategy counting = new CountingOutputStrategy(outputStrategy);
+            BatchedTickScheduler scheduler = scheduleTasksForPatients(firstPatientId, lastPatientId);
+            scheduler.start(counting);
+            System.out.println("Simulating patients " + firstPatientId + "-" + lastPatientId + " with seed " + seed
+                    + ", output: " + outputStrategy.getClass().getSimpleName());
+            startStats(scheduler, counting);
+            return;
+        }
+        if (ruleEngine == null) {
+            ruleEngine = RuleEngine.withDefaultRules();
+        }
+        startAlertDispatch();
+
         // Connect to simulator's WebSocket output
         String websocketUrl = "ws://localhost:8080"; // Same port used by the simulator
-        DataReader reader = new WebSocketDataReader(websocketUrl);
-        DataStorage storage = new DataStorage(reader); // Load initial data
-
-        // Start analyzing new incoming data as it's received
-        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        DataReader reader = new WebSocketDataReader(websocketUrl, deltaFeed);
+        DataStorage storage = new DataStorage();
 
-        // Periodically evaluate patients (every 10 seconds)
+        // Read incoming data on its own thread; readData keeps listening until interrupted
         new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(10000); // Wait 10 seconds
-                    for (Patient patient : storage.getAllPatients()) {
-                        alertGenerator.evaluateData(patient);
-                    }
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+            try {
+                reader.readData(storage);
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-        }).start();
+        }, "websocket-reader").start();
+
+        // Evaluate patients as data arrives, or periodically in parallel rounds
+        startAlertEvaluation(storage);
+        startMetrics();
+    }
+
+    /**
+     * Starts the metrics endpoint and the periodic latency log line, if enabled. Latency is
+     * only measured when one of them is, so that storing readings pays nothing for it otherwise.
+     *
+     * @throws IOException if the metrics port cannot be bound
+     */
+    private static void startMetrics() throws IOException {
+        if (metricsPort > 0 || metricsLogSeconds > 0) {
+            PipelineLatency.setEnabled(true);
+        }
+        if (metricsPort > 0) {
+            new MetricsServer(metricsPort);
+        }
+        if (metricsLogSeconds > 0) {
+            ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "latency-log");
+                t.setDaemon(true);
+                return t;
+            });
+            logger.scheduleAtFixedRate(() -> System.out.println(PipelineLatency.summary()),
+                    metricsLogSeconds, metricsLogSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+
+    /**
+     * Creates the output strategy for the {@code --output} arguments. Several outputs are fed
+     * through a {@link CompositeOutputStrategy}, each at its own pace.
+     *
+     * @param outputArgs the arguments, at least one
+     * @throws IOException If directory creation for file output fails.
+     */
+    private static void createOutputStrategies(List<String> outputArgs) throws IOException {
+        List<OutputStrategy> sinks = new ArrayList<>();
+        for (String outputArg : outputArgs) {
+            outputStrategy = null;
+            createOutputStrategy(outputArg);
+            sinks.add(outputStrategy);
+        }
+        if (sinks.size() > 1) {
+            outputStrategy = new CompositeOutputStrategy(sinks);
+        }
     }
 
+    /**
+     * Creates the output strategy described by an {@code --output} argument.
+     *
+     * @param outputArg the argument, e.g. {@code console}, {@code file:<dir>} or {@code websocket:<port>}
+     * @throws IOException If directory creation for file output fails.
+     */
+    private static void createOutputStrategy(String outputArg) throws IOException {
+        if (outputArg.equals("console")) {
+            outputStrategy = new AsyncConsoleOutputStrategy(System.out, AsyncConsoleOutputStrategy.DEFAULT_CAPACITY,
+                    TimeUnit.SECONDS.toMillis(consoleSummarySeconds));
+        } else if (outputArg.equals("storage")) {
+            outputStrategy = new StorageOutputStrategy(new DataStorage());
+        } else if (outputArg.startsWith("file:")) {
+            String baseDirectory = outputArg.substring(5);
+            Path outputPath = Paths.get(baseDirectory);
+            if (!Files.exists(outputPath)) {
+                Files.createDirectories(outputPath);
+            }
+            outputStrategy = new FileOutputStrategy(baseDirectory, FileOutputStrategy.DEFAULT_FLUSH_MILLIS,
+                    rotateMegabytes * 1024 * 1024, rotateMillis);
+        } else if (outputArg.startsWith("columnar:")) {
+            outputStrategy = new ColumnarOutputStrategy(outputArg.substring(9));
+        } else if (outputArg.startsWith("websocket:")) {
+            try {
+                int port = Integer.parseInt(outputArg.substring(10));
+                outputStrategy = new WebSocketOutputStrategy(port, WebSocketOutputStrategy.DEFAULT_FLUSH_MILLIS,
+                        keyframeMillis);
+                System.out.println("WebSocket output will be on port: " + port);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid WebSocket port number.");
+            }
+        } else if (outputArg.startsWith("tcp:")) {
+            try {
+                int port = Integer.parseInt(outputArg.substring(4));
+                outputStrategy = new TcpOutputStrategy(port, TcpOutputStrategy.DEFAULT_MAX_CLIENT_BYTES,
+                        slowConsumerPolicy);
+                System.out.println("TCP socket output will be on port: " + port);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid TCP port number.");
+            }
+        } else {
+            System.err.println("Unknown output type. Using default (console).");
+        }
+        if (outputStrategy == null) {
+            createOutputStrategy("console");
+        }
+    }
 
     /**
      * Parses command-line arguments for patient count and output strategy.
@@ -96,6 +400,7 @@ public class HealthDataSimulator {
      * @throws IOException If directory creation for file output fails.
      */
     private static void parseArguments(String[] args) throws IOException {
+        List<String> outputArgs = new ArrayList<>();
         for (int i = 0; i < args.length; i++) {
             switch (args[i]) {
                 case "-h":
@@ -113,43 +418,284 @@ public class HealthDataSimulator {
                     break;
                 case "--output":
                     if (i + 1 < args.length) {
-                        String outputArg = args[++i];
-                        if (outputArg.equals("console")) {
-                            outputStrategy = new ConsoleOutputStrategy();
-                        } else if (outputArg.startsWith("file:")) {
-                            String baseDirectory = outputArg.substring(5);
-                            Path outputPath = Paths.get(baseDirectory);
-                            if (!Files.exists(outputPath)) {
-                                Files.createDirectories(outputPath);
-                            }
-                            outputStrategy = new FileOutputStrategy(baseDirectory);
-                        } else if (outputArg.startsWith("websocket:")) {
-                            try {
-                                int port = Integer.parseInt(outputArg.substring(10));
-                                outputStrategy = new WebSocketOutputStrategy(port);
-                                System.out.println("WebSocket output will be on port: " + port);
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid WebSocket port number.");
-                            }
-                        } else if (outputArg.startsWith("tcp:")) {
-                            try {
-                                int port = Integer.parseInt(outputArg.substring(4));
-                                outputStrategy = new TcpOutputStrategy(port);
-                                System.out.println("TCP socket output will be on port: " + port);
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid TCP port number.");
+                        outputArgs.add(args[++i]);
+                    }
+                    break;
+                case "--alert-log":
+                    if (i + 1 < args.length) {
+                        alertSinks.add(new FileAlertSink(Paths.get(args[++i])));
+                    }
+                    break;
+                case "--alert-journal":
+                    if (i + 1 < args.length) {
+                        alertSinks.add(new AlertJournal(Paths.get(args[++i])));
+                    }
+                    break;
+                case "--alert-websocket":
+                    if (i + 1 < args.length) {
+                        try {
+                            alertSinks.add(new WebSocketAlertSink(Integer.parseInt(args[++i])));
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid alert WebSocket port number.");
+                        }
+                    }
+                    break;
+                case "--evaluation-period":
+                    if (i + 1 < args.length) {
+                        try {
+                            evaluationPeriodSeconds = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid evaluation period. Using default: " + evaluationPeriodSeconds);
+                        }
+                    }
+                    break;
+                case "--evaluation-threads":
+                    if (i + 1 < args.length) {
+                        try {
+                            evaluationThreads = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid evaluation thread count. Using default: " + evaluationThreads);
+                        }
+                    }
+                    break;
+                case "--reactive":
+                    reactiveEvaluation = true;
+                    break;
+                case "--simulate":
+                    simulate = true;
+                    break;
+                case "--tick-ms":
+                    if (i + 1 < args.length) {
+                        try {
+                            tickMillis = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid tick length. Using default: " + tickMillis);
+                        }
+                    }
+                    break;
+                case "--ecg-rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            int rate = Integer.parseInt(args[++i]);
+                            // The rate is also what the QRS detector expects, whose range is the narrower one
+                            if (rate >= QrsDetector.MIN_SAMPLE_RATE && rate <= QrsDetector.MAX_SAMPLE_RATE) {
+                                ecgSampleRate = rate;
+                            } else {
+                                System.err.println("ECG sample rate must be between " + QrsDetector.MIN_SAMPLE_RATE
+                                        + " and " + QrsDetector.MAX_SAMPLE_RATE + " Hz. Using default: " + ecgSampleRate);
                             }
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid ECG sample rate. Using default: " + ecgSampleRate);
+                        }
+                    }
+                    break;
+                case "--patient-range":
+                    if (i + 1 < args.length) {
+                        String[] range = args[++i].split("-");
+                        try {
+                            firstPatientId = Integer.parseInt(range[0].trim());
+                            lastPatientId = Integer.parseInt(range[range.length - 1].trim());
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid patient range, expected e.g. 1001-2000.");
+                            firstPatientId = 0;
+                            lastPatientId = 0;
+                        }
+                    }
+                    break;
+                case "--shard":
+                    if (i + 1 < args.length) {
+                        String[] shard = args[++i].split("/");
+                        try {
+                            shardIndex = Integer.parseInt(shard[0].trim());
+                            shardCount = Integer.parseInt(shard[1].trim());
+                        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                            System.err.println("Invalid shard, expected <index>/<count> e.g. 0/4.");
+                            shardCount = 0;
+                        }
+                    }
+                    break;
+                case "--processes":
+                    if (i + 1 < args.length) {
+                        try {
+                            processes = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid process count.");
+                        }
+                    }
+                    break;
+                case "--slow-consumer":
+                    if (i + 1 < args.length) {
+                        try {
+                            slowConsumerPolicy = TcpOutputStrategy.SlowConsumerPolicy.valueOf(
+                                    args[++i].toUpperCase(Locale.ROOT).replace('-', '_'));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Invalid slow consumer policy. Using default: drop-oldest");
+                        }
+                    }
+                    break;
+                case "--keyframe-interval":
+                    if (i + 1 < args.length) {
+                        try {
+                            keyframeMillis = Math.round(Double.parseDouble(args[++i]) * 1000);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid keyframe interval. Using default: 1 second");
+                        }
+                    }
+                    break;
+                case "--websocket-feed":
+                    if (i + 1 < args.length) {
+                        String feed = args[++i];
+                        if (feed.equals("delta") || feed.equals("text")) {
+                            deltaFeed = feed.equals("delta");
                         } else {
-                            System.err.println("Unknown output type. Using default (console).");
+                            System.err.println("Invalid WebSocket feed. Using default: text");
+                        }
+                    }
+                    break;
+                case "--console-summary":
+                    if (i + 1 < args.length) {
+                        try {
+                            consoleSummarySeconds = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid console summary interval. Printing every reading.");
+                        }
+                    }
+                    break;
+                case "--stats":
+                    if (i + 1 < args.length) {
+                        try {
+                            statsSeconds = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid stats interval.");
+                        }
+                    }
+                    break;
+                case "--simulated-time":
+                    if (i + 1 < args.length) {
+                        try {
+                            simulatedMillis = parseDurationMillis(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid simulated time span, expected e.g. 90s, 30m, 24h or 7d.");
+                        }
+                    }
+                    break;
+                case "--start-time":
+                    if (i + 1 < args.length) {
+                        try {
+                            simulatedStartMillis = Instant.parse(args[++i]).toEpochMilli();
+                        } catch (DateTimeParseException e) {
+                            System.err.println("Invalid start time, expected e.g. 2024-01-01T00:00:00Z. Using now.");
+                        }
+                    }
+                    break;
+                case "--rotate-size":
+                    if (i + 1 < args.length) {
+                        try {
+                            rotateMegabytes = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid rotation size. Using default: " + rotateMegabytes);
+                        }
+                    }
+                    break;
+                case "--rotate-interval":
+                    if (i + 1 < args.length) {
+                        try {
+                            rotateMillis = parseDurationMillis(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid rotation interval, expected e.g. 30m or 1h.");
+                        }
+                    }
+                    break;
+                case "--dataset":
+                    if (i + 1 < args.length) {
+                        datasetDirectory = Paths.get(args[++i]);
+                    }
+                    break;
+                case "--benchmark":
+                    if (i + 1 < args.length) {
+                        try {
+                            benchmarkSeconds = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid benchmark duration.");
+                        }
+                    }
+                    break;
+                case "--warmup":
+                    if (i + 1 < args.length) {
+                        try {
+                            warmupSeconds = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid warm-up duration. Using default: " + warmupSeconds);
+                        }
+                    }
+                    break;
+                case "--target-rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            targetRate = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid target rate. Generating as fast as possible.");
+                        }
+                    }
+                    break;
+                case "--seed":
+                    if (i + 1 < args.length) {
+                        try {
+                            seed = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid seed. Using random seed: " + seed);
+                        }
+                    }
+                    break;
+                case "--metrics-port":
+                    if (i + 1 < args.length) {
+                        try {
+                            metricsPort = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid metrics port. Metrics endpoint disabled.");
+                        }
+                    }
+                    break;
+                case "--metrics-log":
+                    if (i + 1 < args.length) {
+                        try {
+                            metricsLogSeconds = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid metrics log interval. Using default: " + metricsLogSeconds);
                         }
                     }
                     break;
+                case "--derive-heart-rate":
+                    deriveHeartRate = true;
+                    break;
+                case "--cep":
+                    cepPatterns = true;
+                    break;
+                case "--coalesce-ms":
+                    if (i + 1 < args.length) {
+                        try {
+                            coalesceMillis = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Invalid coalescing delay. Using default: " + coalesceMillis);
+                        }
+                    }
+                    break;
+                case "--rules":
+                    if (i + 1 < args.length) {
+                        ruleEngine = new RuleEngine(Paths.get(args[++i]));
+                        ruleEngine.startWatching(5, TimeUnit.SECONDS);
+                    }
+                    break;
                 default:
                     System.err.println("Unknown option '" + args[i] + "'");
                     printHelp();
                     System.exit(1);
             }
         }
+        // A coordinator only passes the output on to its processes, so it must not bind it
+        if (processes == 0) {
+            createOutputStrategies(outputArgs.isEmpty() ? Collections.singletonList("console") : outputArgs);
+        }
     }
 
     /**
@@ -160,58 +706,337 @@ public class HealthDataSimulator {
         System.out.println("Options:");
         System.out.println("  -h                       Show help and exit.");
         System.out.println("  --patient-count <count>  Number of patients to simulate (default: 50).");
-        System.out.println("  --output <type>          Output strategy: console, file:<dir>, websocket:<port>, tcp:<port>");
+        System.out.println("  --output <type>          Output strategy: console, file:<dir>, columnar:<dir>, websocket:<port>, tcp:<port>, storage");
+        System.out.println("                           Repeat --output to feed several outputs, each from its own queue.");
+        System.out.println("  --slow-consumer <policy> TCP clients that fall 4 MB behind: drop-oldest (default) or disconnect.");
+        System.out.println("  --keyframe-interval <s>  Seconds between keyframes of the WebSocket delta feed (default: 1).");
+        System.out.println("  --websocket-feed <feed>  Feed the alert evaluation reads: text (default) or delta.");
+        System.out.println("  --console-summary <s>    Print one line per patient every <s> seconds instead of every reading.");
+        System.out.println("  --rotate-size <MB>       Rotate file output per label at this size, 0 for never (default: 256).");
+        System.out.println("  --rotate-interval <span> Rotate file output per label at this age, e.g. 1h (default: never).");
+        System.out.println("  --simulate               Generate patient data to the output instead of evaluating alerts.");
+        System.out.println("  --patient-range <a>-<b>  Generate only patients a to b.");
+        System.out.println("  --shard <i>/<n>          Generate only shard i of n of the patients (i counts from 0).");
+        System.out.println("  --processes <n>          Start n simulator processes, one shard each, and report their total rate.");
+        System.out.println("  --stats <s>              Print a STATS counter line every <s> seconds while simulating.");
+        System.out.println("  --tick-ms <ms>           Generation tick length; patients are spread over the ticks (default: 100).");
+        System.out.println("  --ecg-rate <hz>          ECG sample rate, 200-500, generated and expected by the QRS detector (default: 250).");
+        System.out.println("  --simulated-time <span>  Generate <span> (e.g. 24h, 7d) of data in simulated time, then exit.");
+        System.out.println("  --start-time <instant>   Start of simulated time, e.g. 2024-01-01T00:00:00Z (default: now).");
+        System.out.println("  --dataset <dir>          Write --simulated-time (default: 1d) of data offline to per-day, per-patient .csv.gz files.");
+        System.out.println("  --benchmark <s>          Generate as fast as possible for <s> seconds and report throughput.");
+        System.out.println("  --warmup <s>             Benchmark warm-up before measuring (default: 5).");
+        System.out.println("  --target-rate <n>        Benchmark at <n> events per second instead of flat out.");
+        System.out.println("  --seed <n>               Run seed; the same seed reproduces the same generated values.");
+        System.out.println("  --alert-log <file>       Also append alerts to the given journal file.");
+        System.out.println("  --alert-journal <dir>    Persist alerts to an indexed, day-segmented journal.");
+        System.out.println("  --alert-websocket <port> Also push alerts to WebSocket clients on the given port.");
+        System.out.println("  --evaluation-period <s>  Seconds between alert evaluation rounds (default: 10).");
+        System.out.println("  --evaluation-threads <n> Threads used to evaluate patients in parallel (default: cores).");
+        System.out.println("  --reactive               Evaluate a patient's alerts as soon as new data is stored.");
+        System.out.println("  --coalesce-ms <ms>       In reactive mode, delay to gather bursts of readings (default: 10).");
+        System.out.println("  --metrics-port <port>    Serve ingest-to-alert latency metrics at http://host:<port>/metrics.");
+        System.out.println("  --metrics-log <s>        Log stage latencies every <s> seconds (default: off).");
+        System.out.println("  --derive-heart-rate      Store HeartRate and RRInterval series from the ECG (on whenever the rules read them).");
+        System.out.println("  --cep                    Also match multi-signal event patterns as data arrives.");
+        System.out.println("  --rules <file>           Alert rule definition (JSON), reloaded when the file changes.");
         System.out.println("Example:");
-        System.out.println("  java HealthDataSimulator --patient-count 100 --output websocket:8080");
+        System.out.println("  java HealthDataSimulator --simulate --patient-count 100 --output websocket:8080");
+    }
+
+    /**
+     * Parses a time span such as {@code 90s}, {@code 30m}, {@code 24h} or {@code 7d}; a bare
+     * number is taken as seconds.
+     *
+     * @param span the span
+     * @return the span in milliseconds
+     * @throws NumberFormatException if the span cannot be parsed
+     */
+    static long parseDurationMillis(String span) {
+        String trimmed = span.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.isEmpty()) {
+            throw new NumberFormatException("Empty time span");
+        }
+        TimeUnit unit;
+        switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 'd':
+                unit = TimeUnit.DAYS;
+                break;
+            case 'h':
+                unit = TimeUnit.HOURS;
+                break;
+            case 'm':
+                unit = TimeUnit.MINUTES;
+                break;
+            case 's':
+                unit = TimeUnit.SECONDS;
+                break;
+            default:
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+        }
+        return unit.toMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+    }
+
+    /**
+     * Generates the configured span of data offline into the dataset directory, using all
+     * cores, and prints what was written.
+     *
+     * @throws IOException if the dataset cannot be written
+     */
+    private static void generateDataset() throws IOException {
+        long span = simulatedMillis > 0 ? simulatedMillis : TimeUnit.DAYS.toMillis(1);
+        int threads = Runtime.getRuntime().availableProcessors();
+        DatasetGenerator generator = new DatasetGenerator(datasetDirectory, patientCount, tickMillis, ecgSampleRate, seed);
+        System.out.println("Writing " + span / 1000 + " s of data for " + patientCount + " patients from "
+                + Instant.ofEpochMilli(simulatedStartMillis) + " with seed " + seed + " to " + datasetDirectory
+                + " on " + threads + " threads");
+        long start = System.nanoTime();
+        try {
+            generator.generate(simulatedStartMillis, span, threads);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Wrote %s in %.1f s (%.0f MB/s)%n",
+                generator, seconds, generator.getByteCount() / 1e6 / seconds);
+    }
+
+    /**
+     * Generates the configured span of data in simulated time as fast as possible, prints how
+     * long it took and exits.
+     */
+    private static void generateSimulatedTime() {
+        BatchedTickScheduler scheduler = scheduleTasksForPatients(firstPatientId, lastPatientId);
+        VirtualClock clock = new VirtualClock(simulatedStartMillis);
+        System.out.println("Generating " + simulatedMillis / 1000 + " s of simulated time for patients "
+                + firstPatientId + "-" + lastPatientId + " from " + Instant.ofEpochMilli(simulatedStartMillis) + " with seed " + seed
+                + ", output: " + outputStrategy.getClass().getSimpleName());
+        long start = System.nanoTime();
+        try {
+            scheduler.runSimulated(outputStrategy, clock, simulatedMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Generated %d ticks, %d generator calls in %.1f s (%.0fx real time)%n",
+                scheduler.getTickCount(), scheduler.getGeneratedCount(), seconds, simulatedMillis / 1000.0 / seconds);
+        // Output servers are not daemons
+        System.exit(0);
+    }
+
+    /**
+     * Creates a {@link BatchedTickScheduler} generating health data for patients
+     * {@code first} to {@code last}: one periodic task per worker thread instead of one per
+     * patient and signal. Generators are sized up to {@code last} so every patient keeps the
+     * random stream it has in an unsharded run.
+     *
+     * @param first the first patient ID
+     * @param last  the last patient ID
+     * @return the scheduler, not yet started
+     */
+    private static BatchedTickScheduler scheduleTasksForPatients(int first, int last) {
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(first, last - first + 1,
+                Runtime.getRuntime().availableProcessors(), tickMillis, seed);
+        scheduler.addSignal(new ECGWaveformGenerator(last, ecgSampleRate, 1000, seed), 1, TimeUnit.SECONDS);
+        scheduler.addSignal(new BloodSaturationDataGenerator(last, seed), 1, TimeUnit.SECONDS);
+        scheduler.addSignal(new BloodPressureDataGenerator(last, seed), 1, TimeUnit.MINUTES);
+        scheduler.addSignal(new BloodLevelsDataGenerator(last, seed), 2, TimeUnit.MINUTES);
+        return scheduler;
+    }
+
+    /**
+     * Works out the patient IDs this process generates from {@code --patient-range},
+     * {@code --shard} or, by default, all of 1 to {@code patientCount}.
+     */
+    private static void resolvePatientRange() {
+        if (shardCount > 0) {
+            if (shardIndex < 0 || shardIndex >= shardCount) {
+                System.err.println("Shard index must be between 0 and " + (shardCount - 1) + ". Generating all patients.");
+                shardCount = 0;
+            } else {
+                firstPatientId = 1 + (int) ((long) patientCount * shardIndex / shardCount);
+                lastPatientId = (int) ((long) patientCount * (shardIndex + 1) / shardCount);
+                return;
+            }
+        }
+        if (firstPatientId <= 0 || lastPatientId < firstPatientId) {
+            firstPatientId = 1;
+            lastPatientId = patientCount;
+        }
     }
 
     /**
-     * Initializes a list of unique patient IDs from 1 to the specified count.
+     * Prints a {@code STATS} line with this process's counters every {@code statsSeconds}, for
+     * a coordinator or for monitoring.
      *
-     * @param patientCount The number of patients.
-     * @return A list of patient IDs.
+     * @param scheduler the running scheduler
+     * @param counting  the counter in front of the output
      */
-    private static List<Integer> initializePatientIds(int patientCount) {
-        List<Integer> patientIds = new ArrayList<>();
-        for (int i = 1; i <= patientCount; i++) {
-            patientIds.add(i);
+    private static void startStats(BatchedTickScheduler scheduler, CountingOutputStrategy counting) {
+        if (statsSeconds <= 0) {
+            return;
         }
-        return patientIds;
+        ScheduledExecutorService stats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-log");
+            t.setDaemon(true);
+            return t;
+        });
+        stats.scheduleAtFixedRate(() -> System.out.println(ShardCoordinator.STATS_PREFIX
+                        + " events=" + counting.getCount() + " generated=" + scheduler.getGeneratedCount()
+                        + " ticks=" + scheduler.getTickCount() + " overruns=" + scheduler.getOverrunCount()
+                        + (outputStrategy instanceof CompositeOutputStrategy
+                                ? " " + ((CompositeOutputStrategy) outputStrategy).describeLag() : "")),
+                statsSeconds, statsSeconds, TimeUnit.SECONDS);
     }
 
     /**
-     * Schedules recurring tasks for generating health data for each patient.
+     * Runs the simulation as {@code processes} child processes, one shard each, and reports
+     * their aggregate throughput until they exit.
+     *
+     * @param args this process's arguments, passed on to the children
+     * @throws IOException if a child cannot be started
+     */
+    private static void coordinate(String[] args) throws IOException {
+        List<String> childArgs = new ArrayList<>();
+        boolean hasStats = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--processes")) {
+                i++;
+                continue;
+            }
+            hasStats |= args[i].equals("--stats");
+            childArgs.add(args[i]);
+        }
+        if (!hasStats) {
+            childArgs.add("--stats");
+            childArgs.add("1");
+        }
+        ShardCoordinator coordinator = new ShardCoordinator(processes, childArgs);
+        coordinator.start();
+        System.out.println("Started " + processes + " simulator processes for " + patientCount + " patients");
+        try {
+            coordinator.report(TimeUnit.SECONDS.toMillis(Math.max(1, statsSeconds)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Runs the headless benchmark against the configured output and prints its report. With
+     * the in-process {@code storage} output the alert pipeline runs on the stored data, so
+     * the benchmark measures ingestion and evaluation together; since the storage keeps every
+     * reading, that run stops once the readings would fill about half of the heap.
      *
-     * @param patientIds List of patient IDs to simulate.
+     * @throws IOException if the metrics port cannot be bound
      */
-    private static void scheduleTasksForPatients(List<Integer> patientIds, DataStorage dataStorage, int patientCount) {
-        ECGDataGenerator ecgDataGenerator = new ECGDataGenerator(patientCount);
-        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount);
-        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount);
-        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount);
-        AlertGenerator alertGenerator = new AlertGenerator(dataStorage);
+    private static void runBenchmark() throws IOException {
+        if (outputStrategy instanceof StorageOutputStrategy) {
+            if (ruleEngine == null) {
+                ruleEngine = RuleEngine.withDefaultRules();
+            }
+            startAlertDispatch();
+            startAlertEvaluation(((StorageOutputStrategy) outputStrategy).getDataStorage());
+            PipelineLatency.setEnabled(true); // the report includes the stage latencies
+            startMetrics();
+        }
+        LoadBenchmark benchmark = new LoadBenchmark(patientCount, Runtime.getRuntime().availableProcessors(),
+                tickMillis, ecgSampleRate, seed);
+        long maxEvents = outputStrategy instanceof StorageOutputStrategy
+                ? Runtime.getRuntime().maxMemory() / 2 / STORED_READING_BYTES : 0;
+        System.out.println("Benchmarking " + patientCount + " patients with seed " + seed + " into "
+                + outputStrategy.getClass().getSimpleName() + " for " + benchmarkSeconds + " s after "
+                + warmupSeconds + " s warm-up" + (targetRate > 0 ? " at " + targetRate + " events/s" : "")
+                + (maxEvents > 0 ? ", at most " + maxEvents + " events" : ""));
+        try {
+            LoadBenchmark.Result result = benchmark.run(outputStrategy, TimeUnit.SECONDS.toMillis(warmupSeconds),
+                    TimeUnit.SECONDS.toMillis(benchmarkSeconds), targetRate, maxEvents);
+            System.out.println(result);
+            if (outputStrategy instanceof StorageOutputStrategy) {
+                System.out.println(PipelineLatency.summary());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Output servers and evaluation threads are not daemons
+        System.exit(0);
+    }
 
-        for (int patientId : patientIds) {
-            scheduleTask(() -> ecgDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodSaturationDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodPressureDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.MINUTES);
-            scheduleTask(() -> bloodLevelsDataGenerator.generate(patientId, outputStrategy), 2, TimeUnit.MINUTES);
-            scheduleTask(() -> {
-                Patient patient = dataStorage.getPatient(patientId);
-                alertGenerator.evaluateData(patient);
-            }, 20, TimeUnit.SECONDS);
+    /**
+     * Starts the alert dispatcher for the configured sinks and the alert manager feeding it.
+     * The dispatcher drains any queued alerts when the JVM shuts down.
+     */
+    private static void startAlertDispatch() {
+        alertDispatcher = new AlertDispatcher(alertSinks);
+        alertManager = new AlertManager(alertDispatcher);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> alertDispatcher.shutdown(2000)));
+    }
+
+    /**
+     * Starts alert evaluation of every patient in the storage: reactively on ingest when
+     * {@code --reactive} is given, otherwise in periodic parallel rounds. With {@code --cep} the
+     * multi-signal patterns are matched on ingest as well. Stale alert episodes are resolved,
+     * and expired absence windows of the patterns closed, once per evaluation period in all modes.
+     *
+     * @param dataStorage the storage holding patient data
+     */
+    private static void startAlertEvaluation(DataStorage dataStorage) {
+        RuleSet rules = ruleEngine.getRuleSet();
+        if (deriveHeartRate || rules.reads(HeartRateDeriver.HEART_RATE) || rules.reads(HeartRateDeriver.RR_INTERVAL)) {
+            // Nothing else produces these series, so rules on them would never see data
+            new HeartRateDeriver(dataStorage, ecgSampleRate);
+        }
+        dataStorage.addDataListener(ruleEngine.getBaselines());
+        if (cepPatterns) {
+            cepEngine = new CepEngine(CepPatterns.defaults(), alertManager);
+            dataStorage.addDataListener(cepEngine);
+        }
+        if (reactiveEvaluation) {
+            new ReactiveAlertEvaluator(createAlertGenerator(dataStorage), dataStorage, evaluationThreads, coalesceMillis);
+            ScheduledExecutorService resolver = Executors.newSingleThreadScheduledExecutor();
+            resolver.scheduleAtFixedRate(() -> logResolvedEpisodes(dataStorage),
+                    evaluationPeriodSeconds, evaluationPeriodSeconds, TimeUnit.SECONDS);
+            return;
         }
+        WardEvaluationExecutor executor = new WardEvaluationExecutor(
+                createAlertGenerator(dataStorage), dataStorage, evaluationThreads);
+        executor.setRoundListener(() -> logResolvedEpisodes(dataStorage));
+        executor.start(evaluationPeriodSeconds, TimeUnit.SECONDS);
     }
 
+    /**
+     * Closes the absence windows of patients whose signals stopped arriving, then resolves
+     * alert episodes that have gone quiet and logs them. Absence windows and episodes are
+     * timed in data time, so "now" is the newest stored timestamp rather than the wall clock.
+     *
+     * @param dataStorage the storage whose newest timestamp is the current data time
+     */
+    private static void logResolvedEpisodes(DataStorage dataStorage) {
+        long watermark = dataStorage.getLatestTimestamp();
+        if (watermark == Long.MIN_VALUE) {
+            return; // no data yet
+        }
+        if (cepEngine != null) {
+            cepEngine.advanceTo(watermark);
+        }
+        for (AlertManager.Episode episode : alertManager.resolveStale(watermark)) {
+            System.out.println("RESOLVED: Patient " + episode.getPatientId()
+                    + " - Condition: " + episode.getCondition());
+        }
+    }
 
     /**
-     * Schedules a recurring task with an initial random delay to avoid uniform timing.
+     * Creates an alert generator that evaluates the configured rules and routes its alerts
+     * through the shared {@link AlertManager}.
      *
-     * @param task     The task to schedule.
-     * @param period   The period between executions.
-     * @param timeUnit The time unit for the period.
+     * @param dataStorage the storage holding patient data
+     * @return the configured alert generator
      */
-    private static void scheduleTask(Runnable task, long period, TimeUnit timeUnit) {
-        scheduler.scheduleAtFixedRate(task, random.nextInt(5), period, timeUnit);
+    private static AlertGenerator createAlertGenerator(DataStorage dataStorage) {
+        AlertGenerator alertGenerator = new AlertGenerator(dataStorage, ruleEngine);
+        alertGenerator.setAlertHandler(alertManager);
+        return alertGenerator;
     }
+
 }
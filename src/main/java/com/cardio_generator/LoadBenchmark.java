@@ -0,0 +1,253 @@
+package com.cardio_generator;
+
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.outputs.CountingOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.metrics.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives all generators as fast as possible, or at a target event rate, into an output
+ * strategy and measures what the output side sustains.
+ * <p>
+ * The generators are the ones of the live simulation, on a {@link BatchedTickScheduler},
+ * but ticks follow each other without waiting for the clock; every ECG call emits one full
+ * second of samples, stamped on the patient's own sample timeline so consecutive blocks
+ * follow each other without overlapping, as in a live run. One thread runs each scheduler
+ * partition. After a warm-up the run is measured for a fixed duration, or until an optional
+ * cap on the total number of events is reached, whichever comes first: an event is one value handed to the output (a sample of a
+ * block counts once), latency is the time one worker takes to generate and deliver one tick
+ * of its partition, and allocation is the bytes allocated by the worker threads, where the
+ * JVM reports it.
+ * </p>
+ */
+public class LoadBenchmark {
+
+    private static final long CAP_POLL_MILLIS = 10;
+
+    private final BatchedTickScheduler scheduler;
+
+    /**
+     * Creates a benchmark over patients 1 to {@code patientCount}.
+     *
+     * @param patientCount  the number of patients
+     * @param workers       the number of generating threads
+     * @param tickMillis    the nominal tick length, which sets how many ticks make up a signal period
+     * @param ecgSampleRate the ECG sample rate in Hz
+     * @param seed          the run seed
+     */
+    public LoadBenchmark(int patientCount, int workers, long tickMillis, int ecgSampleRate, long seed) {
+        scheduler = new BatchedTickScheduler(1, patientCount, workers, tickMillis, seed);
+        ECGWaveformGenerator ecg = new ECGWaveformGenerator(patientCount, ecgSampleRate, 1000, seed);
+        ThreadLocal<double[]> blocks = ThreadLocal.withInitial(() -> new double[ecgSampleRate]);
+        // Samples emitted per patient; a patient is only ever generated by one worker
+        long[] sampleIndex = new long[patientCount + 1];
+        long origin = System.currentTimeMillis();
+        scheduler.addSignal((patientId, output) -> {
+            double[] block = blocks.get();
+            ecg.synthesize(patientId, block, block.length);
+            long firstTimestamp = origin + sampleIndex[patientId] * 1000 / ecgSampleRate;
+            sampleIndex[patientId] += block.length;
+            output.outputSamples(patientId, firstTimestamp, ecgSampleRate, "ECG", block, block.length);
+        }, 1, TimeUnit.SECONDS);
+        scheduler.addSignal(new BloodSaturationDataGenerator(patientCount, seed), 1, TimeUnit.SECONDS);
+        scheduler.addSignal(new BloodPressureDataGenerator(patientCount, seed), 1, TimeUnit.MINUTES);
+        scheduler.addSignal(new BloodLevelsDataGenerator(patientCount, seed), 2, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Runs the benchmark on one new thread per partition and blocks until it has finished.
+     *
+     * @param outputStrategy        where generated data is written; must be safe for concurrent use
+     * @param warmupMillis          how long to run before measuring
+     * @param durationMillis        how long to measure
+     * @param targetEventsPerSecond the event rate to hold, {@code 0} for as fast as possible
+     * @return the measurements
+     * @throws InterruptedException if interrupted while waiting for the run
+     */
+    public Result run(OutputStrategy outputStrategy, long warmupMillis, long durationMillis,
+                      long targetEventsPerSecond) throws InterruptedException {
+        return run(outputStrategy, warmupMillis, durationMillis, targetEventsPerSecond, 0);
+    }
+
+    /**
+     * Runs the benchmark like {@link #run(OutputStrategy, long, long, long)}, but stops early
+     * once {@code maxEvents} events, warm-up included, have been delivered. Outputs that keep
+     * every reading, such as a {@code DataStorage}, would otherwise grow until the heap runs
+     * out; the cap is checked every few milliseconds, so it may be exceeded by that much.
+     *
+     * @param outputStrategy        where generated data is written; must be safe for concurrent use
+     * @param warmupMillis          how long to run before measuring
+     * @param durationMillis        how long to measure
+     * @param targetEventsPerSecond the event rate to hold, {@code 0} for as fast as possible
+     * @param maxEvents             the number of events after which to stop, {@code 0} for no cap
+     * @return the measurements
+     * @throws InterruptedException if interrupted while waiting for the run
+     */
+    public Result run(OutputStrategy outputStrategy, long warmupMillis, long durationMillis,
+                      long targetEventsPerSecond, long maxEvents) throws InterruptedException {
+        int workers = scheduler.getWorkerCount();
+        LatencyHistogram latency = new LatencyHistogram();
+        Thread[] threads = new Thread[workers];
+        AtomicBoolean stop = new AtomicBoolean();
+        double nanosPerEvent = targetEventsPerSecond > 0 ? 1e9 * workers / targetEventsPerSecond : 0;
+
+        CountingOutputStrategy[] counters = new CountingOutputStrategy[workers];
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            CountingOutputStrategy counting = new CountingOutputStrategy(outputStrategy);
+            counters[w] = counting;
+            threads[w] = new Thread(() -> {
+                long start = System.nanoTime();
+                for (long tick = 0; !stop.get(); tick++) {
+                    long tickStart = System.nanoTime();
+                    scheduler.runTick(worker, tick, counting);
+                    latency.record(System.nanoTime() - tickStart);
+                    if (nanosPerEvent > 0) {
+                        // Hold this worker's share of the target rate
+                        long ahead = start + (long) (counting.getCount() * nanosPerEvent) - System.nanoTime();
+                        if (ahead > 0) {
+                            LockSupport.parkNanos(ahead);
+                        }
+                    }
+                }
+            }, "benchmark-worker-" + w);
+            threads[w].start();
+        }
+
+        boolean capped = !await(warmupMillis, counters, maxEvents);
+        latency.reset();
+        long startEvents = count(counters);
+        long startBytes = allocatedBytes(threads);
+        long startNanos = System.nanoTime();
+        capped = capped || !await(durationMillis, counters, maxEvents);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long measuredEvents = count(counters) - startEvents;
+        long endBytes = allocatedBytes(threads);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long bytes = startBytes < 0 || endBytes < 0 ? -1 : endBytes - startBytes;
+        return new Result(measuredEvents, elapsedNanos, bytes, latency, capped);
+    }
+
+    // Waits for the given time, or until the event cap is reached; false if the cap was reached
+    private static boolean await(long millis, CountingOutputStrategy[] counters, long maxEvents)
+            throws InterruptedException {
+        if (maxEvents <= 0) {
+            Thread.sleep(millis);
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (count(counters) >= maxEvents) {
+                return false;
+            }
+            Thread.sleep(Math.min(CAP_POLL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        }
+        return true;
+    }
+
+    private static long count(CountingOutputStrategy[] counters) {
+        long total = 0;
+        for (CountingOutputStrategy counter : counters) {
+            total += counter.getCount();
+        }
+        return total;
+    }
+
+    // Bytes allocated so far by the threads, -1 if the JVM cannot tell
+    private static long allocatedBytes(Thread[] threads) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (Thread thread : threads) {
+            total += Math.max(0, threadBean.getThreadAllocatedBytes(thread.getId()));
+        }
+        return total;
+    }
+
+    /**
+     * The measurements of one benchmark run.
+     */
+    public static final class Result {
+        private final long events;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+        private final LatencyHistogram tickLatency;
+        private final boolean capped;
+
+        Result(long events, long elapsedNanos, long allocatedBytes, LatencyHistogram tickLatency, boolean capped) {
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.tickLatency = tickLatency;
+            this.capped = capped;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the bytes allocated per second by the generating threads.
+         *
+         * @return the allocation rate, {@code -1} if the JVM does not report allocation
+         */
+        public double getAllocatedBytesPerSecond() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns whether the run stopped early at its event cap.
+         *
+         * @return {@code true} if the cap was reached
+         */
+        public boolean isCapped() {
+            return capped;
+        }
+
+        /**
+         * Returns the time per worker tick, in nanoseconds.
+         *
+         * @return the tick latency histogram
+         */
+        public LatencyHistogram getTickLatency() {
+            return tickLatency;
+        }
+
+        @Override
+        public String toString() {
+            String allocation = allocatedBytes < 0 ? "n/a"
+                    : String.format(Locale.ROOT, "%.1f MB/s (%.1f B/event)", getAllocatedBytesPerSecond() / 1e6,
+                            events == 0 ? 0.0 : (double) allocatedBytes / events);
+            return String.format(Locale.ROOT,
+                    "BENCHMARK events=%d in %.1fs | throughput %.0f events/s | allocation %s"
+                            + " | tick latency p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                    events, elapsedNanos / 1e9, getEventsPerSecond(), allocation,
+                    tickLatency.getValueAtPercentile(50) / 1e3, tickLatency.getValueAtPercentile(99) / 1e3,
+                    tickLatency.getValueAtPercentile(99.9) / 1e3, tickLatency.getMax() / 1e3)
+                    + (capped ? " | stopped early at the event cap" : "");
+        }
+    }
+}
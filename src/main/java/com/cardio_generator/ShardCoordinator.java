@@ -0,0 +1,246 @@
+package com.cardio_generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs a simulation as several simulator processes on this machine, each owning one shard of
+ * the patients, and aggregates their throughput.
+ * <p>
+ * Every child is started with the coordinator's own arguments plus {@code --shard i/n}, so it
+ * generates patients {@code 1 + patientCount * i / n} to {@code patientCount * (i + 1) / n}.
+ * Network outputs get one port per shard (the given port plus the shard index) and file
+ * outputs one subdirectory per shard. Children report their counters on {@code STATS} lines,
+ * which the coordinator sums into one {@code CLUSTER} line per interval; their other output is
+ * passed through prefixed with the shard. The same {@code --shard} option can be given by hand
+ * to spread the shards over several machines.
+ * </p>
+ */
+public class ShardCoordinator {
+
+    /**
+     * Prefix of the counter lines children print.
+     */
+    public static final String STATS_PREFIX = "STATS";
+
+    private final int shards;
+    private final List<String> args;
+    private final List<Process> processes = new ArrayList<>();
+    private final AtomicLongArray events;
+    private final AtomicLongArray generated;
+
+    /**
+     * Creates a coordinator.
+     *
+     * @param shards the number of child processes
+     * @param args   the arguments every child gets before its shard is added, without the
+     *               coordinator's own options
+     */
+    public ShardCoordinator(int shards, List<String> args) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+        this.shards = shards;
+        this.args = new ArrayList<>(args);
+        this.events = new AtomicLongArray(shards);
+        this.generated = new AtomicLongArray(shards);
+    }
+
+    /**
+     * Returns the arguments of one shard's process: the given arguments with the shard added,
+     * a per-shard port or directory for the output, and simulation mode enabled.
+     *
+     * @param args   the common arguments
+     * @param shard  the shard index
+     * @param shards the number of shards
+     * @return the child's arguments
+     */
+    public static List<String> argsForShard(List<String> args, int shard, int shards) {
+        List<String> result = new ArrayList<>();
+        boolean simulate = false;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("--shard") || arg.equals("--patient-range")) {
+                i++; // replaced by this shard's slice
+                continue;
+            }
+            if (arg.equals("--simulate")) {
+                simulate = true;
+            }
+            result.add(arg);
+            if (arg.equals("--output") && i + 1 < args.size()) {
+                result.add(outputForShard(args.get(++i), shard));
+            }
+        }
+        if (!simulate) {
+            result.add("--simulate");
+        }
+        result.add("--shard");
+        result.add(shard + "/" + shards);
+        return result;
+    }
+
+    private static String outputForShard(String output, int shard) {
+        for (String prefix : new String[] {"websocket:", "tcp:"}) {
+            if (output.startsWith(prefix)) {
+                try {
+                    return prefix + (Integer.parseInt(output.substring(prefix.length())) + shard);
+                } catch (NumberFormatException e) {
+                    return output;
+                }
+            }
+        }
+        for (String prefix : new String[] {"file:", "columnar:"}) {
+            if (output.startsWith(prefix)) {
+                return prefix + new File(output.substring(prefix.length()), "shard-" + shard).getPath();
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Starts all child processes. They are destroyed when this JVM exits.
+     *
+     * @throws IOException if a process cannot be started
+     */
+    public synchronized void start() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "shard-shutdown"));
+        for (int shard = 0; shard < shards; shard++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.add("-cp");
+            command.add(classPath);
+            command.add(HealthDataSimulator.class.getName());
+            command.addAll(argsForShard(args, shard, shards));
+            Process process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            processes.add(process);
+            int index = shard;
+            Thread reader = new Thread(() -> readOutput(index, process), "shard-" + shard + "-output");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private void readOutput(int shard, Process process) {
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!parseStats(shard, line)) {
+                    System.out.println("[shard " + shard + "] " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Lost output of shard " + shard + ": " + e.getMessage());
+        }
+    }
+
+    // STATS events=<n> generated=<n> ...; returns whether the line was a stats line
+    boolean parseStats(int shard, String line) {
+        if (!line.startsWith(STATS_PREFIX + " ")) {
+            return false;
+        }
+        for (String field : line.substring(STATS_PREFIX.length() + 1).split(" ")) {
+            int eq = field.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            try {
+                long value = Long.parseLong(field.substring(eq + 1));
+                switch (field.substring(0, eq)) {
+                    case "events":
+                        events.set(shard, value);
+                        break;
+                    case "generated":
+                        generated.set(shard, value);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                // ignore fields this version does not know
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the latest total of values output over all shards.
+     *
+     * @return the event count
+     */
+    public long getEventCount() {
+        long total = 0;
+        for (int i = 0; i < shards; i++) {
+            total += events.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the latest total of generator calls over all shards.
+     *
+     * @return the generation count
+     */
+    public long getGeneratedCount() {
+        long total = 0;
+        for (int i = 0; i < shards; i++) {
+            total += generated.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Prints one aggregate throughput line per interval for as long as any child runs.
+     *
+     * @param intervalMillis the reporting interval
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void report(long intervalMillis) throws InterruptedException {
+        long lastEvents = 0;
+        long lastNanos = System.nanoTime();
+        while (isAnyAlive()) {
+            Thread.sleep(intervalMillis);
+            long now = System.nanoTime();
+            long total = getEventCount();
+            System.out.printf(Locale.ROOT, "CLUSTER shards=%d alive=%d events=%d generated=%d rate=%.0f events/s%n",
+                    shards, aliveCount(), total, getGeneratedCount(), (total - lastEvents) * 1e9 / (now - lastNanos));
+            lastEvents = total;
+            lastNanos = now;
+        }
+    }
+
+    private synchronized boolean isAnyAlive() {
+        return aliveCount() > 0;
+    }
+
+    private synchronized int aliveCount() {
+        int alive = 0;
+        for (Process process : processes) {
+            if (process.isAlive()) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * Stops all child processes.
+     */
+    public synchronized void stop() {
+        for (Process process : processes) {
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.cardio_generator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A {@link Clock} that only moves when told to, for generating data in simulated time.
+ * <p>
+ * Generators read the time from the clock they are given; handing them a virtual clock and
+ * advancing it tick by tick (see {@link BatchedTickScheduler#runSimulated}) produces the same
+ * data, with the same per-signal cadences, as a real-time run over the same span, only as
+ * fast as the CPU allows. Reads are safe from any thread.
+ * </p>
+ */
+public class VirtualClock extends Clock {
+
+    private volatile long millis;
+
+    /**
+     * Creates a clock standing at the given time.
+     *
+     * @param startMillis the initial time in epoch milliseconds
+     */
+    public VirtualClock(long startMillis) {
+        this.millis = startMillis;
+    }
+
+    /**
+     * Sets the current time.
+     *
+     * @param millis the new time in epoch milliseconds
+     */
+    public void set(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    /**
+     * Time zones do not apply to a virtual clock; returns this clock.
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+}
@@ -1,8 +1,11 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
 
 /**
  * Generates simulated alert data for patients.
@@ -13,10 +16,10 @@ import com.cardio_generator.outputs.OutputStrategy;
  */
 public class AlertGenerator implements PatientDataGenerator {
 
-    /**
-     * Shared random number generator used for alert generation.
-     */
-    public static final Random randomGenerator = new Random();
+    private static final long STREAM = 5;
+
+    private final PatientRandoms randoms;
+    private Clock clock = Clock.systemUTC();
 
     /**
      * Tracks the current alert state for each patient.
@@ -30,7 +33,23 @@ public class AlertGenerator implements PatientDataGenerator {
      * @param patientCount The number of patients to simulate.
      */
     public AlertGenerator(int patientCount) {
+        this(patientCount, System.nanoTime());
+    }
+
+    /**
+     * Constructs an AlertGenerator whose alerts are reproducible for a given seed.
+     *
+     * @param patientCount The number of patients to simulate.
+     * @param seed         The run seed.
+     */
+    public AlertGenerator(int patientCount, long seed) {
         alertStates = new boolean[patientCount + 1]; // 1-based indexing
+        randoms = new PatientRandoms(patientCount, seed, STREAM);
+    }
+
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
     }
 
     /**
@@ -44,26 +63,44 @@ public class AlertGenerator implements PatientDataGenerator {
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            if (alertStates[patientId]) {
-                // Resolve existing alert with 90% probability
-                if (randomGenerator.nextDouble() < 0.9) {
-                    alertStates[patientId] = false;
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "resolved");
-                }
-            } else {
-                // Calculate probability of triggering a new alert (Poisson approximation)
-                double lambda = 0.1; // expected alerts per period
-                double p = -Math.expm1(-lambda); // P(at least one event)
-                boolean alertTriggered = randomGenerator.nextDouble() < p;
-
-                if (alertTriggered) {
-                    alertStates[patientId] = true;
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "triggered");
-                }
+            int change = nextChange(patientId);
+            if (change != 0) {
+                outputStrategy.output(patientId, clock.millis(), "Alert", change > 0 ? "triggered" : "resolved");
             }
         } catch (Exception e) {
             System.err.println("An error occurred while generating alert data for patient " + patientId);
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void generate(int patientId, ReadingBatch batch) {
+        int change = nextChange(patientId);
+        if (change != 0) {
+            batch.add(patientId, ReadingType.ALERT, clock.millis(), change > 0 ? 1 : 0);
+        }
+    }
+
+    // 1 if an alert was triggered, -1 if it was resolved, 0 if nothing changed
+    private int nextChange(int patientId) {
+        SplittableRandom randomGenerator = randoms.of(patientId);
+        if (alertStates[patientId]) {
+            // Resolve existing alert with 90% probability
+            if (randomGenerator.nextDouble() < 0.9) {
+                alertStates[patientId] = false;
+                return -1;
+            }
+        } else {
+            // Calculate probability of triggering a new alert (Poisson approximation)
+            double lambda = 0.1; // expected alerts per period
+            double p = -Math.expm1(-lambda); // P(at least one event)
+            boolean alertTriggered = randomGenerator.nextDouble() < p;
+
+            if (alertTriggered) {
+                alertStates[patientId] = true;
+                return 1;
+            }
+        }
+        return 0;
+    }
 }
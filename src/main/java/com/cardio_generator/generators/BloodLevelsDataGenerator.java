@@ -1,16 +1,31 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
 
 public class BloodLevelsDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private static final long STREAM = 4;
+    // Spread of the small variation around each baseline
+    private static final double CHOLESTEROL_SPREAD = 10;
+    private static final double WHITE_CELLS_SPREAD = 1;
+    private static final double RED_CELLS_SPREAD = 0.2;
+
+    private final PatientRandoms randoms;
+    private Clock clock = Clock.systemUTC();
     private final double[] baselineCholesterol;
     private final double[] baselineWhiteCells;
     private final double[] baselineRedCells;
 
     public BloodLevelsDataGenerator(int patientCount) {
+        this(patientCount, System.nanoTime());
+    }
+
+    public BloodLevelsDataGenerator(int patientCount, long seed) {
+        randoms = new PatientRandoms(patientCount, seed, STREAM);
         // Initialize arrays to store baseline values for each patient
         baselineCholesterol = new double[patientCount + 1];
         baselineWhiteCells = new double[patientCount + 1];
@@ -18,28 +33,54 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
 
         // Generate baseline values for each patient
         for (int i = 1; i <= patientCount; i++) {
+            SplittableRandom random = randoms.of(i);
             baselineCholesterol[i] = 150 + random.nextDouble() * 50; // Initial random baseline
             baselineWhiteCells[i] = 4 + random.nextDouble() * 6; // Initial random baseline
             baselineRedCells[i] = 4.5 + random.nextDouble() * 1.5; // Initial random baseline
         }
     }
 
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
+            SplittableRandom random = randoms.of(patientId);
             // Generate values around the baseline for realism
-            double cholesterol = baselineCholesterol[patientId] + (random.nextDouble() - 0.5) * 10; // Small variation
-            double whiteCells = baselineWhiteCells[patientId] + (random.nextDouble() - 0.5) * 1; // Small variation
-            double redCells = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2; // Small variation
+            double cholesterol = nextLevel(random, baselineCholesterol[patientId], CHOLESTEROL_SPREAD);
+            double whiteCells = nextLevel(random, baselineWhiteCells[patientId], WHITE_CELLS_SPREAD);
+            double redCells = nextLevel(random, baselineRedCells[patientId], RED_CELLS_SPREAD);
 
             // Output the generated values
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "WhiteBloodCells",
-                    Double.toString(whiteCells));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
+            long timestamp = clock.millis();
+            outputStrategy.output(patientId, timestamp, "Cholesterol", Double.toString(cholesterol));
+            outputStrategy.output(patientId, timestamp, "WhiteBloodCells", Double.toString(whiteCells));
+            outputStrategy.output(patientId, timestamp, "RedBloodCells", Double.toString(redCells));
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood levels data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generate(int patientId, ReadingBatch batch) {
+        SplittableRandom random = randoms.of(patientId);
+        double cholesterol = nextLevel(random, baselineCholesterol[patientId], CHOLESTEROL_SPREAD);
+        double whiteCells = nextLevel(random, baselineWhiteCells[patientId], WHITE_CELLS_SPREAD);
+        double redCells = nextLevel(random, baselineRedCells[patientId], RED_CELLS_SPREAD);
+
+        long timestamp = clock.millis();
+        batch.add(patientId, ReadingType.CHOLESTEROL, timestamp, cholesterol);
+        batch.add(patientId, ReadingType.WHITE_BLOOD_CELLS, timestamp, whiteCells);
+        batch.add(patientId, ReadingType.RED_BLOOD_CELLS, timestamp, redCells);
+    }
+
+    // Draws one value from the patient's stream; the three levels are drawn in a fixed order
+    // so both output paths produce the same values
+    private static double nextLevel(SplittableRandom random, double baseline, double spread) {
+        return baseline + (random.nextDouble() - 0.5) * spread;
+    }
 }
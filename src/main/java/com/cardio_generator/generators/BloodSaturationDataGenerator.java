@@ -1,7 +1,9 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
 
 /**
  * Generates simulated blood oxygen saturation data for patients.
@@ -12,7 +14,10 @@ import com.cardio_generator.outputs.OutputStrategy;
  */
 public class BloodSaturationDataGenerator implements PatientDataGenerator {
 
-    private static final Random RANDOM = new Random();
+    private static final long STREAM = 2;
+
+    private final PatientRandoms randoms;
+    private Clock clock = Clock.systemUTC();
     private final int[] lastSaturationValues;
 
     /**
@@ -21,14 +26,30 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
      * @param patientCount the total number of patients to simulate
      */
     public BloodSaturationDataGenerator(int patientCount) {
+        this(patientCount, System.nanoTime());
+    }
+
+    /**
+     * Constructs a new {@code BloodSaturationDataGenerator} whose values are reproducible for a given seed.
+     *
+     * @param patientCount the total number of patients to simulate
+     * @param seed         the run seed
+     */
+    public BloodSaturationDataGenerator(int patientCount, long seed) {
+        randoms = new PatientRandoms(patientCount, seed, STREAM);
         lastSaturationValues = new int[patientCount + 1];
 
         // Initialize baseline saturation values between 95 and 100
         for (int i = 1; i <= patientCount; i++) {
-            lastSaturationValues[i] = 95 + RANDOM.nextInt(6);
+            lastSaturationValues[i] = 95 + randoms.of(i).nextInt(6);
         }
     }
 
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
     /**
      * Generates a new blood saturation data point for the given patient and sends it to the output strategy.
      * <p>
@@ -40,17 +61,10 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            // Simulate small fluctuation: -1, 0, or 1
-            int variation = RANDOM.nextInt(3) - 1;
-            int newSaturationValue = lastSaturationValues[patientId] + variation;
-
-            // Clamp value to a realistic healthy range [90, 100]
-            newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
-            lastSaturationValues[patientId] = newSaturationValue;
-
+            int newSaturationValue = nextSaturation(patientId);
             outputStrategy.output(
                     patientId,
-                    System.currentTimeMillis(),
+                    clock.millis(),
                     "Saturation",
                     newSaturationValue + "%"
             );
@@ -61,4 +75,20 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void generate(int patientId, ReadingBatch batch) {
+        batch.add(patientId, ReadingType.SATURATION, clock.millis(), nextSaturation(patientId));
+    }
+
+    private int nextSaturation(int patientId) {
+        // Simulate small fluctuation: -1, 0, or 1
+        int variation = randoms.of(patientId).nextInt(3) - 1;
+        int newSaturationValue = lastSaturationValues[patientId] + variation;
+
+        // Clamp value to a realistic healthy range [90, 100]
+        newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
+        lastSaturationValues[patientId] = newSaturationValue;
+        return newSaturationValue;
+    }
 }
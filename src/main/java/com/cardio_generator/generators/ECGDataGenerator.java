@@ -1,15 +1,26 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
 
 public class ECGDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private static final long STREAM = 1;
+
+    private final PatientRandoms randoms;
+    private Clock clock = Clock.systemUTC();
     private double[] lastEcgValues;
     private static final double PI = Math.PI;
 
     public ECGDataGenerator(int patientCount) {
+        this(patientCount, System.nanoTime());
+    }
+
+    public ECGDataGenerator(int patientCount, long seed) {
+        randoms = new PatientRandoms(patientCount, seed, STREAM);
         lastEcgValues = new double[patientCount + 1];
         // Initialize the last ECG value for each patient
         for (int i = 1; i <= patientCount; i++) {
@@ -17,12 +28,18 @@ public class ECGDataGenerator implements PatientDataGenerator {
         }
     }
 
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         // TODO Check how realistic this data is and make it more realistic if necessary
         try {
-            double ecgValue = simulateEcgWaveform(patientId, lastEcgValues[patientId]);
-            outputStrategy.output(patientId, System.currentTimeMillis(), "ECG", Double.toString(ecgValue));
+            long timestamp = clock.millis();
+            double ecgValue = simulateEcgWaveform(patientId, timestamp);
+            outputStrategy.output(patientId, timestamp, "ECG", Double.toString(ecgValue));
             lastEcgValues[patientId] = ecgValue;
         } catch (Exception e) {
             System.err.println("An error occurred while generating ECG data for patient " + patientId);
@@ -30,10 +47,19 @@ public class ECGDataGenerator implements PatientDataGenerator {
         }
     }
 
-    private double simulateEcgWaveform(int patientId, double lastEcgValue) {
+    @Override
+    public void generate(int patientId, ReadingBatch batch) {
+        long timestamp = clock.millis();
+        double ecgValue = simulateEcgWaveform(patientId, timestamp);
+        batch.add(patientId, ReadingType.ECG, timestamp, ecgValue);
+        lastEcgValues[patientId] = ecgValue;
+    }
+
+    private double simulateEcgWaveform(int patientId, long timestamp) {
         // Simplified ECG waveform generation based on sinusoids
+        SplittableRandom random = randoms.of(patientId);
         double hr = 60.0 + random.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
-        double t = System.currentTimeMillis() / 1000.0; // Use system time to simulate continuous time
+        double t = timestamp / 1000.0; // Use the clock to simulate continuous time
         double ecgFrequency = hr / 60.0; // Convert heart rate to Hz
 
         // Simulate different components of the ECG signal
@@ -0,0 +1,250 @@
+package com.cardio_generator.generators;
+
+import java.time.Clock;
+import java.util.SplittableRandom;
+
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
+
+/**
+ * Synthesises a realistic ECG at a clinical sample rate and emits it in blocks.
+ * <p>
+ * The shape of one beat (P wave, QRS complex and T wave, each a Gaussian bump) is sampled
+ * once into a template at the output rate. Every call to {@link #generate} then produces all
+ * samples of a patient from the end of the previous block up to the current time, each one
+ * a template lookup plus noise, and hands them to the output strategy in a single
+ * {@link OutputStrategy#outputSamples} call. Each patient has a resting heart rate between
+ * 60 and 90 bpm; the RR interval of every beat is modulated by respiratory sinus arrhythmia
+ * and a random component, and the template is stretched per beat by the square root of the
+ * RR interval, as the QT interval does. Baseline wander and measurement noise are added to
+ * every sample.
+ * </p>
+ * <p>
+ * Calls for one patient must not run concurrently; the tick scheduler guarantees this by
+ * always generating a patient on the same worker.
+ * </p>
+ */
+public class ECGWaveformGenerator implements PatientDataGenerator {
+
+    /**
+     * Lowest supported sample rate in Hz.
+     */
+    public static final int MIN_SAMPLE_RATE = 100;
+
+    /**
+     * Highest supported sample rate in Hz.
+     */
+    public static final int MAX_SAMPLE_RATE = 1000;
+
+    private static final long STREAM = 6;
+    private static final double TEMPLATE_MILLIS = 1000; // template covers one beat at 60 bpm
+    private static final long MAX_BLOCK_MILLIS = 10_000; // cap on catch-up after a stall
+    private static final double RESPIRATION_HZ = 0.25;
+
+    // P, Q, R, S, T as {centre ms, amplitude mV, width ms} at an RR interval of one second
+    private static final double[][] WAVES = {
+        {200, 0.15, 25},
+        {310, -0.12, 8},
+        {330, 1.20, 10},
+        {350, -0.25, 8},
+        {600, 0.30, 50},
+    };
+
+    private final int sampleRate;
+    private final long blockMillis;
+    private final double[] template;
+    private final PatientRandoms randoms;
+    private Clock clock = Clock.systemUTC();
+
+    private final double[] meanRrMillis;
+    private final double[] rrMillis;     // RR interval of the current beat
+    private final double[] beatMillis;   // time elapsed in the current beat
+    private final long[] nextSampleIndex; // samples emitted since the patient's first block
+    private final long[] startTimestamp;
+    private final boolean[] started;
+
+    private final ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[0]);
+
+    /**
+     * Creates a generator with a random seed.
+     *
+     * @param patientCount the number of patients to simulate
+     * @param sampleRate   the sample rate in Hz
+     * @param blockMillis  the nominal block length, the period at which {@link #generate} is called
+     */
+    public ECGWaveformGenerator(int patientCount, int sampleRate, long blockMillis) {
+        this(patientCount, sampleRate, blockMillis, System.nanoTime());
+    }
+
+    /**
+     * Creates a generator whose waveforms are reproducible for a given seed.
+     *
+     * @param patientCount the number of patients to simulate
+     * @param sampleRate   the sample rate in Hz
+     * @param blockMillis  the nominal block length, the period at which {@link #generate} is called
+     * @param seed         the run seed
+     * @throws IllegalArgumentException if the sample rate is out of range or the block length not positive
+     */
+    public ECGWaveformGenerator(int patientCount, int sampleRate, long blockMillis, long seed) {
+        if (sampleRate < MIN_SAMPLE_RATE || sampleRate > MAX_SAMPLE_RATE) {
+            throw new IllegalArgumentException("Sample rate must be between " + MIN_SAMPLE_RATE
+                    + " and " + MAX_SAMPLE_RATE + " Hz: " + sampleRate);
+        }
+        if (blockMillis <= 0) {
+            throw new IllegalArgumentException("Block length must be positive: " + blockMillis);
+        }
+        this.sampleRate = sampleRate;
+        this.blockMillis = blockMillis;
+        this.template = buildTemplate(sampleRate);
+        this.randoms = new PatientRandoms(patientCount, seed, STREAM);
+        meanRrMillis = new double[patientCount + 1];
+        rrMillis = new double[patientCount + 1];
+        beatMillis = new double[patientCount + 1];
+        nextSampleIndex = new long[patientCount + 1];
+        startTimestamp = new long[patientCount + 1];
+        started = new boolean[patientCount + 1];
+        for (int i = 1; i <= patientCount; i++) {
+            SplittableRandom random = randoms.of(i);
+            meanRrMillis[i] = 60_000.0 / (60 + random.nextDouble() * 30);
+            rrMillis[i] = meanRrMillis[i];
+            beatMillis[i] = random.nextDouble() * rrMillis[i]; // patients do not beat in phase
+        }
+    }
+
+    private static double[] buildTemplate(int sampleRate) {
+        double[] template = new double[(int) (TEMPLATE_MILLIS * sampleRate / 1000)];
+        for (int i = 0; i < template.length; i++) {
+            double t = i * 1000.0 / sampleRate;
+            double value = 0;
+            for (double[] wave : WAVES) {
+                double x = (t - wave[0]) / wave[2];
+                value += wave[1] * Math.exp(-0.5 * x * x);
+            }
+            template[i] = value;
+        }
+        return template;
+    }
+
+    @Override
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Emits the patient's samples from the end of their previous block up to now; the first
+     * call emits one block ending now.
+     *
+     * @param patientId      the patient
+     * @param outputStrategy receives the block through {@link OutputStrategy#outputSamples}
+     */
+    @Override
+    public void generate(int patientId, OutputStrategy outputStrategy) {
+        try {
+            int count = dueSamples(patientId);
+            if (count <= 0) {
+                return;
+            }
+            long firstTimestamp = nextTimestamp(patientId);
+            double[] samples = buffer(count);
+            synthesize(patientId, samples, count);
+            outputStrategy.outputSamples(patientId, firstTimestamp, sampleRate, "ECG", samples, count);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating ECG data for patient " + patientId);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends the patient's samples from the end of their previous block up to now to the batch.
+     *
+     * @param patientId the patient
+     * @param batch     receives the samples through {@link ReadingBatch#addSamples}
+     */
+    @Override
+    public void generate(int patientId, ReadingBatch batch) {
+        int count = dueSamples(patientId);
+        if (count <= 0) {
+            return;
+        }
+        long firstTimestamp = nextTimestamp(patientId);
+        double[] samples = buffer(count);
+        synthesize(patientId, samples, count);
+        batch.addSamples(patientId, ReadingType.ECG, firstTimestamp, sampleRate, samples, count);
+    }
+
+    // Number of samples due up to now, skipping ahead past what cannot be caught up
+    private int dueSamples(int patientId) {
+        long now = clock.millis();
+        if (!started[patientId]) {
+            startTimestamp[patientId] = now - blockMillis;
+            started[patientId] = true;
+        }
+        long dueIndex = (now - startTimestamp[patientId]) * sampleRate / 1000;
+        int count = (int) Math.min(dueIndex - nextSampleIndex[patientId], MAX_BLOCK_MILLIS * sampleRate / 1000);
+        if (count > 0 && count < dueIndex - nextSampleIndex[patientId]) {
+            nextSampleIndex[patientId] = dueIndex - count; // drop what cannot be caught up
+        }
+        return count;
+    }
+
+    private long nextTimestamp(int patientId) {
+        return startTimestamp[patientId] + nextSampleIndex[patientId] * 1000 / sampleRate;
+    }
+
+    /**
+     * Fills {@code samples[0..count)} with the patient's next samples, in millivolts, and
+     * advances the patient's waveform by {@code count} samples. Unlike {@link #generate} this
+     * does not look at the clock, so it can produce data as fast as the caller asks.
+     *
+     * @param patientId the patient
+     * @param samples   the target array
+     * @param count     the number of samples
+     */
+    public void synthesize(int patientId, double[] samples, int count) {
+        long firstIndex = nextSampleIndex[patientId];
+        SplittableRandom random = randoms.of(patientId);
+        double step = 1000.0 / sampleRate;
+        double rr = rrMillis[patientId];
+        double beat = beatMillis[patientId];
+        double scale = Math.sqrt(rr / 1000.0);
+        for (int i = 0; i < count; i++) {
+            if (beat >= rr) {
+                beat -= rr;
+                rr = nextRr(patientId, random, (firstIndex + i) * step);
+                scale = Math.sqrt(rr / 1000.0);
+            }
+            int t = (int) (beat / scale / step);
+            double value = t < template.length ? template[t] : 0;
+            double seconds = (firstIndex + i) / (double) sampleRate;
+            double wander = 0.05 * Math.sin(2 * Math.PI * 0.3 * seconds);
+            // Sum of three uniforms: a cheap bell-shaped noise
+            double noise = 0.02 * (random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5);
+            samples[i] = value + wander + noise;
+            beat += step;
+        }
+        rrMillis[patientId] = rr;
+        beatMillis[patientId] = beat;
+        nextSampleIndex[patientId] = firstIndex + count;
+    }
+
+    private double nextRr(int patientId, SplittableRandom random, double atMillis) {
+        double mean = meanRrMillis[patientId];
+        double rsa = 0.04 * Math.sin(2 * Math.PI * RESPIRATION_HZ * atMillis / 1000.0);
+        double jitter = 0.03 * (random.nextDouble() - 0.5);
+        return mean * (1 + rsa + jitter);
+    }
+
+    private double[] buffer(int count) {
+        double[] buffer = buffers.get();
+        if (buffer.length < count) {
+            buffer = new double[count];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}
@@ -1,6 +1,9 @@
 package com.cardio_generator.generators;
 
+import java.time.Clock;
+
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
 
 /**
  * Interface for generating patient-specific health data.
@@ -18,4 +21,29 @@ public interface PatientDataGenerator {
      * @param outputStrategy The strategy used to output the generated data (e.g., to console, file, or network).
      */
     void generate(int patientId, OutputStrategy outputStrategy);
+
+    /**
+     * Generates health data for a specific patient into a batch of primitive readings, which
+     * the caller outputs together with the rest of the batch.
+     * <p>
+     * The default implementation generates through the string API into the batch, which
+     * parses the values back. Generators override it to append their values directly.
+     * </p>
+     *
+     * @param patientId The unique identifier of the patient.
+     * @param batch     The batch to append the readings to.
+     */
+    default void generate(int patientId, ReadingBatch batch) {
+        generate(patientId, (OutputStrategy) batch);
+    }
+
+    /**
+     * Sets the clock that timestamps the generated data. Generators use the system clock
+     * unless given another, e.g. a {@code VirtualClock} to generate in simulated time.
+     * Generators that do not read the time may ignore it.
+     *
+     * @param clock the clock to read the time from
+     */
+    default void setClock(Clock clock) {
+    }
 }
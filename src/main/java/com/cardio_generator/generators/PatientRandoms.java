@@ -0,0 +1,43 @@
+package com.cardio_generator.generators;
+
+import java.util.SplittableRandom;
+
+/**
+ * One independent random stream per patient, all derived from a single run seed.
+ * <p>
+ * A generator draws every value for a patient from that patient's own
+ * {@link SplittableRandom}, so threads generating different patients never share a seed
+ * and a given run seed reproduces the same sequence of values for every patient, however
+ * patients are spread over threads. Each generator passes its own stream ID so that two
+ * generators seeded from the same run seed do not draw identical sequences.
+ * </p>
+ */
+final class PatientRandoms {
+
+    private final SplittableRandom[] randoms;
+
+    /**
+     * Creates the streams for patients 1 to {@code patientCount}.
+     *
+     * @param patientCount the number of patients
+     * @param seed         the run seed
+     * @param stream       a constant identifying the generator that owns the streams
+     */
+    PatientRandoms(int patientCount, long seed, long stream) {
+        randoms = new SplittableRandom[patientCount + 1]; // 1-based indexing
+        SplittableRandom root = new SplittableRandom(seed ^ (stream * 0x9E3779B97F4A7C15L));
+        for (int i = 0; i <= patientCount; i++) {
+            randoms[i] = root.split();
+        }
+    }
+
+    /**
+     * Returns the stream of a patient. A stream must only be used by one thread at a time.
+     *
+     * @param patientId the patient
+     * @return the patient's random stream
+     */
+    SplittableRandom of(int patientId) {
+        return randoms[patientId];
+    }
+}
@@ -0,0 +1,265 @@
+package com.cardio_generator.outputs;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A console {@link OutputStrategy} that never makes generator threads wait for the console.
+ * <p>
+ * {@link #output} only places the reading on a {@link ReadingQueue}, bounded by the number of
+ * readings waiting, and returns. A single
+ * writer thread drains the queue, formats the lines into one reusable buffer and prints them
+ * with one write per batch, so generator threads no longer serialise on {@code System.out}.
+ * If the console cannot keep up and the queue is full, readings are dropped and counted
+ * rather than slowing generation down.
+ * </p>
+ * <p>
+ * In summary mode the writer prints one line per patient per interval instead, with the
+ * number of readings in the interval and the latest value of each label. Lines have the same
+ * format as {@link ConsoleOutputStrategy}'s otherwise. Everything still queued is printed on
+ * close and when the JVM exits.
+ * </p>
+ */
+public class AsyncConsoleOutputStrategy implements OutputStrategy, AutoCloseable {
+
+    /**
+     * Default maximum number of readings waiting to be printed.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final long DROP_REPORT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int BATCH_SIZE = 1024;
+    private static final int FLUSH_CHARS = 1 << 16;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final ReadingQueue queue;
+    private final PrintStream out;
+    private final long summaryNanos;
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private volatile boolean running = true;
+
+    private final AtomicLong printed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lastDropReport = new AtomicLong(System.nanoTime() - DROP_REPORT_NANOS);
+
+    // Writer thread state
+    private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 256);
+    private final Map<Integer, PatientSummary> summaries = new TreeMap<>();
+
+    /**
+     * Creates and starts a strategy printing every reading to {@code System.out}.
+     */
+    public AsyncConsoleOutputStrategy() {
+        this(System.out, DEFAULT_CAPACITY, 0);
+    }
+
+    /**
+     * Creates and starts a strategy.
+     *
+     * @param out           the stream to print to
+     * @param capacity      the maximum number of readings waiting to be printed
+     * @param summaryMillis the interval of the per-patient summary lines, or {@code 0} to print
+     *                      every reading
+     */
+    public AsyncConsoleOutputStrategy(PrintStream out, int capacity, long summaryMillis) {
+        this.out = out;
+        this.queue = new ReadingQueue(capacity);
+        this.summaryNanos = TimeUnit.MILLISECONDS.toNanos(summaryMillis);
+        this.thread = new Thread(this::run, "console-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        this.shutdownHook = new Thread(this::stop, "console-output-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        enqueue(QueuedReading.of(patientId, timestamp, label, data));
+    }
+
+    /**
+     * Enqueues a copy of the block as a single entry.
+     */
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        if (count > 0) {
+            enqueue(QueuedReading.ofSamples(patientId, firstTimestamp, sampleRate, label, samples, count));
+        }
+    }
+
+    /**
+     * Enqueues a copy of the batch as a single entry; values are formatted on the writer thread.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        if (!batch.isEmpty()) {
+            enqueue(QueuedReading.ofBatch(batch));
+        }
+    }
+
+    private void enqueue(QueuedReading reading) {
+        if (!running || !queue.offer(reading)) {
+            long count = dropped.addAndGet(reading.values());
+            long now = System.nanoTime();
+            long last = lastDropReport.get();
+            if (now - last >= DROP_REPORT_NANOS && lastDropReport.compareAndSet(last, now)) {
+                System.err.println("Console output falling behind, dropped " + count + " reading(s) so far");
+            }
+        }
+    }
+
+    private void run() {
+        long nextSummary = System.nanoTime() + summaryNanos;
+        while (running || !queue.isEmpty()) {
+            queue.drain(summaryNanos > 0 ? this::summarise : this::format, BATCH_SIZE);
+            if (summaryNanos > 0 && System.nanoTime() - nextSummary >= 0) {
+                printSummaries();
+                nextSummary += summaryNanos;
+            }
+            flush();
+        }
+        if (summaryNanos > 0) {
+            printSummaries();
+            flush();
+        }
+    }
+
+    private void format(QueuedReading reading) {
+        if (reading.batch != null) {
+            ReadingBatch batch = reading.batch;
+            for (int i = 0; i < batch.size(); i++) {
+                ReadingType type = batch.getType(i);
+                appendPrefix(batch.getPatientId(i), batch.getTimestamp(i), type.getLabel());
+                type.appendFormatted(buffer, batch.getValue(i));
+                endLine();
+            }
+            return;
+        }
+        if (reading.samples == null) {
+            appendLine(reading.patientId, reading.timestamp, reading.label, reading.data);
+            return;
+        }
+        for (int i = 0; i < reading.count; i++) {
+            appendLine(reading.patientId, reading.timestamp + (long) i * 1000 / reading.sampleRate,
+                    reading.label, Double.toString(reading.samples[i]));
+        }
+    }
+
+    private void appendLine(int patientId, long timestamp, String label, String data) {
+        appendPrefix(patientId, timestamp, label);
+        buffer.append(data);
+        endLine();
+    }
+
+    private void appendPrefix(int patientId, long timestamp, String label) {
+        buffer.append("Patient ID: ").append(patientId)
+                .append(", Timestamp: ").append(timestamp)
+                .append(", Label: ").append(label)
+                .append(", Data: ");
+    }
+
+    private void endLine() {
+        buffer.append(LINE_SEPARATOR);
+        printed.incrementAndGet();
+        if (buffer.length() >= FLUSH_CHARS) {
+            flush();
+        }
+    }
+
+    private void summarise(QueuedReading reading) {
+        if (reading.batch != null) {
+            ReadingBatch batch = reading.batch;
+            for (int i = 0; i < batch.size(); i++) {
+                ReadingType type = batch.getType(i);
+                PatientSummary summary = summaries.computeIfAbsent(batch.getPatientId(i), id -> new PatientSummary());
+                summary.readings++;
+                summary.latest.put(type.getLabel(), type.format(batch.getValue(i)));
+            }
+            return;
+        }
+        PatientSummary summary = summaries.computeIfAbsent(reading.patientId, id -> new PatientSummary());
+        summary.readings += reading.values();
+        summary.latest.put(reading.label, reading.samples == null
+                ? reading.data : Double.toString(reading.samples[reading.count - 1]));
+    }
+
+    private void printSummaries() {
+        for (Map.Entry<Integer, PatientSummary> entry : summaries.entrySet()) {
+            PatientSummary summary = entry.getValue();
+            if (summary.readings == 0) {
+                continue;
+            }
+            buffer.append("Patient ID: ").append(entry.getKey())
+                    .append(", Readings: ").append(summary.readings);
+            for (Map.Entry<String, String> latest : summary.latest.entrySet()) {
+                buffer.append(", ").append(latest.getKey()).append(": ").append(latest.getValue());
+            }
+            buffer.append(LINE_SEPARATOR);
+            printed.incrementAndGet();
+            summary.readings = 0;
+            if (buffer.length() >= FLUSH_CHARS) {
+                flush();
+            }
+        }
+    }
+
+    private void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        out.append(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+
+    /**
+     * Stops accepting readings and prints everything still queued.
+     */
+    @Override
+    public void close() {
+        stop();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down; the hook is running or has run
+        }
+    }
+
+    private void stop() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of lines printed so far.
+     *
+     * @return the line count
+     */
+    public long getPrintedCount() {
+        return printed.get();
+    }
+
+    /**
+     * Returns the number of readings dropped because the queue was full.
+     *
+     * @return the dropped reading count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private static final class PatientSummary {
+        long readings;
+        final Map<String, String> latest = new LinkedHashMap<>();
+    }
+}
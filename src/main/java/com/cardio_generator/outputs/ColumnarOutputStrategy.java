@@ -0,0 +1,353 @@
+package com.cardio_generator.outputs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import com.data_management.ColumnarFormat;
+import com.data_management.ColumnarFormat.BlockInfo;
+
+/**
+ * An {@link OutputStrategy} writing binary, block-compressed columns in the
+ * {@link ColumnarFormat}, readable with {@link com.data_management.ColumnarDataReader}.
+ * <p>
+ * Readings are buffered per patient and label as a timestamp column and a value column. A
+ * partition is compressed into a block once it holds {@code blockRows} readings, or by the
+ * background flusher once its oldest reading is older than the flush interval. Blocks of all
+ * partitions are appended to one segment file {@code segment-<n>.col}, which is finished with
+ * its block index and replaced by the next segment when it reaches the size limit, and on
+ * close. Only finished segments can be read.
+ * </p>
+ * <p>
+ * Values are parsed from the generators' text form like {@link StorageOutputStrategy} does: a
+ * trailing {@code %} is dropped and non-numeric values, such as alert states, are ignored.
+ * </p>
+ */
+public class ColumnarOutputStrategy implements OutputStrategy, AutoCloseable {
+
+    /**
+     * Default number of readings per block.
+     */
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    /**
+     * Default age of the oldest buffered reading at which a partial block is written, in
+     * milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_MILLIS = 10_000;
+
+    /**
+     * Default size at which a segment is finished, in bytes.
+     */
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+
+    private final Path directory;
+    private final int blockRows;
+    private final long flushMillis;
+    private final long maxSegmentBytes;
+    private final ConcurrentHashMap<Key, Partition> partitions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+
+    // Blocks are compressed by the outputting threads, outside the segment lock
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    // Segment state, guarded by the instance lock
+    private final List<BlockInfo> index = new ArrayList<>();
+    private DataOutputStream segment;
+    private Path segmentPath;
+    private long segmentOffset;
+    private int nextSegment;
+    private volatile boolean closed;
+
+    /**
+     * Creates a strategy with the default block size, flush interval and segment size.
+     *
+     * @param directory the directory of the segment files
+     * @throws IOException if the directory cannot be created
+     */
+    public ColumnarOutputStrategy(String directory) throws IOException {
+        this(directory, DEFAULT_BLOCK_ROWS, DEFAULT_FLUSH_MILLIS, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * Creates a strategy.
+     *
+     * @param directory       the directory of the segment files
+     * @param blockRows       the number of readings per block
+     * @param flushMillis     the age at which partial blocks are written, {@code 0} to write
+     *                        them only when full or on close
+     * @param maxSegmentBytes the size at which a segment is finished, {@code 0} for no limit
+     * @throws IOException if the directory cannot be created
+     */
+    public ColumnarOutputStrategy(String directory, int blockRows, long flushMillis, long maxSegmentBytes)
+            throws IOException {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockRows);
+        }
+        this.directory = Paths.get(directory);
+        this.blockRows = blockRows;
+        this.flushMillis = flushMillis;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(this.directory);
+        while (Files.exists(segmentFile(nextSegment))) {
+            nextSegment++; // continue after the segments of an earlier run
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "columnar-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        if (flushMillis > 0) {
+            long period = Math.max(1, flushMillis / 4);
+            flusher.scheduleWithFixedDelay(() -> flushOlderThan(System.currentTimeMillis() - flushMillis),
+                    period, period, TimeUnit.MILLISECONDS);
+        }
+        shutdownHook = new Thread(this::finish, "columnar-output-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        if (label == null || data == null) {
+            return;
+        }
+        String number = data.endsWith("%") ? data.substring(0, data.length() - 1) : data;
+        double value;
+        try {
+            value = Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        Partition partition = partitionFor(patientId, label);
+        synchronized (partition) {
+            partition.add(timestamp, value);
+        }
+    }
+
+    /**
+     * Appends a block of samples to the partition under a single lock acquisition.
+     */
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        Partition partition = partitionFor(patientId, label);
+        synchronized (partition) {
+            for (int i = 0; i < count; i++) {
+                partition.add(firstTimestamp + (long) i * 1000 / sampleRate, samples[i]);
+            }
+        }
+    }
+
+    /**
+     * Appends numeric readings straight from the batch, taking each partition's lock once per
+     * run of consecutive readings of the same patient and type.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        int i = 0;
+        while (i < batch.size()) {
+            int patientId = batch.getPatientId(i);
+            int typeCode = batch.getTypeCode(i);
+            int end = i + 1;
+            while (end < batch.size() && batch.getPatientId(end) == patientId && batch.getTypeCode(end) == typeCode) {
+                end++;
+            }
+            ReadingType type = ReadingType.fromCode(typeCode);
+            if (type.isNumeric()) {
+                Partition partition = partitionFor(patientId, type.getLabel());
+                synchronized (partition) {
+                    for (int j = i; j < end; j++) {
+                        partition.add(batch.getTimestamp(j), batch.getValue(j));
+                    }
+                }
+            }
+            i = end;
+        }
+    }
+
+    private Partition partitionFor(int patientId, String label) {
+        return partitions.computeIfAbsent(new Key(patientId, label), Partition::new);
+    }
+
+    /**
+     * Writes every partition's buffered readings as a block, without finishing the segment.
+     */
+    public void flushAll() {
+        flushOlderThan(Long.MAX_VALUE);
+    }
+
+    private void flushOlderThan(long cutoff) {
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                if (partition.rows > 0 && partition.bufferedAt <= cutoff) {
+                    partition.writeBlock();
+                }
+            }
+        }
+        synchronized (this) {
+            if (segment != null) {
+                try {
+                    segment.flush();
+                } catch (IOException e) {
+                    System.err.println("Error flushing columnar segment " + segmentPath + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered readings and finishes the current segment, so that everything
+     * output so far can be read. Later output goes to a new segment.
+     */
+    public void roll() {
+        flushAll();
+        synchronized (this) {
+            finishSegment();
+        }
+    }
+
+    /**
+     * Writes all buffered readings, finishes the segment and stops the flusher. Later output
+     * is dropped.
+     */
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        finish();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down; the hook is running or has run
+        }
+    }
+
+    private void finish() {
+        flushAll();
+        synchronized (this) {
+            finishSegment();
+            closed = true;
+        }
+    }
+
+    // Appends one compressed block to the segment; called with the partition's lock held
+    private synchronized void append(int patientId, String label, long first, long last, int rows, byte[] block) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (segment == null) {
+                segmentPath = segmentFile(nextSegment++);
+                segment = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentPath), 1 << 16));
+                ColumnarFormat.writeHeader(segment);
+                segmentOffset = segment.size();
+            }
+            segment.write(block);
+            index.add(new BlockInfo(patientId, label, first, last, rows, segmentOffset, block.length));
+            segmentOffset += block.length;
+            if (maxSegmentBytes > 0 && segmentOffset >= maxSegmentBytes) {
+                finishSegment();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing columnar segment " + segmentPath + ": " + e.getMessage());
+        }
+    }
+
+    // Called with the instance lock held
+    private void finishSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            ColumnarFormat.writeFooter(segment, index, segmentOffset);
+            segment.close();
+        } catch (IOException e) {
+            System.err.println("Error finishing columnar segment " + segmentPath + ": " + e.getMessage());
+        }
+        segment = null;
+        index.clear();
+    }
+
+    private Path segmentFile(int n) {
+        return directory.resolve("segment-" + n + ColumnarFormat.EXTENSION);
+    }
+
+    private static final class Key {
+        final int patientId;
+        final String label;
+
+        Key(int patientId, String label) {
+            this.patientId = patientId;
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return patientId == other.patientId && label.equals(other.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, label);
+        }
+    }
+
+    // The buffered columns of one patient and label; all access is synchronised on the instance
+    private final class Partition {
+        final Key key;
+        long[] timestamps = new long[16];
+        double[] values = new double[16];
+        int rows;
+        long bufferedAt; // wall time of the oldest buffered reading
+
+        Partition(Key key) {
+            this.key = key;
+        }
+
+        void add(long timestamp, double value) {
+            if (closed) {
+                return;
+            }
+            if (rows == 0) {
+                bufferedAt = System.currentTimeMillis();
+            } else if (rows == timestamps.length) {
+                int capacity = Math.min(blockRows, rows * 2);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            timestamps[rows] = timestamp;
+            values[rows] = value;
+            rows++;
+            if (rows == blockRows) {
+                writeBlock();
+            }
+        }
+
+        void writeBlock() {
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            for (int i = 0; i < rows; i++) {
+                first = Math.min(first, timestamps[i]);
+                last = Math.max(last, timestamps[i]);
+            }
+            append(key.patientId, key.label, first, last, rows, ColumnarFormat.encodeBlock(timestamps, values, rows, deflaters.get()));
+            rows = 0;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.cardio_generator.outputs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans every reading out to several {@link OutputStrategy} sinks, e.g. live WebSocket
+ * consumers and a file archive at the same time.
+ * <p>
+ * Each sink gets its own {@link ReadingQueue}, bounded by the number of readings waiting, and
+ * worker thread, so {@link #output} only enqueues the reading once per sink and returns, and
+ * each sink runs at its own pace. A sink that cannot keep up fills its own queue and then
+ * loses readings, counted per sink, while
+ * the others are unaffected. The lag of a sink is the age of the reading it is working on,
+ * counted from when it was output, or zero once it has caught up.
+ * </p>
+ */
+public class CompositeOutputStrategy implements OutputStrategy, AutoCloseable {
+
+    /**
+     * Default maximum number of readings waiting per sink.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int DRAIN_LIMIT = 1024;
+
+    private final List<Sink> sinks = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts a composite with the default queue capacity.
+     *
+     * @param strategies the sinks
+     */
+    public CompositeOutputStrategy(List<OutputStrategy> strategies) {
+        this(strategies, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates and starts a composite.
+     *
+     * @param strategies the sinks
+     * @param capacity   the maximum number of readings waiting per sink
+     */
+    public CompositeOutputStrategy(List<OutputStrategy> strategies, int capacity) {
+        if (strategies.isEmpty()) {
+            throw new IllegalArgumentException("At least one output strategy is required");
+        }
+        for (OutputStrategy strategy : strategies) {
+            Sink sink = new Sink(sinks.size(), strategy, capacity);
+            sinks.add(sink);
+            sink.thread.start();
+        }
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        enqueue(QueuedReading.of(patientId, timestamp, label, data));
+    }
+
+    /**
+     * Copies the block once and queues the copy for every sink.
+     */
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        if (count > 0) {
+            enqueue(QueuedReading.ofSamples(patientId, firstTimestamp, sampleRate, label, samples, count));
+        }
+    }
+
+    /**
+     * Copies the batch once and queues the copy for every sink.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        if (!batch.isEmpty()) {
+            enqueue(QueuedReading.ofBatch(batch));
+        }
+    }
+
+    private void enqueue(QueuedReading reading) {
+        for (Sink sink : sinks) {
+            if (!running || !sink.queue.offer(reading)) {
+                sink.dropped.addAndGet(reading.values());
+            }
+        }
+    }
+
+    public int getSinkCount() {
+        return sinks.size();
+    }
+
+    public OutputStrategy getSink(int index) {
+        return sinks.get(index).strategy;
+    }
+
+    /**
+     * Returns how long ago the reading a sink is working on was output.
+     *
+     * @param index the sink index
+     * @return the lag in milliseconds, {@code 0} if the sink has caught up
+     */
+    public double getLagMillis(int index) {
+        long current = sinks.get(index).currentEnqueuedAt;
+        return current == 0 ? 0 : (System.nanoTime() - current) / 1e6;
+    }
+
+    /**
+     * Returns the number of readings waiting for a sink.
+     *
+     * @param index the sink index
+     * @return the approximate queue length
+     */
+    public int getQueuedCount(int index) {
+        return sinks.get(index).queue.size();
+    }
+
+    /**
+     * Returns the number of readings a sink has written without failing.
+     *
+     * @param index the sink index
+     * @return the delivered reading count
+     */
+    public long getDeliveredCount(int index) {
+        return sinks.get(index).delivered.get();
+    }
+
+    /**
+     * Returns the number of readings a sink lost because it threw while writing them; they
+     * are not counted as delivered.
+     *
+     * @param index the sink index
+     * @return the failed reading count
+     */
+    public long getFailedCount(int index) {
+        return sinks.get(index).failed.get();
+    }
+
+    /**
+     * Returns the number of readings a sink lost because its queue was full.
+     *
+     * @param index the sink index
+     * @return the dropped reading count
+     */
+    public long getDroppedCount(int index) {
+        return sinks.get(index).dropped.get();
+    }
+
+    /**
+     * Describes every sink's lag, queue length and losses as {@code key=value} fields, e.g.
+     * {@code sink0=FileOutputStrategy lag0=1.2ms queued0=40 dropped0=0}.
+     *
+     * @return the fields, separated by spaces
+     */
+    public String describeLag() {
+        StringBuilder fields = new StringBuilder();
+        for (Sink sink : sinks) {
+            int i = sink.index;
+            if (fields.length() > 0) {
+                fields.append(' ');
+            }
+            fields.append("sink").append(i).append('=').append(sink.strategy.getClass().getSimpleName())
+                    .append(" lag").append(i).append('=').append(String.format(Locale.ROOT, "%.1fms", getLagMillis(i)))
+                    .append(" queued").append(i).append('=').append(getQueuedCount(i))
+                    .append(" dropped").append(i).append('=').append(getDroppedCount(i));
+        }
+        return fields.toString();
+    }
+
+    /**
+     * Stops accepting readings, lets every sink work off its queue and closes the sinks that
+     * can be closed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Sink sink : sinks) {
+            try {
+                sink.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (sink.strategy instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) sink.strategy).close();
+                } catch (Exception e) {
+                    System.err.println("Error closing output " + sink.strategy.getClass().getSimpleName() + ": "
+                            + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private final class Sink {
+        final int index;
+        final OutputStrategy strategy;
+        final ReadingQueue queue;
+        final Thread thread;
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile long currentEnqueuedAt; // 0 when caught up
+        private long failures;
+
+        Sink(int index, OutputStrategy strategy, int capacity) {
+            this.index = index;
+            this.strategy = strategy;
+            this.queue = new ReadingQueue(capacity);
+            this.thread = new Thread(this::run, "output-sink-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            while (running || !queue.isEmpty()) {
+                if (queue.drain(this::deliver, DRAIN_LIMIT) == 0) {
+                    currentEnqueuedAt = 0;
+                }
+            }
+        }
+
+        private void deliver(QueuedReading reading) {
+            currentEnqueuedAt = reading.enqueuedAt;
+            try {
+                reading.deliverTo(strategy);
+                delivered.addAndGet(reading.values());
+            } catch (RuntimeException e) {
+                failed.addAndGet(reading.values());
+                if (failures++ % 1000 == 0) {
+                    System.err.println("Output " + strategy.getClass().getSimpleName() + " failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
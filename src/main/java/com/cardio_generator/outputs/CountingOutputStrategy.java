@@ -0,0 +1,51 @@
+package com.cardio_generator.outputs;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the values passing through to another {@link OutputStrategy}; a sample of a block
+ * counts once. Counting is contention-free, so one instance can be shared by all generating
+ * threads.
+ */
+public class CountingOutputStrategy implements OutputStrategy {
+
+    private final OutputStrategy delegate;
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Creates a counter in front of the given strategy.
+     *
+     * @param delegate the strategy that receives the values
+     */
+    public CountingOutputStrategy(OutputStrategy delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        delegate.output(patientId, timestamp, label, data);
+        count.increment();
+    }
+
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        delegate.outputSamples(patientId, firstTimestamp, sampleRate, label, samples, count);
+        this.count.add(count);
+    }
+
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        delegate.outputBatch(batch);
+        count.add(batch.size());
+    }
+
+    /**
+     * Returns the number of values output so far.
+     *
+     * @return the value count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -1,11 +1,21 @@
 package com.cardio_generator.outputs;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A file-based implementation of the {@link OutputStrategy} interface.
@@ -14,8 +24,32 @@ import java.util.concurrent.ConcurrentHashMap;
  * corresponds to a separate file named {@code label.txt} stored in the specified base directory.
  * Data is appended in a human-readable format.
  * </p>
+ * <p>
+ * Every label keeps one file open with a large write buffer, so a reading costs a buffer
+ * append rather than a file open. The buffer goes to disk when it fills, and a background
+ * flusher also writes out all buffers periodically, so readers tailing the files lag by at
+ * most the flush interval. A file that grows beyond the size limit or stays open longer than
+ * the rotation interval is closed and renamed to {@code label-<yyyyMMdd-HHmmss>.txt}
+ * after the time it was started. Writing then continues in a fresh {@code label.txt}. A
+ * shutdown hook flushes and closes all files when the JVM exits.
+ * </p>
  */
-public class FileOutputStrategy implements OutputStrategy {
+public class FileOutputStrategy implements OutputStrategy, AutoCloseable {
+
+    /**
+     * Default interval of the background flush, in milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+    /**
+     * Default size at which a file is rotated, in bytes.
+     */
+    public static final long DEFAULT_MAX_FILE_BYTES = 256L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final DateTimeFormatter ROTATED_SUFFIX =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
 
     /**
      * The root directory where all output files will be stored.
@@ -28,13 +62,47 @@ public class FileOutputStrategy implements OutputStrategy {
      */
     public final ConcurrentHashMap<String, String> filemap = new ConcurrentHashMap<>();
 
+    private final ConcurrentHashMap<String, LabelFile> files = new ConcurrentHashMap<>();
+    private final long maxFileBytes;
+    private final long rotateMillis;
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+
     /**
      * Constructs a new {@code FileOutputStrategy} with the specified output directory.
      *
      * @param baseDirectory The root directory where all label files will be written.
      */
     public FileOutputStrategy(String baseDirectory) {
+        this(baseDirectory, DEFAULT_FLUSH_MILLIS, DEFAULT_MAX_FILE_BYTES, 0);
+    }
+
+    /**
+     * Constructs a new {@code FileOutputStrategy} with explicit flushing and rotation.
+     *
+     * @param baseDirectory The root directory where all label files will be written.
+     * @param flushMillis   Interval of the background flush in milliseconds.
+     * @param maxFileBytes  Size at which a file is rotated, {@code 0} for no size limit.
+     * @param rotateMillis  Age at which a file is rotated in milliseconds, {@code 0} for no age limit.
+     */
+    public FileOutputStrategy(String baseDirectory, long flushMillis, long maxFileBytes, long rotateMillis) {
         this.baseDirectory = baseDirectory;
+        this.maxFileBytes = maxFileBytes;
+        this.rotateMillis = rotateMillis;
+        try {
+            Files.createDirectories(Paths.get(baseDirectory));
+        } catch (IOException e) {
+            System.err.println("Error creating base directory: " + e.getMessage());
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "file-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        shutdownHook = new Thread(this::closeFiles, "file-output-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
     }
 
     /**
@@ -48,26 +116,193 @@ public class FileOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
+        LabelFile file = fileFor(label);
+        synchronized (file) {
+            file.append(patientId, timestamp, label, data);
+        }
+    }
+
+    /**
+     * Writes a block of samples under a single lock acquisition.
+     */
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        LabelFile file = fileFor(label);
+        synchronized (file) {
+            for (int i = 0; i < count; i++) {
+                file.append(patientId, firstTimestamp + (long) i * 1000 / sampleRate, label, Double.toString(samples[i]));
+            }
+        }
+    }
+
+    /**
+     * Writes a batch, formatting values straight into the line buffer and taking each file's
+     * lock once per run of consecutive readings of the same type.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        int i = 0;
+        while (i < batch.size()) {
+            ReadingType type = batch.getType(i);
+            LabelFile file = fileFor(type.getLabel());
+            synchronized (file) {
+                do {
+                    file.append(batch.getPatientId(i), batch.getTimestamp(i), type, batch.getValue(i));
+                    i++;
+                } while (i < batch.size() && batch.getTypeCode(i) == type.getCode());
+            }
+        }
+    }
+
+    private LabelFile fileFor(String label) {
+        return files.computeIfAbsent(label, k -> {
+            Path path = Paths.get(baseDirectory, label + ".txt");
+            filemap.put(label, path.toString());
+            return new LabelFile(path);
+        });
+    }
+
+    /**
+     * Writes all buffered data to the files.
+     */
+    public void flushAll() {
+        long now = System.currentTimeMillis();
+        for (LabelFile file : files.values()) {
+            synchronized (file) {
+                if (rotateMillis > 0 && file.writer != null && now - file.openedAt >= rotateMillis) {
+                    file.rotate();
+                }
+                file.flush();
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes all files and stops the flusher. Later output is dropped.
+     */
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        closeFiles();
         try {
-            // Ensure the base directory exists
-            Files.createDirectories(Paths.get(baseDirectory));
-        } catch (IOException e) {
-            System.err.println("Error creating base directory: " + e.getMessage());
-            return;
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down; the hook is running or has run
+        }
+    }
+
+    private void closeFiles() {
+        closed = true;
+        for (LabelFile file : files.values()) {
+            synchronized (file) {
+                file.closeWriter();
+            }
         }
+    }
+
+    // The open file of one label; all access is synchronised on the instance
+    private final class LabelFile {
+        final Path path;
+        final StringBuilder line = new StringBuilder(96);
+        Writer writer;
+        long size; // in characters, which the ASCII lines make equal to bytes
+        long openedAt;
 
-        // Get or create the file path for this label
-        String filePath = filemap.computeIfAbsent(label,
-                k -> Paths.get(baseDirectory, label + ".txt").toString());
+        LabelFile(Path path) {
+            this.path = path;
+        }
+
+        void append(int patientId, long timestamp, String label, String data) {
+            if (closed) {
+                return;
+            }
+            startLine(patientId, timestamp, label);
+            line.append(data);
+            writeLine();
+        }
+
+        void append(int patientId, long timestamp, ReadingType type, double value) {
+            if (closed) {
+                return;
+            }
+            startLine(patientId, timestamp, type.getLabel());
+            type.appendFormatted(line, value);
+            writeLine();
+        }
+
+        private void startLine(int patientId, long timestamp, String label) {
+            line.setLength(0);
+            line.append("Patient ID: ").append(patientId)
+                    .append(", Timestamp: ").append(timestamp)
+                    .append(", Label: ").append(label)
+                    .append(", Data: ");
+        }
+
+        private void writeLine() {
+            line.append(LINE_SEPARATOR);
+            try {
+                if (writer != null && maxFileBytes > 0 && size + line.length() > maxFileBytes) {
+                    rotate();
+                }
+                if (writer == null) {
+                    open();
+                }
+                writer.append(line);
+                size += line.length();
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + path + ": " + e.getMessage());
+                closeWriter(); // reopened on the next reading
+            }
+        }
+
+        private void open() throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), BUFFER_SIZE);
+            size = Files.size(path);
+            openedAt = System.currentTimeMillis();
+        }
+
+        void rotate() {
+            if (writer == null) {
+                return;
+            }
+            closeWriter();
+            String name = path.getFileName().toString();
+            String stem = name.substring(0, name.length() - ".txt".length());
+            Path target = path.resolveSibling(stem + "-" + ROTATED_SUFFIX.format(Instant.ofEpochMilli(openedAt)) + ".txt");
+            for (int n = 1; Files.exists(target); n++) {
+                target = path.resolveSibling(stem + "-" + ROTATED_SUFFIX.format(Instant.ofEpochMilli(openedAt))
+                        + "-" + n + ".txt");
+            }
+            try {
+                Files.move(path, target);
+            } catch (IOException e) {
+                System.err.println("Error rotating file " + path + ": " + e.getMessage());
+            }
+        }
+
+        void flush() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Error flushing file " + path + ": " + e.getMessage());
+            }
+        }
 
-        // Write data to the file
-        try (PrintWriter out = new PrintWriter(
-                Files.newBufferedWriter(Paths.get(filePath),
-                        StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
-            out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
-                    patientId, timestamp, label, data);
-        } catch (Exception e) {
-            System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
+        void closeWriter() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing file " + path + ": " + e.getMessage());
+            }
+            writer = null;
         }
     }
 }
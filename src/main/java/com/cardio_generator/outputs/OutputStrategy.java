@@ -6,4 +6,44 @@ package com.cardio_generator.outputs;
  */
 public interface OutputStrategy {
     void output(int patientId, long timestamp, String label, String data);
+
+    /**
+     * Outputs a block of evenly spaced samples of one signal, e.g. a second of ECG.
+     * <p>
+     * The default implementation emits one {@link #output} call per sample, timestamped
+     * {@code firstTimestamp + i * 1000 / sampleRate}. Strategies that can write a block more
+     * cheaply override it. The array is reused by the caller once the call returns.
+     * </p>
+     *
+     * @param patientId      the ID of the patient
+     * @param firstTimestamp the timestamp of the first sample, in epoch milliseconds
+     * @param sampleRate     the sample rate in Hz
+     * @param label          the signal label
+     * @param samples        the samples; only the first {@code count} are valid
+     * @param count          the number of samples
+     */
+    default void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                               double[] samples, int count) {
+        for (int i = 0; i < count; i++) {
+            output(patientId, firstTimestamp + (long) i * 1000 / sampleRate, label, Double.toString(samples[i]));
+        }
+    }
+
+    /**
+     * Outputs a batch of readings, e.g. everything one worker generated in a tick.
+     * <p>
+     * The default implementation adapts the batch to the string API: one {@link #output} call
+     * per reading, with the value in its usual text form (see {@link ReadingType#format}).
+     * Strategies that can take primitive values, or write a batch more cheaply, override it.
+     * The batch is reused by the caller once the call returns.
+     * </p>
+     *
+     * @param batch the readings
+     */
+    default void outputBatch(ReadingBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            ReadingType type = batch.getType(i);
+            output(batch.getPatientId(i), batch.getTimestamp(i), type.getLabel(), type.format(batch.getValue(i)));
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package com.cardio_generator.outputs;
+
+/**
+ * A reading handed from a producer to an output worker thread through a
+ * {@link ReadingQueue}: a single text reading, a block of samples if {@code samples} is set,
+ * or a whole batch if {@code batch} is set. Blocks and batches are copies owned by the entry.
+ */
+final class QueuedReading {
+    final int patientId;
+    final long timestamp;
+    final String label;
+    final String data;
+    final double[] samples;
+    final int sampleRate;
+    final int count;
+    final ReadingBatch batch;
+    final long enqueuedAt = System.nanoTime();
+
+    private QueuedReading(int patientId, long timestamp, String label, String data, double[] samples,
+                          int sampleRate, int count, ReadingBatch batch) {
+        this.patientId = patientId;
+        this.timestamp = timestamp;
+        this.label = label;
+        this.data = data;
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+        this.count = count;
+        this.batch = batch;
+    }
+
+    static QueuedReading of(int patientId, long timestamp, String label, String data) {
+        return new QueuedReading(patientId, timestamp, label, data, null, 0, 0, null);
+    }
+
+    /**
+     * Copies the first {@code count} samples, which must be positive.
+     */
+    static QueuedReading ofSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                                   double[] samples, int count) {
+        double[] copy = new double[count];
+        System.arraycopy(samples, 0, copy, 0, count);
+        return new QueuedReading(patientId, firstTimestamp, label, null, copy, sampleRate, count, null);
+    }
+
+    /**
+     * Copies the batch, which must not be empty.
+     */
+    static QueuedReading ofBatch(ReadingBatch batch) {
+        return new QueuedReading(0, 0, null, null, null, 0, 0, batch.copy());
+    }
+
+    /**
+     * Returns the number of readings the entry stands for, at least one.
+     */
+    int values() {
+        return batch != null ? batch.size() : samples == null ? 1 : count;
+    }
+
+    /**
+     * Passes the entry to {@code strategy} through the matching output method.
+     */
+    void deliverTo(OutputStrategy strategy) {
+        if (batch != null) {
+            strategy.outputBatch(batch);
+        } else if (samples == null) {
+            strategy.output(patientId, timestamp, label, data);
+        } else {
+            strategy.outputSamples(patientId, timestamp, sampleRate, label, samples, count);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.cardio_generator.outputs;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of readings held as primitive columns: patient ID, type code, timestamp
+ * and value. Generators append to it and the whole batch is handed to an output in a single
+ * {@link OutputStrategy#outputBatch} call, so no reading is turned into a string unless an
+ * output writes text.
+ * <p>
+ * The batch is also an {@link OutputStrategy} itself, which lets generators written against
+ * the string API fill it: values are parsed back with {@link ReadingType#parse}, and readings
+ * of unknown labels or with unparsable values are skipped. A batch is not thread-safe.
+ * </p>
+ */
+public class ReadingBatch implements OutputStrategy {
+
+    private int[] patientIds;
+    private int[] typeCodes;
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    /**
+     * Creates an empty batch with room for 64 readings; it grows as needed.
+     */
+    public ReadingBatch() {
+        this(64);
+    }
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param capacity the initial number of readings it can hold
+     */
+    public ReadingBatch(int capacity) {
+        int initial = Math.max(1, capacity);
+        patientIds = new int[initial];
+        typeCodes = new int[initial];
+        timestamps = new long[initial];
+        values = new double[initial];
+    }
+
+    /**
+     * Appends a reading.
+     *
+     * @param patientId the patient
+     * @param type      the reading type
+     * @param timestamp the timestamp in epoch milliseconds
+     * @param value     the value
+     */
+    public void add(int patientId, ReadingType type, long timestamp, double value) {
+        if (size == patientIds.length) {
+            grow(size + 1);
+        }
+        patientIds[size] = patientId;
+        typeCodes[size] = type.getCode();
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Appends evenly spaced samples of one patient, timestamped
+     * {@code firstTimestamp + i * 1000 / sampleRate}.
+     *
+     * @param patientId      the patient
+     * @param type           the reading type
+     * @param firstTimestamp the timestamp of the first sample
+     * @param sampleRate     the sample rate in Hz
+     * @param samples        the samples
+     * @param count          the number of samples
+     */
+    public void addSamples(int patientId, ReadingType type, long firstTimestamp, int sampleRate,
+                           double[] samples, int count) {
+        if (size + count > patientIds.length) {
+            grow(size + count);
+        }
+        int code = type.getCode();
+        for (int i = 0; i < count; i++) {
+            patientIds[size] = patientId;
+            typeCodes[size] = code;
+            timestamps[size] = firstTimestamp + (long) i * 1000 / sampleRate;
+            values[size] = samples[i];
+            size++;
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, patientIds.length * 2);
+        patientIds = Arrays.copyOf(patientIds, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Adds a reading given in text form.
+     */
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        ReadingType type = ReadingType.fromLabel(label);
+        if (type == null || data == null) {
+            return;
+        }
+        try {
+            add(patientId, type, timestamp, type.parse(data));
+        } catch (NumberFormatException e) {
+            // not representable in a batch
+        }
+    }
+
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        ReadingType type = ReadingType.fromLabel(label);
+        if (type != null) {
+            addSamples(patientId, type, firstTimestamp, sampleRate, samples, count);
+        }
+    }
+
+    /**
+     * Appends all readings of another batch.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        if (size + batch.size > patientIds.length) {
+            grow(size + batch.size);
+        }
+        System.arraycopy(batch.patientIds, 0, patientIds, size, batch.size);
+        System.arraycopy(batch.typeCodes, 0, typeCodes, size, batch.size);
+        System.arraycopy(batch.timestamps, 0, timestamps, size, batch.size);
+        System.arraycopy(batch.values, 0, values, size, batch.size);
+        size += batch.size;
+    }
+
+    /**
+     * Returns an independent copy of this batch, sized to its readings.
+     *
+     * @return the copy
+     */
+    public ReadingBatch copy() {
+        ReadingBatch copy = new ReadingBatch(size);
+        copy.outputBatch(this);
+        return copy;
+    }
+
+    /**
+     * Removes all readings, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPatientId(int index) {
+        return patientIds[index];
+    }
+
+    public int getTypeCode(int index) {
+        return typeCodes[index];
+    }
+
+    public ReadingType getType(int index) {
+        return ReadingType.fromCode(typeCodes[index]);
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+}
@@ -0,0 +1,89 @@
+package com.cardio_generator.outputs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.util.BoundedLockFreeQueue;
+
+/**
+ * The queue between producers and an output worker thread, bounded by the number of readings
+ * waiting rather than by the number of entries, so a queue of batches or sample blocks holds
+ * no more memory than one of single readings.
+ * <p>
+ * Producers reserve an entry's readings against the capacity before enqueuing it and never
+ * block; an entry that does not fit is rejected. An entry larger than the whole capacity is
+ * only accepted into an empty queue, so oversized batches are not lost forever but at most
+ * one of them is waiting at a time. A single consumer drains the queue with {@link #drain}.
+ * </p>
+ */
+final class ReadingQueue {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int capacity;
+    private final BoundedLockFreeQueue<QueuedReading> entries;
+    private final AtomicLong readings = new AtomicLong();
+
+    /**
+     * @param capacity the maximum number of readings waiting, must be positive
+     */
+    ReadingQueue(int capacity) {
+        // Every entry holds at least one reading, so capacity entries always suffice
+        this.entries = new BoundedLockFreeQueue<>(capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Enqueues an entry if its readings fit.
+     *
+     * @return {@code false} if the entry was rejected
+     */
+    boolean offer(QueuedReading entry) {
+        int values = entry.values();
+        long queued;
+        do {
+            queued = readings.get();
+            if (queued > 0 && queued + values > capacity) {
+                return false;
+            }
+        } while (!readings.compareAndSet(queued, queued + values));
+        if (!entries.offer(entry)) {
+            readings.addAndGet(-values);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Passes up to {@code maxEntries} entries to {@code consumer}, or parks the calling thread
+     * briefly if the queue is empty.
+     *
+     * @return the number of entries drained
+     */
+    int drain(Consumer<QueuedReading> consumer, int maxEntries) {
+        int drained = 0;
+        QueuedReading entry;
+        while (drained < maxEntries && (entry = entries.poll()) != null) {
+            readings.addAndGet(-entry.values());
+            consumer.accept(entry);
+            drained++;
+        }
+        if (drained == 0) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return drained;
+    }
+
+    /**
+     * Returns the number of readings waiting.
+     */
+    int size() {
+        return (int) readings.get();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
@@ -0,0 +1,143 @@
+package com.cardio_generator.outputs;
+
+/**
+ * The kinds of reading the generators produce, with the numeric code used for them in a
+ * {@link ReadingBatch} and the text form the string-based {@link OutputStrategy#output} API
+ * has always used for them.
+ */
+public enum ReadingType {
+    ECG("ECG"),
+    /** Whole percent, written with a trailing {@code %}. */
+    SATURATION("Saturation"),
+    SYSTOLIC_PRESSURE("SystolicPressure"),
+    DIASTOLIC_PRESSURE("DiastolicPressure"),
+    CHOLESTEROL("Cholesterol"),
+    WHITE_BLOOD_CELLS("WhiteBloodCells"),
+    RED_BLOOD_CELLS("RedBloodCells"),
+    /** {@code 1} for {@code triggered}, {@code 0} for {@code resolved}. */
+    ALERT("Alert");
+
+    private static final ReadingType[] BY_CODE = values();
+
+    private final String label;
+
+    ReadingType(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the label of this type in the string API, e.g. {@code "Saturation"}.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the numeric code of this type.
+     *
+     * @return the code
+     */
+    public int getCode() {
+        return ordinal();
+    }
+
+    /**
+     * Returns the type with the given code.
+     *
+     * @param code the code
+     * @return the type
+     * @throws IllegalArgumentException if no type has the code
+     */
+    public static ReadingType fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown reading type code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Returns the type with the given label.
+     *
+     * @param label the label
+     * @return the type, or {@code null} if no type has the label
+     */
+    public static ReadingType fromLabel(String label) {
+        for (ReadingType type : BY_CODE) {
+            if (type.label.equals(label)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether values of this type are measurements, as opposed to states such as
+     * alerts.
+     *
+     * @return whether the values are numeric
+     */
+    public boolean isNumeric() {
+        return this != ALERT;
+    }
+
+    /**
+     * Appends a value in its text form, without creating a string.
+     *
+     * @param target the builder to append to
+     * @param value  the value
+     * @return the builder
+     */
+    public StringBuilder appendFormatted(StringBuilder target, double value) {
+        switch (this) {
+            case SATURATION:
+                return target.append((long) value).append('%');
+            case ALERT:
+                return target.append(value != 0 ? "triggered" : "resolved");
+            default:
+                return target.append(value);
+        }
+    }
+
+    /**
+     * Returns a value in its text form, e.g. {@code 97%} or {@code triggered}.
+     *
+     * @param value the value
+     * @return the text
+     */
+    public String format(double value) {
+        switch (this) {
+            case SATURATION:
+                return (long) value + "%";
+            case ALERT:
+                return value != 0 ? "triggered" : "resolved";
+            default:
+                return Double.toString(value);
+        }
+    }
+
+    /**
+     * Parses a value from its text form.
+     *
+     * @param data the text
+     * @return the value
+     * @throws NumberFormatException if the text is not a value of this type
+     */
+    public double parse(String data) {
+        switch (this) {
+            case SATURATION:
+                return Double.parseDouble(data.endsWith("%") ? data.substring(0, data.length() - 1) : data);
+            case ALERT:
+                if (data.equals("triggered")) {
+                    return 1;
+                }
+                if (data.equals("resolved")) {
+                    return 0;
+                }
+                throw new NumberFormatException("Not an alert state: " + data);
+            default:
+                return Double.parseDouble(data);
+        }
+    }
+}
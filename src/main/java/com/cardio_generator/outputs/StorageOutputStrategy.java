@@ -0,0 +1,63 @@
+package com.cardio_generator.outputs;
+
+import com.data_management.DataStorage;
+
+/**
+ * An {@link OutputStrategy} that stores generated data directly in an in-process
+ * {@link DataStorage}, skipping serialisation and transport.
+ * <p>
+ * Values are parsed back from the generators' text form; a trailing {@code %} (as on
+ * saturation values) is dropped and non-numeric values, such as alert states, are ignored.
+ * Sample blocks and batches are stored without going through text at all.
+ * </p>
+ */
+public class StorageOutputStrategy implements OutputStrategy {
+
+    private final DataStorage dataStorage;
+
+    /**
+     * Creates a strategy storing into the given storage.
+     *
+     * @param dataStorage the storage that receives the data
+     */
+    public StorageOutputStrategy(DataStorage dataStorage) {
+        this.dataStorage = dataStorage;
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        if (label == null || data == null) {
+            return;
+        }
+        String number = data.endsWith("%") ? data.substring(0, data.length() - 1) : data;
+        double value;
+        try {
+            value = Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        dataStorage.addPatientData(patientId, value, label, timestamp);
+    }
+
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        for (int i = 0; i < count; i++) {
+            dataStorage.addPatientData(patientId, samples[i], label, firstTimestamp + (long) i * 1000 / sampleRate);
+        }
+    }
+
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            ReadingType type = batch.getType(i);
+            if (type.isNumeric()) {
+                dataStorage.addPatientData(batch.getPatientId(i), batch.getValue(i), type.getLabel(), batch.getTimestamp(i));
+            }
+        }
+    }
+
+    public DataStorage getDataStorage() {
+        return dataStorage;
+    }
+}
@@ -1,55 +1,121 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.Executors;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.util.BoundedLockFreeQueue;
 
 /**
  * A TCP-based implementation of the {@link OutputStrategy} interface.
  * <p>
- * This class starts a TCP server on a specified port, accepts one client connection,
- * and streams data output to that client in CSV format:
+ * This class starts a TCP server on a specified port, accepts any number of client
+ * connections, and streams data output to all of them in CSV format:
  * {@code patientId,timestamp,label,data}.
  * </p>
+ * <p>
+ * Generator threads only format the line and place it on a bounded lock-free queue. A single
+ * selector thread accepts clients, drains the queue every few milliseconds into one encoded
+ * chunk shared by all clients, and writes each client's pending chunks with gathering,
+ * non-blocking writes. Every client has its own bounded backlog; when a client falls so far
+ * behind that its backlog is full, the {@link SlowConsumerPolicy} either drops its oldest
+ * chunks or disconnects it. A slow client therefore never holds up generation or the other
+ * clients.
+ * </p>
  *
  * Example message: {@code 1234,1715160000000,ECG,0.92}
  */
-public class TcpOutputStrategy implements OutputStrategy {
+public class TcpOutputStrategy implements OutputStrategy, AutoCloseable {
+
+    /**
+     * What to do with a client whose backlog is full.
+     */
+    public enum SlowConsumerPolicy {
+        /** Drop the client's oldest unsent chunks to make room; the client sees a gap. */
+        DROP_OLDEST,
+        /** Close the client's connection. */
+        DISCONNECT
+    }
+
+    /**
+     * Default maximum backlog per client, in bytes.
+     */
+    public static final int DEFAULT_MAX_CLIENT_BYTES = 4 * 1024 * 1024;
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final long SELECT_MILLIS = 5;
+    private static final int MAX_GATHER = 16;
+    private static final int CHUNK_CHARS = 1 << 16;
+    private static final int MAX_CHUNKS_PER_SELECT = 64;
+
+    private final BoundedLockFreeQueue<String> queue = new BoundedLockFreeQueue<>(QUEUE_CAPACITY);
+    private final int maxClientBytes;
+    private final SlowConsumerPolicy policy;
+    private final List<Client> clients = new ArrayList<>(); // selector thread only
+    private final StringBuilder chunk = new StringBuilder(CHUNK_CHARS); // selector thread only
+    private final ByteBuffer sink = ByteBuffer.allocate(1024); // selector thread only
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running = true;
 
-    private ServerSocket serverSocket;
-    private Socket clientSocket;
-    private PrintWriter out;
+    private final AtomicInteger clientCount = new AtomicInteger();
+    private final AtomicLong droppedReadings = new AtomicLong();
+    private final AtomicLong droppedChunks = new AtomicLong();
+    private final AtomicLong disconnectedClients = new AtomicLong();
 
     /**
-     * Constructs a new {@code TcpOutputStrategy} that listens for a single client
-     * connection on the specified port.
+     * Constructs a new {@code TcpOutputStrategy} that listens for clients on the specified
+     * port, with a 4 MB backlog per client that drops its oldest data when full.
      *
      * @param port The TCP port on which the server listens for incoming connections.
      */
     public TcpOutputStrategy(int port) {
+        this(port, DEFAULT_MAX_CLIENT_BYTES, SlowConsumerPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Constructs a new {@code TcpOutputStrategy} with an explicit slow-consumer policy.
+     *
+     * @param port           The TCP port on which the server listens, {@code 0} for any free port.
+     * @param maxClientBytes The maximum unsent data per client, in bytes.
+     * @param policy         What to do with a client whose unsent data reaches the maximum.
+     */
+    public TcpOutputStrategy(int port, int maxClientBytes, SlowConsumerPolicy policy) {
+        this.maxClientBytes = maxClientBytes;
+        this.policy = policy;
         try {
-            serverSocket = new ServerSocket(port);
-            System.out.println("TCP Server started on port " + port);
-
-            // Accept clients in a new thread to not block the main thread
-            Executors.newSingleThreadExecutor().submit(() -> {
-                try {
-                    clientSocket = serverSocket.accept();
-                    out = new PrintWriter(clientSocket.getOutputStream(), true);
-                    System.out.println("Client connected: " + clientSocket.getInetAddress());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            System.out.println("TCP Server started on port " + getPort());
+
+            thread = new Thread(this::run, "tcp-server");
+            thread.setDaemon(true);
+            thread.start();
         } catch (IOException e) {
-            e.printStackTrace();
+            System.err.println("Error starting TCP server on port " + port + ": " + e.getMessage());
+            running = false;
         }
     }
 
     /**
-     * Sends patient data to the connected TCP client, formatted as a CSV line.
+     * Sends patient data to all connected TCP clients, formatted as a CSV line.
      *
      * @param patientId The ID of the patient.
      * @param timestamp The timestamp of the measurement.
@@ -58,9 +124,280 @@ public class TcpOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        if (out != null) {
-            String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
-            out.println(message);
+        if (clientCount.get() == 0) {
+            return;
+        }
+        enqueue(patientId + "," + timestamp + "," + label + "," + data + "\n", 1);
+    }
+
+    /**
+     * Queues the lines of a block of samples as a single entry.
+     */
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        if (clientCount.get() == 0 || count <= 0) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(count * 40);
+        for (int i = 0; i < count; i++) {
+            lines.append(patientId).append(',')
+                    .append(firstTimestamp + (long) i * 1000 / sampleRate).append(',')
+                    .append(label).append(',')
+                    .append(samples[i]).append('\n');
+        }
+        enqueue(lines.toString(), count);
+    }
+
+    /**
+     * Queues the lines of a whole batch as a single entry.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        if (clientCount.get() == 0 || batch.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(batch.size() * 40);
+        for (int i = 0; i < batch.size(); i++) {
+            ReadingType type = batch.getType(i);
+            lines.append(batch.getPatientId(i)).append(',')
+                    .append(batch.getTimestamp(i)).append(',')
+                    .append(type.getLabel()).append(',');
+            type.appendFormatted(lines, batch.getValue(i)).append('\n');
+        }
+        enqueue(lines.toString(), batch.size());
+    }
+
+    private void enqueue(String lines, int readings) {
+        if (!running || !queue.offer(lines)) {
+            droppedReadings.addAndGet(readings);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            client.discardInput();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            client.write();
+                        }
+                    }
+                }
+                broadcastQueued();
+            } catch (IOException e) {
+                System.err.println("TCP server error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+        clientCount.incrementAndGet();
+        System.out.println("Client connected: " + channel.socket().getInetAddress());
+    }
+
+    // Encodes everything queued once and hands the same bytes to every client
+    private void broadcastQueued() {
+        for (int chunks = 0; chunks < MAX_CHUNKS_PER_SELECT; chunks++) {
+            String lines;
+            while (chunk.length() < CHUNK_CHARS && (lines = queue.poll()) != null) {
+                chunk.append(lines);
+            }
+            if (chunk.length() == 0) {
+                return;
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(chunk.toString().getBytes(StandardCharsets.UTF_8));
+            chunk.setLength(0);
+            for (Client client : new ArrayList<>(clients)) {
+                client.enqueue(bytes.duplicate());
+                client.write();
+            }
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port, or {@code -1} if the server is not running
+     */
+    public int getPort() {
+        return serverChannel != null && serverChannel.socket().isBound() ? serverChannel.socket().getLocalPort() : -1;
+    }
+
+    public int getClientCount() {
+        return clientCount.get();
+    }
+
+    /**
+     * Returns the number of readings dropped before sending because the queue was full.
+     *
+     * @return the dropped reading count
+     */
+    public long getDroppedReadingCount() {
+        return droppedReadings.get();
+    }
+
+    /**
+     * Returns the number of chunks dropped from slow clients' backlogs.
+     *
+     * @return the dropped chunk count
+     */
+    public long getDroppedChunkCount() {
+        return droppedChunks.get();
+    }
+
+    /**
+     * Returns the number of clients disconnected for being too slow.
+     *
+     * @return the disconnected client count
+     */
+    public long getDisconnectedClientCount() {
+        return disconnectedClients.get();
+    }
+
+    /**
+     * Stops the server and closes all client connections.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            selector.wakeup();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Client client : new ArrayList<>(clients)) {
+                client.close();
+            }
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing TCP server: " + e.getMessage());
+        }
+    }
+
+    // One connected client and its unsent chunks; used by the selector thread only
+    private final class Client {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> backlog = new ArrayDeque<>();
+        final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+        SelectionKey key;
+        long backlogBytes;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void enqueue(ByteBuffer bytes) {
+            if (backlogBytes + bytes.remaining() > maxClientBytes) {
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    disconnectedClients.incrementAndGet();
+                    System.out.println("Disconnecting slow client: " + channel.socket().getInetAddress());
+                    close();
+                    return;
+                }
+                // Never drop a chunk that is partly sent, or the client would get half a line
+                ByteBuffer partial = !backlog.isEmpty() && backlog.peekFirst().position() > 0 ? backlog.pollFirst() : null;
+                while (!backlog.isEmpty() && backlogBytes + bytes.remaining() > maxClientBytes) {
+                    backlogBytes -= backlog.pollFirst().remaining();
+                    droppedChunks.incrementAndGet();
+                }
+                if (partial != null) {
+                    backlog.addFirst(partial);
+                }
+            }
+            backlog.addLast(bytes);
+            backlogBytes += bytes.remaining();
+        }
+
+        void write() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                while (!backlog.isEmpty()) {
+                    int n = 0;
+                    for (ByteBuffer buffer : backlog) {
+                        gather[n++] = buffer;
+                        if (n == MAX_GATHER) {
+                            break;
+                        }
+                    }
+                    long written = channel.write(gather, 0, n);
+                    backlogBytes -= written;
+                    while (!backlog.isEmpty() && !backlog.peekFirst().hasRemaining()) {
+                        backlog.pollFirst();
+                    }
+                    if (written == 0) {
+                        break;
+                    }
+                }
+                Arrays.fill(gather, null);
+                key.interestOps(backlog.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void discardInput() {
+            try {
+                while (true) {
+                    int n = channel.read(sink);
+                    if (n < 0) {
+                        close();
+                        return;
+                    }
+                    if (n == 0) {
+                        return;
+                    }
+                    sink.clear();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (!clients.remove(this)) {
+                return;
+            }
+            clientCount.decrementAndGet();
+            backlog.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
         }
     }
 }
@@ -1,18 +1,119 @@
 package com.cardio_generator.outputs;
 
+import com.data_management.DeltaFeedFormat;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.util.BoundedLockFreeQueue;
 import org.java_websocket.WebSocket;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
 
-public class WebSocketOutputStrategy implements OutputStrategy {
+/**
+ * Streams generated data to WebSocket clients as frames of newline-separated
+ * {@code patientId,timestamp,label,data} lines.
+ * <p>
+ * Generator threads only place their readings on a bounded lock-free queue. A flusher thread
+ * coalesces the queued readings into frames, sent once a few thousand readings are pending or
+ * the oldest pending reading is a few milliseconds old. Each frame is encoded once and the
+ * same bytes are sent to every client it is meant for.
+ * </p>
+ * <p>
+ * A client receives all patients and labels until it subscribes by sending a JSON message
+ * such as {@code {"patients": [1, 2, 3], "labels": ["ECG", "Saturation"]}}; a missing or
+ * empty list means all. Clients with the same subscription share their frames, so a ward of
+ * nurse-station clients costs one encoding per distinct set of beds.
+ * </p>
+ * <p>
+ * A client that adds {@code "encoding": "delta"} to its subscription receives binary
+ * {@link DeltaFeedFormat} frames instead: each patient's signals as compressed deltas to
+ * their previous values. Every delta subscription has its own encoder state, reset by a
+ * keyframe at most once per keyframe interval; a client joins its subscription's feed at the
+ * next keyframe and is sent nothing before, also after every change of its subscription.
+ * </p>
+ */
+public class WebSocketOutputStrategy implements OutputStrategy, AutoCloseable {
 
-    private WebSocketServer server;
+    /**
+     * Default longest time a reading waits to be coalesced into a frame, in milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_MILLIS = 10;
+
+    /**
+     * Default interval between keyframes of the delta feed, in milliseconds.
+     */
+    public static final long DEFAULT_KEYFRAME_MILLIS = 1000;
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final int FRAME_CHARS = 1 << 16;
+    private static final int FRAME_READINGS = FRAME_CHARS / 32;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SimpleWebSocketServer server;
+    private final BoundedLockFreeQueue<Entry> queue = new BoundedLockFreeQueue<>(QUEUE_CAPACITY);
+    private final long flushNanos;
+    private final long keyframeNanos;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // Flusher thread state of the delta feed
+    private final Map<Subscription, DeltaFeed> deltaFeeds = new HashMap<>();
+    private final Deflater deflater = new Deflater();
+    // The delta subscription each client last received a keyframe of
+    private final Map<WebSocket, Subscription> syncedClients = new ConcurrentHashMap<>();
+
+    private final AtomicInteger clientCount = new AtomicInteger();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong droppedReadings = new AtomicLong();
 
     public WebSocketOutputStrategy(int port) {
+        this(port, DEFAULT_FLUSH_MILLIS, DEFAULT_KEYFRAME_MILLIS);
+    }
+
+    /**
+     * Creates and starts a server with the default keyframe interval.
+     *
+     * @param port        the port to listen on, {@code 0} for any free port
+     * @param flushMillis the longest time a reading waits to be coalesced into a frame
+     */
+    public WebSocketOutputStrategy(int port, long flushMillis) {
+        this(port, flushMillis, DEFAULT_KEYFRAME_MILLIS);
+    }
+
+    /**
+     * Creates and starts a server.
+     *
+     * @param port           the port to listen on, {@code 0} for any free port
+     * @param flushMillis    the longest time a reading waits to be coalesced into a frame
+     * @param keyframeMillis the interval between keyframes of the delta feed
+     */
+    public WebSocketOutputStrategy(int port, long flushMillis, long keyframeMillis) {
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.keyframeNanos = TimeUnit.MILLISECONDS.toNanos(keyframeMillis);
         server = new SimpleWebSocketServer(new InetSocketAddress(port));
         System.out.println("WebSocket server created on port: " + port + ", listening for connections...");
         server.start();
+        flusher = new Thread(this::run, "websocket-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
     }
 
     @Override
@@ -21,37 +122,421 @@ public class WebSocketOutputStrategy implements OutputStrategy {
             System.err.println("Invalid output: null label or data");
             return;
         }
-        String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
+        if (clientCount.get() == 0) {
+            return;
+        }
+        enqueue(new Entry(patientId, timestamp, label, data));
+    }
+
+    /**
+     * Queues a copy of a block of samples as a single entry.
+     */
+    @Override
+    public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                              double[] samples, int count) {
+        if (label == null || count <= 0 || clientCount.get() == 0) {
+            return;
+        }
+        long[] timestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = firstTimestamp + (long) i * 1000 / sampleRate;
+        }
+        double[] values = new double[count];
+        System.arraycopy(samples, 0, values, 0, count);
+        enqueue(new Entry(patientId, label, ReadingType.fromLabel(label), timestamps, values));
+    }
+
+    /**
+     * Queues one entry per run of consecutive readings of the same patient and type, so that
+     * subscriptions can still be matched per entry.
+     */
+    @Override
+    public void outputBatch(ReadingBatch batch) {
+        if (clientCount.get() == 0) {
+            return;
+        }
+        int i = 0;
+        while (i < batch.size()) {
+            int patientId = batch.getPatientId(i);
+            int typeCode = batch.getTypeCode(i);
+            int end = i + 1;
+            while (end < batch.size() && batch.getPatientId(end) == patientId && batch.getTypeCode(end) == typeCode) {
+                end++;
+            }
+            long[] timestamps = new long[end - i];
+            double[] values = new double[end - i];
+            for (int j = i; j < end; j++) {
+                timestamps[j - i] = batch.getTimestamp(j);
+                values[j - i] = batch.getValue(j);
+            }
+            ReadingType type = ReadingType.fromCode(typeCode);
+            enqueue(new Entry(patientId, type.getLabel(), type, timestamps, values));
+            i = end;
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        if (!running || !queue.offer(entry)) {
+            droppedReadings.addAndGet(entry.readings);
+        }
+    }
+
+    private void run() {
+        List<Entry> pending = new ArrayList<>();
+        int pendingReadings = 0;
+        long firstPendingAt = 0;
+        while (running) {
+            Entry entry;
+            while (pendingReadings < FRAME_READINGS && (entry = queue.poll()) != null) {
+                if (pending.isEmpty()) {
+                    firstPendingAt = System.nanoTime();
+                }
+                pending.add(entry);
+                pendingReadings += entry.readings;
+            }
+            if (!pending.isEmpty()
+                    && (pendingReadings >= FRAME_READINGS || System.nanoTime() - firstPendingAt >= flushNanos)) {
+                try {
+                    send(pending);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to send WebSocket frame: " + e.getMessage());
+                }
+                pending.clear();
+                pendingReadings = 0;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Builds each distinct subscription's frames once and broadcasts them to its clients
+    private void send(List<Entry> entries) {
+        Map<Subscription, List<WebSocket>> groups = new HashMap<>();
         for (WebSocket conn : server.getConnections()) {
-            try {
-                conn.send(message);
-            } catch (Exception e) {
-                System.err.println("Failed to send message to client: " + conn.getRemoteSocketAddress());
-                e.printStackTrace();
+            Subscription subscription = conn.getAttachment();
+            groups.computeIfAbsent(subscription != null ? subscription : Subscription.ALL, s -> new ArrayList<>())
+                    .add(conn);
+        }
+        deltaFeeds.keySet().retainAll(groups.keySet());
+        for (Map.Entry<Subscription, List<WebSocket>> group : groups.entrySet()) {
+            if (group.getKey().delta) {
+                sendDelta(group.getKey(), group.getValue(), entries);
+            } else {
+                sendText(group.getKey(), group.getValue(), entries);
             }
         }
     }
 
+    private void sendText(Subscription subscription, List<WebSocket> connections, List<Entry> entries) {
+        StringBuilder frame = new StringBuilder(FRAME_CHARS + 1024);
+        for (Entry entry : entries) {
+            if (!subscription.matches(entry.patientId, entry.label)) {
+                continue;
+            }
+            if (frame.length() > 0) {
+                frame.append('\n');
+            }
+            frame.append(entry.text());
+            if (frame.length() >= FRAME_CHARS) {
+                broadcast(frame, connections);
+            }
+        }
+        broadcast(frame, connections);
+    }
 
-    private static class SimpleWebSocketServer extends WebSocketServer {
+    private void broadcast(StringBuilder frame, List<WebSocket> connections) {
+        if (frame.length() == 0) {
+            return;
+        }
+        server.broadcast(frame.toString(), connections);
+        framesSent.incrementAndGet();
+        bytesSent.addAndGet(frame.length());
+        frame.setLength(0);
+    }
+
+    // Sends a keyframe to all the subscription's clients when one is due, and otherwise a
+    // delta frame to the clients that have received a keyframe
+    private void sendDelta(Subscription subscription, List<WebSocket> connections, List<Entry> entries) {
+        DeltaFeed feed = deltaFeeds.get(subscription);
+        long now = System.nanoTime();
+        boolean keyframe = feed == null || now - feed.lastKeyframeAt >= keyframeNanos;
+        List<WebSocket> receivers = connections;
+        if (!keyframe) {
+            receivers = new ArrayList<>(connections.size());
+            for (WebSocket conn : connections) {
+                if (subscription.equals(syncedClients.get(conn))) {
+                    receivers.add(conn);
+                }
+            }
+            if (receivers.isEmpty()) {
+                return;
+            }
+        }
+        if (feed == null) {
+            feed = new DeltaFeed();
+            deltaFeeds.put(subscription, feed);
+        }
+        DeltaFeedFormat.Encoder encoder = feed.encoder;
+        encoder.beginFrame(keyframe);
+        for (Entry entry : entries) {
+            if (subscription.matches(entry.patientId, entry.label)) {
+                entry.encode(encoder);
+            }
+        }
+        byte[] frame = encoder.finishFrame(deflater, System.currentTimeMillis());
+        if (frame == null) {
+            return;
+        }
+        if (keyframe) {
+            feed.lastKeyframeAt = now;
+            for (WebSocket conn : connections) {
+                syncedClients.put(conn, subscription);
+            }
+        }
+        server.broadcast(frame, receivers);
+        framesSent.incrementAndGet();
+        bytesSent.addAndGet(frame.length);
+    }
+
+    /**
+     * Returns the port the server listens on, once it has started.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public int getClientCount() {
+        return clientCount.get();
+    }
+
+    /**
+     * Returns the number of frames broadcast so far; a frame sent to several clients
+     * counts once.
+     *
+     * @return the frame count
+     */
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    /**
+     * Returns the size of the frames broadcast so far, in bytes of text or binary payload; a
+     * frame sent to several clients counts once.
+     *
+     * @return the payload byte count
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the number of readings dropped because the queue was full.
+     *
+     * @return the dropped reading count
+     */
+    public long getDroppedReadingCount() {
+        return droppedReadings.get();
+    }
+
+    /**
+     * Stops the flusher and the server.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+            deflater.end();
+            server.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The readings of one patient and label: one reading in text form, or values of a known
+    // type or block of samples
+    private static final class Entry {
+        final int patientId;
+        final String label;
+        final ReadingType type; // null for labels outside ReadingType
+        final long[] timestamps;
+        final double[] values;  // null for a reading in text form
+        final String data;
+        final int readings;
+        private String text;    // built on first use, by the flusher
+
+        Entry(int patientId, long timestamp, String label, String data) {
+            this.patientId = patientId;
+            this.label = label;
+            this.type = ReadingType.fromLabel(label);
+            this.timestamps = new long[] {timestamp};
+            this.values = null;
+            this.data = data;
+            this.readings = 1;
+        }
+
+        Entry(int patientId, String label, ReadingType type, long[] timestamps, double[] values) {
+            this.patientId = patientId;
+            this.label = label;
+            this.type = type;
+            this.timestamps = timestamps;
+            this.values = values;
+            this.data = null;
+            this.readings = values.length;
+        }
+
+        // The newline-separated patientId,timestamp,label,data lines
+        String text() {
+            if (text != null) {
+                return text;
+            }
+            StringBuilder lines = new StringBuilder(readings * 32);
+            for (int i = 0; i < readings; i++) {
+                if (i > 0) {
+                    lines.append('\n');
+                }
+                lines.append(patientId).append(',').append(timestamps[i]).append(',').append(label).append(',');
+                if (values == null) {
+                    lines.append(data);
+                } else if (type != null) {
+                    type.appendFormatted(lines, values[i]);
+                } else {
+                    lines.append(values[i]);
+                }
+            }
+            text = lines.toString();
+            return text;
+        }
+
+        // Adds the readings to a delta frame; text that is not a number is left out
+        void encode(DeltaFeedFormat.Encoder encoder) {
+            if (values == null) {
+                try {
+                    double value = type != null ? type.parse(data) : Double.parseDouble(data);
+                    encoder.add(patientId, label, timestamps[0], value);
+                } catch (NumberFormatException e) {
+                    // not representable in the delta feed
+                }
+                return;
+            }
+            for (int i = 0; i < readings; i++) {
+                encoder.add(patientId, label, timestamps[i], values[i]);
+            }
+        }
+    }
+
+    // The encoder state of one delta subscription
+    private static final class DeltaFeed {
+        final DeltaFeedFormat.Encoder encoder = new DeltaFeedFormat.Encoder();
+        long lastKeyframeAt;
+    }
+
+    /**
+     * The patients and labels a client has subscribed to, {@code null} sets meaning all, and
+     * whether it receives the delta feed.
+     */
+    static final class Subscription {
+        static final Subscription ALL = new Subscription(null, null, false);
+
+        private final Set<Integer> patients;
+        private final Set<String> labels;
+        final boolean delta;
+
+        Subscription(Set<Integer> patients, Set<String> labels, boolean delta) {
+            this.patients = patients;
+            this.labels = labels;
+            this.delta = delta;
+        }
+
+        /**
+         * Parses a subscription message.
+         *
+         * @param message the JSON message
+         * @return the subscription
+         * @throws JsonParseException if the message is not a valid subscription
+         */
+        static Subscription parse(String message) {
+            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+            Set<Integer> patients = null;
+            Set<String> labels = null;
+            JsonArray patientArray = json.has("patients") ? json.getAsJsonArray("patients") : null;
+            if (patientArray != null && patientArray.size() > 0) {
+                patients = new HashSet<>();
+                for (JsonElement element : patientArray) {
+                    patients.add(element.getAsInt());
+                }
+            }
+            JsonArray labelArray = json.has("labels") ? json.getAsJsonArray("labels") : null;
+            if (labelArray != null && labelArray.size() > 0) {
+                labels = new HashSet<>();
+                for (JsonElement element : labelArray) {
+                    labels.add(element.getAsString());
+                }
+            }
+            boolean delta = false;
+            if (json.has("encoding")) {
+                String encoding = json.get("encoding").getAsString();
+                if (!encoding.equals("text") && !encoding.equals("delta")) {
+                    throw new JsonParseException("Unknown encoding: " + encoding);
+                }
+                delta = encoding.equals("delta");
+            }
+            return patients == null && labels == null && !delta ? ALL
+                    : new Subscription(patients == null ? null : Collections.unmodifiableSet(patients),
+                            labels == null ? null : Collections.unmodifiableSet(labels), delta);
+        }
+
+        boolean matches(int patientId, String label) {
+            return (patients == null || patients.contains(patientId)) && (labels == null || labels.contains(label));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Subscription)) {
+                return false;
+            }
+            Subscription other = (Subscription) o;
+            return Objects.equals(patients, other.patients) && Objects.equals(labels, other.labels)
+                    && delta == other.delta;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patients, labels, delta);
+        }
+    }
+
+    private class SimpleWebSocketServer extends WebSocketServer {
 
         public SimpleWebSocketServer(InetSocketAddress address) {
             super(address);
+            setReuseAddr(true);
         }
 
         @Override
         public void onOpen(WebSocket conn, org.java_websocket.handshake.ClientHandshake handshake) {
+            clientCount.incrementAndGet();
             System.out.println("New connection: " + conn.getRemoteSocketAddress());
         }
 
         @Override
         public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            clientCount.decrementAndGet();
+            syncedClients.remove(conn);
             System.out.println("Closed connection: " + conn.getRemoteSocketAddress());
         }
 
         @Override
         public void onMessage(WebSocket conn, String message) {
-            // Not used in this context
+            try {
+                conn.setAttachment(Subscription.parse(message));
+                // Its decoder holds the state of the previous feed; deltas resume at the next keyframe
+                syncedClients.remove(conn);
+            } catch (RuntimeException e) {
+                System.err.println("Ignoring invalid subscription from " + conn.getRemoteSocketAddress() + ": " + message);
+            }
         }
 
         @Override
@@ -0,0 +1,124 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+
+import com.data_management.ColumnarFormat.BlockInfo;
+
+/**
+ * Reads the segment files of {@code ColumnarOutputStrategy} from a directory and its
+ * subdirectories and loads them into DataStorage.
+ * <p>
+ * Only the readings of a time range are loaded. The block index in each segment's footer
+ * tells which blocks can hold readings of the range; the others are neither read nor
+ * decompressed. Segments still being written have no footer yet and are skipped.
+ * </p>
+ */
+public class ColumnarDataReader implements DataReader {
+    private final String directoryPath;
+    private final long startTime;
+    private final long endTime;
+    private long blocksRead;
+    private long blocksSkipped;
+
+    /**
+     * Creates a reader loading all readings.
+     *
+     * @param directoryPath the directory of the segments
+     */
+    public ColumnarDataReader(String directoryPath) {
+        this(directoryPath, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a reader loading the readings of a time range.
+     *
+     * @param directoryPath the directory of the segments
+     * @param startTime     the start of the range in milliseconds since the Unix epoch, inclusive
+     * @param endTime       the end of the range in milliseconds since the Unix epoch, inclusive
+     */
+    public ColumnarDataReader(String directoryPath, long startTime, long endTime) {
+        this.directoryPath = directoryPath;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public void readData(DataStorage storage) throws IOException {
+        Path dir = Paths.get(directoryPath);
+        if (!Files.isDirectory(dir)) throw new IOException("Invalid directory: " + directoryPath);
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(ColumnarFormat.EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            long[] timestamps = new long[0];
+            double[] values = new double[0];
+            for (Path file : files) {
+                try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+                    List<BlockInfo> index;
+                    try {
+                        index = ColumnarFormat.readIndex(in);
+                    } catch (IOException e) {
+                        System.err.println("Skipping segment " + file.getFileName() + ": " + e.getMessage());
+                        continue;
+                    }
+                    for (BlockInfo block : index) {
+                        if (!block.overlaps(startTime, endTime)) {
+                            blocksSkipped++;
+                            continue;
+                        }
+                        if (timestamps.length < block.getRows()) {
+                            timestamps = new long[block.getRows()];
+                            values = new double[block.getRows()];
+                        }
+                        byte[] bytes = new byte[block.getLength()];
+                        in.seek(block.getOffset());
+                        in.readFully(bytes);
+                        int rows = ColumnarFormat.decodeBlock(bytes, timestamps, values, inflater);
+                        blocksRead++;
+                        for (int i = 0; i < rows; i++) {
+                            if (timestamps[i] >= startTime && timestamps[i] <= endTime) {
+                                storage.addPatientData(block.getPatientId(), values[i], block.getLabel(), timestamps[i]);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns the number of blocks decompressed so far.
+     *
+     * @return the block count
+     */
+    public long getBlocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * Returns the number of blocks skipped so far because they lie outside the
+     * time range.
+     *
+     * @return the block count
+     */
+    public long getBlocksSkipped() {
+        return blocksSkipped;
+    }
+}
@@ -0,0 +1,292 @@
+package com.data_management;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The binary columnar segment format written by {@code ColumnarOutputStrategy} and read by
+ * {@link ColumnarDataReader}.
+ * <p>
+ * A segment file is laid out as
+ * </p>
+ * <pre>
+ * header   magic (int), version (int)
+ * blocks   one deflate-compressed block after another
+ * footer   entry count (int), then per block: patient ID (int), label (UTF),
+ *          first and last timestamp (long, long), row count (int), offset (long), length (int)
+ * trailer  footer offset (long), magic (int)
+ * </pre>
+ * <p>
+ * A block holds consecutive readings of one patient and one label, stored as two columns
+ * before compression: the timestamps, as the first one followed by zig-zag varint deltas,
+ * and the values as raw doubles. The footer index lets a reader pick the blocks of a patient,
+ * label or time range without touching the others. A segment is only readable once its
+ * footer has been written, i.e. after the writer rolled or closed it.
+ * </p>
+ */
+public final class ColumnarFormat {
+
+    /**
+     * Magic number at the start and end of every segment ("CDCL").
+     */
+    public static final int MAGIC = 0x4344434C;
+
+    /**
+     * Format version written in the header.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * File name extension of segments.
+     */
+    public static final String EXTENSION = ".col";
+
+    static final int HEADER_BYTES = 8;
+    static final int TRAILER_BYTES = 12;
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * The index entry of one block.
+     */
+    public static final class BlockInfo {
+        private final int patientId;
+        private final String label;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private final int rows;
+        private final long offset;
+        private final int length;
+
+        public BlockInfo(int patientId, String label, long firstTimestamp, long lastTimestamp,
+                         int rows, long offset, int length) {
+            this.patientId = patientId;
+            this.label = label;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.rows = rows;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int getPatientId() {
+            return patientId;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns whether any reading of the block may fall in the time range.
+         *
+         * @param startTime the start of the range, inclusive
+         * @param endTime   the end of the range, inclusive
+         * @return whether the block overlaps the range
+         */
+        public boolean overlaps(long startTime, long endTime) {
+            return firstTimestamp <= endTime && lastTimestamp >= startTime;
+        }
+    }
+
+    /**
+     * Encodes and compresses one block. Timestamps should be ascending for the deltas to stay
+     * small, but any order is stored correctly.
+     *
+     * @param timestamps the timestamp column
+     * @param values     the value column
+     * @param rows       the number of rows to encode
+     * @param deflater   a deflater to reuse; it is reset here
+     * @return the compressed block
+     */
+    public static byte[] encodeBlock(long[] timestamps, double[] values, int rows, Deflater deflater) {
+        ByteBuffer raw = ByteBuffer.allocate(4 + 8 + rows * 10 + rows * 8);
+        raw.putInt(rows);
+        raw.putLong(timestamps[0]);
+        for (int i = 1; i < rows; i++) {
+            long delta = timestamps[i] - timestamps[i - 1];
+            putVarLong(raw, (delta << 1) ^ (delta >> 63));
+        }
+        for (int i = 0; i < rows; i++) {
+            raw.putDouble(values[i]);
+        }
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, raw.position());
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.position() / 2 + 64);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Decompresses and decodes one block.
+     *
+     * @param block      the compressed block
+     * @param timestamps receives the timestamps; must hold the block's rows
+     * @param values     receives the values; must hold the block's rows
+     * @param inflater   an inflater to reuse; it is reset here
+     * @return the number of rows
+     * @throws IOException if the block is corrupt
+     */
+    public static int decodeBlock(byte[] block, long[] timestamps, double[] values, Inflater inflater)
+            throws IOException {
+        inflater.reset();
+        inflater.setInput(block);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(block.length * 3);
+        byte[] chunk = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated columnar block");
+                }
+                raw.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt columnar block", e);
+        }
+        ByteBuffer in = ByteBuffer.wrap(raw.toByteArray());
+        int rows = in.getInt();
+        if (rows > timestamps.length || rows > values.length) {
+            throw new IOException("Block of " + rows + " rows does not fit the buffers");
+        }
+        long timestamp = in.getLong();
+        timestamps[0] = timestamp;
+        for (int i = 1; i < rows; i++) {
+            long zigzag = getVarLong(in);
+            timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+            timestamps[i] = timestamp;
+        }
+        for (int i = 0; i < rows; i++) {
+            values[i] = in.getDouble();
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the footer and trailer of a segment.
+     *
+     * @param out          the segment stream, positioned after the last block
+     * @param blocks       the index of all blocks
+     * @param footerOffset the current file offset, where the footer starts
+     * @throws IOException if writing fails
+     */
+    public static void writeFooter(DataOutputStream out, List<BlockInfo> blocks, long footerOffset)
+            throws IOException {
+        out.writeInt(blocks.size());
+        for (BlockInfo block : blocks) {
+            out.writeInt(block.patientId);
+            out.writeUTF(block.label);
+            out.writeLong(block.firstTimestamp);
+            out.writeLong(block.lastTimestamp);
+            out.writeInt(block.rows);
+            out.writeLong(block.offset);
+            out.writeInt(block.length);
+        }
+        out.writeLong(footerOffset);
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * Writes the header of a segment.
+     *
+     * @param out the new segment's stream
+     * @throws IOException if writing fails
+     */
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Reads the block index of a segment from its footer.
+     *
+     * @param file the segment
+     * @return the index entries
+     * @throws IOException if the file is not a complete segment
+     */
+    public static List<BlockInfo> readIndex(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        if (length < HEADER_BYTES + TRAILER_BYTES) {
+            throw new IOException("Not a complete columnar segment");
+        }
+        file.seek(0);
+        if (file.readInt() != MAGIC) {
+            throw new IOException("Not a columnar segment");
+        }
+        int version = file.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar version " + version);
+        }
+        file.seek(length - TRAILER_BYTES);
+        long footerOffset = file.readLong();
+        if (file.readInt() != MAGIC || footerOffset < HEADER_BYTES || footerOffset > length - TRAILER_BYTES) {
+            throw new IOException("Columnar segment has no footer; it may still be open");
+        }
+        byte[] footer = new byte[(int) (length - TRAILER_BYTES - footerOffset)];
+        file.seek(footerOffset);
+        file.readFully(footer);
+        DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(footer));
+        int count = in.readInt();
+        List<BlockInfo> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            blocks.add(new BlockInfo(in.readInt(), in.readUTF(), in.readLong(), in.readLong(),
+                    in.readInt(), in.readLong(), in.readInt()));
+        }
+        return blocks;
+    }
+
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in columnar block");
+    }
+}
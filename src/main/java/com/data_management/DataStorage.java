@@ -2,12 +2,13 @@ package com.data_management;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.alerts.AlertGenerator;
+import com.metrics.PipelineLatency;
 
 /**
  * Manages storage and retrieval of patient data within a healthcare monitoring
@@ -17,17 +18,16 @@ import com.alerts.AlertGenerator;
  */
 public class DataStorage {
 
-    private Map<Integer, Patient> patientMap = new ConcurrentHashMap<>(); // Stores patient objects indexed by their unique patient ID.
+    private final Map<Integer, Patient> patientMap = new ConcurrentHashMap<>(); // Stores patient objects indexed by their unique patient ID.
+    private final List<PatientDataListener> listeners = new CopyOnWriteArrayList<>(); // Notified of every stored measurement.
 
     /**
      * Constructs a new instance of DataStorage, initializing the underlying storage
      * structure.
      */
     public DataStorage() {
-        this.patientMap = new HashMap<>();
     }
     public DataStorage(DataReader reader) {
-        this.patientMap = new HashMap<>();
         try {
             reader.readData(this); // This allows the reader to load data into this storage
         } catch (IOException e) {
@@ -40,6 +40,7 @@ public class DataStorage {
      * If the patient does not exist, a new Patient object is created and added to
      * the storage.
      * Otherwise, the new data is added to the existing patient's records.
+     * Registered {@link PatientDataListener}s are notified once the record is stored.
      *
      * @param patientId        the unique identifier of the patient
      * @param measurementValue the value of the health metric being recorded
@@ -49,14 +50,51 @@ public class DataStorage {
      *                         milliseconds since the Unix epoch
      */
     public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
-        patientMap.computeIfAbsent(patientId, id -> new Patient(patientId));
-        Patient patient = patientMap.get(patientId);
-
-        synchronized (patient) {
-            patient.addRecord(measurementValue, recordType, timestamp);
+        if (!PipelineLatency.isEnabled()) {
+            store(patientId, measurementValue, recordType, timestamp);
+            for (PatientDataListener listener : listeners) {
+                listener.onPatientData(patientId, measurementValue, recordType, timestamp);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        store(patientId, measurementValue, recordType, timestamp);
+        long stored = System.nanoTime();
+        PipelineLatency.record(PipelineLatency.Stage.STORE, (stored - start) / 1000);
+        PipelineLatency.stored(patientId, stored);
+        long previous = PipelineLatency.handling(stored);
+        try {
+            for (PatientDataListener listener : listeners) {
+                listener.onPatientData(patientId, measurementValue, recordType, timestamp);
+            }
+        } finally {
+            PipelineLatency.handling(previous);
         }
     }
 
+    private void store(int patientId, double measurementValue, String recordType, long timestamp) {
+        Patient patient = patientMap.computeIfAbsent(patientId, Patient::new);
+        patient.addRecord(measurementValue, recordType, timestamp);
+    }
+
+    /**
+     * Registers a listener that is notified of every measurement added to this storage.
+     *
+     * @param listener the listener to add
+     */
+    public void addDataListener(PatientDataListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeDataListener(PatientDataListener listener) {
+        listeners.remove(listener);
+    }
+
 
     /**
      * Retrieves a list of PatientRecord objects for a specific patient, filtered by
@@ -92,6 +130,21 @@ public class DataStorage {
         return patientMap.get(patientId);
     }
 
+    /**
+     * Returns the newest timestamp stored for any patient: the data-time watermark that
+     * time-based alert processing advances to, so that replayed or simulated feeds are
+     * handled the same way as live ones. It stops advancing while no data arrives.
+     *
+     * @return the latest record timestamp, {@link Long#MIN_VALUE} if nothing is stored
+     */
+    public long getLatestTimestamp() {
+        long latest = Long.MIN_VALUE;
+        for (Patient patient : patientMap.values()) {
+            latest = Math.max(latest, patient.getLatestTimestamp());
+        }
+        return latest;
+    }
+
 
     /**
      * The main method for the DataStorage class.
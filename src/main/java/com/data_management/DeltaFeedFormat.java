@@ -0,0 +1,404 @@
+package com.data_management;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The binary frame format of the delta-encoded WebSocket feed, written by
+ * {@code WebSocketOutputStrategy} for clients that subscribe with
+ * {@code {"encoding": "delta"}} and read by {@link WebSocketDataReader}.
+ * <p>
+ * A frame is laid out as
+ * </p>
+ * <pre>
+ * flags    (byte) KEYFRAME, DEFLATED, SENT_TIME
+ * sent     if SENT_TIME is set: the sender's wall-clock time in epoch milliseconds (varint)
+ * payload  deflate-compressed if DEFLATED is set:
+ *          label count (varint), then per label: UTF-8 length (varint) and bytes
+ *          run count (varint), then per run:
+ *            patient ID minus the previous run's (zig-zag varint), label index (varint),
+ *            reading count (varint), then per reading the timestamp and value deltas
+ *            (zig-zag varints) to the previous reading of the same patient and label
+ * </pre>
+ * <p>
+ * Values are sent in units of 1/{@value #VALUE_SCALE}, i.e. rounded to four decimals, which
+ * is far below the noise of every simulated signal and makes the deltas of slowly changing
+ * signals a byte or two. The first reading of a patient and label after a keyframe is sent
+ * relative to zero, so a keyframe resets the state of both ends and a client can start
+ * decoding at any keyframe; until then it must skip frames. Frames are compressed
+ * independently of each other. The send time, unlike the reading timestamps, says when the
+ * frame left the sender, so a receiver can measure transport latency from it.
+ * </p>
+ */
+public final class DeltaFeedFormat {
+
+    /**
+     * Flag of a frame after which every patient and label starts from zero.
+     */
+    public static final int KEYFRAME = 1;
+
+    /**
+     * Flag of a frame whose payload is deflate-compressed.
+     */
+    public static final int DEFLATED = 2;
+
+    /**
+     * Flag of a frame that carries the time it was sent.
+     */
+    public static final int SENT_TIME = 4;
+
+    /**
+     * Number of value units per unit of the signal.
+     */
+    public static final long VALUE_SCALE = 10_000;
+
+    // Payloads below this are sent as they are; deflate would barely shrink them
+    private static final int MIN_DEFLATE_BYTES = 128;
+
+    private DeltaFeedFormat() {
+    }
+
+    /**
+     * Receives the readings of a decoded frame.
+     */
+    public interface ReadingHandler {
+        void accept(int patientId, String label, long timestamp, double value);
+    }
+
+    /**
+     * Builds frames, keeping the last reading of every patient and label the clients have
+     * been sent. An encoder serves one set of clients that receive the same frames; it is not
+     * thread-safe.
+     */
+    public static final class Encoder {
+        private final Map<String, Integer> labelIds = new HashMap<>();
+        private final Map<Long, long[]> last = new HashMap<>(); // {timestamp, value} per stream
+        private final List<String> frameLabels = new ArrayList<>();
+        private final Map<String, Integer> frameLabelIndex = new HashMap<>();
+        private final Bytes readings = new Bytes(4096);
+        private final Bytes frame = new Bytes(4096);
+        private final Bytes header = new Bytes(16);
+        private int[] runPatients = new int[64];
+        private int[] runLabels = new int[64];
+        private int[] runCounts = new int[64];
+        private int[] runEnds = new int[64];
+        private int runs;
+        private int readingCount;
+        private boolean keyframe;
+
+        /**
+         * Starts a frame, discarding anything added since the last {@link #finishFrame}.
+         *
+         * @param keyframe whether the frame is a keyframe, after which every patient and
+         *                 label starts from zero
+         */
+        public void beginFrame(boolean keyframe) {
+            this.keyframe = keyframe;
+            if (keyframe) {
+                last.clear();
+            }
+            frameLabels.clear();
+            frameLabelIndex.clear();
+            readings.length = 0;
+            runs = 0;
+            readingCount = 0;
+        }
+
+        /**
+         * Adds a reading to the frame. Consecutive readings of the same patient and label
+         * share one run header.
+         *
+         * @param patientId the patient
+         * @param label     the label
+         * @param timestamp the timestamp in epoch milliseconds
+         * @param value     the value
+         */
+        public void add(int patientId, String label, long timestamp, double value) {
+            Integer labelIndex = frameLabelIndex.get(label);
+            if (labelIndex == null) {
+                labelIndex = frameLabels.size();
+                frameLabels.add(label);
+                frameLabelIndex.put(label, labelIndex);
+            }
+            if (runs == 0 || runPatients[runs - 1] != patientId || runLabels[runs - 1] != labelIndex) {
+                if (runs == runPatients.length) {
+                    int capacity = runs * 2;
+                    runPatients = Arrays.copyOf(runPatients, capacity);
+                    runLabels = Arrays.copyOf(runLabels, capacity);
+                    runCounts = Arrays.copyOf(runCounts, capacity);
+                    runEnds = Arrays.copyOf(runEnds, capacity);
+                }
+                runPatients[runs] = patientId;
+                runLabels[runs] = labelIndex;
+                runCounts[runs] = 0;
+                runs++;
+            }
+            int labelId = labelIds.computeIfAbsent(label, k -> labelIds.size());
+            long[] state = last.computeIfAbsent(((long) patientId << 32) | labelId, k -> new long[2]);
+            long quantized = Math.round(value * VALUE_SCALE);
+            readings.putZigZag(timestamp - state[0]);
+            readings.putZigZag(quantized - state[1]);
+            state[0] = timestamp;
+            state[1] = quantized;
+            runCounts[runs - 1]++;
+            runEnds[runs - 1] = readings.length;
+            readingCount++;
+        }
+
+        /**
+         * Returns the number of readings added to the current frame.
+         *
+         * @return the reading count
+         */
+        public int size() {
+            return readingCount;
+        }
+
+        /**
+         * Finishes the frame without a send time.
+         *
+         * @param deflater a deflater to reuse; it is reset here
+         * @return the frame, or {@code null} if it is not a keyframe and no reading was added.
+         *         A keyframe is always returned, since the encoder has already reset its state
+         */
+        public byte[] finishFrame(Deflater deflater) {
+            return finishFrame(deflater, -1);
+        }
+
+        /**
+         * Finishes the frame.
+         *
+         * @param deflater   a deflater to reuse; it is reset here
+         * @param sentMillis the wall-clock time the frame is sent at, in epoch milliseconds,
+         *                   or a negative value to send none
+         * @return the frame, or {@code null} if it is not a keyframe and no reading was added.
+         *         A keyframe is always returned, since the encoder has already reset its state
+         */
+        public byte[] finishFrame(Deflater deflater, long sentMillis) {
+            if (readingCount == 0 && !keyframe) {
+                return null;
+            }
+            frame.length = 0;
+            frame.putVarLong(frameLabels.size());
+            for (String label : frameLabels) {
+                byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+                frame.putVarLong(utf8.length);
+                frame.put(utf8, 0, utf8.length);
+            }
+            frame.putVarLong(runs);
+            int previousPatient = 0;
+            int start = 0;
+            for (int r = 0; r < runs; r++) {
+                frame.putZigZag((long) runPatients[r] - previousPatient);
+                frame.putVarLong(runLabels[r]);
+                frame.putVarLong(runCounts[r]);
+                frame.put(readings.bytes, start, runEnds[r] - start);
+                previousPatient = runPatients[r];
+                start = runEnds[r];
+            }
+            header.length = 0;
+            header.putVarLong(keyframe ? KEYFRAME : 0);
+            if (sentMillis >= 0) {
+                header.bytes[0] |= SENT_TIME;
+                header.putVarLong(sentMillis);
+            }
+            if (frame.length >= MIN_DEFLATE_BYTES) {
+                byte[] compressed = deflate(frame.bytes, frame.length, deflater, header.length);
+                if (compressed.length < header.length + frame.length) {
+                    System.arraycopy(header.bytes, 0, compressed, 0, header.length);
+                    compressed[0] |= DEFLATED;
+                    return compressed;
+                }
+            }
+            byte[] result = new byte[header.length + frame.length];
+            System.arraycopy(header.bytes, 0, result, 0, header.length);
+            System.arraycopy(frame.bytes, 0, result, header.length, frame.length);
+            return result;
+        }
+
+        // Compresses into a byte array with the first headerLength bytes left free for the header
+        private static byte[] deflate(byte[] input, int length, Deflater deflater, int headerLength) {
+            deflater.reset();
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            compressed.write(new byte[headerLength], 0, headerLength);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                compressed.write(chunk, 0, n);
+            }
+            return compressed.toByteArray();
+        }
+    }
+
+    /**
+     * Decodes the frames of one connection, in the order they were received. It is not
+     * thread-safe.
+     */
+    public static final class Decoder {
+        private final Map<String, Map<Integer, long[]>> last = new HashMap<>();
+        private boolean synced;
+        private long sentMillis = -1;
+
+        /**
+         * Returns whether a keyframe has been decoded, i.e. whether delta frames can be.
+         *
+         * @return whether the decoder is in sync with the feed
+         */
+        public boolean isSynced() {
+            return synced;
+        }
+
+        /**
+         * Returns the send time carried by the last frame passed to {@link #decode}.
+         *
+         * @return the send time in epoch milliseconds, or {@code -1} if the frame carried none
+         */
+        public long getSentMillis() {
+            return sentMillis;
+        }
+
+        /**
+         * Decodes a frame. Delta frames received before the first keyframe are skipped.
+         *
+         * @param frame    the frame
+         * @param inflater an inflater to reuse; it is reset here
+         * @param handler  receives the readings
+         * @return the number of readings decoded
+         * @throws IOException if the frame is corrupt
+         */
+        public int decode(ByteBuffer frame, Inflater inflater, ReadingHandler handler) throws IOException {
+            if (!frame.hasRemaining()) {
+                throw new IOException("Empty delta frame");
+            }
+            int flags = frame.get();
+            try {
+                sentMillis = (flags & SENT_TIME) != 0 ? getVarLong(frame) : -1;
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated delta frame", e);
+            }
+            if ((flags & KEYFRAME) != 0) {
+                last.clear();
+                synced = true;
+            } else if (!synced) {
+                return 0;
+            }
+            ByteBuffer in = (flags & DEFLATED) != 0 ? inflate(frame, inflater) : frame;
+            try {
+                int labelCount = (int) getVarLong(in);
+                String[] labels = new String[labelCount];
+                for (int i = 0; i < labelCount; i++) {
+                    byte[] utf8 = new byte[(int) getVarLong(in)];
+                    in.get(utf8);
+                    labels[i] = new String(utf8, StandardCharsets.UTF_8);
+                }
+                long runs = getVarLong(in);
+                int patientId = 0;
+                int decoded = 0;
+                for (long r = 0; r < runs; r++) {
+                    patientId += (int) getZigZag(in);
+                    int labelIndex = (int) getVarLong(in);
+                    if (labelIndex >= labelCount) {
+                        throw new IOException("Delta frame refers to unknown label " + labelIndex);
+                    }
+                    String label = labels[labelIndex];
+                    long[] state = last.computeIfAbsent(label, k -> new HashMap<>())
+                            .computeIfAbsent(patientId, k -> new long[2]);
+                    long count = getVarLong(in);
+                    for (long i = 0; i < count; i++) {
+                        state[0] += getZigZag(in);
+                        state[1] += getZigZag(in);
+                        handler.accept(patientId, label, state[0], state[1] / (double) VALUE_SCALE);
+                        decoded++;
+                    }
+                }
+                return decoded;
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated delta frame", e);
+            }
+        }
+
+        private static ByteBuffer inflate(ByteBuffer frame, Inflater inflater) throws IOException {
+            inflater.reset();
+            inflater.setInput(frame);
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(frame.remaining() * 4);
+            byte[] chunk = new byte[4096];
+            try {
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(chunk);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated delta frame");
+                    }
+                    raw.write(chunk, 0, n);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt delta frame", e);
+            }
+            return ByteBuffer.wrap(raw.toByteArray());
+        }
+    }
+
+    private static long getVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in delta frame");
+    }
+
+    private static long getZigZag(ByteBuffer in) throws IOException {
+        long zigzag = getVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    // A growable byte array
+    private static final class Bytes {
+        byte[] bytes;
+        int length;
+
+        Bytes(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void put(byte[] source, int offset, int count) {
+            ensure(count);
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+
+        void putZigZag(long value) {
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+            }
+        }
+    }
+}
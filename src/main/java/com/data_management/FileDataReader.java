@@ -1,12 +1,22 @@
 package com.data_management;
 
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 /**
- * Reads patient data from files in a specified directory and loads it into DataStorage.
+ * Reads patient data from files in a specified directory and its subdirectories and loads
+ * it into DataStorage. Plain {@code .txt}/{@code .csv} files and gzip-compressed
+ * {@code .csv.gz} files are read.
  */
 public class FileDataReader implements DataReader {
     private String directoryPath;
@@ -17,26 +27,43 @@ public class FileDataReader implements DataReader {
 
     @Override
     public void readData(DataStorage storage) throws IOException {
-        File dir = new File(directoryPath);
-        if (!dir.isDirectory()) throw new IOException("Invalid directory: " + directoryPath);
+        Path dir = Paths.get(directoryPath);
+        if (!Files.isDirectory(dir)) throw new IOException("Invalid directory: " + directoryPath);
 
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".txt") || name.endsWith(".csv"));
-        if (files == null) return;
+        // Subdirectories are included, e.g. the day partitions of a generated dataset
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.endsWith(".txt") || name.endsWith(".csv") || name.endsWith(".csv.gz");
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
 
-        for (File file : files) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        for (Path file : files) {
+            try (BufferedReader reader = open(file)) {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     try {
                         parseAndAdd(line, storage);
                     } catch (Exception e) {
-                        System.err.println("Skipping invalid line in file " + file.getName() + ": " + line);
+                        System.err.println("Skipping invalid line in file " + file.getFileName() + ": " + line);
                     }
                 }
             }
         }
     }
 
+    private static BufferedReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
     private void parseAndAdd(String line, DataStorage storage) {
         // Example format: patientId,measurementValue,recordType,timestamp
         String[] parts = line.split(",");
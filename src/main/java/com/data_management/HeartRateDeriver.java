@@ -0,0 +1,106 @@
+package com.data_management;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Derives heart rate and RR-interval series from streaming ECG samples.
+ * <p>
+ * Registered as a {@link PatientDataListener} on a {@link DataStorage}, it feeds every
+ * {@code ECG} sample into a per-patient {@link QrsDetector} and, for every detected beat,
+ * stores an {@code RRInterval} record (milliseconds) and a {@code HeartRate} record (beats
+ * per minute) for the patient, timestamped at the R wave. Derived records go through
+ * {@link DataStorage#addPatientData}, so rules and other listeners see them like any other
+ * signal. A gap of more than {@value #MAX_GAP_MILLIS} ms in a patient's ECG restarts that
+ * patient's detector, since its filter state no longer describes the signal.
+ * </p>
+ */
+public class HeartRateDeriver implements PatientDataListener {
+
+    /**
+     * Record type of the ECG samples consumed.
+     */
+    public static final String ECG = "ECG";
+
+    /**
+     * Record type of the derived heart rate, in beats per minute.
+     */
+    public static final String HEART_RATE = "HeartRate";
+
+    /**
+     * Record type of the derived RR intervals, in milliseconds.
+     */
+    public static final String RR_INTERVAL = "RRInterval";
+
+    static final long MAX_GAP_MILLIS = 2000;
+
+    private final DataStorage dataStorage;
+    private final int sampleRate;
+    private final Map<Integer, PatientDetector> detectors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a deriver and registers it with the storage.
+     *
+     * @param dataStorage the storage to read ECG samples from and write derived series to
+     * @param sampleRate  the nominal ECG sample rate in Hz
+     * @throws IllegalArgumentException if the detector does not support the sample rate
+     */
+    public HeartRateDeriver(DataStorage dataStorage, int sampleRate) {
+        this.dataStorage = dataStorage;
+        this.sampleRate = sampleRate;
+        new QrsDetector(sampleRate); // validates the rate up front
+        dataStorage.addDataListener(this);
+    }
+
+    @Override
+    public void onPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        if (!ECG.equalsIgnoreCase(recordType)) {
+            return;
+        }
+        PatientDetector state = detectors.computeIfAbsent(patientId, id -> new PatientDetector());
+        long rr;
+        long beatTimestamp;
+        synchronized (state) {
+            if (state.detector == null || timestamp - state.lastTimestamp > MAX_GAP_MILLIS) {
+                state.detector = new QrsDetector(sampleRate);
+            }
+            state.lastTimestamp = timestamp;
+            if (!state.detector.process(measurementValue, timestamp)) {
+                return;
+            }
+            rr = state.detector.getLastRrMillis();
+            beatTimestamp = state.detector.getLastBeatTimestamp();
+        }
+        // Written outside the detector lock; these records re-enter the listeners
+        dataStorage.addPatientData(patientId, rr, RR_INTERVAL, beatTimestamp);
+        dataStorage.addPatientData(patientId, 60_000.0 / rr, HEART_RATE, beatTimestamp);
+    }
+
+    /**
+     * Unregisters from the storage.
+     */
+    public void shutdown() {
+        dataStorage.removeDataListener(this);
+    }
+
+    /**
+     * Returns the number of ECG samples processed for a patient since their detector last started.
+     *
+     * @param patientId the patient
+     * @return the sample count, {@code 0} if no ECG was seen
+     */
+    public long getSampleCount(int patientId) {
+        PatientDetector state = detectors.get(patientId);
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.detector == null ? 0 : state.detector.getSampleCount();
+        }
+    }
+
+    private static final class PatientDetector {
+        QrsDetector detector;
+        long lastTimestamp;
+    }
+}
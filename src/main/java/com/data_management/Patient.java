@@ -12,6 +12,7 @@ import java.util.List;
 public class Patient {
     private int patientId;
     private List<PatientRecord> patientRecords;
+    private long latestTimestamp = Long.MIN_VALUE;
 
     /**
      * Constructs a new Patient with a specified ID.
@@ -36,7 +37,7 @@ public class Patient {
     /**
      * Adds a new record to this patient's list of medical records.
      * The record is created with the specified measurement value, record type, and
-     * timestamp.
+     * timestamp. Safe to call while other threads read this patient's records.
      *
      * @param measurementValue the measurement value to store in the record
      * @param recordType       the type of record, e.g., "HeartRate",
@@ -44,9 +45,19 @@ public class Patient {
      * @param timestamp        the time at which the measurement was taken, in
      *                         milliseconds since UNIX epoch
      */
-    public void addRecord(double measurementValue, String recordType, long timestamp) {
+    public synchronized void addRecord(double measurementValue, String recordType, long timestamp) {
         PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp);
         this.patientRecords.add(record);
+        latestTimestamp = Math.max(latestTimestamp, timestamp);
+    }
+
+    /**
+     * Returns the newest timestamp among this patient's records.
+     *
+     * @return the latest record timestamp, {@link Long#MIN_VALUE} if there are no records
+     */
+    public synchronized long getLatestTimestamp() {
+        return latestTimestamp;
     }
 
     /**
@@ -60,7 +71,7 @@ public class Patient {
      * @return a list of PatientRecord objects that fall within the specified time
      *         range
      */
-    public List<PatientRecord> getRecords(long startTime, long endTime) {
+    public synchronized List<PatientRecord> getRecords(long startTime, long endTime) {
         List<PatientRecord> filteredRecords = new ArrayList<>();
         for (PatientRecord record : this.patientRecords) {
             if (record.getTimestamp() >= startTime && record.getTimestamp() <= endTime) {
@@ -70,6 +81,21 @@ public class Patient {
         return filteredRecords;
     }
 
+    /**
+     * Returns the records added after the first {@code fromIndex} records, in the order they
+     * were added. A caller that remembers how many records it has seen can fetch just the new
+     * ones, at a cost independent of the length of the history.
+     *
+     * @param fromIndex the number of records already seen
+     * @return the records added since, possibly empty
+     */
+    public synchronized List<PatientRecord> getRecordsAddedSince(int fromIndex) {
+        if (fromIndex >= this.patientRecords.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(this.patientRecords.subList(Math.max(0, fromIndex), this.patientRecords.size()));
+    }
+
 }
 
 
@@ -0,0 +1,22 @@
+package com.data_management;
+
+/**
+ * Receives a notification for every measurement stored in a {@link DataStorage}.
+ * <p>
+ * Listeners are called on the thread that added the data, after the record has been stored,
+ * so implementations should hand off any expensive work instead of doing it inline.
+ * </p>
+ */
+public interface PatientDataListener {
+
+    /**
+     * Called after a measurement has been added to the storage.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric that was recorded
+     * @param recordType       the type of record, e.g., "ECG"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    void onPatientData(int patientId, double measurementValue, String recordType, long timestamp);
+}
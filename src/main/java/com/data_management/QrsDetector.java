@@ -0,0 +1,260 @@
+package com.data_management;
+
+/**
+ * Incremental QRS (R-peak) detector for one patient's ECG, after Pan and Tompkins (1985).
+ * <p>
+ * Each sample passes through the classic filter chain (band-pass as a low-pass and a
+ * high-pass stage, five-point derivative, squaring and a 150 ms moving-window integrator)
+ * implemented as short sums and recurrences over small primitive ring buffers, so
+ * processing a sample is a few dozen arithmetic operations with no allocation. Peaks of the
+ * integrated signal are classified as QRS or noise against adaptive signal and noise levels;
+ * a beat that is missed for longer than 166 % of the recent RR average is recovered by a
+ * search-back at half the threshold. The first two seconds are used to learn the initial
+ * levels.
+ * </p>
+ * <p>
+ * The filters were designed for 200 Hz and have fixed tap counts, so they only keep the QRS
+ * band between {@link #MIN_SAMPLE_RATE} and {@link #MAX_SAMPLE_RATE} Hz, and other rates are
+ * rejected; window lengths are scaled to the configured sample rate. Beat times and RR intervals are taken
+ * from the sample timestamps, not from the nominal rate.
+ * </p>
+ */
+public class QrsDetector {
+
+    /**
+     * Lowest supported sample rate in Hz; below it the low-pass cuts into the QRS band.
+     */
+    public static final int MIN_SAMPLE_RATE = 200;
+
+    /**
+     * Highest supported sample rate in Hz; above it the pass band moves above the QRS band.
+     */
+    public static final int MAX_SAMPLE_RATE = 500;
+
+    private static final int SIZE = 64; // ring size, a power of two above the longest filter history
+    private static final int MASK = SIZE - 1;
+    private static final int RR_HISTORY = 8;
+
+    private final int integrationWindow;
+    private final int refractorySamples;
+    private final int learningSamples;
+    private static final int FILTER_DELAY = 5 + 16; // band-pass group delay in samples
+
+    private final double[] raw = new double[SIZE];
+    private final double[] boxcar = new double[SIZE];
+    private final double[] lowPass = new double[SIZE];
+    private final double[] highPass;
+    private final double[] squared;
+    private final long[] timestamps;
+    private double highPassSum;
+    private double integralSum;
+    private double previousIntegral;
+    private double beforePreviousIntegral;
+    private long n;
+
+    private double signalLevel;
+    private double noiseLevel;
+    private double learningMax;
+    private double learningSum;
+
+    private long lastQrs = -1;
+    private long lastQrsTimestamp;
+    private double searchBackPeak;
+    private long searchBackIndex = -1;
+    private long searchBackTimestamp;
+    private final long[] rrHistory = new long[RR_HISTORY];
+    private int rrCount;
+
+    private long lastRrMillis = -1;
+    private long lastBeatTimestamp = -1;
+
+    /**
+     * Creates a detector for an ECG sampled at the given rate.
+     *
+     * @param sampleRate the nominal sample rate in Hz, between {@link #MIN_SAMPLE_RATE} and
+     *                   {@link #MAX_SAMPLE_RATE}
+     * @throws IllegalArgumentException if the rate is out of range
+     */
+    public QrsDetector(int sampleRate) {
+        if (sampleRate < MIN_SAMPLE_RATE || sampleRate > MAX_SAMPLE_RATE) {
+            throw new IllegalArgumentException("Unsupported ECG sample rate: " + sampleRate
+                    + " Hz, must be between " + MIN_SAMPLE_RATE + " and " + MAX_SAMPLE_RATE);
+        }
+        integrationWindow = Math.max(1, Math.round(0.150f * sampleRate));
+        refractorySamples = Math.round(0.200f * sampleRate);
+        learningSamples = 2 * sampleRate;
+        // Holds the integration window plus the band-passed samples searched for the R wave
+        int history = Integer.highestOneBit(2 * integrationWindow + FILTER_DELAY + 2) * 2;
+        highPass = new double[history];
+        squared = new double[history];
+        timestamps = new long[history];
+    }
+
+    /**
+     * Processes the next ECG sample.
+     *
+     * @param value     the sample value
+     * @param timestamp the sample timestamp in milliseconds
+     * @return {@code true} if a beat was detected; {@link #getLastRrMillis()} and
+     *         {@link #getLastBeatTimestamp()} then describe it
+     */
+    public boolean process(double value, long timestamp) {
+        int i = (int) (n & MASK);
+        raw[i] = value;
+        timestamps[(int) (n % timestamps.length)] = timestamp;
+
+        // Low-pass (1 - z^-6)^2 / (1 - z^-1)^2, computed as two 6-sample sums rather than the
+        // original recurrence, whose double poles on the unit circle let rounding errors grow
+        boxcar[i] = sum(raw, n, 6);
+        double lp = sum(boxcar, n, 6);
+        lowPass[i] = lp;
+        // High-pass: all-pass delay of 16 minus a 32-sample moving average
+        highPassSum += lp - at(lowPass, n - 32);
+        double hp = at(lowPass, n - 16) - highPassSum / 32;
+        highPass[(int) (n % highPass.length)] = hp;
+        // Five-point derivative, squared
+        double d = (2 * hp + band(n - 1) - band(n - 3) - 2 * band(n - 4)) / 8;
+        double sq = d * d;
+        integralSum += sq - (n >= integrationWindow ? squared[(int) ((n - integrationWindow) % squared.length)] : 0);
+        squared[(int) (n % squared.length)] = sq;
+        if (i == MASK) {
+            // Re-add the running sums from their buffers now and then so rounding cannot accumulate
+            highPassSum = sum(lowPass, n, 32);
+            integralSum = 0;
+            for (long k = Math.max(0, n - integrationWindow + 1); k <= n; k++) {
+                integralSum += squared[(int) (k % squared.length)];
+            }
+        }
+        double integral = integralSum / integrationWindow;
+
+        boolean beat = false;
+        if (n < learningSamples) {
+            learningMax = Math.max(learningMax, integral);
+            learningSum += integral;
+            if (n == learningSamples - 1) {
+                signalLevel = learningMax / 3;
+                noiseLevel = learningSum / learningSamples / 2;
+            }
+        } else {
+            // The previous sample was a local maximum of the integrated signal
+            if (previousIntegral > beforePreviousIntegral && previousIntegral >= integral) {
+                beat = classifyPeak(previousIntegral, n - 1);
+            }
+            if (!beat) {
+                beat = searchBack();
+            }
+        }
+        beforePreviousIntegral = previousIntegral;
+        previousIntegral = integral;
+        n++;
+        return beat;
+    }
+
+    private boolean classifyPeak(double peak, long index) {
+        if (lastQrs >= 0 && index - lastQrs < refractorySamples) {
+            return false;
+        }
+        double threshold = noiseLevel + 0.25 * (signalLevel - noiseLevel);
+        if (peak > threshold) {
+            signalLevel = 0.125 * peak + 0.875 * signalLevel;
+            return acceptBeat(index, timestampOf(index));
+        }
+        noiseLevel = 0.125 * peak + 0.875 * noiseLevel;
+        if (peak > threshold / 2 && peak > searchBackPeak) {
+            searchBackPeak = peak;
+            searchBackIndex = index;
+            searchBackTimestamp = timestampOf(index);
+        }
+        return false;
+    }
+
+    private boolean searchBack() {
+        if (lastQrs < 0 || rrCount == 0 || searchBackIndex < 0) {
+            return false;
+        }
+        long rrAverage = 0;
+        int count = Math.min(rrCount, RR_HISTORY);
+        for (int k = 0; k < count; k++) {
+            rrAverage += rrHistory[k];
+        }
+        rrAverage /= count;
+        if (n - lastQrs <= rrAverage * 166 / 100) {
+            return false;
+        }
+        signalLevel = 0.25 * searchBackPeak + 0.75 * signalLevel;
+        return acceptBeat(searchBackIndex, searchBackTimestamp);
+    }
+
+    // Time of the R wave behind an integrator peak: the largest band-passed deflection in the
+    // integration window before it, shifted back by the filter delay. Only valid for recent peaks.
+    private long timestampOf(long index) {
+        long peak = index;
+        double max = -1;
+        for (long k = Math.max(0, index - integrationWindow); k <= index; k++) {
+            double v = Math.abs(band(k));
+            if (v > max) {
+                max = v;
+                peak = k;
+            }
+        }
+        return timestamps[(int) (Math.max(0, peak - FILTER_DELAY) % timestamps.length)];
+    }
+
+    private double band(long index) {
+        return index < 0 ? 0 : highPass[(int) (index % highPass.length)];
+    }
+
+    private boolean acceptBeat(long index, long timestamp) {
+        boolean beat = false;
+        if (lastQrs >= 0) {
+            rrHistory[rrCount++ % RR_HISTORY] = index - lastQrs;
+            lastRrMillis = timestamp - lastQrsTimestamp;
+            lastBeatTimestamp = timestamp;
+            beat = lastRrMillis > 0;
+        }
+        lastQrs = index;
+        lastQrsTimestamp = timestamp;
+        searchBackPeak = 0;
+        searchBackIndex = -1;
+        return beat;
+    }
+
+    private static double sum(double[] ring, long end, int length) {
+        double total = 0;
+        for (long k = end - length + 1; k <= end; k++) {
+            total += at(ring, k);
+        }
+        return total;
+    }
+
+    private static double at(double[] ring, long index) {
+        return index < 0 ? 0 : ring[(int) (index & MASK)];
+    }
+
+    /**
+     * Returns the interval between the last two detected beats.
+     *
+     * @return the RR interval in milliseconds, or {@code -1} before the second beat
+     */
+    public long getLastRrMillis() {
+        return lastRrMillis;
+    }
+
+    /**
+     * Returns the estimated time of the last detected R wave, corrected for the filter delay.
+     *
+     * @return the beat timestamp, or {@code -1} before the second beat
+     */
+    public long getLastBeatTimestamp() {
+        return lastBeatTimestamp;
+    }
+
+    /**
+     * Returns the number of samples processed since creation.
+     *
+     * @return the sample count
+     */
+    public long getSampleCount() {
+        return n;
+    }
+}
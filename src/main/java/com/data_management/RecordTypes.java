@@ -0,0 +1,40 @@
+package com.data_management;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Normalises record type labels for matching.
+ * <p>
+ * Rules and baselines match record types case-insensitively, and treat the labels the
+ * simulator emits as aliases of the labels used in rule definitions and by the original
+ * alert checks: {@code SystolicPressure} is {@code Systolic}, {@code DiastolicPressure} is
+ * {@code Diastolic} and {@code Saturation} is {@code BloodSaturation}. A rule written against
+ * either label therefore sees the readings of both.
+ * </p>
+ */
+public final class RecordTypes {
+
+    private static final Map<String, String> ALIASES = Map.of(
+            "systolicpressure", "systolic",
+            "diastolicpressure", "diastolic",
+            "saturation", "bloodsaturation");
+
+    private RecordTypes() {
+    }
+
+    /**
+     * Returns the key a record type is matched by: its lower-case label, with aliases
+     * replaced by the label they stand for.
+     *
+     * @param recordType the record type, may be {@code null}
+     * @return the matching key, {@code ""} for {@code null}
+     */
+    public static String key(String recordType) {
+        if (recordType == null) {
+            return "";
+        }
+        String key = recordType.toLowerCase(Locale.ROOT);
+        return ALIASES.getOrDefault(key, key);
+    }
+}
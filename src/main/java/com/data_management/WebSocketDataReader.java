@@ -1,36 +1,78 @@
 package com.data_management;
 
+import com.metrics.PipelineLatency;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
 
 /**
  * Connects to a WebSocket server and reads real-time patient data.
+ * <p>
+ * By default the reader receives the text feed. With the delta feed it subscribes with
+ * {@code {"encoding": "delta"}} and decodes binary {@link DeltaFeedFormat} frames, starting at
+ * the first keyframe after connecting.
+ * </p>
  */
 public class WebSocketDataReader implements DataReader {
 
     private final URI serverUri;
+    private final boolean delta;
 
     public WebSocketDataReader(String serverUri) {
+        this(serverUri, false);
+    }
+
+    /**
+     * Creates a reader.
+     *
+     * @param serverUri the server URI, e.g. {@code ws://localhost:8080}
+     * @param delta     whether to receive the delta-encoded feed instead of text
+     */
+    public WebSocketDataReader(String serverUri, boolean delta) {
         this.serverUri = URI.create(serverUri);
+        this.delta = delta;
     }
 
     @Override
     public void readData(DataStorage storage) throws IOException {
+        DeltaFeedFormat.Decoder decoder = new DeltaFeedFormat.Decoder();
+        Inflater inflater = new Inflater();
         WebSocketClient client = new WebSocketClient(serverUri) {
             @Override
             public void onOpen(ServerHandshake handshakedata) {
                 System.out.println("Connected to WebSocket server.");
+                if (delta) {
+                    send("{\"encoding\": \"delta\"}");
+                }
             }
 
             @Override
             public void onMessage(String message) {
+                // A frame carries one reading or a block of them, one per line
+                for (String line : message.split("\n")) {
+                    try {
+                        parseAndAdd(line, storage);
+                    } catch (Exception e) {
+                        System.err.println("Invalid message received: " + line);
+                    }
+                }
+            }
+
+            @Override
+            public void onMessage(ByteBuffer frame) {
                 try {
-                    parseAndAdd(message, storage);
-                } catch (Exception e) {
-                    System.err.println("Invalid message received: " + message);
+                    long receivedMillis = System.currentTimeMillis();
+                    decoder.decode(frame, inflater, (patientId, label, timestamp, value) ->
+                            storage.addPatientData(patientId, value, label, timestamp));
+                    if (decoder.getSentMillis() >= 0) {
+                        PipelineLatency.record(PipelineLatency.Stage.TRANSPORT, (receivedMillis - decoder.getSentMillis()) * 1000);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Invalid delta frame received: " + e.getMessage());
                 }
             }
 
@@ -0,0 +1,222 @@
+package com.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-stage latency of the path from a reading being emitted to an alert being raised.
+ * <p>
+ * The stages are stamped where the reading passes through the pipeline:
+ * </p>
+ * <ul>
+ *   <li>{@link Stage#TRANSPORT}: send to receive of a frame of the WebSocket delta feed, from
+ *       the send time the frame carries to its arrival at the data reader; millisecond
+ *       resolution since the two ends may be different processes. Feeds without a send time
+ *       are not measured;</li>
+ *   <li>{@link Stage#STORE}: storing the reading in {@code DataStorage};</li>
+ *   <li>{@link Stage#QUEUE}: from the oldest not yet evaluated reading of a patient being stored
+ *       to the evaluation of that patient starting;</li>
+ *   <li>{@link Stage#EVALUATION}: evaluating one patient's alert rules;</li>
+ *   <li>{@link Stage#END_TO_END}: receive to alert, from the oldest reading handled by the
+ *       evaluation (or the listener call) that raised an alert being stored to the alert being
+ *       announced.</li>
+ * </ul>
+ * All values are recorded in microseconds. Readings' own timestamps are measurement times,
+ * which may lie well before the reading was sent (a block of ECG samples, a simulated clock),
+ * so no stage is measured from them. The histograms are process-wide so every component can
+ * record without being handed a metrics object.
+ * <p>
+ * Measuring is off until {@link #setEnabled} turns it on, because storing a reading is the
+ * hottest path of the process: while disabled, {@code DataStorage} takes no time stamps and
+ * touches none of the shared histograms, and every recording method returns immediately.
+ * </p>
+ */
+public final class PipelineLatency {
+
+    /**
+     * A stage of the ingest-to-alert path.
+     */
+    public enum Stage {
+        TRANSPORT("transport"),
+        STORE("store"),
+        QUEUE("queue"),
+        EVALUATION("evaluation"),
+        END_TO_END("end_to_end");
+
+        private final String label;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Receive stamp meaning that the current thread is not handling stored readings.
+     */
+    public static final long NOT_HANDLING = Long.MIN_VALUE;
+
+    private static final Map<Integer, Long> pendingSince = new ConcurrentHashMap<>();
+    private static final ThreadLocal<long[]> handledSince = ThreadLocal.withInitial(() -> new long[] {NOT_HANDLING});
+
+    private static volatile boolean enabled;
+
+    private PipelineLatency() {
+    }
+
+    /**
+     * Turns measuring on or off, e.g. on when a metrics endpoint or log is configured.
+     *
+     * @param enabled whether the stages are measured
+     */
+    public static void setEnabled(boolean enabled) {
+        PipelineLatency.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the stages are measured.
+     *
+     * @return {@code true} if measuring is on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a latency in microseconds, if measuring is on.
+     *
+     * @param stage  the stage
+     * @param micros the latency
+     */
+    public static void record(Stage stage, long micros) {
+        if (enabled) {
+            stage.histogram.record(micros);
+        }
+    }
+
+    /**
+     * Notes that a reading of the patient was stored; the first store since the patient's last
+     * evaluation starts its queueing time.
+     *
+     * @param patientId   the patient
+     * @param storedNanos {@link System#nanoTime()} when the reading was stored
+     */
+    public static void stored(int patientId, long storedNanos) {
+        if (enabled) {
+            pendingSince.putIfAbsent(patientId, storedNanos);
+        }
+    }
+
+    /**
+     * Notes that evaluation of the patient starts and records how long its oldest stored
+     * reading waited. Alerts announced on this thread until {@link #handling} is called again
+     * are measured from that reading being stored; if no reading was waiting, they are not
+     * measured.
+     *
+     * @param patientId  the patient
+     * @param startNanos {@link System#nanoTime()} when the evaluation started
+     * @return the previous receive stamp of the thread, to restore with {@link #handling}
+     */
+    public static long evaluating(int patientId, long startNanos) {
+        Long since = enabled ? pendingSince.remove(patientId) : null;
+        if (since != null) {
+            record(Stage.QUEUE, (startNanos - since) / 1000);
+        }
+        return handling(since != null ? since : NOT_HANDLING);
+    }
+
+    /**
+     * Sets the receive stamp of the readings the current thread is handling; alerts announced
+     * on the thread are measured from it.
+     *
+     * @param storedNanos {@link System#nanoTime()} when the readings were stored, or
+     *                    {@link #NOT_HANDLING}
+     * @return the previous stamp, so nested handling can restore it
+     */
+    public static long handling(long storedNanos) {
+        long[] since = handledSince.get();
+        long previous = since[0];
+        since[0] = storedNanos;
+        return previous;
+    }
+
+    /**
+     * Records the end-to-end latency of an alert being announced on the current thread, if the
+     * thread is handling stored readings.
+     */
+    public static void announced() {
+        long since = handledSince.get()[0];
+        if (since != NOT_HANDLING) {
+            record(Stage.END_TO_END, (System.nanoTime() - since) / 1000);
+        }
+    }
+
+    /**
+     * Returns a one-line summary of all stages, e.g. for a periodic log line.
+     *
+     * @return the summary
+     */
+    public static String summary() {
+        StringBuilder line = new StringBuilder("LATENCY");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = stage.histogram;
+            line.append(String.format(Locale.ROOT, " | %s n=%d p50=%s p99=%s p99.9=%s max=%s",
+                    stage.label, h.getCount(),
+                    format(h.getValueAtPercentile(50)), format(h.getValueAtPercentile(99)),
+                    format(h.getValueAtPercentile(99.9)), format(h.getMax())));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Returns all stages in the Prometheus text exposition format, as summaries in seconds.
+     *
+     * @return the metrics text
+     */
+    public static String prometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP ingest_latency_seconds Latency of each stage from reading emit to alert.\n");
+        out.append("# TYPE ingest_latency_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = stage.histogram;
+            for (double q : new double[] {0.5, 0.99, 0.999}) {
+                out.append(String.format(Locale.ROOT, "ingest_latency_seconds{stage=\"%s\",quantile=\"%s\"} %.6f%n",
+                        stage.label, q, h.getValueAtPercentile(q * 100) / 1e6));
+            }
+            out.append(String.format(Locale.ROOT, "ingest_latency_seconds_sum{stage=\"%s\"} %.6f%n",
+                    stage.label, h.getMean() * h.getCount() / 1e6));
+            out.append(String.format(Locale.ROOT, "ingest_latency_seconds_count{stage=\"%s\"} %d%n",
+                    stage.label, h.getCount()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Clears all stages, e.g. between benchmark runs.
+     */
+    public static void reset() {
+        for (Stage stage : Stage.values()) {
+            stage.histogram.reset();
+        }
+        pendingSince.clear();
+    }
+
+    private static String format(long micros) {
+        if (micros < 1000) {
+            return micros + "us";
+        }
+        if (micros < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+        }
+        return String.format(Locale.ROOT, "%.2fs", micros / 1e6);
+    }
+}
@@ -0,0 +1,125 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.dispatch.AlertDispatcher;
+import com.alerts.dispatch.AlertSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AlertDispatcherTest {
+
+    @Test
+    void testAllAlertsDeliveredInOrder() {
+        List<Alert> received = Collections.synchronizedList(new ArrayList<>());
+        AlertDispatcher dispatcher = new AlertDispatcher(List.of(alerts -> received.addAll(alerts)), 1024, 16);
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.accept(new Alert("1", "Condition", i));
+        }
+        dispatcher.shutdown(5000);
+
+        assertEquals(100, received.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, received.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    void testSlowSinkDoesNotBlockProducer() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AlertSink blockedSink = alerts -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AlertDispatcher dispatcher = new AlertDispatcher(List.of(blockedSink), 8, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            dispatcher.accept(new Alert("1", "Condition", i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 1000, "producer was blocked for " + elapsedMillis + " ms");
+        assertTrue(dispatcher.getDroppedCount() > 0);
+        release.countDown();
+        dispatcher.shutdown(5000);
+    }
+
+    @Test
+    void testBlockedSinkDoesNotDelayOtherSinks() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AlertSink blockedSink = alerts -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CountDownLatch delivered = new CountDownLatch(10);
+        AlertSink fastSink = alerts -> alerts.forEach(a -> delivered.countDown());
+        AlertDispatcher dispatcher = new AlertDispatcher(List.of(blockedSink, fastSink), 64, 1);
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.accept(new Alert("1", "Condition", i));
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS), "the blocked sink held up the other sink");
+        release.countDown();
+        dispatcher.shutdown(5000);
+        assertEquals(10, dispatcher.getDispatchedCount());
+    }
+
+    @Test
+    void testStuckSinkIsNotClosedWhileWriting() {
+        CountDownLatch closed = new CountDownLatch(1);
+        AlertSink stuckSink = new AlertSink() {
+            @Override
+            public void write(List<Alert> alerts) {
+                long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait(); // ignores interrupts
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+        AlertDispatcher dispatcher = new AlertDispatcher(List.of(stuckSink), 8, 1);
+        dispatcher.accept(new Alert("1", "Condition", 0));
+
+        dispatcher.shutdown(100);
+
+        assertEquals(1, closed.getCount(), "the sink was closed while its thread was still writing");
+    }
+
+    @Test
+    void testFailedWritesAreNotCountedAsDispatched() {
+        AlertSink flakySink = alerts -> {
+            if (alerts.get(0).getTimestamp() % 2 == 0) {
+                throw new IOException("disk full");
+            }
+        };
+        AlertDispatcher dispatcher = new AlertDispatcher(List.of(flakySink), 1024, 1);
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.accept(new Alert("1", "Condition", i));
+        }
+        dispatcher.shutdown(5000);
+
+        assertEquals(5, dispatcher.getDispatchedCount());
+        assertEquals(5, dispatcher.getFailedCount());
+    }
+}
@@ -0,0 +1,115 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.journal.AlertJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class AlertJournalTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long DAY1 = 1714348800000L; // 2024-04-29T00:00:00Z
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testQueryByPatientConditionAndTimeRange() throws IOException {
+        AlertJournal journal = new AlertJournal(tempDir);
+        journal.write(Arrays.asList(
+                new Alert("1", "Blood Pressure Alert - Critical Systolic: 185.0", DAY1 + 1000),
+                new Alert("2", "Oxygen Saturation Alert - Low Oxygen Saturation", DAY1 + 2000),
+                new Alert("1", "Oxygen Saturation Alert - Low Oxygen Saturation", DAY1 + DAY + 1000),
+                new Alert("1", "Blood Pressure Alert - Critical Systolic: 190.0", DAY1 + DAY + 5000)));
+
+        assertEquals(3, journal.query("1", 0, Long.MAX_VALUE, null).size());
+        assertEquals(2, journal.query("1", 0, Long.MAX_VALUE, "Blood Pressure Alert - Critical Systolic").size());
+        assertEquals(1, journal.query("1", DAY1 + DAY, Long.MAX_VALUE, "Blood Pressure Alert - Critical Systolic").size());
+        assertEquals(2, journal.query(null, 0, Long.MAX_VALUE, "Oxygen Saturation Alert - Low Oxygen Saturation").size());
+        assertEquals(2, journal.query(null, DAY1, DAY1 + DAY - 1, null).size());
+        assertEquals(2, tempDir.toFile().list().length, "one segment per day");
+        journal.close();
+    }
+
+    @Test
+    void testIndexRebuiltOnReopen() throws IOException {
+        AlertJournal journal = new AlertJournal(tempDir);
+        journal.write(Arrays.asList(
+                new Alert("7", "Manual Alert - Triggered", DAY1 + 10),
+                new Alert("7", "Manual Alert - Triggered", DAY1 + 20)));
+        journal.close();
+
+        AlertJournal reopened = new AlertJournal(tempDir);
+        List<Alert> alerts = reopened.query("7", 0, Long.MAX_VALUE, "Manual Alert - Triggered");
+
+        assertEquals(2, reopened.size());
+        assertEquals(2, alerts.size());
+        assertEquals(DAY1 + 10, alerts.get(0).getTimestamp());
+        reopened.write(Arrays.asList(new Alert("7", "Manual Alert - Triggered", DAY1 + 30)));
+        assertEquals(3, reopened.query("7", 0, Long.MAX_VALUE, null).size());
+        reopened.close();
+    }
+
+    @Test
+    void testLargeBatchesAcrossDaysAreIndexedAtTheirOffsets() throws IOException {
+        AlertJournal journal = new AlertJournal(tempDir);
+        List<Alert> batch = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Spans more than one write buffer and moves back and forth between days
+            long day = (i / 1000) % 2 == 0 ? DAY1 : DAY1 + DAY;
+            batch.add(new Alert(String.valueOf(i % 10), "Blood Pressure Alert - Critical Systolic: " + i, day + i));
+        }
+        journal.write(batch);
+        journal.write(List.of(new Alert("3", "Manual Alert - Triggered", DAY1 + DAY + 9000)));
+
+        assertEquals(5001, journal.size());
+        List<Alert> patient3 = journal.query("3", 0, Long.MAX_VALUE, null);
+        assertEquals(501, patient3.size());
+        for (Alert alert : patient3.subList(0, 500)) {
+            assertTrue(alert.getCondition().endsWith(": " + (alert.getTimestamp() % DAY)), alert.getCondition());
+        }
+        journal.close();
+
+        AlertJournal reopened = new AlertJournal(tempDir);
+        assertEquals(5001, reopened.size());
+        assertEquals(3000, reopened.query(null, DAY1, DAY1 + DAY - 1, null).size());
+        reopened.close();
+    }
+
+    @Test
+    void testRecordsAppendedAfterATornRecordSurviveRestarts() throws IOException {
+        AlertJournal journal = new AlertJournal(tempDir);
+        journal.write(Arrays.asList(
+                new Alert("3", "Manual Alert - Triggered", DAY1 + 10),
+                new Alert("3", "Manual Alert - Triggered", DAY1 + 20)));
+        journal.close();
+        // A crash in the middle of a record: its length prefix promises more than was written
+        Path segment = tempDir.resolve("alerts-2024-04-29.journal");
+        Files.write(segment, new byte[] {0, 0, 0, 40, 0, 0, 1}, StandardOpenOption.APPEND);
+
+        AlertJournal restarted = new AlertJournal(tempDir);
+        assertEquals(2, restarted.size());
+        restarted.write(Arrays.asList(new Alert("3", "Manual Alert - Triggered", DAY1 + 30)));
+        assertEquals(3, restarted.query("3", 0, Long.MAX_VALUE, null).size());
+        restarted.close();
+
+        for (int restart = 0; restart < 2; restart++) {
+            AlertJournal reopened = new AlertJournal(tempDir);
+            List<Alert> alerts = reopened.query("3", 0, Long.MAX_VALUE, null);
+            assertEquals(3, reopened.size());
+            assertEquals(3, alerts.size());
+            assertEquals(DAY1 + 30, alerts.get(2).getTimestamp());
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.AlertManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class AlertManagerTest {
+
+    private List<Alert> sent;
+    private AlertManager manager;
+
+    @BeforeEach
+    void setUp() {
+        sent = new ArrayList<>();
+        // resolve after 60 s, hold-off 30 s, escalate every 120 s, 3 alerts per 10 min
+        manager = new AlertManager(sent::add, 60_000L, 30_000L, 120_000L, 3, 600_000L);
+    }
+
+    @Test
+    void testReEvaluatedHistoryIsDeduplicated() {
+        for (int cycle = 0; cycle < 5; cycle++) {
+            manager.accept(new Alert("1", "Low Oxygen Saturation", 1000L));
+        }
+        assertEquals(1, sent.size());
+        assertEquals(4, manager.getDuplicateCount());
+    }
+
+    @Test
+    void testConditionValueDoesNotSplitEpisode() {
+        manager.accept(new Alert("1", "Critical Systolic: 185.0", 1000L));
+        manager.accept(new Alert("1", "Critical Systolic: 187.0", 2000L));
+        assertEquals(1, sent.size());
+        assertEquals(2, manager.getEpisodes("1").get(0).getOccurrences());
+    }
+
+    @Test
+    void testOngoingEpisodeEscalates() {
+        for (long ts = 0; ts <= 130_000L; ts += 10_000L) {
+            manager.accept(new Alert("1", "Low Oxygen Saturation", ts));
+        }
+        assertEquals(2, sent.size());
+        assertTrue(sent.get(1).getCondition().contains("escalation 1"));
+    }
+
+    @Test
+    void testResolvedEpisodeReopensAfterQuietPeriod() {
+        manager.accept(new Alert("1", "Low Oxygen Saturation", 0L));
+        assertEquals(1, manager.resolveStale(100_000L).size());
+        assertFalse(manager.getEpisodes("1").get(0).isOpen());
+
+        manager.accept(new Alert("1", "Low Oxygen Saturation", 200_000L));
+        assertEquals(2, sent.size());
+        assertTrue(manager.getEpisodes("1").get(0).isOpen());
+    }
+
+    @Test
+    void testHoldOffSuppressesFlapping() {
+        manager.accept(new Alert("1", "Low Oxygen Saturation", 0L));
+        manager.resolveStale(100_000L);
+        manager.accept(new Alert("1", "Low Oxygen Saturation", 20_000L)); // new episode inside the hold-off
+        assertEquals(1, sent.size());
+        assertEquals(1, manager.getHeldOffCount());
+    }
+
+    @Test
+    void testPerPatientRateLimit() {
+        for (int i = 0; i < 5; i++) {
+            manager.accept(new Alert("1", "Condition " + i, 1000L + i));
+        }
+        manager.accept(new Alert("2", "Condition 0", 1000L));
+        assertEquals(4, sent.size());
+        assertEquals(2, manager.getRateLimitedCount());
+    }
+
+    @Test
+    void testRateLimitedOnsetIsAnnouncedLater() {
+        manager.accept(new Alert("1", "Condition A", 0L));
+        manager.accept(new Alert("1", "Condition B", 1000L));
+        manager.accept(new Alert("1", "Condition C", 2000L));
+        // The patient is at the limit when a new condition starts
+        manager.accept(new Alert("1", "Condition D", 3000L));
+        assertEquals(3, sent.size());
+        assertEquals(1, manager.getRateLimitedCount());
+
+        // Its onset is announced as soon as the rate window allows, not as a later escalation
+        for (long ts = 33_000L; ts <= 603_000L; ts += 30_000L) {
+            manager.accept(new Alert("1", "Condition D", ts));
+        }
+        assertEquals(4, sent.size());
+        assertEquals("Condition D", sent.get(3).getCondition());
+        assertEquals(603_000L, sent.get(3).getTimestamp());
+    }
+}
@@ -0,0 +1,78 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.baseline.BaselineTracker;
+import org.junit.jupiter.api.Test;
+
+class BaselineTrackerTest {
+
+    @Test
+    void testBaselineConvergesToSignal() {
+        BaselineTracker tracker = new BaselineTracker(0.05);
+        for (int i = 0; i < 500; i++) {
+            tracker.update(1, "Systolic", i % 2 == 0 ? 118 : 122, i);
+        }
+        BaselineTracker.Baseline baseline = tracker.get(1, "systolic");
+        assertEquals(120, baseline.getMean(), 0.5);
+        assertEquals(2, baseline.getStandardDeviation(), 0.2);
+        assertEquals(500, baseline.getCount());
+        assertEquals(-5, baseline.zScore(110, 0), 0.6);
+    }
+
+    @Test
+    void testSingleArtefactDoesNotInflateVariance() {
+        BaselineTracker tracker = new BaselineTracker(0.05);
+        for (int i = 0; i < 200; i++) {
+            tracker.update(1, "HeartRate", i % 2 == 0 ? 69 : 71, i);
+        }
+        double before = tracker.get(1, "HeartRate").getStandardDeviation();
+        tracker.update(1, "HeartRate", 400, 200);
+        assertTrue(tracker.get(1, "HeartRate").getStandardDeviation() < before * 1.3);
+    }
+
+    @Test
+    void testOlderReadingsAndUnknownSignalsAreIgnored() {
+        BaselineTracker tracker = new BaselineTracker();
+        tracker.update(1, "HeartRate", 70, 1000);
+        tracker.update(1, "HeartRate", 200, 500);
+        assertEquals(70, tracker.get(1, "HeartRate").getMean());
+        assertEquals(1, tracker.get(1, "HeartRate").getCount());
+        assertNull(tracker.get(1, "Systolic"));
+        assertNull(tracker.get(2, "HeartRate"));
+    }
+
+    @Test
+    void testBaselineBeforeAReadingExcludesIt() {
+        BaselineTracker tracker = new BaselineTracker(0.05);
+        tracker.update(1, "HeartRate", 69, 0);
+        assertEquals(0, tracker.getBefore(1, "HeartRate", 0).getCount());
+        for (int i = 1; i < 100; i++) {
+            tracker.update(1, "HeartRate", i % 2 == 0 ? 69 : 71, i);
+        }
+        BaselineTracker.Baseline before = tracker.get(1, "HeartRate");
+        tracker.update(1, "HeartRate", 90, 100);
+        BaselineTracker.Baseline remembered = tracker.getBefore(1, "HeartRate", 100);
+        assertEquals(before.getMean(), remembered.getMean());
+        assertEquals(before.getStandardDeviation(), remembered.getStandardDeviation());
+        assertEquals(100, remembered.getCount());
+        assertTrue(tracker.get(1, "HeartRate").getMean() > remembered.getMean());
+
+        for (int i = 101; i <= 100 + BaselineTracker.HISTORY; i++) {
+            tracker.update(1, "HeartRate", 70, i);
+        }
+        assertNull(tracker.getBefore(1, "HeartRate", 100));
+        assertNull(tracker.getBefore(2, "HeartRate", 100));
+    }
+
+    @Test
+    void testFlatSignalScoresAgainstFloor() {
+        BaselineTracker tracker = new BaselineTracker();
+        for (int i = 0; i < 50; i++) {
+            tracker.update(1, "BloodSaturation", 98, i);
+        }
+        BaselineTracker.Baseline baseline = tracker.get(1, "BloodSaturation");
+        assertEquals(0, baseline.zScore(90, 0));
+        assertEquals(-8, baseline.zScore(90, 1), 1e-9);
+    }
+}
@@ -0,0 +1,109 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.AlertFactory;
+import com.alerts.cep.CepEngine;
+import com.alerts.cep.CepPattern;
+import com.alerts.cep.CepPatterns;
+import com.alerts.cep.SignalCondition;
+import com.data_management.DataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class CepEngineTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final List<Alert> alerts = new ArrayList<>();
+
+    @Test
+    void testConjunctionMatchesInAnyOrderWithinWindow() {
+        CepEngine engine = new CepEngine(CepPatterns.defaults(), alerts::add);
+        engine.process(1, "Saturation", 90, 1 * MINUTE);
+        engine.process(1, "SystolicPressure", 85, 4 * MINUTE);
+        assertEquals(1, alerts.size());
+        assertEquals("Hypotensive Hypoxemia Alert - Low Systolic with Low Saturation", alerts.get(0).getCondition());
+        assertEquals(4 * MINUTE, alerts.get(0).getTimestamp());
+
+        engine.process(2, "BloodSaturation", 90, 1 * MINUTE);
+        engine.process(2, "Systolic", 85, 7 * MINUTE);
+        assertEquals(1, alerts.size(), "readings further apart than the window must not match");
+    }
+
+    @Test
+    void testSequenceRequiresOrder() {
+        CepEngine engine = new CepEngine(CepPatterns.defaults(), alerts::add);
+        // Saturation falls before the heart rate goes up: not the sequence
+        engine.process(1, "Saturation", 97, 0);
+        engine.process(1, "SystolicPressure", 120, 0);
+        engine.process(1, "Saturation", 93, 1 * MINUTE);
+        engine.process(1, "HeartRate", 110, 2 * MINUTE);
+        engine.process(1, "SystolicPressure", 105, 3 * MINUTE);
+        assertTrue(alerts.isEmpty());
+
+        engine.process(1, "Saturation", 89, 4 * MINUTE);
+        assertEquals(1, alerts.size());
+        assertEquals("Tachycardia with Falling Systolic and Falling Saturation", alerts.get(0).getCondition());
+    }
+
+    @Test
+    void testAbsenceFiresOnlyWithoutRecovery() {
+        CepEngine engine = new CepEngine(CepPatterns.defaults(), alerts::add);
+        engine.process(1, "BloodSaturation", 86, 0);
+        engine.process(1, "BloodSaturation", 93, 1 * MINUTE);
+        engine.process(1, "BloodSaturation", 93, 5 * MINUTE);
+        assertTrue(alerts.isEmpty());
+
+        engine.process(2, "BloodSaturation", 86, 0);
+        engine.process(2, "BloodSaturation", 89, 1 * MINUTE);
+        assertTrue(alerts.isEmpty());
+        engine.process(2, "Systolic", 120, 3 * MINUTE);
+        assertEquals(1, alerts.size());
+        assertEquals("Oxygen Saturation Alert - Low Saturation Without Recovery", alerts.get(0).getCondition());
+        assertEquals(2 * MINUTE, alerts.get(0).getTimestamp());
+
+        engine.process(3, "BloodSaturation", 86, 0);
+        engine.advanceTo(10 * MINUTE);
+        assertEquals(2, alerts.size());
+    }
+
+    @Test
+    void testWindowsAreSharedAcrossPatterns() {
+        List<CepPattern> patterns = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            patterns.add(new CepPattern.Conjunction("Pattern " + i, new AlertFactory.GeneralAlertFactory(), MINUTE,
+                    Arrays.asList(SignalCondition.above("HeartRate", 100 + i), SignalCondition.below("Systolic", 90))));
+        }
+        CepEngine engine = new CepEngine(patterns, alerts::add);
+        engine.process(1, "HeartRate", 120, 0);
+        engine.process(1, "Systolic", 80, 1000);
+        engine.process(1, "ECG", 0.4, 1000);
+        assertEquals(2, engine.getWindowCount(1), "one window per read signal, none for unused signals");
+        assertEquals(20, alerts.size());
+    }
+
+    @Test
+    void testOutOfOrderReadingIsIgnored() {
+        CepEngine engine = new CepEngine(CepPatterns.defaults(), alerts::add);
+        engine.process(1, "Systolic", 85, 2 * MINUTE);
+        engine.process(1, "Systolic", 85, 1 * MINUTE);
+        assertEquals(1, engine.getOutOfOrderCount());
+    }
+
+    @Test
+    void testReceivesReadingsFromStorage() {
+        DataStorage storage = new DataStorage();
+        CepEngine engine = new CepEngine(Collections.singletonList(CepPatterns.defaults().get(0)), alerts::add);
+        storage.addDataListener(engine);
+        storage.addPatientData(7, 85, "Systolic", 1000);
+        storage.addPatientData(7, 90, "BloodSaturation", 2000);
+        assertEquals(1, alerts.size());
+        assertEquals("7", alerts.get(0).getPatientId());
+    }
+}
@@ -0,0 +1,75 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.ReactiveAlertEvaluator;
+import com.alerts.rules.RuleEngine;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ReactiveAlertEvaluatorTest {
+
+    @Test
+    void testCriticalReadingRaisesAlertOnIngest() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        AlertGenerator generator = new AlertGenerator(storage, RuleEngine.withDefaultRules());
+        CountDownLatch raised = new CountDownLatch(1);
+        generator.setAlertHandler((Alert alert) -> raised.countDown());
+        ReactiveAlertEvaluator evaluator = new ReactiveAlertEvaluator(generator, storage, 2, 0);
+
+        storage.addPatientData(1, 85.0, "BloodSaturation", 1000L);
+
+        assertTrue(raised.await(2, TimeUnit.SECONDS));
+        evaluator.shutdown();
+    }
+
+    @Test
+    void testBurstIsCoalesced() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        AlertGenerator generator = new AlertGenerator(storage, RuleEngine.withDefaultRules());
+        ReactiveAlertEvaluator evaluator = new ReactiveAlertEvaluator(generator, storage, 2, 50);
+
+        for (int i = 0; i < 100; i++) {
+            storage.addPatientData(1, 98.0, "BloodSaturation", 1000L + i);
+        }
+        Thread.sleep(300);
+
+        assertEquals(100, evaluator.getNotificationCount());
+        assertTrue(evaluator.getEvaluationCount() >= 1 && evaluator.getEvaluationCount() < 10);
+        evaluator.shutdown();
+    }
+
+    @Test
+    void testStreamingPatientDoesNotStarveOthers() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        AtomicBoolean streaming = new AtomicBoolean(true);
+        CountDownLatch otherEvaluated = new CountDownLatch(1);
+        AlertGenerator generator = new AlertGenerator(storage) {
+            @Override
+            public void evaluateData(Patient patient, Set<String> recordTypes) {
+                if (patient.getPatientId() == 2) {
+                    otherEvaluated.countDown();
+                } else if (streaming.get()) {
+                    // Patient 1 always has new data by the time an evaluation finishes
+                    storage.addPatientData(1, 0.5, "ECG", System.nanoTime());
+                }
+            }
+        };
+        ReactiveAlertEvaluator evaluator = new ReactiveAlertEvaluator(generator, storage, 1, 0);
+
+        storage.addPatientData(1, 0.5, "ECG", 1L);
+        storage.addPatientData(2, 98.0, "BloodSaturation", 1L);
+
+        assertTrue(otherEvaluated.await(5, TimeUnit.SECONDS));
+        streaming.set(false);
+        evaluator.shutdown();
+    }
+}
@@ -0,0 +1,307 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.baseline.BaselineTracker;
+import com.alerts.rules.RuleCompiler;
+import com.alerts.rules.RuleEngine;
+import com.alerts.rules.RuleSet;
+import com.cardio_generator.VirtualClock;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.data_management.DataStorage;
+import com.data_management.HeartRateDeriver;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+class RuleEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<Alert> evaluate(RuleEngine engine, Patient patient) {
+        List<Alert> alerts = new ArrayList<>();
+        engine.evaluate(patient, alerts::add);
+        return alerts;
+    }
+
+    @Test
+    void testDefaultRulesMatchBuiltInThresholds() {
+        Patient patient = new Patient(1);
+        patient.addRecord(85.0, "Systolic", 1000L);
+        patient.addRecord(88.0, "BloodSaturation", 2000L);
+        patient.addRecord(0.0, "ManualAlert", 3000L);
+
+        List<Alert> alerts = evaluate(RuleEngine.withDefaultRules(), patient);
+
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().equals("Blood Pressure Alert - Critical Systolic")));
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().equals("Oxygen Saturation Alert - Low Oxygen Saturation")));
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().equals("Hypotensive Hypoxemia Alert - Low Systolic with Low Saturation")));
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().equals("Manual Alert - Triggered")));
+    }
+
+    @Test
+    void testSaturationDropWithinWindow() {
+        Patient patient = new Patient(1);
+        patient.addRecord(99.0, "BloodSaturation", 0L);
+        patient.addRecord(97.0, "BloodSaturation", 60_000L);
+        patient.addRecord(93.0, "BloodSaturation", 120_000L);
+
+        List<Alert> alerts = evaluate(RuleEngine.withDefaultRules(), patient);
+
+        assertEquals(1, alerts.stream().filter(a -> a.getCondition().equals("Oxygen Saturation Alert - Rapid O2 Saturation Drop")).count());
+    }
+
+    @Test
+    void testZScoreRuleUsesPatientBaseline() {
+        RuleEngine engine = RuleEngine.withDefaultRules();
+        DataStorage storage = new DataStorage();
+        storage.addDataListener(engine.getBaselines());
+        // Patient 1 normally runs at 150 mmHg, patient 2 at 110; neither crosses the population thresholds
+        for (int i = 0; i < 60; i++) {
+            storage.addPatientData(1, 150 + (i % 3), "Systolic", i * 1000L);
+            storage.addPatientData(2, 110 + (i % 3), "Systolic", i * 1000L);
+        }
+        assertTrue(evaluate(engine, storage.getPatient(1)).isEmpty());
+        assertTrue(evaluate(engine, storage.getPatient(2)).isEmpty());
+
+        storage.addPatientData(1, 125, "Systolic", 60_000L);
+        storage.addPatientData(2, 125, "Systolic", 60_000L);
+        List<Alert> alerts = evaluate(engine, storage.getPatient(1));
+        assertEquals(1, alerts.size());
+        assertTrue(alerts.get(0).getCondition().startsWith("Blood Pressure Alert - Systolic Deviates From Baseline: z=-"));
+        assertEquals(60_000L, alerts.get(0).getTimestamp());
+        assertEquals(1, evaluate(engine, storage.getPatient(2)).size());
+    }
+
+    @Test
+    void testZScoreRuleWaitsForWarmUp() {
+        BaselineTracker baselines = new BaselineTracker();
+        RuleEngine engine = new RuleEngine(new RuleCompiler(baselines).compile(new StringReader(
+                "{\"rules\":[{\"id\":\"z\",\"kind\":\"zscore\",\"recordType\":\"HeartRate\",\"threshold\":3,"
+                        + "\"minSamples\":20,\"minDeviation\":2,\"condition\":\"HR\"}]}")));
+        Patient patient = new Patient(1);
+        for (int i = 0; i < 5; i++) {
+            patient.addRecord(70, "HeartRate", i * 1000L);
+            baselines.update(1, "HeartRate", 70, i * 1000L);
+        }
+        patient.addRecord(140, "HeartRate", 5000L);
+        baselines.update(1, "HeartRate", 140, 5000L);
+        assertSame(baselines, engine.getBaselines());
+        assertTrue(evaluate(engine, patient).isEmpty());
+    }
+
+    @Test
+    void testZScoreRuleScoresAgainstTheBaselineBeforeTheReading() {
+        BaselineTracker baselines = new BaselineTracker();
+        RuleEngine engine = new RuleEngine(new RuleCompiler(baselines).compile(new StringReader(
+                "{\"rules\":[{\"id\":\"z\",\"kind\":\"zscore\",\"recordType\":\"HeartRate\",\"threshold\":8,"
+                        + "\"minSamples\":20,\"condition\":\"HR\"}]}")));
+        DataStorage storage = new DataStorage();
+        storage.addDataListener(baselines);
+        for (int i = 0; i < 100; i++) {
+            storage.addPatientData(1, i % 2 == 0 ? 69 : 71, "HeartRate", i * 1000L);
+        }
+        // 10 beats above a baseline of 70 +- 1; once folded in, the reading's own weight would drop it to z=5.7
+        storage.addPatientData(1, 80, "HeartRate", 100_000L);
+        List<Alert> alerts = evaluate(engine, storage.getPatient(1));
+        assertEquals(1, alerts.size());
+        assertTrue(alerts.get(0).getCondition().startsWith("HR: z=10."));
+    }
+
+    @Test
+    void testDefaultRulesReadTheSimulatorLabels() {
+        RuleEngine engine = RuleEngine.withDefaultRules();
+        DataStorage storage = new DataStorage();
+        storage.addDataListener(engine.getBaselines());
+        for (int i = 0; i < 60; i++) {
+            storage.addPatientData(1, 150 + (i % 3), "SystolicPressure", i * 1000L);
+            storage.addPatientData(1, 97, "Saturation", i * 1000L);
+        }
+        storage.addPatientData(1, 125, "SystolicPressure", 60_000L);
+        storage.addPatientData(1, 90, "Saturation", 60_000L);
+
+        List<Alert> alerts = new ArrayList<>();
+        engine.evaluate(storage.getPatient(1), Set.of("SystolicPressure", "Saturation"), alerts::add);
+
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().contains("Systolic Deviates From Baseline")));
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().contains("Saturation Below Baseline")));
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().endsWith("Low Oxygen Saturation")));
+    }
+
+    @Test
+    void testReloadAndPatientOverride() throws IOException {
+        Path rules = tempDir.resolve("rules.json");
+        Files.writeString(rules, "{\"rules\":[{\"id\":\"spo2\",\"kind\":\"threshold\",\"recordType\":\"BloodSaturation\","
+                + "\"below\":92,\"condition\":\"Low SpO2\"}]}");
+        RuleEngine engine = new RuleEngine(rules);
+
+        Patient patient = new Patient(7);
+        patient.addRecord(90.0, "BloodSaturation", 1000L);
+        assertEquals(1, evaluate(engine, patient).size());
+
+        Files.writeString(rules, "{\"rules\":[{\"id\":\"spo2\",\"kind\":\"threshold\",\"recordType\":\"BloodSaturation\","
+                + "\"below\":92,\"condition\":\"Low SpO2\"}],\"patients\":{\"7\":[{\"id\":\"spo2\",\"below\":88}]}}");
+        assertTrue(engine.reload());
+        assertEquals(0, evaluate(engine, patient).size());
+
+        Patient other = new Patient(8);
+        other.addRecord(90.0, "BloodSaturation", 1000L);
+        assertEquals(1, evaluate(engine, other).size());
+    }
+
+    @Test
+    void testInvalidReloadKeepsPreviousRules() throws IOException {
+        Path rules = tempDir.resolve("rules.json");
+        Files.writeString(rules, "{\"rules\":[{\"id\":\"m\",\"kind\":\"presence\",\"recordType\":\"ManualAlert\","
+                + "\"condition\":\"Manual\"}]}");
+        RuleEngine engine = new RuleEngine(rules);
+
+        Files.writeString(rules, "{\"rules\":[{\"id\":\"m\",\"kind\":\"unknown\",\"condition\":\"x\"}]}");
+        assertFalse(engine.reload());
+
+        Patient patient = new Patient(1);
+        patient.addRecord(0.0, "ManualAlert", 1000L);
+        assertEquals(1, evaluate(engine, patient).size());
+    }
+
+    @Test
+    void testTrendNeedsTwoReadings() {
+        RuleCompiler compiler = new RuleCompiler(new BaselineTracker());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compiler.compile(new StringReader(
+                "{\"rules\":[{\"id\":\"t\",\"kind\":\"trend\",\"recordType\":\"Systolic\",\"readings\":1,"
+                        + "\"condition\":\"BP\"}]}")));
+        assertTrue(e.getMessage().contains("at least 2 readings"));
+    }
+
+    @Test
+    void testPeakNeedsAPositiveWindow() {
+        RuleCompiler compiler = new RuleCompiler(new BaselineTracker());
+        for (int windowSize : new int[] {0, -3}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compiler.compile(new StringReader(
+                    "{\"rules\":[{\"id\":\"p\",\"kind\":\"peak\",\"recordType\":\"RRInterval\",\"windowSize\":"
+                            + windowSize + ",\"condition\":\"Pause\"}]}")));
+            assertTrue(e.getMessage().contains("at least 1 reading"));
+        }
+    }
+
+    @Test
+    void testThresholdNeedsABound() {
+        RuleCompiler compiler = new RuleCompiler(new BaselineTracker());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compiler.compile(new StringReader(
+                "{\"rules\":[{\"id\":\"t\",\"kind\":\"threshold\",\"recordType\":\"Systolic\","
+                        + "\"condition\":\"BP\"}]}")));
+        assertTrue(e.getMessage().contains("'above' or 'below'"));
+    }
+
+    @Test
+    void testIncrementalEvaluationCostDoesNotGrowWithHistory() {
+        RuleEngine engine = new RuleEngine(new RuleCompiler().compile(new StringReader(
+                "{\"rules\":[{\"id\":\"high\",\"kind\":\"threshold\",\"recordType\":\"Systolic\",\"above\":180,"
+                        + "\"condition\":\"High\"},{\"id\":\"drop\",\"kind\":\"delta\",\"recordType\":\"Systolic\","
+                        + "\"windowMillis\":60000,\"amount\":30,\"direction\":\"drop\",\"condition\":\"Drop\"}]}")));
+        int[] fetched = new int[1];
+        Patient patient = new Patient(1) {
+            @Override
+            public synchronized List<PatientRecord> getRecords(long startTime, long endTime) {
+                throw new AssertionError("the full history was read");
+            }
+
+            @Override
+            public synchronized List<PatientRecord> getRecordsAddedSince(int fromIndex) {
+                List<PatientRecord> records = super.getRecordsAddedSince(fromIndex);
+                fetched[0] += records.size();
+                return records;
+            }
+        };
+        List<Alert> alerts = new ArrayList<>();
+        int retainedEarly = 0;
+        for (int i = 0; i < 20_000; i++) {
+            patient.addRecord(i % 1000 == 999 ? 200 : 120, "Systolic", i * 1000L);
+            engine.evaluate(patient, Set.of("Systolic"), alerts::add);
+            if (i == 1000) {
+                retainedEarly = engine.getRetainedReadings(1);
+            }
+        }
+
+        assertEquals(20_000, fetched[0], "every record is read exactly once");
+        assertEquals(61, retainedEarly, "only the 60 s delta window is kept");
+        assertEquals(retainedEarly, engine.getRetainedReadings(1));
+        assertEquals(20, alerts.stream().filter(a -> a.getCondition().endsWith("High")).count());
+    }
+
+    @Test
+    void testIncrementalJoinRaisesOnceWhenTheSecondSignalArrivesLate() {
+        RuleEngine engine = RuleEngine.withDefaultRules();
+        Patient patient = new Patient(1);
+        List<Alert> alerts = new ArrayList<>();
+        patient.addRecord(85.0, "Systolic", 1000L);
+        engine.evaluate(patient, Set.of("Systolic"), alerts::add);
+        patient.addRecord(88.0, "BloodSaturation", 2000L);
+        engine.evaluate(patient, Set.of("BloodSaturation"), alerts::add);
+        patient.addRecord(87.0, "BloodSaturation", 3000L);
+        engine.evaluate(patient, Set.of("BloodSaturation"), alerts::add);
+
+        assertEquals(1, alerts.stream().filter(a -> a.getCondition().endsWith("Low Systolic with Low Saturation")).count());
+        assertEquals(1, alerts.stream().filter(a -> a.getCondition().endsWith("Critical Systolic")).count());
+    }
+
+    @Test
+    void testDefaultEcgRulesStayQuietOnSampledEcg() {
+        RuleEngine engine = RuleEngine.withDefaultRules();
+        DataStorage storage = new DataStorage();
+        new HeartRateDeriver(storage, 250);
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(3, 250, 1000, 42L);
+        VirtualClock clock = new VirtualClock(1_700_000_000_000L);
+        generator.setClock(clock);
+        for (int second = 1; second <= 120; second++) {
+            clock.set(1_700_000_000_000L + second * 1000L);
+            for (int patient = 1; patient <= 3; patient++) {
+                generator.generate(patient, (id, timestamp, label, data) ->
+                        storage.addPatientData(id, Double.parseDouble(data), label, timestamp));
+            }
+        }
+
+        for (int patient = 1; patient <= 3; patient++) {
+            assertTrue(storage.getRecords(patient, 0, Long.MAX_VALUE).stream()
+                    .anyMatch(r -> r.getRecordType().equals(HeartRateDeriver.HEART_RATE)));
+            assertEquals(List.of(), evaluate(engine, storage.getPatient(patient)));
+        }
+    }
+
+    @Test
+    void testDefaultEcgRulesFlagAPause() {
+        Patient patient = new Patient(1);
+        for (int beat = 0; beat < 10; beat++) {
+            patient.addRecord(800, "RRInterval", beat * 800L);
+            patient.addRecord(75, "HeartRate", beat * 800L);
+        }
+        patient.addRecord(1700, "RRInterval", 9700L);
+        patient.addRecord(35, "HeartRate", 9700L);
+
+        List<Alert> alerts = evaluate(RuleEngine.withDefaultRules(), patient);
+
+        assertEquals(2, alerts.size());
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().equals("ECG Alert - Pause Between Beats")));
+        assertTrue(alerts.stream().anyMatch(a -> a.getCondition().equals("ECG Alert - Abnormal Heart Rate")));
+    }
+
+    @Test
+    void testDefaultRulesNeedTheDerivedHeartRate() {
+        RuleSet rules = RuleEngine.withDefaultRules().getRuleSet();
+        assertTrue(rules.reads(HeartRateDeriver.HEART_RATE));
+        assertTrue(rules.reads("rrinterval"));
+        assertTrue(rules.reads("SystolicPressure"));
+        assertFalse(rules.reads("Temperature"));
+    }
+}
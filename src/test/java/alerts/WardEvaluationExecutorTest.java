@@ -0,0 +1,105 @@
+package alerts;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.WardEvaluationExecutor;
+import com.alerts.rules.RuleEngine;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class WardEvaluationExecutorTest {
+
+    @Test
+    void testEveryPatientEvaluatedOncePerRound() {
+        DataStorage storage = new DataStorage();
+        for (int id = 1; id <= 100; id++) {
+            storage.addPatientData(id, 120.0, "Systolic", 1000L);
+        }
+        Set<Integer> evaluated = ConcurrentHashMap.newKeySet();
+        AlertGenerator generator = new AlertGenerator(storage) {
+            @Override
+            public void evaluateData(Patient patient) {
+                assertTrue(evaluated.add(patient.getPatientId()));
+            }
+        };
+        WardEvaluationExecutor executor = new WardEvaluationExecutor(generator, storage, 4);
+
+        executor.evaluateWard();
+
+        assertEquals(100, evaluated.size());
+        assertEquals(100, executor.getEvaluationCount());
+        executor.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPatientNeverEvaluatedConcurrentlyWithItself() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        storage.addPatientData(1, 120.0, "Systolic", 1000L);
+        Set<Integer> running = ConcurrentHashMap.newKeySet();
+        AtomicBoolean overlap = new AtomicBoolean();
+        AlertGenerator generator = new AlertGenerator(storage) {
+            @Override
+            public void evaluateData(Patient patient) {
+                if (!running.add(patient.getPatientId())) {
+                    overlap.set(true);
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.remove(patient.getPatientId());
+            }
+        };
+        WardEvaluationExecutor executor = new WardEvaluationExecutor(generator, storage, 4);
+
+        executor.start(5, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        executor.shutdown(1, TimeUnit.SECONDS);
+
+        assertFalse(overlap.get());
+        assertTrue(executor.getSkippedCount() > 0);
+    }
+
+    @Test
+    void testRoundsOnlyEvaluateNewReadings() {
+        DataStorage storage = new DataStorage();
+        RuleEngine engine = RuleEngine.withDefaultRules();
+        AlertGenerator generator = new AlertGenerator(storage, engine);
+        List<Alert> alerts = new CopyOnWriteArrayList<>();
+        generator.setAlertHandler(alerts::add);
+        WardEvaluationExecutor executor = new WardEvaluationExecutor(generator, storage, 4);
+
+        int retainedEarly = 0;
+        for (int round = 0; round < 200; round++) {
+            for (int id = 1; id <= 10; id++) {
+                for (int i = 0; i < 50; i++) {
+                    long timestamp = (round * 50L + i) * 1000L;
+                    storage.addPatientData(id, i == 49 && round % 20 == 19 ? 200 : 120, "Systolic", timestamp);
+                }
+            }
+            executor.evaluateWard();
+            if (round == 10) {
+                retainedEarly = engine.getRetainedReadings(1);
+            }
+        }
+
+        // Each high reading is alerted once, not again on every later round, and the kept
+        // window stays the same size however long the history grows
+        assertEquals(100, alerts.stream().filter(a -> a.getCondition().endsWith("Critical Systolic")).count());
+        assertTrue(retainedEarly > 0);
+        assertEquals(retainedEarly, engine.getRetainedReadings(1));
+        assertEquals(2000, executor.getEvaluationCount());
+        executor.shutdown(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,75 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.outputs.AsyncConsoleOutputStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class AsyncConsoleOutputStrategyTest {
+
+    @Test
+    void testPrintsEveryReadingInTheConsoleFormat() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncConsoleOutputStrategy output = new AsyncConsoleOutputStrategy(
+                new PrintStream(bytes, true, StandardCharsets.UTF_8), 1024, 0);
+        output.output(1, 1000L, "Saturation", "97%");
+        output.outputSamples(2, 2000L, 250, "ECG", new double[] {0.5, -0.25}, 2);
+        output.close();
+
+        assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: Saturation, Data: 97%",
+                "Patient ID: 2, Timestamp: 2000, Label: ECG, Data: 0.5",
+                "Patient ID: 2, Timestamp: 2004, Label: ECG, Data: -0.25"),
+                bytes.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList()));
+        assertEquals(3, output.getPrintedCount());
+        assertEquals(0, output.getDroppedCount());
+    }
+
+    @Test
+    void testSummaryModePrintsOneLinePerPatient() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncConsoleOutputStrategy output = new AsyncConsoleOutputStrategy(
+                new PrintStream(bytes, true, StandardCharsets.UTF_8), 1024, 60_000);
+        output.output(1, 1000L, "Saturation", "97%");
+        output.output(1, 2000L, "Saturation", "96%");
+        output.outputSamples(1, 2000L, 250, "ECG", new double[] {0.5, -0.25}, 2);
+        output.output(2, 1000L, "SystolicPressure", "120.0");
+        output.close();
+
+        assertEquals(List.of("Patient ID: 1, Readings: 4, Saturation: 96%, ECG: -0.25",
+                "Patient ID: 2, Readings: 1, SystolicPressure: 120.0"),
+                bytes.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testDropsReadingsInsteadOfBlockingWhenFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        PrintStream blocked = new PrintStream(new ByteArrayOutputStream()) {
+            @Override
+            public PrintStream append(CharSequence csq) {
+                try {
+                    release.await(60, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return this;
+            }
+        };
+        AsyncConsoleOutputStrategy output = new AsyncConsoleOutputStrategy(blocked, 16, 0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            output.output(1, i, "ECG", "0.5");
+        }
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertTrue(output.getDroppedCount() > 9_000);
+        release.countDown();
+        output.close();
+    }
+}
@@ -0,0 +1,105 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.BatchedTickScheduler;
+import com.cardio_generator.VirtualClock;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+class BatchedTickSchedulerTest {
+
+    private static final OutputStrategy NO_OUTPUT = (patientId, timestamp, label, data) -> { };
+
+    @Test
+    void testEveryPatientGeneratedOncePerPeriod() {
+        int patients = 10_000;
+        int[] fast = new int[patients + 1];
+        int[] slow = new int[patients + 1];
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, patients, 4, 100, 42L);
+        scheduler.addSignal((id, out) -> fast[id]++, 1, TimeUnit.SECONDS);
+        scheduler.addSignal((id, out) -> slow[id]++, 1, TimeUnit.MINUTES);
+
+        for (long tick = 0; tick < 600; tick++) {
+            scheduler.runTick(tick, NO_OUTPUT);
+        }
+        for (int id = 1; id <= patients; id++) {
+            assertEquals(60, fast[id]);
+            assertEquals(1, slow[id]);
+        }
+        assertEquals(patients * 61L, scheduler.getGeneratedCount());
+    }
+
+    @Test
+    void testLoadIsSpreadOverTicks() {
+        int patients = 100_000;
+        int[] perTick = new int[10];
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, patients, 8, 100, 7L);
+        long[] tickHolder = new long[1];
+        scheduler.addSignal((id, out) -> perTick[(int) tickHolder[0]]++, 1, TimeUnit.SECONDS);
+        for (long tick = 0; tick < 10; tick++) {
+            tickHolder[0] = tick;
+            scheduler.runTick(tick, NO_OUTPUT);
+        }
+        for (int count : perTick) {
+            assertEquals(patients / 10.0, count, patients / 10.0 * 0.05);
+        }
+    }
+
+    @Test
+    void testSlotsDoNotDependOnPartitioning() {
+        List<Integer> oneWorker = new ArrayList<>();
+        List<Integer> manyWorkers = new ArrayList<>();
+        BatchedTickScheduler a = new BatchedTickScheduler(1, 1000, 1, 100, 99L);
+        BatchedTickScheduler b = new BatchedTickScheduler(1, 1000, 7, 100, 99L);
+        a.addSignal((id, out) -> oneWorker.add(id), 1, TimeUnit.SECONDS);
+        b.addSignal((id, out) -> manyWorkers.add(id), 1, TimeUnit.SECONDS);
+        a.runTick(3, NO_OUTPUT);
+        b.runTick(3, NO_OUTPUT);
+        assertFalse(oneWorker.isEmpty());
+        assertEquals(oneWorker, manyWorkers);
+    }
+
+    @Test
+    void testRunsOnWorkers() throws InterruptedException {
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, 500, 2, 10, 1L);
+        scheduler.addSignal((id, out) -> { }, 100, TimeUnit.MILLISECONDS);
+        scheduler.start(NO_OUTPUT);
+        Thread.sleep(300);
+        scheduler.shutdown();
+        assertTrue(scheduler.getTickCount() >= 10);
+        assertTrue(scheduler.getGeneratedCount() >= 500);
+    }
+
+    @Test
+    void testSimulatedTimeKeepsCadence() throws InterruptedException {
+        long start = 1_700_000_000_000L;
+        VirtualClock clock = new VirtualClock(start);
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, 50, 4, 1000, 3L);
+        scheduler.addSignal(new BloodPressureDataGenerator(50, 3L), 1, TimeUnit.MINUTES);
+        Map<Integer, List<Long>> timestamps = new ConcurrentHashMap<>();
+
+        scheduler.runSimulated((patientId, timestamp, label, data) -> {
+            if (label.equals("SystolicPressure")) {
+                timestamps.computeIfAbsent(patientId, id -> new ArrayList<>()).add(timestamp);
+            }
+        }, clock, TimeUnit.HOURS.toMillis(2));
+
+        assertEquals(start + TimeUnit.HOURS.toMillis(2), clock.millis());
+        assertEquals(50, timestamps.size());
+        for (List<Long> series : timestamps.values()) {
+            assertEquals(120, series.size());
+            assertTrue(series.get(0) >= start && series.get(0) < start + 60_000);
+            for (int i = 1; i < series.size(); i++) {
+                assertEquals(60_000, series.get(i) - series.get(i - 1));
+            }
+        }
+    }
+}
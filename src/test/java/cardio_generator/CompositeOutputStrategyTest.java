@@ -0,0 +1,117 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.outputs.CompositeOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class CompositeOutputStrategyTest {
+
+    @Test
+    void testEverySinkReceivesEveryReading() throws InterruptedException {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        CompositeOutputStrategy output = new CompositeOutputStrategy(List.of(
+                (patientId, timestamp, label, data) -> first.add(patientId + "," + timestamp + "," + label + "," + data),
+                (patientId, timestamp, label, data) -> second.add(patientId + "," + timestamp + "," + label + "," + data)));
+        output.output(1, 1000L, "Saturation", "97%");
+        output.outputSamples(2, 2000L, 250, "ECG", new double[] {0.5, -0.25}, 2);
+        output.close();
+
+        List<String> expected = List.of("1,1000,Saturation,97%", "2,2000,ECG,0.5", "2,2004,ECG,-0.25");
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertEquals(3, output.getDeliveredCount(0));
+        assertEquals(3, output.getDeliveredCount(1));
+    }
+
+    @Test
+    void testSlowSinkDoesNotHoldBackTheFastOne() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1000);
+        OutputStrategy slow = (patientId, timestamp, label, data) -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        OutputStrategy fast = (patientId, timestamp, label, data) -> fastDone.countDown();
+        CompositeOutputStrategy output = new CompositeOutputStrategy(List.of(slow, fast), 1024);
+
+        for (int i = 0; i < 1000; i++) {
+            output.output(1, i, "ECG", "0.5");
+        }
+        assertTrue(fastDone.await(10, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertEquals(0, output.getDeliveredCount(0));
+        assertTrue(output.getQueuedCount(0) >= 998);
+        assertTrue(output.getLagMillis(0) >= 20);
+        assertEquals(0, output.getLagMillis(1));
+
+        // The slow sink's full queue loses its readings without affecting the other sink
+        for (int i = 0; i < 1000; i++) {
+            output.output(1, 1000 + i, "ECG", "0.5");
+        }
+        assertTrue(output.getDroppedCount(0) >= 900);
+        assertTrue(output.describeLag().contains("dropped0=" + output.getDroppedCount(0)));
+
+        release.countDown();
+        output.close();
+        assertEquals(2000, output.getDeliveredCount(0) + output.getDroppedCount(0));
+    }
+
+    @Test
+    void testQueueIsBoundedByReadingsNotBatches() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStrategy slow = (patientId, timestamp, label, data) -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompositeOutputStrategy output = new CompositeOutputStrategy(List.of(slow), 1024);
+        ReadingBatch batch = new ReadingBatch();
+        for (int i = 0; i < 50; i++) {
+            for (int p = 0; p < 100; p++) {
+                batch.add(p, ReadingType.ECG, i, 0.5);
+            }
+            output.outputBatch(batch);
+            batch.clear();
+        }
+
+        // At most ten batches of 100 fit in 1024 readings, plus the one being delivered
+        assertTrue(output.getQueuedCount(0) <= 1024);
+        assertTrue(output.getDroppedCount(0) >= 3900);
+
+        release.countDown();
+        output.close();
+        assertEquals(5000, output.getDeliveredCount(0) + output.getDroppedCount(0));
+    }
+
+    @Test
+    void testFailedReadingsAreNotCountedAsDelivered() {
+        OutputStrategy flaky = (patientId, timestamp, label, data) -> {
+            if (label.equals("Broken")) {
+                throw new IllegalStateException("sink closed");
+            }
+        };
+        CompositeOutputStrategy output = new CompositeOutputStrategy(List.of(flaky));
+        output.output(1, 1000L, "Saturation", "97%");
+        output.output(1, 1001L, "Broken", "1.0");
+        output.outputSamples(1, 2000L, 250, "ECG", new double[] {0.5, -0.25}, 2);
+        output.close();
+
+        assertEquals(3, output.getDeliveredCount(0));
+        assertEquals(1, output.getFailedCount(0));
+    }
+}
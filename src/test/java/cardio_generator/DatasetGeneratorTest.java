@@ -0,0 +1,83 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.BatchedTickScheduler;
+import com.cardio_generator.DatasetGenerator;
+import com.cardio_generator.VirtualClock;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.data_management.DataStorage;
+import com.data_management.FileDataReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class DatasetGeneratorTest {
+
+    private static final long START = Instant.parse("2024-01-01T23:50:00Z").toEpochMilli();
+    private static final long SPAN = TimeUnit.MINUTES.toMillis(20);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWritesOneFilePerPatientAndDay() throws IOException, InterruptedException {
+        DatasetGenerator generator = new DatasetGenerator(directory, 3, 100, 100, 5L);
+        generator.generate(START, SPAN, 2);
+
+        for (int patientId = 1; patientId <= 3; patientId++) {
+            assertTrue(Files.exists(DatasetGenerator.fileFor(directory, LocalDate.of(2024, 1, 1), patientId)));
+            assertTrue(Files.exists(DatasetGenerator.fileFor(directory, LocalDate.of(2024, 1, 2), patientId)));
+        }
+        assertEquals(6, generator.getFileCount());
+        assertTrue(generator.getCompressedByteCount() < generator.getByteCount());
+    }
+
+    @Test
+    void testDatasetLoadsAndMatchesLiveSimulation() throws IOException, InterruptedException {
+        new DatasetGenerator(directory, 3, 100, 100, 5L).generate(START, SPAN, 2);
+        DataStorage storage = new DataStorage();
+        new FileDataReader(directory.toString()).readData(storage);
+
+        // The same patients, seed and signals in a live simulated-time run
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, 3, 3, 100, 5L);
+        scheduler.addSignal(new ECGWaveformGenerator(3, 100, 1000, 5L), 1, TimeUnit.SECONDS);
+        scheduler.addSignal(new BloodSaturationDataGenerator(3, 5L), 1, TimeUnit.SECONDS);
+        scheduler.addSignal(new BloodPressureDataGenerator(3, 5L), 1, TimeUnit.MINUTES);
+        scheduler.addSignal(new BloodLevelsDataGenerator(3, 5L), 2, TimeUnit.MINUTES);
+        Map<Integer, List<String>> live = new ConcurrentHashMap<>();
+        scheduler.runSimulated((patientId, timestamp, label, data) -> {
+            if (label.equals("SystolicPressure")) {
+                live.computeIfAbsent(patientId, id -> new ArrayList<>()).add(timestamp + "=" + Double.parseDouble(data));
+            }
+        }, new VirtualClock(START), SPAN);
+
+        for (int patientId = 1; patientId <= 3; patientId++) {
+            List<String> stored = storage.getRecords(patientId, 0, Long.MAX_VALUE).stream()
+                    .filter(r -> r.getRecordType().equals("SystolicPressure"))
+                    .sorted((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()))
+                    .map(r -> r.getTimestamp() + "=" + r.getMeasurementValue())
+                    .collect(Collectors.toList());
+            assertEquals(20, stored.size());
+            assertEquals(live.get(patientId), stored);
+
+            long ecgSamples = storage.getRecords(patientId, START, START + SPAN - 1).stream()
+                    .filter(r -> r.getRecordType().equals("ECG")).count();
+            assertEquals(SPAN / 10, ecgSamples, 100); // 100 Hz
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.data_management.QrsDetector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ECGWaveformGeneratorTest {
+
+    @Test
+    void testFirstCallEmitsOneBlockAsASingleBatch() {
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(3, 500, 1000, 1L);
+        List<Integer> blocks = new ArrayList<>();
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                fail("Samples must arrive as a block");
+            }
+
+            @Override
+            public void outputSamples(int patientId, long firstTimestamp, int sampleRate, String label,
+                                      double[] samples, int count) {
+                assertEquals("ECG", label);
+                assertEquals(500, sampleRate);
+                blocks.add(count);
+            }
+        };
+        generator.generate(2, output);
+        assertEquals(1, blocks.size());
+        assertEquals(500, blocks.get(0), 5);
+    }
+
+    @Test
+    void testDefaultOutputTimestampsEverySample() {
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(1, 250, 1000, 1L);
+        List<Long> timestamps = new ArrayList<>();
+        generator.generate(1, (patientId, timestamp, label, data) -> timestamps.add(timestamp));
+        assertEquals(250, timestamps.size(), 3);
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertEquals(4, timestamps.get(i) - timestamps.get(i - 1));
+        }
+    }
+
+    @Test
+    void testWaveformIsDetectedAtPhysiologicalRate() {
+        int rate = 250;
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(5, rate, 1000, 42L);
+        double[] block = new double[rate];
+        for (int patientId = 1; patientId <= 5; patientId++) {
+            QrsDetector detector = new QrsDetector(rate);
+            List<Long> rrs = new ArrayList<>();
+            long sampleIndex = 0;
+            for (int second = 0; second < 60; second++) {
+                generator.synthesize(patientId, block, rate);
+                for (double sample : block) {
+                    if (detector.process(sample, sampleIndex++ * 1000 / rate)) {
+                        rrs.add(detector.getLastRrMillis());
+                    }
+                }
+            }
+            // Resting rates are 60 to 90 bpm, so 40 to 60 beats in a minute after learning
+            assertTrue(rrs.size() > 35 && rrs.size() < 95, "beats detected: " + rrs.size());
+            double meanRr = rrs.stream().mapToLong(Long::longValue).average().orElse(0);
+            assertTrue(meanRr > 640 && meanRr < 1030, "mean RR " + meanRr);
+        }
+    }
+
+    @Test
+    void testSameSeedReproducesWaveform() {
+        double[] a = new double[1000];
+        double[] b = new double[1000];
+        new ECGWaveformGenerator(2, 500, 1000, 9L).synthesize(2, a, a.length);
+        new ECGWaveformGenerator(2, 500, 1000, 9L).synthesize(2, b, b.length);
+        assertArrayEquals(a, b);
+    }
+
+    @Test
+    void testRejectsUnsupportedRate() {
+        assertThrows(IllegalArgumentException.class, () -> new ECGWaveformGenerator(1, 50, 1000));
+    }
+}
@@ -0,0 +1,76 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.outputs.FileOutputStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class FileOutputStrategyTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWritesOneFilePerLabelInTheReadableFormat() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString());
+        output.output(1, 1000L, "ECG", "0.5");
+        output.output(2, 2000L, "Saturation", "97%");
+        output.output(1, 3000L, "ECG", "0.6");
+        output.close();
+
+        assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: ECG, Data: 0.5",
+                "Patient ID: 1, Timestamp: 3000, Label: ECG, Data: 0.6"),
+                Files.readAllLines(directory.resolve("ECG.txt")));
+        assertEquals(List.of("Patient ID: 2, Timestamp: 2000, Label: Saturation, Data: 97%"),
+                Files.readAllLines(directory.resolve("Saturation.txt")));
+        assertEquals(directory.resolve("ECG.txt").toString(), output.filemap.get("ECG"));
+    }
+
+    @Test
+    void testFlushMakesDataVisibleWithoutClosing() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString(), 60_000, 0, 0);
+        output.output(1, 1000L, "ECG", "0.5");
+        output.flushAll();
+        assertEquals(1, Files.readAllLines(directory.resolve("ECG.txt")).size());
+        output.close();
+    }
+
+    @Test
+    void testRotatesBySize() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString(), 60_000, 500, 0);
+        for (int i = 0; i < 40; i++) {
+            output.output(1, i, "ECG", "0.5");
+        }
+        output.close();
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.sorted().collect(Collectors.toList());
+        }
+        assertTrue(files.size() > 1, "rotated files: " + files);
+        long lines = 0;
+        for (Path file : files) {
+            assertTrue(file.getFileName().toString().startsWith("ECG"));
+            assertTrue(Files.size(file) <= 500);
+            lines += Files.readAllLines(file).size();
+        }
+        assertEquals(40, lines);
+    }
+
+    @Test
+    void testOutputAfterCloseIsDropped() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString());
+        output.output(1, 1000L, "ECG", "0.5");
+        output.close();
+        output.output(1, 2000L, "ECG", "0.6");
+        assertEquals(1, Files.readAllLines(directory.resolve("ECG.txt")).size());
+    }
+}
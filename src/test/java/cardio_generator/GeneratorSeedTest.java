@@ -0,0 +1,50 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class GeneratorSeedTest {
+
+    // Values per patient, ignoring timestamps, after generating patients in the given order
+    private static Map<Integer, List<String>> run(PatientDataGenerator generator, int[] order, int rounds) {
+        Map<Integer, List<String>> values = new TreeMap<>();
+        for (int r = 0; r < rounds; r++) {
+            for (int patientId : order) {
+                generator.generate(patientId, (id, timestamp, label, data) ->
+                        values.computeIfAbsent(id, k -> new ArrayList<>()).add(label + "=" + data));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    void testSameSeedReproducesValues() {
+        int[] order = {1, 2, 3, 4, 5};
+        assertEquals(run(new BloodPressureDataGenerator(5, 42L), order, 20),
+                run(new BloodPressureDataGenerator(5, 42L), order, 20));
+        assertEquals(run(new BloodLevelsDataGenerator(5, 42L), order, 20),
+                run(new BloodLevelsDataGenerator(5, 42L), order, 20));
+    }
+
+    @Test
+    void testValuesDoNotDependOnPatientOrder() {
+        assertEquals(run(new BloodPressureDataGenerator(5, 7L), new int[] {1, 2, 3, 4, 5}, 20),
+                run(new BloodPressureDataGenerator(5, 7L), new int[] {5, 3, 1, 4, 2}, 20));
+    }
+
+    @Test
+    void testDifferentSeedsDiffer() {
+        int[] order = {1, 2, 3};
+        assertNotEquals(run(new BloodLevelsDataGenerator(3, 1L), order, 5),
+                run(new BloodLevelsDataGenerator(3, 2L), order, 5));
+    }
+}
@@ -0,0 +1,79 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.LoadBenchmark;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.StorageOutputStrategy;
+import com.data_management.DataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+class LoadBenchmarkTest {
+
+    @Test
+    void testCountsEveryDeliveredEvent() throws InterruptedException {
+        LongAdder delivered = new LongAdder();
+        LoadBenchmark benchmark = new LoadBenchmark(200, 2, 100, 250, 1L);
+        LoadBenchmark.Result result = benchmark.run((patientId, timestamp, label, data) -> delivered.increment(),
+                0, 300, 0);
+        assertTrue(result.getEvents() > 0);
+        assertTrue(result.getEvents() <= delivered.sum());
+        assertTrue(result.getTickLatency().getCount() > 0);
+    }
+
+    @Test
+    void testNeverRunsAheadOfTheTargetRate() throws InterruptedException {
+        LoadBenchmark benchmark = new LoadBenchmark(100, 2, 100, 250, 1L);
+        LoadBenchmark.Result result = benchmark.run((patientId, timestamp, label, data) -> { }, 0, 500, 10_000);
+        // Pacing only ever holds workers back, so a slow machine gives fewer events, never
+        // more; each worker may overshoot by about one tick of ECG blocks
+        double seconds = result.getEvents() / result.getEventsPerSecond();
+        assertTrue(result.getEvents() <= 10_000 * (seconds + 0.5) + 2 * 2_000,
+                "events " + result.getEvents() + " in " + seconds + " s");
+    }
+
+    @Test
+    void testStopsAtTheEventCap() throws InterruptedException {
+        LongAdder delivered = new LongAdder();
+        LoadBenchmark benchmark = new LoadBenchmark(100, 1, 100, 250, 1L);
+        LoadBenchmark.Result result = benchmark.run((patientId, timestamp, label, data) -> delivered.increment(),
+                0, 60_000, 0, 20_000);
+        assertTrue(result.isCapped());
+        assertTrue(delivered.sum() >= 20_000);
+        assertTrue(result.toString().contains("event cap"));
+    }
+
+    @Test
+    void testEcgSamplesFollowEachPatientsSampleTimeline() throws InterruptedException {
+        Map<Integer, List<Long>> timestamps = new ConcurrentHashMap<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> {
+            if (label.equals("ECG")) {
+                timestamps.computeIfAbsent(patientId, id -> new CopyOnWriteArrayList<>()).add(timestamp);
+            }
+        };
+        new LoadBenchmark(10, 1, 100, 250, 1L).run(output, 0, 200, 0);
+
+        // Back-to-back blocks continue where the previous one ended instead of overlapping
+        assertFalse(timestamps.isEmpty());
+        for (List<Long> patientTimestamps : timestamps.values()) {
+            assertTrue(patientTimestamps.size() > 250);
+            for (int i = 1; i < patientTimestamps.size(); i++) {
+                assertEquals(patientTimestamps.get(i - 1) + 4, patientTimestamps.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testStoresIntoDataStorage() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        new LoadBenchmark(10, 1, 100, 250, 1L).run(new StorageOutputStrategy(storage), 0, 200, 0);
+        assertFalse(storage.getAllPatients().isEmpty());
+        assertFalse(storage.getRecords(1, 0, Long.MAX_VALUE).isEmpty());
+    }
+}
@@ -0,0 +1,163 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.BatchedTickScheduler;
+import com.cardio_generator.VirtualClock;
+import com.cardio_generator.generators.AlertGenerator;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.ReadingBatch;
+import com.cardio_generator.outputs.ReadingType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+class ReadingBatchTest {
+
+    @Test
+    void testBatchesReproduceTheTextOutput() {
+        check(() -> new ECGDataGenerator(3, 11L));
+        check(() -> new ECGWaveformGenerator(3, 250, 1000, 11L));
+        check(() -> new BloodSaturationDataGenerator(3, 11L));
+        check(() -> new BloodPressureDataGenerator(3, 11L));
+        check(() -> new BloodLevelsDataGenerator(3, 11L));
+        check(() -> new AlertGenerator(3, 11L));
+    }
+
+    // The same generator run through the string API and through a batch and the default
+    // adapter must produce identical lines
+    private static void check(Supplier<PatientDataGenerator> factory) {
+        List<String> text = new ArrayList<>();
+        List<String> batched = new ArrayList<>();
+        OutputStrategy textOutput = (patientId, timestamp, label, data) ->
+                text.add(patientId + "," + timestamp + "," + label + "," + data);
+        OutputStrategy batchedOutput = (patientId, timestamp, label, data) ->
+                batched.add(patientId + "," + timestamp + "," + label + "," + data);
+
+        PatientDataGenerator a = factory.get();
+        PatientDataGenerator b = factory.get();
+        VirtualClock clock = new VirtualClock(1_700_000_000_000L);
+        a.setClock(clock);
+        b.setClock(clock);
+        ReadingBatch batch = new ReadingBatch(4);
+        for (int step = 0; step < 50; step++) {
+            clock.set(1_700_000_000_000L + step * 1000L);
+            for (int id = 1; id <= 3; id++) {
+                a.generate(id, textOutput);
+                b.generate(id, batch);
+            }
+            batchedOutput.outputBatch(batch);
+            batch.clear();
+        }
+        assertFalse(text.isEmpty());
+        assertEquals(text, batched);
+    }
+
+    @Test
+    void testTextIsParsedIntoTheBatch() {
+        ReadingBatch batch = new ReadingBatch();
+        batch.output(1, 10L, "Saturation", "97%");
+        batch.output(1, 11L, "Alert", "triggered");
+        batch.output(2, 12L, "SystolicPressure", "120.0");
+        batch.output(2, 13L, "Unknown", "1.0");
+        batch.output(2, 14L, "ECG", "not a number");
+
+        assertEquals(3, batch.size());
+        assertEquals(ReadingType.SATURATION, batch.getType(0));
+        assertEquals(97.0, batch.getValue(0));
+        assertEquals(1.0, batch.getValue(1));
+        assertEquals(2, batch.getPatientId(2));
+        assertEquals(12L, batch.getTimestamp(2));
+        assertEquals("97%", ReadingType.SATURATION.format(batch.getValue(0)));
+        assertEquals("triggered", ReadingType.ALERT.format(batch.getValue(1)));
+        assertEquals("120.0", ReadingType.SYSTOLIC_PRESSURE.format(batch.getValue(2)));
+    }
+
+    @Test
+    void testSchedulerOutputsOneBatchPerTick() {
+        List<Integer> batchSizes = new ArrayList<>();
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                fail("Readings should arrive as batches");
+            }
+
+            @Override
+            public void outputBatch(ReadingBatch batch) {
+                batchSizes.add(batch.size());
+            }
+        };
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, 100, 1, 100, 5L);
+        scheduler.addSignal(new BloodPressureDataGenerator(100, 5L), 1, TimeUnit.SECONDS);
+        for (long tick = 0; tick < 10; tick++) {
+            scheduler.runTick(tick, output);
+        }
+
+        assertEquals(10, batchSizes.size());
+        assertEquals(200, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testFailingOutputIsCountedAndTheNextTickStillRuns() {
+        List<Integer> batchSizes = new ArrayList<>();
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+            }
+
+            @Override
+            public void outputBatch(ReadingBatch batch) {
+                batchSizes.add(batch.size());
+                if (batchSizes.size() == 1) {
+                    throw new IllegalStateException("sink closed");
+                }
+            }
+        };
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, 100, 1, 100, 5L);
+        scheduler.addSignal(new BloodPressureDataGenerator(100, 5L), 1, TimeUnit.SECONDS);
+        for (long tick = 0; tick < 10; tick++) {
+            scheduler.runTick(tick, output);
+        }
+
+        assertEquals(1, scheduler.getOutputFailureCount());
+        assertEquals(10, batchSizes.size());
+        assertEquals(200, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testSimulatedRunFinishesWhenAWorkerDies() {
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+            }
+
+            @Override
+            public void outputBatch(ReadingBatch batch) {
+                if (batch.getPatientId(0) <= 50) {
+                    throw new OutOfMemoryError("simulated");
+                }
+            }
+        };
+        BatchedTickScheduler scheduler = new BatchedTickScheduler(1, 100, 2, 100, 5L);
+        scheduler.addSignal(new BloodPressureDataGenerator(100, 5L), 100, TimeUnit.MILLISECONDS);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> { });
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> scheduler.runSimulated(output, new VirtualClock(0L), 1_000L));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        assertEquals(10, scheduler.getTickCount());
+    }
+}
@@ -0,0 +1,40 @@
+package cardio_generator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.ShardCoordinator;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+class ShardCoordinatorTest {
+
+    @Test
+    void testNetworkOutputsGetOnePortPerShard() {
+        List<String> args = Arrays.asList("--patient-count", "1000", "--output", "websocket:8080");
+        assertEquals(Arrays.asList("--patient-count", "1000", "--output", "websocket:8082", "--simulate",
+                "--shard", "2/4"), ShardCoordinator.argsForShard(args, 2, 4));
+        assertEquals("tcp:9001", ShardCoordinator.argsForShard(Arrays.asList("--output", "tcp:9000"), 1, 2).get(1));
+    }
+
+    @Test
+    void testFileOutputsGetOneDirectoryPerShard() {
+        List<String> child = ShardCoordinator.argsForShard(Arrays.asList("--simulate", "--output", "file:out"), 3, 4);
+        assertEquals(Arrays.asList("--simulate", "--output", "file:" + new File("out", "shard-3").getPath(),
+                "--shard", "3/4"), child);
+    }
+
+    @Test
+    void testExistingSliceIsReplaced() {
+        List<String> child = ShardCoordinator.argsForShard(
+                Arrays.asList("--shard", "0/9", "--patient-range", "1-5", "--seed", "7"), 0, 2);
+        assertEquals(Arrays.asList("--seed", "7", "--simulate", "--shard", "0/2"), child);
+    }
+
+    @Test
+    void testRejectsNoShards() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardCoordinator(0, Arrays.asList()));
+    }
+}
@@ -62,7 +62,7 @@ class AlertGeneratorTest {
         alertGenerator.checkBloodSaturationAlerts(patient);
 
         // Verify if the alert was triggered for low saturation
-        verify(alertGenerator, times(1)).triggerAlert(argThat(alert -> alert.getCondition().equals("Low Oxygen Saturation")));
+        verify(alertGenerator, times(1)).triggerAlert(argThat(alert -> alert.getCondition().equals("Oxygen Saturation Alert - Low Oxygen Saturation")));
     }
 
     @Test
@@ -79,7 +79,7 @@ class AlertGeneratorTest {
         alertGenerator.checkHypotensiveHypoxemia(patient);
 
         // Verify if the Hypotensive Hypoxemia alert was triggered
-        verify(alertGenerator, times(1)).triggerAlert(argThat(alert -> alert.getCondition().equals("Hypotensive Hypoxemia Alert")));
+        verify(alertGenerator, times(1)).triggerAlert(argThat(alert -> alert.getCondition().equals("Hypotensive Hypoxemia Alert - Low Systolic with Low Saturation")));
     }
 
     @Test
@@ -97,7 +97,7 @@ class AlertGeneratorTest {
         alertGenerator.checkECGAlerts(patient);
 
         verify(alertGenerator, atLeastOnce()).triggerAlert(argThat(alert ->
-                alert.getCondition().equals("Abnormal ECG Peak")
+                alert.getCondition().equals("ECG Alert - Abnormal Peak")
         ));
     }
 
@@ -114,7 +114,7 @@ class AlertGeneratorTest {
         alertGenerator.checkManualAlerts(patient);
 
         // Verify if the manual alert was triggered
-        verify(alertGenerator, times(1)).triggerAlert(argThat(alert -> alert.getCondition().equals("Manual Alert Triggered")));
+        verify(alertGenerator, times(1)).triggerAlert(argThat(alert -> alert.getCondition().equals("Manual Alert - Triggered")));
     }
 
     @Test
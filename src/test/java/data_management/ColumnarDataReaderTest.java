@@ -0,0 +1,82 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.outputs.ColumnarOutputStrategy;
+import com.data_management.ColumnarDataReader;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+class ColumnarDataReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTripsReadingsPerPatientAndLabel() throws IOException {
+        ColumnarOutputStrategy output = new ColumnarOutputStrategy(directory.toString(), 16, 0, 0);
+        output.output(1, 1000L, "Saturation", "97%");
+        output.output(1, 1000L, "Alert", "triggered");
+        output.output(2, 1500L, "SystolicPressure", "120.0");
+        output.outputSamples(1, 2000L, 250, "ECG", new double[] {0.1, -0.25, 1.5}, 3);
+        output.close();
+
+        DataStorage storage = new DataStorage(new ColumnarDataReader(directory.toString()));
+
+        List<PatientRecord> first = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(4, first.size());
+        assertEquals(97.0, valueAt(first, "Saturation", 1000L));
+        assertEquals(0.1, valueAt(first, "ECG", 2000L));
+        assertEquals(-0.25, valueAt(first, "ECG", 2004L));
+        assertEquals(1.5, valueAt(first, "ECG", 2008L));
+        assertEquals(120.0, valueAt(storage.getRecords(2, 0, Long.MAX_VALUE), "SystolicPressure", 1500L));
+    }
+
+    @Test
+    void testSkipsBlocksOutsideTheRange() throws IOException {
+        ColumnarOutputStrategy output = new ColumnarOutputStrategy(directory.toString(), 100, 0, 0);
+        for (long t = 0; t < 1000; t++) {
+            output.output(1, t * 1000, "ECG", Long.toString(t));
+        }
+        output.close();
+
+        ColumnarDataReader reader = new ColumnarDataReader(directory.toString(), 250_000, 349_000);
+        DataStorage storage = new DataStorage(reader);
+
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(100, records.size());
+        assertEquals(250.0, records.get(0).getMeasurementValue());
+        assertEquals(349.0, records.get(99).getMeasurementValue());
+        assertEquals(2, reader.getBlocksRead());
+        assertEquals(8, reader.getBlocksSkipped());
+    }
+
+    @Test
+    void testRollingMakesEarlierOutputReadable() throws IOException {
+        ColumnarOutputStrategy output = new ColumnarOutputStrategy(directory.toString(), 100, 0, 0);
+        output.output(1, 1000L, "ECG", "0.5");
+        output.roll();
+        output.output(1, 2000L, "ECG", "0.6");
+
+        DataStorage storage = new DataStorage(new ColumnarDataReader(directory.toString()));
+        assertEquals(1, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+
+        output.close();
+        storage = new DataStorage(new ColumnarDataReader(directory.toString()));
+        assertEquals(2, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+    }
+
+    private static double valueAt(List<PatientRecord> records, String type, long timestamp) {
+        return records.stream()
+                .filter(r -> r.getRecordType().equals(type) && r.getTimestamp() == timestamp)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + type + " at " + timestamp))
+                .getMeasurementValue();
+    }
+}
@@ -27,5 +27,16 @@ class DataStorageTest {
         assertEquals(200.0, records.get(1).getMeasurementValue());
     }
 
+    @Test
+    void testLatestTimestampIsTheDataTimeWatermark() {
+        DataStorage storage = new DataStorage();
+        assertEquals(Long.MIN_VALUE, storage.getLatestTimestamp());
 
+        // Simulated data time, far from the wall clock, and out of order across patients
+        storage.addPatientData(1, 98.0, "Saturation", 1_000_000L);
+        storage.addPatientData(2, 97.0, "Saturation", 3_000_000L);
+        storage.addPatientData(1, 96.0, "Saturation", 2_000_000L);
+
+        assertEquals(3_000_000L, storage.getLatestTimestamp());
+    }
 }
@@ -0,0 +1,111 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.data_management.DeltaFeedFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class DeltaFeedFormatTest {
+
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+
+    @Test
+    void testFramesRoundTripAcrossDeltas() throws IOException {
+        DeltaFeedFormat.Encoder encoder = new DeltaFeedFormat.Encoder();
+        DeltaFeedFormat.Decoder decoder = new DeltaFeedFormat.Decoder();
+        List<String> sent = new ArrayList<>();
+        List<String> received = new ArrayList<>();
+
+        for (int frame = 0; frame < 5; frame++) {
+            encoder.beginFrame(frame == 0);
+            for (int patient = 1; patient <= 3; patient++) {
+                for (int i = 0; i < 250; i++) {
+                    long timestamp = 1_700_000_000_000L + frame * 1000L + i * 4L;
+                    double value = Math.round(Math.sin(i / 10.0 + patient) * 10_000) / 10_000.0;
+                    encoder.add(patient, "ECG", timestamp, value);
+                    sent.add(patient + "," + timestamp + ",ECG," + value);
+                }
+                encoder.add(patient, "Saturation", 1_700_000_000_000L + frame * 1000L, 95 + frame);
+                sent.add(patient + "," + (1_700_000_000_000L + frame * 1000L) + ",Saturation," + (95.0 + frame));
+            }
+            byte[] bytes = encoder.finishFrame(deflater);
+            decoder.decode(ByteBuffer.wrap(bytes), inflater,
+                    (patientId, label, timestamp, value) -> received.add(patientId + "," + timestamp + "," + label + "," + value));
+        }
+
+        assertEquals(sent, received);
+    }
+
+    @Test
+    void testDecoderWaitsForKeyframe() throws IOException {
+        DeltaFeedFormat.Encoder encoder = new DeltaFeedFormat.Encoder();
+        DeltaFeedFormat.Decoder lateJoiner = new DeltaFeedFormat.Decoder();
+        List<Double> values = new ArrayList<>();
+
+        encoder.beginFrame(true);
+        encoder.add(1, "ECG", 1000L, 0.5);
+        encoder.finishFrame(deflater); // sent before the client joined
+
+        encoder.beginFrame(false);
+        encoder.add(1, "ECG", 1004L, 0.75);
+        byte[] delta = encoder.finishFrame(deflater);
+        assertEquals(0, lateJoiner.decode(ByteBuffer.wrap(delta), inflater, (p, l, t, v) -> values.add(v)));
+        assertFalse(lateJoiner.isSynced());
+
+        encoder.beginFrame(true);
+        encoder.add(1, "ECG", 1008L, -0.25);
+        byte[] keyframe = encoder.finishFrame(deflater);
+        assertEquals(1, lateJoiner.decode(ByteBuffer.wrap(keyframe), inflater, (p, l, t, v) -> values.add(v)));
+        assertTrue(lateJoiner.isSynced());
+        assertEquals(List.of(-0.25), values);
+    }
+
+    @Test
+    void testEmptyFrames() {
+        DeltaFeedFormat.Encoder encoder = new DeltaFeedFormat.Encoder();
+        encoder.beginFrame(false);
+        assertNull(encoder.finishFrame(deflater));
+        encoder.beginFrame(true);
+        byte[] keyframe = encoder.finishFrame(deflater);
+        assertNotNull(keyframe);
+        assertEquals(DeltaFeedFormat.KEYFRAME, keyframe[0]);
+    }
+
+    @Test
+    void testCorruptFrameIsRejected() {
+        DeltaFeedFormat.Decoder decoder = new DeltaFeedFormat.Decoder();
+        byte[] frame = {DeltaFeedFormat.KEYFRAME, 1, 5, 'E'};
+        assertThrows(IOException.class, () -> decoder.decode(ByteBuffer.wrap(frame), inflater, (p, l, t, v) -> { }));
+    }
+
+    @Test
+    void testSendTimeTravelsOutsideThePayload() throws IOException {
+        DeltaFeedFormat.Encoder encoder = new DeltaFeedFormat.Encoder();
+        DeltaFeedFormat.Decoder decoder = new DeltaFeedFormat.Decoder();
+        List<Long> timestamps = new ArrayList<>();
+
+        encoder.beginFrame(true);
+        for (int i = 0; i < 500; i++) {
+            encoder.add(1, "ECG", 1000L + i * 4L, Math.sin(i / 10.0));
+        }
+        byte[] stamped = encoder.finishFrame(deflater, 1_700_000_123_456L);
+        assertEquals(DeltaFeedFormat.KEYFRAME | DeltaFeedFormat.DEFLATED | DeltaFeedFormat.SENT_TIME, stamped[0]);
+        assertEquals(500, decoder.decode(ByteBuffer.wrap(stamped), inflater, (p, l, t, v) -> timestamps.add(t)));
+        assertEquals(1_700_000_123_456L, decoder.getSentMillis());
+        assertEquals(1000L, timestamps.get(0));
+
+        encoder.beginFrame(false);
+        encoder.add(1, "ECG", 3000L, 0.5);
+        decoder.decode(ByteBuffer.wrap(encoder.finishFrame(deflater)), inflater, (p, l, t, v) -> timestamps.add(t));
+        assertEquals(-1, decoder.getSentMillis());
+        assertEquals(3000L, timestamps.get(500));
+    }
+}
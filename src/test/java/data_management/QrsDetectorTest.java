@@ -0,0 +1,89 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.data_management.DataStorage;
+import com.data_management.HeartRateDeriver;
+import com.data_management.PatientRecord;
+import com.data_management.QrsDetector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class QrsDetectorTest {
+
+    private static final int RATE = 250;
+
+    // Synthetic ECG: narrow R waves, broader T waves, baseline wander and noise
+    private static double[] ecg(double bpm, int seconds, long seed) {
+        Random random = new Random(seed);
+        int samples = seconds * RATE;
+        double[] signal = new double[samples];
+        double period = 60.0 / bpm;
+        for (int i = 0; i < samples; i++) {
+            double t = i / (double) RATE;
+            double phase = t % period;
+            double r = 1.2 * Math.exp(-Math.pow((phase - 0.2) / 0.012, 2));
+            double tw = 0.3 * Math.exp(-Math.pow((phase - 0.45) / 0.05, 2));
+            signal[i] = r + tw + 0.2 * Math.sin(2 * Math.PI * 0.3 * t) + 0.03 * random.nextGaussian();
+        }
+        return signal;
+    }
+
+    @Test
+    void testDetectsBeatsAtKnownRate() {
+        for (double bpm : new double[] {50, 72, 120, 160}) {
+            QrsDetector detector = new QrsDetector(RATE);
+            double[] signal = ecg(bpm, 30, 42);
+            List<Long> rr = new ArrayList<>();
+            for (int i = 0; i < signal.length; i++) {
+                if (detector.process(signal[i], i * 4L)) {
+                    rr.add(detector.getLastRrMillis());
+                }
+            }
+            double expected = 60_000 / bpm;
+            int expectedBeats = (int) ((30 - 2) * bpm / 60);
+            assertTrue(Math.abs(rr.size() - expectedBeats) <= 2, bpm + " bpm: " + rr.size() + " beats");
+            for (long interval : rr.subList(1, rr.size())) {
+                assertEquals(expected, interval, 12, bpm + " bpm");
+            }
+        }
+    }
+
+    @Test
+    void testRejectsUnsupportedRate() {
+        assertThrows(IllegalArgumentException.class, () -> new QrsDetector(20));
+        // Outside 200-500 Hz the fixed-tap filters no longer pass the QRS band
+        assertThrows(IllegalArgumentException.class, () -> new QrsDetector(100));
+        assertThrows(IllegalArgumentException.class, () -> new QrsDetector(1000));
+        new QrsDetector(QrsDetector.MIN_SAMPLE_RATE);
+        new QrsDetector(QrsDetector.MAX_SAMPLE_RATE);
+    }
+
+    @Test
+    void testDeriverWritesHeartRateToStorage() {
+        DataStorage storage = new DataStorage();
+        new HeartRateDeriver(storage, RATE);
+        double[] signal = ecg(75, 20, 7);
+        for (int i = 0; i < signal.length; i++) {
+            storage.addPatientData(3, signal[i], "ECG", 1_000_000L + i * 4L);
+        }
+        List<PatientRecord> heartRate = new ArrayList<>();
+        List<PatientRecord> rr = new ArrayList<>();
+        for (PatientRecord record : storage.getRecords(3, 0, Long.MAX_VALUE)) {
+            if (record.getRecordType().equals("HeartRate")) {
+                heartRate.add(record);
+            } else if (record.getRecordType().equals("RRInterval")) {
+                rr.add(record);
+            }
+        }
+        assertFalse(heartRate.isEmpty());
+        assertEquals(heartRate.size(), rr.size());
+        for (PatientRecord record : heartRate.subList(1, heartRate.size())) {
+            assertEquals(75, record.getMeasurementValue(), 2);
+        }
+        assertTrue(heartRate.get(0).getTimestamp() > 1_000_000L);
+    }
+}
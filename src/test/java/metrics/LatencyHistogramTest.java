@@ -0,0 +1,112 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alerts.Alert;
+import com.alerts.AlertManager;
+import com.data_management.DataStorage;
+import com.metrics.LatencyHistogram;
+import com.metrics.MetricsServer;
+import com.metrics.PipelineLatency;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 * 0.016);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 * 0.016);
+        assertEquals(99_900, histogram.getValueAtPercentile(99.9), 99_900 * 0.016);
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 1e-6);
+    }
+
+    @Test
+    void testSmallAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(0, histogram.getValueAtPercentile(30));
+        assertEquals(3, histogram.getValueAtPercentile(60));
+        assertEquals(Long.MAX_VALUE / 2, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void testAnnouncedAlertRecordsEndToEndLatencyFromReceipt() {
+        PipelineLatency.reset();
+        PipelineLatency.setEnabled(true);
+        try {
+            checkEndToEndLatency();
+        } finally {
+            PipelineLatency.setEnabled(false);
+        }
+    }
+
+    private static void checkEndToEndLatency() {
+        AlertManager manager = new AlertManager(new ArrayList<Alert>()::add);
+        long hourAgo = System.currentTimeMillis() - 3_600_000;
+        manager.accept(new Alert("1", "Low Oxygen Saturation", hourAgo));
+        LatencyHistogram endToEnd = PipelineLatency.Stage.END_TO_END.getHistogram();
+        assertEquals(0, endToEnd.getCount(), "an alert not raised while handling readings has no receive time");
+
+        // A reading measured an hour ago but received now must not count as an hour of latency
+        DataStorage storage = new DataStorage();
+        storage.addDataListener((patientId, value, type, timestamp) ->
+                manager.accept(new Alert(String.valueOf(patientId), "Low Oxygen Saturation", timestamp)));
+        storage.addPatientData(2, 85, "Saturation", hourAgo);
+        storage.addPatientData(2, 85, "Saturation", hourAgo + 1000);
+        assertEquals(1, endToEnd.getCount());
+        assertTrue(endToEnd.getMax() < 1_000_000, "measured from the data timestamp: " + endToEnd.getMax());
+        assertTrue(PipelineLatency.prometheus().contains("ingest_latency_seconds{stage=\"end_to_end\",quantile=\"0.99\"}"));
+        assertTrue(PipelineLatency.summary().startsWith("LATENCY | transport"));
+    }
+
+    @Test
+    void testNothingIsMeasuredUntilEnabled() {
+        PipelineLatency.reset();
+        assertFalse(PipelineLatency.isEnabled());
+        DataStorage storage = new DataStorage();
+        AlertManager manager = new AlertManager(new ArrayList<Alert>()::add);
+        storage.addDataListener((patientId, value, type, timestamp) ->
+                manager.accept(new Alert(String.valueOf(patientId), "Low Oxygen Saturation", timestamp)));
+        storage.addPatientData(3, 85, "Saturation", 1000L);
+
+        assertEquals(1, storage.getRecords(3, 0, Long.MAX_VALUE).size());
+        for (PipelineLatency.Stage stage : PipelineLatency.Stage.values()) {
+            assertEquals(0, stage.getHistogram().getCount(), stage.getLabel());
+        }
+    }
+
+    @Test
+    void testMetricsEndpointServesStages() throws IOException {
+        MetricsServer server = new MetricsServer(0);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                for (PipelineLatency.Stage stage : PipelineLatency.Stage.values()) {
+                    assertTrue(body.contains("stage=\"" + stage.getLabel() + "\""));
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package network;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.outputs.TcpOutputStrategy;
+import com.cardio_generator.outputs.TcpOutputStrategy.SlowConsumerPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+class TcpOutputStrategyTest {
+
+    @Test
+    void testEveryClientReceivesEveryLine() throws Exception {
+        TcpOutputStrategy output = new TcpOutputStrategy(0, 1 << 20, SlowConsumerPolicy.DROP_OLDEST);
+        try (Socket first = new Socket("localhost", output.getPort());
+             Socket second = new Socket("localhost", output.getPort())) {
+            awaitClients(output, 2);
+            output.output(1, 1000L, "Saturation", "97%");
+            output.outputSamples(2, 2000L, 250, "ECG", new double[] {0.5, -0.25}, 2);
+
+            for (Socket socket : new Socket[] {first, second}) {
+                BufferedReader in = reader(socket);
+                assertEquals("1,1000,Saturation,97%", in.readLine());
+                assertEquals("2,2000,ECG,0.5", in.readLine());
+                assertEquals("2,2004,ECG,-0.25", in.readLine());
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    @Test
+    void testSlowClientIsDisconnectedWithoutStallingOthers() throws Exception {
+        TcpOutputStrategy output = new TcpOutputStrategy(0, 64 * 1024, SlowConsumerPolicy.DISCONNECT);
+        try (Socket slow = new Socket("localhost", output.getPort());
+             Socket fast = new Socket("localhost", output.getPort())) {
+            slow.setReceiveBufferSize(4096);
+            awaitClients(output, 2);
+            BufferedReader in = reader(fast);
+            String data = "x".repeat(200);
+            int lines = 0;
+            long deadline = System.currentTimeMillis() + 20_000;
+            // The slow client never reads, so its socket buffers and then its backlog fill up
+            while (output.getDisconnectedClientCount() == 0 && System.currentTimeMillis() < deadline) {
+                for (int i = 0; i < 100; i++) {
+                    output.output(1, lines++, "ECG", data);
+                }
+                for (int i = 0; i < 100; i++) {
+                    assertNotNull(in.readLine());
+                }
+            }
+            assertEquals(1, output.getDisconnectedClientCount());
+            assertEquals(1, output.getClientCount());
+
+            output.output(2, 5000L, "ECG", "0.5");
+            assertEquals("2,5000,ECG,0.5", in.readLine());
+        } finally {
+            output.close();
+        }
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        socket.setSoTimeout(10_000);
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static void awaitClients(TcpOutputStrategy output, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (output.getClientCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, output.getClientCount());
+    }
+}
@@ -0,0 +1,239 @@
+package network;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.DeltaFeedFormat;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+class WebSocketOutputStrategyTest {
+
+    @Test
+    void testCoalescesReadingsIntoFramesPerSubscription() throws Exception {
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(0, 50);
+        RecordingClient all = null;
+        RecordingClient bed2 = null;
+        try {
+            int port = awaitPort(output);
+            all = new RecordingClient(port);
+            bed2 = new RecordingClient(port);
+            assertTrue(all.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(bed2.connectBlocking(5, TimeUnit.SECONDS));
+            bed2.send("{\"patients\": [2]}");
+            Thread.sleep(500); // let the server apply the subscription
+
+            for (int i = 0; i < 100; i++) {
+                output.output(1 + i % 2, 1000L + i, "Saturation", "97%");
+            }
+            output.outputSamples(2, 5000L, 250, "ECG", new double[] {0.5, -0.25}, 2);
+
+            List<String> allLines = all.awaitLines(102);
+            assertEquals("1,1000,Saturation,97%", allLines.get(0));
+            assertEquals("2,5004,ECG,-0.25", allLines.get(101));
+            assertTrue(all.frames < 10, "expected coalesced frames, got " + all.frames);
+
+            List<String> bed2Lines = bed2.awaitLines(52);
+            assertTrue(bed2Lines.stream().allMatch(line -> line.startsWith("2,")));
+            assertEquals("2,1001,Saturation,97%", bed2Lines.get(0));
+        } finally {
+            if (all != null) {
+                all.closeBlocking();
+            }
+            if (bed2 != null) {
+                bed2.closeBlocking();
+            }
+            output.close();
+        }
+    }
+
+    @Test
+    void testDeltaFeedMatchesTextFeedInAFractionOfTheBytes() throws Exception {
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(0, 20, 300);
+        RecordingClient text = null;
+        RecordingClient delta = null;
+        RecordingClient lateDelta = null;
+        try {
+            int port = awaitPort(output);
+            text = new RecordingClient(port);
+            delta = new RecordingClient(port);
+            assertTrue(text.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(delta.connectBlocking(5, TimeUnit.SECONDS));
+            delta.send("{\"encoding\": \"delta\"}");
+            Thread.sleep(500);
+
+            double[] samples = new double[250];
+            long start = 1_700_000_000_000L;
+            for (int second = 0; second < 4; second++) {
+                if (second == 2) {
+                    lateDelta = new RecordingClient(port);
+                    assertTrue(lateDelta.connectBlocking(5, TimeUnit.SECONDS));
+                    lateDelta.send("{\"encoding\": \"delta\"}");
+                    Thread.sleep(500);
+                }
+                for (int patient = 1; patient <= 4; patient++) {
+                    for (int i = 0; i < samples.length; i++) {
+                        samples[i] = Math.round(Math.sin((second * 250 + i) / 8.0 + patient) * 10_000) / 10_000.0;
+                    }
+                    output.outputSamples(patient, start + second * 1000L, 250, "ECG", samples, samples.length);
+                    output.output(patient, start + second * 1000L, "Saturation", (96 + second % 2) + "%");
+                }
+                Thread.sleep(100);
+            }
+
+            List<String> textLines = text.awaitLines(4 * 4 * 251);
+            List<String> deltaLines = delta.awaitLines(textLines.size());
+            assertEquals(textLines.size(), deltaLines.size());
+            for (int i = 0; i < textLines.size(); i++) {
+                // The delta feed carries numbers; saturation loses its percent sign
+                assertEquals(textLines.get(i).replace("%", ".0").replaceAll(",(\\d+)$", ",$1.0"), deltaLines.get(i));
+            }
+            assertTrue(delta.bytes * 5 < text.bytes,
+                    "delta feed used " + delta.bytes + " bytes, text feed " + text.bytes);
+
+            // A late joiner starts at a keyframe and decodes the same values from there on
+            List<String> lateLines = lateDelta.awaitLines(4 * 251);
+            assertTrue(deltaLines.containsAll(lateLines));
+        } finally {
+            for (RecordingClient client : Arrays.asList(text, delta, lateDelta)) {
+                if (client != null) {
+                    client.closeBlocking();
+                }
+            }
+            output.close();
+        }
+    }
+
+    @Test
+    void testClientSwitchingSubscriptionsResyncsAtAKeyframe() throws Exception {
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(0, 20, 1000);
+        RecordingClient client = null;
+        RecordingClient firstPeer = null;
+        RecordingClient secondPeer = null;
+        try {
+            int port = awaitPort(output);
+            client = new RecordingClient(port);
+            firstPeer = new RecordingClient(port);
+            secondPeer = new RecordingClient(port);
+            assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(firstPeer.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(secondPeer.connectBlocking(5, TimeUnit.SECONDS));
+            // The peers keep both feeds running while the client is away from one of them
+            String first = "{\"encoding\": \"delta\", \"patients\": [1]}";
+            String second = "{\"encoding\": \"delta\", \"patients\": [2]}";
+            client.send(first);
+            firstPeer.send(first);
+            secondPeer.send(second);
+            Thread.sleep(200);
+
+            Set<String> sent = new HashSet<>();
+            long timestamp = 1_700_000_000_000L;
+            for (int step = 0; step < 60; step++) {
+                if (step == 10) {
+                    client.send(second);
+                } else if (step == 15) {
+                    // Back before either feed's next keyframe; the first feed moved on meanwhile
+                    client.send(first);
+                }
+                double value = step * step + 0.5; // not linear, so stale deltas decode to unsent pairs
+                output.output(1, timestamp, "HeartRate", String.valueOf(value));
+                output.output(2, timestamp, "HeartRate", String.valueOf(-value));
+                sent.add("1," + timestamp + ",HeartRate," + value);
+                sent.add("2," + timestamp + ",HeartRate," + (-value));
+                timestamp += 1000;
+                Thread.sleep(40);
+            }
+            Thread.sleep(200);
+
+            List<String> received = new ArrayList<>(client.lines);
+            assertTrue(received.size() > 20, "received only " + received);
+            for (String line : received) {
+                assertTrue(sent.contains(line), "decoded a reading that was never sent: " + line);
+            }
+            assertTrue(received.contains("1," + (timestamp - 1000) + ",HeartRate,3481.5"), "not resynced: " + received);
+        } finally {
+            for (RecordingClient c : Arrays.asList(client, firstPeer, secondPeer)) {
+                if (c != null) {
+                    c.closeBlocking();
+                }
+            }
+            output.close();
+        }
+    }
+
+    private static int awaitPort(WebSocketOutputStrategy output) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (output.getPort() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNotEquals(0, output.getPort());
+        return output.getPort();
+    }
+
+    private static final class RecordingClient extends WebSocketClient {
+        final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        final DeltaFeedFormat.Decoder decoder = new DeltaFeedFormat.Decoder();
+        final Inflater inflater = new Inflater();
+        volatile int frames;
+        volatile long bytes;
+
+        RecordingClient(int port) {
+            super(URI.create("ws://localhost:" + port));
+        }
+
+        List<String> awaitLines(int count) throws InterruptedException {
+            List<String> result = new ArrayList<>();
+            while (result.size() < count) {
+                String line = lines.poll(10, TimeUnit.SECONDS);
+                assertNotNull(line, "received only " + result);
+                result.add(line);
+            }
+            return result;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            frames++;
+            bytes += message.length();
+            lines.addAll(Arrays.asList(message.split("\n")));
+        }
+
+        @Override
+        public void onMessage(ByteBuffer frame) {
+            frames++;
+            bytes += frame.remaining();
+            try {
+                decoder.decode(frame, inflater,
+                        (patientId, label, timestamp, value) -> lines.add(patientId + "," + timestamp + "," + label + "," + value));
+            } catch (IOException e) {
+                lines.add("corrupt frame: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+}